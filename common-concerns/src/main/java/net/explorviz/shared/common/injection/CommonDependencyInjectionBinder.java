@@ -7,6 +7,7 @@ import net.explorviz.shared.common.idgen.EntityIdGenerator;
 import net.explorviz.shared.common.idgen.IdGenerator;
 import net.explorviz.shared.common.idgen.ServiceIdGenerator;
 import net.explorviz.shared.common.idgen.UuidServiceIdGenerator;
+import net.explorviz.shared.common.jsonapi.QueryFactory;
 import net.explorviz.shared.common.jsonapi.ResourceConverterFactory;
 import net.explorviz.shared.config.annotations.Config;
 import net.explorviz.shared.config.annotations.ConfigValues;
@@ -14,11 +15,13 @@ import net.explorviz.shared.config.annotations.injection.ConfigInjectionResolver
 import net.explorviz.shared.config.annotations.injection.ConfigValuesInjectionResolver;
 import net.explorviz.shared.exceptions.ErrorObjectHelper;
 import net.explorviz.shared.exceptions.JsonApiErrorObjectHelper;
+import net.explorviz.shared.querying.Query;
 import net.explorviz.shared.security.TokenParserService;
 import org.glassfish.hk2.api.InjectionResolver;
 import org.glassfish.hk2.api.PerLookup;
 import org.glassfish.hk2.api.TypeLiteral;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
+import org.glassfish.jersey.process.internal.RequestScoped;
 
 /**
  * Configures the dependency binding setup for inject during runtime.
@@ -37,6 +40,9 @@ public class CommonDependencyInjectionBinder extends AbstractBinder {
     this.bindFactory(ResourceConverterFactory.class).to(ResourceConverter.class)
         .in(Singleton.class);
 
+    // Query of the current request, parsed once by the PaginationParameterFilter
+    this.bindFactory(QueryFactory.class).to(Query.class).in(RequestScoped.class);
+
     this.bind(TokenParserService.class).to(TokenParserService.class).in(Singleton.class);
 
     // ErrorObject Handler
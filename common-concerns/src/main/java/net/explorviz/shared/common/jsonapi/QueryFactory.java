@@ -0,0 +1,42 @@
+package net.explorviz.shared.common.jsonapi;
+
+import javax.inject.Inject;
+import javax.ws.rs.container.ContainerRequestContext;
+import net.explorviz.shared.querying.PaginationParameterFilter;
+import net.explorviz.shared.querying.Query;
+import org.glassfish.hk2.api.Factory;
+
+/**
+ * Factory for the {@link Query} of the current request, such that resources can inject it instead
+ * of parsing the query parameters themselves:
+ *
+ * <pre>
+ * {@code @Inject}
+ * private Query&lt;Procezz&gt; query;
+ * </pre>
+ *
+ * <p>
+ * The query is parsed once per request, by the {@link PaginationParameterFilter} if the request
+ * is paginated. Malformed query parameters result in {@code 400 Bad Request}.
+ * </p>
+ */
+@SuppressWarnings("rawtypes")
+public class QueryFactory implements Factory<Query> {
+
+  private final ContainerRequestContext requestContext;
+
+  @Inject
+  public QueryFactory(final ContainerRequestContext requestContext) {
+    this.requestContext = requestContext;
+  }
+
+  @Override
+  public void dispose(final Query query) {
+    // Nothing to dispose
+  }
+
+  @Override
+  public Query provide() {
+    return Query.fromRequest(this.requestContext);
+  }
+}
@@ -1,9 +1,11 @@
 package net.explorviz.shared.common.jsonapi;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.jasminb.jsonapi.DeserializationFeature;
 import com.github.jasminb.jsonapi.ResourceConverter;
 import com.github.jasminb.jsonapi.SerializationFeature;
 import net.explorviz.shared.common.provider.GenericTypeFinder;
+import net.explorviz.shared.querying.SparseFieldsets;
 import org.glassfish.hk2.api.Factory;
 
 /**
@@ -13,7 +15,9 @@ public class ResourceConverterFactory implements Factory<ResourceConverter> {
   private final ResourceConverter converter;
 
   public ResourceConverterFactory() {
-    final ResourceConverter resourceConverter = new ResourceConverter();
+    // Mapper that supports sparse fieldsets, i.e., fields[type]=... query parameters
+    final ObjectMapper mapper = SparseFieldsets.configure(new ObjectMapper());
+    final ResourceConverter resourceConverter = new ResourceConverter(mapper);
 
     GenericTypeFinder.getTypeMap().forEach((name, classType) -> {
       resourceConverter.registerType(classType);
@@ -8,16 +8,22 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.MessageBodyReader;
 import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
+import net.explorviz.shared.querying.SparseFieldsets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,6 +36,9 @@ public class JsonApiListProvider implements MessageBodyReader<List<?>>, MessageB
 
   private final ResourceConverter converter;
 
+  @Context
+  private UriInfo uriInfo;
+
   @Inject
   public JsonApiListProvider(final ResourceConverter converter) {
     this.converter = converter;
@@ -56,11 +65,13 @@ public class JsonApiListProvider implements MessageBodyReader<List<?>>, MessageB
       throws IOException, WebApplicationException {
     final JSONAPIDocument<List<?>> document = new JSONAPIDocument<>(t);
 
+    final SparseFieldsets.Scope scope = SparseFieldsets.apply(this.requestedFieldsets());
     try {
       entityStream.write(this.converter.writeDocumentCollection(document));
     } catch (final DocumentSerializationException e) {
       LOGGER.error("Error when serializing Process List: ", e);
     } finally {
+      scope.close();
       entityStream.flush();
       entityStream.close();
     }
@@ -85,4 +96,11 @@ public class JsonApiListProvider implements MessageBodyReader<List<?>>, MessageB
     return true;
   }
 
+  private Map<String, Set<String>> requestedFieldsets() {
+    if (this.uriInfo == null) {
+      return Collections.emptyMap();
+    }
+    return SparseFieldsets.fromParameterMap(this.uriInfo.getQueryParameters());
+  }
+
 }
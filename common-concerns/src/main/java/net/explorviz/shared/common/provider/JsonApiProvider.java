@@ -8,27 +8,57 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.MessageBodyReader;
 import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
+import net.explorviz.shared.querying.EntityTags;
+import net.explorviz.shared.querying.SparseFieldsets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Reads and writes JSON:API documents. Successful responses to {@code GET} and {@code HEAD}
+ * requests are tagged by their content and conditional requests with a matching
+ * {@code If-None-Match} header are answered with {@code 304 Not Modified}. Since a writer does not
+ * know the status of the response, this class is a {@link ContainerResponseFilter} as well, which
+ * marks the responses to tag (registering the class registers both).
+ *
+ * @param <T> the type of the read and written resources
+ */
 @Provider
 @Produces("application/vnd.api+json")
 @Consumes("application/vnd.api+json")
-public class JsonApiProvider<T> implements MessageBodyReader<T>, MessageBodyWriter<T> {
+public class JsonApiProvider<T>
+    implements MessageBodyReader<T>, MessageBodyWriter<T>, ContainerResponseFilter {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(JsonApiProvider.class);
 
   private final ResourceConverter converter;
 
+  @Context
+  private UriInfo uriInfo;
+
+  // Request scoped, thus provided on demand
+  @Context
+  private javax.inject.Provider<ContainerRequestContext> containerRequest;
+
   @Inject
   public JsonApiProvider(final ResourceConverter converter) {
     this.converter = converter;
@@ -48,6 +78,12 @@ public class JsonApiProvider<T> implements MessageBodyReader<T>, MessageBodyWrit
     return 0;
   }
 
+  @Override
+  public void filter(final ContainerRequestContext requestContext,
+      final ContainerResponseContext responseContext) {
+    EntityTags.markConditional(requestContext, responseContext);
+  }
+
   @Override
   public void writeTo(final T t, final Class<?> type, final Type genericType,
       final Annotation[] annotations, final MediaType mediaType,
@@ -55,12 +91,35 @@ public class JsonApiProvider<T> implements MessageBodyReader<T>, MessageBodyWrit
       throws IOException, WebApplicationException {
     final JSONAPIDocument<T> document = new JSONAPIDocument<>(t);
 
+    byte[] content = null;
+    final SparseFieldsets.Scope scope = SparseFieldsets.apply(this.requestedFieldsets());
     try {
-      entityStream.write(this.converter.writeDocument(document));
+      content = this.converter.writeDocument(document);
     } catch (final DocumentSerializationException e) {
       if (LOGGER.isErrorEnabled()) {
         LOGGER.error("Error when serializing object of type" + t.getClass() + ": ", e);
       }
+    } finally {
+      scope.close();
+    }
+
+    // Answer conditional requests before anything is written, i.e. the response is committed. The
+    // 304 response of the exception is passed on unchanged by the WebApplicationExceptionMapper
+    if (content != null && this.containerRequest != null
+        && EntityTags.isMarkedConditional(this.containerRequest.get())) {
+      final EntityTag entityTag = EntityTags.ofContent(content);
+      httpHeaders.putSingle(HttpHeaders.ETAG, entityTag);
+      final ResponseBuilder notModified =
+          this.containerRequest.get().getRequest().evaluatePreconditions(entityTag);
+      if (notModified != null) {
+        throw new WebApplicationException(notModified.tag(entityTag).build());
+      }
+    }
+
+    try {
+      if (content != null) {
+        entityStream.write(content);
+      }
     } finally {
       entityStream.flush();
       entityStream.close();
@@ -82,4 +141,11 @@ public class JsonApiProvider<T> implements MessageBodyReader<T>, MessageBodyWrit
     return this.converter.readDocument(entityStream, type).get();
   }
 
+  private Map<String, Set<String>> requestedFieldsets() {
+    if (this.uriInfo == null) {
+      return Collections.emptyMap();
+    }
+    return SparseFieldsets.fromParameterMap(this.uriInfo.getQueryParameters());
+  }
+
 }
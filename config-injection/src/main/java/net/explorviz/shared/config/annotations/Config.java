@@ -16,7 +16,10 @@ import java.lang.annotation.Target;
  * {@code @Config("jwt.secret")}
  * private String secret;
  * </pre>
- * 
+ * <p/>
+ * Properties of type String, Integer and Boolean can be marked as optional with HK2's
+ * {@link org.jvnet.hk2.annotations.Optional} annotation. If such a property is not defined,
+ * {@code null} is injected instead of failing, e.g. to fall back to a default value.
  *
  * @see net.explorviz.shared.config.annotations.injection.ConfigInjectionResolver
  */
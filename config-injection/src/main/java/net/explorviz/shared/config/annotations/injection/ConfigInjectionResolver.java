@@ -2,6 +2,7 @@ package net.explorviz.shared.config.annotations.injection;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
@@ -115,17 +116,26 @@ public class ConfigInjectionResolver implements InjectionResolver<Config> {
       return this.handlePropertyLoading(injectee);
     }
 
-    if ("int".equals(t.toString())) {
+    // Primitives can't be null, optional numbers and flags must use the wrapper types
+    if (injectee.isOptional() && Integer.class != t && Boolean.class != t) {
+      LOGGER.error("Property injection failed: Optional properties must be of type "
+          + "String, Integer or Boolean");
+      throw new ConfigInjectionException("Could not inject optional property of type " + t);
+    }
+
+    if ("int".equals(t.toString()) || Integer.class == t) {
+      final String value = this.handlePropertyLoading(injectee);
       try {
-        return Integer.valueOf(this.handlePropertyLoading(injectee));
+        return value == null ? null : Integer.valueOf(value);
       } catch (final NumberFormatException e) {
         LOGGER.error("Property injection for type 'int' failed due to illegal number format");
         throw new ConfigInjectionException(e);
       }
     }
 
-    if ("boolean".equals(t.toString())) {
-      return Boolean.valueOf(this.handlePropertyLoading(injectee));
+    if ("boolean".equals(t.toString()) || Boolean.class == t) {
+      final String value = this.handlePropertyLoading(injectee);
+      return value == null ? null : Boolean.valueOf(value);
     }
 
     if (LOGGER.isErrorEnabled()) {
@@ -145,11 +155,11 @@ public class ConfigInjectionResolver implements InjectionResolver<Config> {
       if (injectee.getParent() instanceof Constructor) {
         // Check if @Config annotation is at constructor parameter level
         Constructor<?> ctor = (Constructor<?>) injectee.getParent();
-        annotation = (Config) ctor.getParameterAnnotations()[injectee.getPosition()][0];
+        annotation = findConfig(ctor.getParameterAnnotations()[injectee.getPosition()]);
       } else if (injectee.getParent() instanceof Method) {
         // Check if @Config annotation is at method parameter level
         Method ctor = (Method) injectee.getParent();
-        annotation = (Config) ctor.getParameterAnnotations()[injectee.getPosition()][0];
+        annotation = findConfig(ctor.getParameterAnnotations()[injectee.getPosition()]);
       }
     }
 
@@ -171,7 +181,11 @@ public class ConfigInjectionResolver implements InjectionResolver<Config> {
         // else try to read property in properties file
         Object resolvedProp = props.get(propName);
 
-        if (resolvedProp == null) {
+        if (resolvedProp == null && injectee.isOptional()) {
+          // Optional properties, i.e. annotated with @Optional, are injected as null
+          LOGGER.info("No value for optional property with key {}", propName);
+          return null;
+        } else if (resolvedProp == null) {
           LOGGER.error("Couldn't resolve property with key {}", propName);
           throw new ConfigInjectionException(String.format("Unknown property: %s", propName));
         }
@@ -186,6 +200,16 @@ public class ConfigInjectionResolver implements InjectionResolver<Config> {
     throw new ConfigInjectionException();
   }
 
+  private static Config findConfig(final Annotation[] parameterAnnotations) {
+    // Other annotations, e.g. @Optional, might precede the @Config annotation
+    for (final Annotation parameterAnnotation : parameterAnnotations) {
+      if (parameterAnnotation instanceof Config) {
+        return (Config) parameterAnnotation;
+      }
+    }
+    return null;
+  }
+
   @Override
   public boolean isConstructorParameterIndicator() {
     return true;
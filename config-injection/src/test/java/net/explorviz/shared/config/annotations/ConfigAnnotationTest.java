@@ -1,6 +1,7 @@
 package net.explorviz.shared.config.annotations;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import javax.inject.Inject;
 import net.explorviz.shared.config.annotations.injection.ConfigInjectionResolver;
@@ -23,6 +24,9 @@ public class ConfigAnnotationTest {
   @Inject
   TestConstructorTopLevelInjectionClass testConstrTopInjectionClass;
 
+  @Inject
+  TestOptionalInjectionClass testOptionalInjectionClass;
+
   @BeforeEach
   public void setUp() {
     // final AbstractBinder binder = new CommonDependencyInjectionBinder();
@@ -36,6 +40,7 @@ public class ConfigAnnotationTest {
             .to(TestConstructorParameterInjectionClass.class);
         this.bind(TestConstructorTopLevelInjectionClass.class)
             .to(TestConstructorTopLevelInjectionClass.class);
+        this.bind(TestOptionalInjectionClass.class).to(TestOptionalInjectionClass.class);
         this.bind(new ConfigInjectionResolver())
             .to(new TypeLiteral<InjectionResolver<Config>>() {});
       }
@@ -83,4 +88,28 @@ public class ConfigAnnotationTest {
     assertEquals(42, testConstrParamInjectionClass.testIntForConstructorParameterInjection);
   }
 
+  @Test
+  public void checkMissingOptionalConfigInjection() {
+    assertNull(testOptionalInjectionClass.testStringForMissingOptionalInjection);
+  }
+
+  @Test
+  public void checkPresentOptionalConfigInjection() {
+    assertEquals("field toplevel works",
+        testOptionalInjectionClass.testStringForPresentOptionalInjection);
+  }
+
+  @Test
+  public void checkMissingOptionalIntegerConfigInjection() {
+    assertNull(testOptionalInjectionClass.testIntegerForMissingOptionalInjection);
+    assertNull(testOptionalInjectionClass.testBooleanForMissingOptionalInjection);
+  }
+
+  @Test
+  public void checkPresentOptionalIntegerConfigInjection() {
+    assertEquals(Integer.valueOf(43),
+        testOptionalInjectionClass.testIntegerForPresentOptionalInjection);
+    assertEquals(Boolean.TRUE, testOptionalInjectionClass.testBooleanForPresentOptionalInjection);
+  }
+
 }
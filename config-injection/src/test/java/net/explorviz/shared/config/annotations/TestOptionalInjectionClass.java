@@ -0,0 +1,29 @@
+package net.explorviz.shared.config.annotations;
+
+import org.jvnet.hk2.annotations.Optional;
+
+public class TestOptionalInjectionClass {
+
+  public String testStringForMissingOptionalInjection;
+  public String testStringForPresentOptionalInjection;
+  public Integer testIntegerForMissingOptionalInjection;
+  public Integer testIntegerForPresentOptionalInjection;
+  public Boolean testBooleanForMissingOptionalInjection;
+  public Boolean testBooleanForPresentOptionalInjection;
+
+  public TestOptionalInjectionClass(@Optional @Config("unittest.optional.missing") String missing,
+      @Optional @Config("unittest.field.string") String present,
+      @Optional @Config("unittest.optional.missing") Integer missingInt,
+      @Optional @Config("unittest.field.int") Integer presentInt,
+      @Optional @Config("unittest.optional.missing") Boolean missingBoolean,
+      @Optional @Config("unittest.field.boolean") Boolean presentBoolean) {
+
+    this.testStringForMissingOptionalInjection = missing;
+    this.testStringForPresentOptionalInjection = present;
+    this.testIntegerForMissingOptionalInjection = missingInt;
+    this.testIntegerForPresentOptionalInjection = presentInt;
+    this.testBooleanForMissingOptionalInjection = missingBoolean;
+    this.testBooleanForPresentOptionalInjection = presentBoolean;
+  }
+
+}
@@ -2,6 +2,7 @@ package net.explorviz.shared.exceptions.mapper;
 
 import javax.inject.Inject;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ExceptionMapper;
 import net.explorviz.shared.exceptions.ErrorObjectHelper;
@@ -11,7 +12,8 @@ import org.slf4j.LoggerFactory;
 /**
  * Top-level exception mapper that prevents exception bleeding to the outside world.
  * {@link WebApplicationException} and its sub classes are catched and transferred to a JSON-API
- * compliant error object.
+ * compliant error object. Exceptions carrying a redirection (3xx) response, e.g. {@code 304 Not
+ * Modified}, are not errors and their response is returned unchanged.
  */
 public class WebApplicationExceptionMapper implements ExceptionMapper<WebApplicationException> {
 
@@ -29,6 +31,12 @@ public class WebApplicationExceptionMapper implements ExceptionMapper<WebApplica
 
     final int httpStatus = exception.getResponse().getStatus();
 
+    // Not an error, e.g. 304 Not Modified. Such responses must not get a body and keep their
+    // headers, e.g. the ETag
+    if (exception.getResponse().getStatusInfo().getFamily() == Response.Status.Family.REDIRECTION) {
+      return exception.getResponse();
+    }
+
     LOGGER.error("Error occured: HTTP Status={}", httpStatus, exception);
 
     final String errorString = this.errorObjectHelper.createErrorObjectString(httpStatus,
@@ -42,6 +50,12 @@ public class WebApplicationExceptionMapper implements ExceptionMapper<WebApplica
       response.header("WWW-Authenticate", "realm='ExplorViz Secured'");
     }
 
+    // E.g. set for 429 and 503 responses
+    final String retryAfter = exception.getResponse().getHeaderString(HttpHeaders.RETRY_AFTER);
+    if (retryAfter != null) {
+      response.header(HttpHeaders.RETRY_AFTER, retryAfter);
+    }
+
     return response.build();
   }
 }
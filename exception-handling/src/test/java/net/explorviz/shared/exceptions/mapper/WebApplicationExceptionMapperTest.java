@@ -1,9 +1,14 @@
 package net.explorviz.shared.exceptions.mapper;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import javax.ws.rs.ClientErrorException;
 import javax.ws.rs.NotFoundException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import net.explorviz.shared.exceptions.ErrorObjectHelper;
 import net.explorviz.shared.exceptions.JsonApiErrorObjectHelper;
@@ -54,4 +59,33 @@ public class WebApplicationExceptionMapperTest {
 
     assertTrue(errorObj.contains(testBleeding));
   }
+
+  /**
+   * Test if the {@code Retry-After} header of the exception is kept.
+   */
+  @Test
+  public void testPassingOfRetryAfter() {
+    final Response tooManyRequests =
+        Response.status(429).header(HttpHeaders.RETRY_AFTER, "1").build();
+
+    final Response r =
+        this.exceptionMapper.toResponse(new ClientErrorException(tooManyRequests));
+
+    assertEquals(429, r.getStatus());
+    assertEquals("1", r.getHeaderString(HttpHeaders.RETRY_AFTER));
+  }
+
+  /**
+   * Test if redirection responses, e.g. 304, are returned unchanged without error object.
+   */
+  @Test
+  public void testPassingOfNotModified() {
+    final Response notModified = Response.notModified(new EntityTag("abc")).build();
+
+    final Response r = this.exceptionMapper.toResponse(new WebApplicationException(notModified));
+
+    assertEquals(304, r.getStatus());
+    assertEquals("\"abc\"", r.getHeaderString(HttpHeaders.ETAG));
+    assertNull(r.getEntity());
+  }
 }
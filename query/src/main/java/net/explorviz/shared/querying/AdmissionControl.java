@@ -0,0 +1,172 @@
+package net.explorviz.shared.querying;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the queries each user runs at the same time, such that a single user can not saturate a
+ * backend and starve the others. Every user has a budget of concurrent queries and of their summed
+ * up cost (see {@link QueryCost}). A query is admitted if it fits into the remaining budget of its
+ * user. Otherwise it is rejected, or waits until earlier queries of the same user finished, up to a
+ * given time.
+ *
+ * <p>
+ * A query whose cost alone exceeds the budget is admitted if the user has no other query running,
+ * such that it is delayed but not rejected forever. Queries of different users never wait for
+ * each other. This class is thread-safe.
+ * </p>
+ */
+public class AdmissionControl {
+
+  private final int maxConcurrent;
+  private final long maxCost;
+
+  private final Map<String, Budget> budgets = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a new admission control.
+   *
+   * @param maxConcurrent the maximum amount of concurrent queries per user
+   * @param maxCost the maximum summed up cost of the concurrent queries per user
+   * @throws IllegalArgumentException if a limit is not positive
+   */
+  public AdmissionControl(int maxConcurrent, long maxCost) {
+    if (maxConcurrent <= 0 || maxCost <= 0) {
+      throw new IllegalArgumentException("Limits must be positive");
+    }
+    this.maxConcurrent = maxConcurrent;
+    this.maxCost = maxCost;
+  }
+
+  /**
+   * Admits a query of a user, waiting for the budget of the user if necessary.
+   *
+   * @param user the name of the user
+   * @param cost the estimated cost of the query
+   * @param timeout the maximum time to wait
+   * @param unit the unit of {@code timeout}
+   * @return the permit to release once the query finished, or {@code null} if the query was not
+   *         admitted in time
+   * @throws InterruptedException if the thread was interrupted while waiting
+   */
+  public Permit acquire(String user, long cost, long timeout, TimeUnit unit)
+      throws InterruptedException {
+    // Budgets are removed once no thread refers to them anymore
+    final Budget budget = budgets.compute(user, (u, b) -> {
+      final Budget referenced = b == null ? new Budget() : b;
+      referenced.references++;
+      return referenced;
+    });
+
+    boolean admitted = false;
+    try {
+      synchronized (budget) {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!budget.admits(cost)) {
+          final long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            return null;
+          }
+          TimeUnit.NANOSECONDS.timedWait(budget, remaining);
+        }
+        budget.running++;
+        budget.cost += cost;
+        admitted = true;
+      }
+      return new Permit(user, budget, cost);
+    } finally {
+      if (!admitted) {
+        dereference(user);
+      }
+    }
+  }
+
+  /**
+   * Admits a query of a user if it fits into the remaining budget of the user, without waiting.
+   *
+   * @param user the name of the user
+   * @param cost the estimated cost of the query
+   * @return the permit to release once the query finished, or {@code null} if the query was not
+   *         admitted
+   */
+  public Permit tryAcquire(String user, long cost) {
+    try {
+      return acquire(user, cost, 0, TimeUnit.NANOSECONDS);
+    } catch (final InterruptedException e) {
+      // Not thrown, since acquire does not wait without a timeout
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  /**
+   * Amount of queries of a user that are currently running.
+   *
+   * @param user the name of the user
+   * @return the amount of admitted queries whose permits were not released yet
+   */
+  public int getRunning(String user) {
+    final Budget budget = budgets.get(user);
+    if (budget == null) {
+      return 0;
+    }
+    synchronized (budget) {
+      return budget.running;
+    }
+  }
+
+  private void dereference(String user) {
+    budgets.computeIfPresent(user, (u, b) -> --b.references == 0 ? null : b);
+  }
+
+  /**
+   * The queries of a user that are currently running. The references are only modified while
+   * holding the lock of the map entry, everything else while holding the lock of the budget.
+   */
+  private final class Budget {
+
+    private int references;
+    private int running;
+    private long cost;
+
+    private boolean admits(long additionalCost) {
+      return running == 0 || running < maxConcurrent && cost + additionalCost <= maxCost;
+    }
+  }
+
+  /**
+   * An admitted query, which must be released when it finished.
+   */
+  public final class Permit {
+
+    private final String user;
+    private final Budget budget;
+    private final long cost;
+    private boolean released;
+
+    private Permit(String user, Budget budget, long cost) {
+      this.user = user;
+      this.budget = budget;
+      this.cost = cost;
+    }
+
+    /**
+     * Returns the cost of the query to the budget of its user. Releasing a permit more than once
+     * has no effect.
+     */
+    public void release() {
+      synchronized (budget) {
+        if (released) {
+          return;
+        }
+        released = true;
+        budget.running--;
+        budget.cost -= cost;
+        budget.notifyAll();
+      }
+      dereference(user);
+    }
+  }
+
+}
@@ -0,0 +1,174 @@
+package net.explorviz.shared.querying;
+
+import java.io.IOException;
+import java.security.Principal;
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import net.explorviz.shared.config.annotations.Config;
+import org.jvnet.hk2.annotations.Optional;
+
+/**
+ * Filter that enforces per-user limits on the queries of GET requests, see
+ * {@link AdmissionControl}. The cost of the {@link Query} of a request is estimated by
+ * {@link QueryCost}, the cost of a batch (see {@link BatchQueries}) is the sum of the costs of its
+ * queries. The user is identified by the principal of the security context, e.g. the
+ * {@code TokenBasedSecurityContext} prepared by the authentication filter. Unauthenticated
+ * requests share a single budget. Only requests of resource methods annotated with
+ * {@link AdmissionControlled} are subject to this filter.
+ *
+ * <p>
+ * A request that does not fit into the budget of its user is rejected right away with
+ * {@code 429 Too Many Requests} and a {@code Retry-After} header, such that no container thread
+ * waits for the budget. The budget is returned once the response was written, since serializing
+ * the results is part of the effort of a query.
+ * </p>
+ *
+ * <p>
+ * The filter runs after authentication and authorization. Since response filters run in reverse
+ * order, its response filter runs after the filters with default priority, e.g. the entity tag
+ * filters of {@link PaginationJsonApiWriter} and {@link BatchJsonApiWriter}. These drop the entity
+ * of a {@code 304 Not Modified} response, whose budget must be returned by the response filter.
+ * </p>
+ *
+ * <p>
+ * The limits are read from the optional properties {@code query.admission.maxConcurrent}
+ * (concurrent requests per user, defaults to 4) and {@code query.admission.maxCost} (summed up cost
+ * of these requests, defaults to 5000). The optional property {@code query.maxPageSize} (defaults
+ * to 100) is used to estimate the cost of unpaginated queries.
+ * </p>
+ */
+@Provider
+@AdmissionControlled
+@Priority(Priorities.USER - 100)
+public class AdmissionControlFilter
+    implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+  private static final String PERMIT_PROPERTY = AdmissionControl.Permit.class.getName();
+
+  private static final String ANONYMOUS = "";
+
+  private static final String RETRY_AFTER_SECONDS = "1";
+
+  private static final int DEFAULT_MAX_CONCURRENT = 4;
+  private static final int DEFAULT_MAX_COST = 5000;
+  private static final int DEFAULT_MAX_PAGE_SIZE = 100;
+
+  private final AdmissionControl admissionControl;
+  private final int maxPageSize;
+
+  /**
+   * Creates a new filter. Limits that are {@code null} fall back to their defaults.
+   *
+   * @param maxConcurrent the maximum amount of concurrent requests per user
+   * @param maxCost the maximum summed up cost of the concurrent requests per user
+   * @param maxPageSize the maximum page size clients can request
+   */
+  @Inject
+  public AdmissionControlFilter(
+      @Optional @Config("query.admission.maxConcurrent") final Integer maxConcurrent,
+      @Optional @Config("query.admission.maxCost") final Integer maxCost,
+      @Optional @Config("query.maxPageSize") final Integer maxPageSize) {
+    this.admissionControl =
+        new AdmissionControl(orDefault(maxConcurrent, DEFAULT_MAX_CONCURRENT),
+            orDefault(maxCost, DEFAULT_MAX_COST));
+    this.maxPageSize = orDefault(maxPageSize, DEFAULT_MAX_PAGE_SIZE);
+  }
+
+  private static int orDefault(final Integer value, final int defaultValue) {
+    return value == null ? defaultValue : value;
+  }
+
+  @Override
+  public void filter(ContainerRequestContext requestContext) throws IOException {
+    if (!HttpMethod.GET.equals(requestContext.getMethod())) {
+      return;
+    }
+
+    final long cost;
+    try {
+      cost = estimate(requestContext);
+    } catch (final IllegalArgumentException e) {
+      // Malformed queries of a batch are rejected by BatchQueries
+      return;
+    }
+
+    final Principal principal = requestContext.getSecurityContext() == null ? null
+        : requestContext.getSecurityContext().getUserPrincipal();
+    final String user = principal == null ? ANONYMOUS : principal.getName();
+
+    final AdmissionControl.Permit permit = admissionControl.tryAcquire(user, cost);
+    if (permit == null) {
+      throw new ClientErrorException("Too many concurrent or expensive queries, retry later",
+          Response.status(Status.TOO_MANY_REQUESTS)
+              .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+              .build());
+    }
+    requestContext.setProperty(PERMIT_PROPERTY, permit);
+  }
+
+  /**
+   * Estimates the cost of the query of a request, or the summed up cost of the queries of a batch
+   * (see {@link BatchQueries}).
+   */
+  private long estimate(ContainerRequestContext requestContext) {
+    final MultivaluedMap<String, String> parameters =
+        requestContext.getUriInfo().getQueryParameters(true);
+    if (!parameters.containsKey(BatchQueries.BATCH)) {
+      return QueryCost.estimate(Query.fromRequest(requestContext), maxPageSize);
+    }
+
+    long cost = 0;
+    for (final String name : BatchQueries.names(parameters)) {
+      cost += QueryCost.estimate(
+          Query.fromParameterMap(BatchQueries.parametersOf(name, parameters)), maxPageSize);
+    }
+    return Math.max(1, cost);
+  }
+
+  /**
+   * Returns the budget of responses without entity, which are not written by a
+   * {@link javax.ws.rs.ext.MessageBodyWriter}, e.g. responses to conditional requests.
+   */
+  @Override
+  public void filter(ContainerRequestContext requestContext,
+      ContainerResponseContext responseContext) throws IOException {
+    if (!responseContext.hasEntity()) {
+      release(requestContext.getProperty(PERMIT_PROPERTY));
+      requestContext.removeProperty(PERMIT_PROPERTY);
+    }
+  }
+
+  /**
+   * Returns the budget once the entity was written, or writing it failed.
+   */
+  @Override
+  public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+    try {
+      context.proceed();
+    } finally {
+      release(context.getProperty(PERMIT_PROPERTY));
+      context.removeProperty(PERMIT_PROPERTY);
+    }
+  }
+
+  private static void release(Object permit) {
+    if (permit != null) {
+      ((AdmissionControl.Permit) permit).release();
+    }
+  }
+
+}
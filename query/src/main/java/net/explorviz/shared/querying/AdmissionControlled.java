@@ -0,0 +1,19 @@
+package net.explorviz.shared.querying;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import javax.ws.rs.NameBinding;
+
+/**
+ * Annotate a resource method that runs a {@link Query} (or a resource class whose methods do) with
+ * {@code @AdmissionControlled} to subject its requests to the {@link AdmissionControlFilter}.
+ * Requests of other methods, e.g. for a single resource by its id, are not charged to the budget of
+ * their user.
+ */
+@NameBinding
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AdmissionControlled {
+}
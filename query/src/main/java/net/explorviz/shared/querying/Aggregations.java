@@ -0,0 +1,206 @@
+package net.explorviz.shared.querying;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregates over the resources matching a {@link Query}, as requested by the
+ * {@code aggregate[function]=attribute1,attribute2} query parameter. Currently the only supported
+ * function is {@code count}, which groups the matching resources by the value of an attribute and
+ * counts the resources in each group (bucket). For example, {@code
+ * aggregate[count]=programming-language} yields
+ *
+ * <pre>
+ * {@code {"count": {"programming-language": {"Java": 12, "Python": 3}}}}
+ * </pre>
+ *
+ * <p>
+ * Aggregates are exposed as {@code meta.aggregations} by {@link PaginationJsonApiWriter}. In-memory
+ * {@link Queryable}s compute them with a {@link Counter} in the same pass that filters the
+ * resources. Related resources are grouped by their id, missing values form the bucket
+ * {@code null}.
+ * </p>
+ */
+public final class Aggregations {
+
+  /**
+   * Name of the count function.
+   */
+  public static final String COUNT = "count";
+
+  private static final String NULL_BUCKET = "null";
+
+  // Attribute -> (bucket -> count)
+  private final Map<String, Map<String, Long>> counts;
+
+  private Aggregations(Map<String, Map<String, Long>> counts) {
+    this.counts = Collections.unmodifiableMap(counts);
+  }
+
+  /**
+   * The counts per bucket of each attribute requested by {@code aggregate[count]}.
+   *
+   * @return map of attribute names to the buckets of the attribute, each mapped to the amount of
+   *         resources in it. Buckets are sorted by their name.
+   */
+  public Map<String, Map<String, Long>> getCounts() {
+    return counts;
+  }
+
+  /**
+   * Combines the aggregates of disjoint sets of resources, e.g. the partitions of a
+   * {@link ShardedQueryable}.
+   *
+   * @param parts the aggregates to combine
+   * @return the combined aggregates
+   */
+  public static Aggregations sum(Collection<Aggregations> parts) {
+    final Map<String, Map<String, Long>> sum = new LinkedHashMap<>();
+    for (final Aggregations part : parts) {
+      part.counts.forEach((attribute, buckets) -> {
+        final Map<String, Long> target = sum.computeIfAbsent(attribute, a -> new TreeMap<>());
+        buckets.forEach((bucket, count) -> target.merge(bucket, count, Long::sum));
+      });
+    }
+    return new Aggregations(sum);
+  }
+
+  /**
+   * Creates a counter for the aggregates requested by the query.
+   *
+   * @param <T> the type of the resources
+   * @param query the query
+   * @param resourceClass the class of the resources
+   * @return the counter
+   * @throws QueryException if the query requests an unsupported function or unknown attributes
+   */
+  public static <T> Counter<T> counter(Query<T> query, Class<? extends T> resourceClass)
+      throws QueryException {
+    final ResourceAttributes attributes = ResourceAttributes.of(resourceClass);
+    final Map<String, AttributeAccessor> accessors = new LinkedHashMap<>();
+
+    for (final Map.Entry<String, List<String>> aggregation : query.getAggregations().entrySet()) {
+      if (!COUNT.equals(aggregation.getKey())) {
+        throw new InvalidQueryException(
+            String.format("Unsupported aggregation function '%s'", aggregation.getKey()));
+      }
+      for (final String attribute : aggregation.getValue()) {
+        final AttributeAccessor accessor = attributes.require(attribute);
+        accessors.put(accessor.getName(), accessor);
+      }
+    }
+    return new Counter<>(accessors.values());
+  }
+
+  /**
+   * Computes the aggregates requested by the query over the given resources in a single pass.
+   *
+   * @param <T> the type of the resources
+   * @param query the query
+   * @param resourceClass the class of the resources
+   * @param matches the resources matching the query, regardless of pagination
+   * @return the aggregates
+   * @throws QueryException if the query requests an unsupported function or unknown attributes
+   */
+  public static <T> Aggregations count(Query<T> query, Class<? extends T> resourceClass,
+      Iterable<? extends T> matches) throws QueryException {
+    final Counter<T> counter = counter(query, resourceClass);
+    for (final T resource : matches) {
+      counter.accept(resource);
+    }
+    return counter.toAggregations();
+  }
+
+  /**
+   * Counts resources by the values of the requested attributes. Instances are not thread-safe.
+   *
+   * @param <T> the type of the resources
+   */
+  public static final class Counter<T> {
+
+    private final Map<String, AttributeAccessor> pending = new LinkedHashMap<>();
+    private final Map<String, Map<Object, long[]>> buckets = new LinkedHashMap<>();
+    private AttributeAccessor[] accessors;
+    private Map<Object, long[]>[] targets;
+
+    private Counter(Collection<AttributeAccessor> accessors) {
+      for (final AttributeAccessor accessor : accessors) {
+        pending.put(accessor.getName(), accessor);
+        buckets.put(accessor.getName(), new HashMap<>());
+      }
+    }
+
+    /**
+     * Takes the counts of an attribute from an index, e.g. if all resources match the query. The
+     * attribute is not counted by {@link #accept(Object)} afterwards.
+     *
+     * @param attribute the name of the attribute
+     * @param index map of attribute values to the resources having the value
+     * @return {@code True} iff the attribute is aggregated by this counter
+     */
+    boolean countIndex(String attribute, Map<?, ? extends Collection<?>> index) {
+      if (pending.remove(attribute) == null) {
+        return false;
+      }
+      accessors = null;
+      final Map<Object, long[]> target = buckets.get(attribute);
+      index.forEach((value, resources) -> target.put(value, new long[] {resources.size()}));
+      return true;
+    }
+
+    /**
+     * Checks whether some attributes still have to be counted by {@link #accept(Object)}.
+     *
+     * @return {@code True} iff resources need to be passed to the counter
+     */
+    public boolean needsResources() {
+      return !pending.isEmpty();
+    }
+
+    /**
+     * Counts a resource.
+     *
+     * @param resource a resource matching the query
+     */
+    public void accept(T resource) {
+      if (accessors == null) {
+        prepare();
+      }
+      for (int i = 0; i < accessors.length; i++) {
+        targets[i].computeIfAbsent(accessors[i].get(resource), v -> new long[1])[0]++;
+      }
+    }
+
+    // Generic arrays can not be created, the array holds the buckets of the attributes only
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void prepare() {
+      accessors = pending.values().toArray(new AttributeAccessor[0]);
+      targets = new Map[accessors.length];
+      for (int i = 0; i < accessors.length; i++) {
+        targets[i] = buckets.get(accessors[i].getName());
+      }
+    }
+
+    /**
+     * Creates the aggregates of all counted resources.
+     *
+     * @return the aggregates
+     */
+    public Aggregations toAggregations() {
+      final Map<String, Map<String, Long>> counts = new LinkedHashMap<>();
+      buckets.forEach((attribute, values) -> {
+        final Map<String, Long> sorted = new TreeMap<>();
+        values.forEach((value, count) -> sorted
+            .merge(value == null ? NULL_BUCKET : String.valueOf(value), count[0], Long::sum));
+        counts.put(attribute, sorted);
+      });
+      return new Aggregations(counts);
+    }
+  }
+
+}
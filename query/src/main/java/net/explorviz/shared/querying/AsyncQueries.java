@@ -0,0 +1,62 @@
+package net.explorviz.shared.querying;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+
+/**
+ * Connects {@link AsyncQueryable}s to asynchronous JAX-RS resources. For example:
+ *
+ * <pre>
+ * {@code @GET}
+ * {@code public void getProcezzes(@Context UriInfo uri, @Suspended AsyncResponse response) {}
+ * {@code   AsyncQueries.resume(response, procezzes.queryAsync(Query.fromParameterMap(...)));}
+ * {@code }}
+ * </pre>
+ *
+ * <p>
+ * The container thread returns as soon as the query was started. Once the query completes, the
+ * response is resumed with the {@link QueryResult}, which is serialized by
+ * {@link PaginationJsonApiWriter} including the pagination links, as for synchronous resources.
+ * The results of a batch of queries (see {@link BatchQueries#executeAsync(java.util.Map)}) are
+ * passed on in the same way.
+ * </p>
+ */
+public final class AsyncQueries {
+
+  private AsyncQueries() {
+    // Utility class
+  }
+
+  /**
+   * Resumes the suspended response once the query completes. An invalid query, i.e. an
+   * {@link InvalidQueryException}, results in {@code 400 Bad Request}. Other failures, including
+   * other {@link QueryException}s, are passed to the exception mappers, as if they were thrown by a
+   * synchronous resource method.
+   *
+   * @param <R> the type of the result, i.e. a {@link QueryResult} or a {@link Batch}
+   * @param response the response, see {@link Suspended}
+   * @param result the pending result, see {@link AsyncQueryable#queryAsync(Query)}
+   */
+  public static <R> void resume(AsyncResponse response, CompletionStage<R> result) {
+    result.whenComplete((queryResult, failure) -> {
+      if (failure == null) {
+        response.resume(queryResult);
+        return;
+      }
+
+      final Throwable cause =
+          failure instanceof CompletionException && failure.getCause() != null
+              ? failure.getCause()
+              : failure;
+      if (cause instanceof InvalidQueryException) {
+        response.resume(new BadRequestException(cause.getMessage(), cause));
+      } else {
+        response.resume(cause);
+      }
+    });
+  }
+
+}
@@ -0,0 +1,45 @@
+package net.explorviz.shared.querying;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * Non-blocking counterpart of {@link Queryable}. Instead of blocking the calling thread until the
+ * backing store answered, the query is started and a stage that completes with the result is
+ * returned. Resources can pass the stage to {@link AsyncQueries} to free the container thread
+ * while the query runs.
+ *
+ * @param <T> the type of the resulting objects
+ */
+public interface AsyncQueryable<T> {
+
+  /**
+   * Starts the given query.
+   * 
+   * @param query the query to execute
+   * @return stage that completes with a {@link QueryResult} or exceptionally with a
+   *         {@link QueryException} if the query could not be executed
+   */
+  CompletionStage<QueryResult<T>> queryAsync(Query<T> query);
+
+  /**
+   * Adapts a blocking queryable by executing its queries with the given executor.
+   * 
+   * @param <T> the type of the resulting objects
+   * @param queryable the blocking queryable
+   * @param executor executes the blocking queries, e.g. a pool sized for the backing store
+   * @return the non-blocking queryable
+   */
+  static <T> AsyncQueryable<T> of(Queryable<T> queryable, Executor executor) {
+    return query -> CompletableFuture.supplyAsync(() -> {
+      try {
+        return queryable.query(query);
+      } catch (final QueryException e) {
+        throw new CompletionException(e);
+      }
+    }, executor);
+  }
+
+}
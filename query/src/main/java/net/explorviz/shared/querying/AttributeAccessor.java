@@ -0,0 +1,116 @@
+package net.explorviz.shared.querying;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * Reads a single attribute of a resource. The attribute is resolved once via reflection into a
+ * {@link MethodHandle}, such that reading the attribute afterwards has the cost of a direct field
+ * access. Use {@link ResourceAttributes#of(Class)} to obtain the accessors of a resource class.
+ *
+ * <p>
+ * To-one relationships are read as the id of the related resource, e.g. the {@code agent}
+ * attribute of a procezz yields the id of its agent.
+ * </p>
+ */
+public final class AttributeAccessor {
+
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+  private final String name;
+  private final Class<?> type;
+  private final MethodHandle getter;
+  private final AttributeAccessor relatedId;
+
+  private AttributeAccessor(String name, Class<?> type, MethodHandle getter,
+      AttributeAccessor relatedId) {
+    this.name = name;
+    this.type = type;
+    this.getter = getter;
+    this.relatedId = relatedId;
+  }
+
+  /**
+   * Creates an accessor for a plain attribute.
+   *
+   * @param name the JSON:API name of the attribute
+   * @param field the field that holds the attribute
+   * @return the accessor
+   * @throws IllegalAccessException if the field can not be made accessible
+   */
+  static AttributeAccessor forField(String name, Field field) throws IllegalAccessException {
+    return new AttributeAccessor(name, field.getType(), unreflect(field), null);
+  }
+
+  /**
+   * Creates an accessor for a to-one relationship, which yields the id of the related resource.
+   *
+   * @param name the JSON:API name of the relationship
+   * @param field the field that holds the related resource
+   * @param relatedId the accessor for the id of the related resource
+   * @return the accessor
+   * @throws IllegalAccessException if the field can not be made accessible
+   */
+  static AttributeAccessor forRelationship(String name, Field field, AttributeAccessor relatedId)
+      throws IllegalAccessException {
+    return new AttributeAccessor(name, relatedId.getType(), unreflect(field), relatedId);
+  }
+
+  private static MethodHandle unreflect(Field field) throws IllegalAccessException {
+    field.setAccessible(true);
+    return MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE);
+  }
+
+  /**
+   * The name of the attribute as used in JSON:API documents and filter parameters.
+   *
+   * @return the name of the attribute
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * The type of the attribute values. For relationships this is the type of the related id.
+   *
+   * @return the type of the values returned by {@link #get(Object)}
+   */
+  public Class<?> getType() {
+    return type;
+  }
+
+  /**
+   * Checks whether this accessor reads a to-one relationship.
+   *
+   * @return {@code True} iff the attribute is a relationship
+   */
+  public boolean isRelationship() {
+    return relatedId != null;
+  }
+
+  /**
+   * Reads the attribute of the given resource.
+   *
+   * @param resource the resource to read from
+   * @return the value of the attribute, primitives are boxed
+   */
+  public Object get(Object resource) {
+    final Object value;
+    try {
+      value = (Object) getter.invokeExact(resource);
+    } catch (RuntimeException | Error e) { // NOPMD
+      throw e;
+    } catch (Throwable e) { // NOPMD
+      // Getters of fields do not throw checked exceptions
+      throw new IllegalStateException(e);
+    }
+
+    if (relatedId != null && value != null) {
+      return relatedId.get(value);
+    }
+    return value;
+  }
+
+}
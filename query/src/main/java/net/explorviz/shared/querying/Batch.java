@@ -0,0 +1,43 @@
+package net.explorviz.shared.querying;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Results of a batch of named queries, see {@link BatchQueries}. Serialized by
+ * {@link BatchJsonApiWriter} as one JSON:API document per query.
+ */
+public final class Batch {
+
+  private final Map<String, QueryResult<?>> results;
+
+  /**
+   * Creates a new batch.
+   *
+   * @param results the results by the name of their query, in the order of the request
+   */
+  public Batch(Map<String, ? extends QueryResult<?>> results) {
+    this.results = Collections.unmodifiableMap(new LinkedHashMap<>(results));
+  }
+
+  /**
+   * The results of all queries of the batch.
+   *
+   * @return the results by the name of their query, in the order of the request
+   */
+  public Map<String, QueryResult<?>> getResults() {
+    return results;
+  }
+
+  /**
+   * The result of a single query of the batch.
+   *
+   * @param name the name of the query
+   * @return the result or {@code null} if the batch contains no query of the given name
+   */
+  public QueryResult<?> get(String name) {
+    return results.get(name);
+  }
+
+}
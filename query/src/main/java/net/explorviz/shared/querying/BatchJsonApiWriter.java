@@ -0,0 +1,145 @@
+package net.explorviz.shared.querying;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jasminb.jsonapi.ResourceConverter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Map;
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Serializes a {@link Batch} as a single JSON object, whose members are named after the queries
+ * of the batch and hold the JSON:API document of the respective result, e.g.
+ *
+ * <pre>
+ * {"procezzes": {"data": [...], "links": {...}}, "apps": {"data": [...], "meta": {...}}}
+ * </pre>
+ *
+ * <p>
+ * Each document is written exactly like the response to a single query by
+ * {@link PaginationJsonApiWriter}, including streaming, sparse fieldsets and meta information.
+ * The pagination links of a query point to the whole batch, with only the (prefixed) pagination
+ * parameters of that query replaced. Entity tags are derived from the versions of all results if
+ * every result has one. Otherwise the batch is only tagged, by its serialized content, if the
+ * resource method is annotated with {@link ContentEntityTag}. Like the
+ * {@link PaginationJsonApiWriter}, this class is also a {@link ContainerResponseFilter} that
+ * answers conditional requests for versioned batches before the batch is written. Only successful
+ * responses to {@code GET} and {@code HEAD} requests are tagged.
+ * </p>
+ */
+@Provider
+@Produces("application/vnd.api+json")
+public class BatchJsonApiWriter implements MessageBodyWriter<Batch>, ContainerResponseFilter {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @Context
+  private HttpServletRequest httpRequest;
+
+  // Request scoped, thus provided on demand
+  @Context
+  private javax.inject.Provider<ContainerRequestContext> containerRequest;
+
+  private final ResourceConverter converter;
+
+  @Inject
+  public BatchJsonApiWriter(final ResourceConverter converter) {
+    this.converter = converter;
+  }
+
+  @Override
+  public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType) {
+    return Batch.class.isAssignableFrom(type);
+  }
+
+  /**
+   * Tags successful responses to {@code GET} and {@code HEAD} requests with a result that has a
+   * version and answers conditional requests before the result is written, i.e. without
+   * serializing it at all. These responses are marked as well, such that the writer can tag
+   * results without version by their content (see {@link EntityTags#markConditional}).
+   */
+  @Override
+  public void filter(ContainerRequestContext requestContext,
+      ContainerResponseContext responseContext) {
+    if (EntityTags.markConditional(requestContext, responseContext)
+        && responseContext.getEntity() instanceof Batch) {
+      EntityTags.evaluatePreconditions(
+          EntityTags.ofVersion((Batch) responseContext.getEntity()), requestContext,
+          responseContext);
+    }
+  }
+
+  @Override
+  public void writeTo(Batch batch, Class<?> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+      throws IOException, WebApplicationException {
+
+    byte[] content = null;
+    if (EntityTags.byContent(annotations) && containerRequest != null
+        && EntityTags.isMarkedConditional(containerRequest.get())
+        && EntityTags.ofVersion(batch) == null) {
+      // Without a version, the document must be serialized to compute a tag from its content. A
+      // matching request can only be answered by an exception now, whose 304 response is passed
+      // on unchanged by the exception mappers
+      final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      writeBatch(batch, buffer);
+      content = buffer.toByteArray();
+      final EntityTag entityTag = EntityTags.ofContent(content);
+      httpHeaders.putSingle(HttpHeaders.ETAG, entityTag);
+      final ResponseBuilder notModified =
+          containerRequest.get().getRequest().evaluatePreconditions(entityTag);
+      if (notModified != null) {
+        throw new WebApplicationException(notModified.tag(entityTag).build());
+      }
+    }
+
+    // Not closed if serialization fails, such that the response is aborted rather than completed
+    if (content == null) {
+      writeBatch(batch, entityStream);
+    } else {
+      entityStream.write(content);
+    }
+    entityStream.flush();
+    entityStream.close();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void writeBatch(Batch batch, OutputStream out) throws IOException {
+    final PaginationJsonApiWriter<Object> documentWriter =
+        new PaginationJsonApiWriter<>(converter, httpRequest);
+
+    final JsonGenerator generator = MAPPER.getFactory().createGenerator(out);
+    try {
+      generator.writeStartObject();
+      for (final Map.Entry<String, QueryResult<?>> result : batch.getResults().entrySet()) {
+        generator.writeFieldName(result.getKey());
+        // The type of the resources does not matter for the serialization
+        documentWriter.writeDocument((QueryResult<Object>) result.getValue(), Object.class,
+            generator, result.getKey() + BatchQueries.SEPARATOR);
+      }
+      generator.writeEndObject();
+    } finally {
+      generator.flush();
+    }
+  }
+
+}
@@ -0,0 +1,207 @@
+package net.explorviz.shared.querying;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * Executes several named queries in one round trip, such that a client that needs multiple lists
+ * (e.g. when a page of the frontend is loaded) pays for authentication, parsing and the connection
+ * only once. Each query targets a registered {@link Queryable}, all queries of a batch run in
+ * parallel. For example:
+ *
+ * <pre>
+ * {@code @GET}
+ * {@code @Path("batch")}
+ * {@code public void batch(@Context UriInfo uri, @Suspended AsyncResponse response) {}
+ * {@code   AsyncQueries.resume(response,}
+ * {@code       batchQueries.executeAsync(batchQueries.parse(uri.getQueryParameters(true))));}
+ * {@code }}
+ * </pre>
+ *
+ * <p>
+ * The names of the queries of a batch are given by the parameter {@code batch}, e.g.
+ * {@code batch=procezzes,apps}. The parameters of a query are the usual query parameters prefixed
+ * by its name and a dot, e.g. {@code procezzes.filter[name]=java&procezzes.page[size]=10}. The
+ * results are serialized by {@link BatchJsonApiWriter}.
+ * </p>
+ */
+public class BatchQueries {
+
+  /**
+   * Parameter listing the names of the queries of a batch.
+   */
+  public static final String BATCH = "batch";
+
+  /**
+   * Separates the name of a query from its parameters.
+   */
+  public static final char SEPARATOR = '.';
+
+  private final Map<String, AsyncQueryable<?>> queryables = new ConcurrentHashMap<>();
+
+  private final Executor executor;
+  private final PaginationParameterFilter validator;
+
+  /**
+   * Creates a new batch executor.
+   *
+   * @param executor executes the queries of blocking queryables, e.g. a pool sized for the backing
+   *        store
+   * @param maxPageSize the maximum page size of each query, see {@link PaginationParameterFilter}
+   */
+  public BatchQueries(Executor executor, int maxPageSize) {
+    this.executor = executor;
+    this.validator = new PaginationParameterFilter(maxPageSize);
+  }
+
+  /**
+   * Registers a blocking queryable, whose queries are run by the executor of this batch executor.
+   *
+   * @param <T> the type of the queried objects
+   * @param name the name of the queries targeting the queryable
+   * @param queryable the queryable
+   * @return this batch executor
+   */
+  public <T> BatchQueries register(String name, Queryable<T> queryable) {
+    return registerAsync(name, AsyncQueryable.of(queryable, executor));
+  }
+
+  /**
+   * Registers a non-blocking queryable.
+   *
+   * @param <T> the type of the queried objects
+   * @param name the name of the queries targeting the queryable
+   * @param queryable the queryable
+   * @return this batch executor
+   */
+  public <T> BatchQueries registerAsync(String name, AsyncQueryable<T> queryable) {
+    if (name.isEmpty() || name.indexOf(SEPARATOR) >= 0 || name.indexOf(',') >= 0) {
+      throw new IllegalArgumentException("Invalid name of a query: " + name);
+    }
+    queryables.put(name, queryable);
+    return this;
+  }
+
+  /**
+   * Parses the named queries of a batch from the query parameters of a request.
+   *
+   * @param parameters the (decoded) query parameters
+   * @return the queries by their name, in the order they are listed by {@value #BATCH}
+   * @throws BadRequestException if no queries are given, a query is not registered or its
+   *         parameters are invalid
+   */
+  public Map<String, Query<?>> parse(MultivaluedMap<String, String> parameters) {
+    final List<String> names = names(parameters);
+    if (names.isEmpty()) {
+      throw new BadRequestException(String.format("%s must name at least one query", BATCH));
+    }
+
+    final Map<String, Query<?>> queries = new LinkedHashMap<>();
+    for (final String name : names) {
+      if (!queryables.containsKey(name)) {
+        throw new BadRequestException("Unknown query: " + name);
+      }
+
+      queries.put(name, validator.validate(parametersOf(name, parameters)));
+    }
+    return queries;
+  }
+
+  /**
+   * The names of the queries of a batch, as listed by {@value #BATCH}.
+   */
+  static List<String> names(MultivaluedMap<String, String> parameters) {
+    final List<String> names = new ArrayList<>();
+    for (final String value : parameters.getOrDefault(BATCH, new ArrayList<>())) {
+      for (final String name : value.split(",")) {
+        if (!name.trim().isEmpty()) {
+          names.add(name.trim());
+        }
+      }
+    }
+    return names;
+  }
+
+  /**
+   * The parameters of a single query of a batch, without the prefix of its name.
+   */
+  static MultivaluedMap<String, String> parametersOf(String name,
+      MultivaluedMap<String, String> parameters) {
+    final String prefix = name + SEPARATOR;
+    final MultivaluedMap<String, String> queryParameters = new MultivaluedHashMap<>();
+    for (final Map.Entry<String, List<String>> parameter : parameters.entrySet()) {
+      if (parameter.getKey().startsWith(prefix)) {
+        queryParameters.put(parameter.getKey().substring(prefix.length()), parameter.getValue());
+      }
+    }
+    return queryParameters;
+  }
+
+  /**
+   * Starts all queries of a batch in parallel.
+   *
+   * @param queries the queries by their name, see {@link #parse(MultivaluedMap)}
+   * @return stage that completes with the results of all queries or exceptionally if any query
+   *         failed, e.g. with a {@link QueryException}
+   */
+  public CompletionStage<Batch> executeAsync(Map<String, ? extends Query<?>> queries) {
+    final Map<String, CompletableFuture<? extends QueryResult<?>>> pending =
+        new LinkedHashMap<>();
+    for (final Map.Entry<String, ? extends Query<?>> query : queries.entrySet()) {
+      final AsyncQueryable<?> queryable = queryables.get(query.getKey());
+      if (queryable == null) {
+        final CompletableFuture<QueryResult<?>> unknown = new CompletableFuture<>();
+        unknown.completeExceptionally(
+            new InvalidQueryException("Unknown query: " + query.getKey()));
+        pending.put(query.getKey(), unknown);
+      } else {
+        pending.put(query.getKey(), start(queryable, query.getValue()).toCompletableFuture());
+      }
+    }
+
+    return CompletableFuture.allOf(pending.values().toArray(new CompletableFuture<?>[0]))
+        .thenApply(done -> {
+          final Map<String, QueryResult<?>> results = new LinkedHashMap<>();
+          pending.forEach((name, result) -> results.put(name, result.join()));
+          return new Batch(results);
+        });
+  }
+
+  /**
+   * Executes all queries of a batch in parallel and waits for their results.
+   *
+   * @param queries the queries by their name, see {@link #parse(MultivaluedMap)}
+   * @return the results of all queries
+   * @throws QueryException if any query could not be executed
+   */
+  public Batch execute(Map<String, ? extends Query<?>> queries) throws QueryException {
+    try {
+      return executeAsync(queries).toCompletableFuture().join();
+    } catch (final CompletionException e) {
+      if (e.getCause() instanceof QueryException) {
+        throw (QueryException) e.getCause();
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> CompletionStage<? extends QueryResult<?>> start(AsyncQueryable<T> queryable,
+      Query<?> query) {
+    // Queries are parsed without knowing the type of the queryable, see Query#fromParameterMap
+    return queryable.queryAsync((Query<T>) query);
+  }
+
+}
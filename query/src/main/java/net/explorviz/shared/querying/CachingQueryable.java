@@ -0,0 +1,206 @@
+package net.explorviz.shared.querying;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Decorator that caches the results of another {@link Queryable}. Identical queries, e.g. the same
+ * page requested by many open dashboards, are answered from the cache instead of the backing
+ * store. Queries are compared by {@link Query#equals(Object)}, thus the order of parameters and
+ * filter values does not matter.
+ *
+ * <p>
+ * The cache holds at most a fixed amount of results and evicts the least recently used one if
+ * full. Additionally, results expire after a fixed time to live. Services must call one of the
+ * {@code invalidate} methods after modifying the underlying data if stale results are not
+ * acceptable. Results of queries that were running during an invalidation are not cached.
+ * </p>
+ *
+ * <p>
+ * Cached results are shared between all callers and must not be modified. Failed queries are not
+ * cached. This class is thread-safe if the decorated queryable is.
+ * </p>
+ *
+ * @param <T> the type of the resources
+ */
+public class CachingQueryable<T> implements Queryable<T> {
+
+  private final Queryable<T> delegate;
+  private final long timeToLiveNanos;
+  private final LongSupplier ticker;
+
+  // Least recently used entry first
+  private final Map<Query<T>, Entry<T>> cache;
+  private long generation;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * Creates a new caching queryable.
+   *
+   * @param delegate the queryable whose results to cache
+   * @param maximumSize the maximum amount of cached results
+   * @param timeToLive the duration a result is cached for
+   * @param unit the unit of {@code timeToLive}
+   * @throws IllegalArgumentException if the size or the time to live is not positive
+   */
+  public CachingQueryable(Queryable<T> delegate, int maximumSize, long timeToLive, TimeUnit unit) {
+    this(delegate, maximumSize, unit.toNanos(timeToLive), System::nanoTime);
+  }
+
+  /**
+   * Creates a new caching queryable with a custom time source, used in tests.
+   */
+  CachingQueryable(Queryable<T> delegate, int maximumSize, long timeToLiveNanos,
+      LongSupplier ticker) {
+    if (maximumSize <= 0 || timeToLiveNanos <= 0) {
+      throw new IllegalArgumentException("Size and time to live must be positive");
+    }
+    this.delegate = delegate;
+    this.timeToLiveNanos = timeToLiveNanos;
+    this.ticker = ticker;
+    this.cache = new LinkedHashMap<Query<T>, Entry<T>>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Query<T>, Entry<T>> eldest) {
+        if (size() > maximumSize) {
+          evictions.incrementAndGet();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  @Override
+  public QueryResult<T> query(Query<T> query) throws QueryException {
+    final long startedGeneration;
+    synchronized (this) {
+      final Entry<T> entry = cache.get(query);
+      if (entry != null) {
+        if (ticker.getAsLong() - entry.expiresAt < 0) {
+          hits.incrementAndGet();
+          return entry.result;
+        }
+        cache.remove(query);
+        evictions.incrementAndGet();
+      }
+      startedGeneration = generation;
+    }
+
+    // Query the backing store without holding the lock
+    misses.incrementAndGet();
+    final QueryResult<T> result = delegate.query(query);
+
+    synchronized (this) {
+      if (generation == startedGeneration) {
+        cache.put(query, new Entry<>(result, ticker.getAsLong() + timeToLiveNanos));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Removes the cached result of the given query, if any.
+   *
+   * @param query the query whose result is stale
+   */
+  public synchronized void invalidate(Query<T> query) {
+    cache.remove(query);
+    generation++;
+  }
+
+  /**
+   * Removes the cached results of all queries matching the given predicate, e.g. all queries
+   * filtering by a certain agent.
+   *
+   * @param stale predicate that accepts the queries whose results are stale
+   */
+  public synchronized void invalidateIf(Predicate<? super Query<T>> stale) {
+    final Iterator<Query<T>> it = cache.keySet().iterator();
+    while (it.hasNext()) {
+      if (stale.test(it.next())) {
+        it.remove();
+      }
+    }
+    generation++;
+  }
+
+  /**
+   * Removes all cached results. Should be called whenever the underlying data changed.
+   */
+  public synchronized void invalidateAll() {
+    cache.clear();
+    generation++;
+  }
+
+  /**
+   * Amount of cached results, including expired ones that were not evicted yet.
+   *
+   * @return the amount of cached results
+   */
+  public synchronized int size() {
+    return cache.size();
+  }
+
+  /**
+   * Amount of queries answered from the cache.
+   *
+   * @return the amount of cache hits
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * Amount of queries passed to the decorated queryable.
+   *
+   * @return the amount of cache misses
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Amount of results removed due to the size limit or expiration. Invalidations are not counted.
+   *
+   * @return the amount of evictions
+   */
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  /**
+   * Ratio of queries answered from the cache.
+   *
+   * @return the hit rate between 0 and 1, or 0 if no queries were performed yet
+   */
+  public double getHitRate() {
+    final long h = hits.get();
+    final long total = h + misses.get();
+    return total == 0 ? 0 : (double) h / total;
+  }
+
+  /**
+   * A cached result along with the time it expires at.
+   */
+  private static final class Entry<T> {
+
+    private final QueryResult<T> result;
+    private final long expiresAt;
+
+    private Entry(QueryResult<T> result, long expiresAt) {
+      this.result = result;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+}
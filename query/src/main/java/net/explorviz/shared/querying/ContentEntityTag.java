@@ -0,0 +1,22 @@
+package net.explorviz.shared.querying;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotate a resource method that returns a {@link QueryResult} or {@link Batch} with
+ * {@code @ContentEntityTag} to tag its responses by content if the results have no version (see
+ * {@link QueryResult#getVersion()}). The document is then serialized into a buffer first, such that
+ * its tag can be computed and a conditional request can be answered with {@code 304 Not Modified}.
+ * This trades the streaming of the response for the bandwidth saved on unchanged documents.
+ *
+ * <p>
+ * Without this annotation, responses with unversioned results are streamed and carry no tag.
+ * </p>
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ContentEntityTag {
+}
@@ -0,0 +1,74 @@
+package net.explorviz.shared.querying;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Additional information of the result of a delta query, i.e. a query with
+ * {@code since=<epoch-millis>} (see {@link Query#doDelta()}). The result itself contains the
+ * objects that were added or changed since the given timestamp. In addition, a delta lists the
+ * ids of removed objects (tombstones) and the timestamp to pass as {@code since} in the next poll.
+ *
+ * <p>
+ * Deltas are exposed as {@code meta.delta} by {@link PaginationJsonApiWriter}.
+ * </p>
+ */
+public final class Delta {
+
+  private final long timestamp;
+  private final List<String> removed;
+
+  /**
+   * Creates a new delta.
+   *
+   * @param timestamp the time as of which the result contains all changes
+   * @param removed the ids of the objects that were removed since the requested timestamp
+   */
+  public Delta(long timestamp, Collection<String> removed) {
+    this.timestamp = timestamp;
+    this.removed = Collections.unmodifiableList(new ArrayList<>(removed));
+  }
+
+  /**
+   * The timestamp to pass as {@code since} to obtain the changes following this delta.
+   *
+   * @return timestamp in milliseconds since the epoch
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * The ids of the objects that were removed since the requested timestamp, or that were changed
+   * such that they do not match the filters of the query anymore. Clients must drop these objects.
+   *
+   * @return the ids of the removed objects
+   */
+  public List<String> getRemoved() {
+    return removed;
+  }
+
+  /**
+   * Combines the deltas of disjoint sets of objects, e.g. the partitions of a
+   * {@link ShardedQueryable}. The combined timestamp is the earliest one, such that no change is
+   * missed in the next poll. Since the timestamps of the parts state the time of the query rather
+   * than their latest change, parts without recent changes do not hold back the next poll.
+   *
+   * @param parts the deltas to combine
+   * @return the combined delta
+   */
+  public static Delta merge(Collection<Delta> parts) {
+    long timestamp = Long.MAX_VALUE;
+    final Set<String> removed = new LinkedHashSet<>();
+    for (final Delta part : parts) {
+      timestamp = Math.min(timestamp, part.timestamp);
+      removed.addAll(part.removed);
+    }
+    return new Delta(parts.isEmpty() ? -1 : timestamp, removed);
+  }
+
+}
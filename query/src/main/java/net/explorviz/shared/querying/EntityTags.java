@@ -0,0 +1,183 @@
+package net.explorviz.shared.querying;
+
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Computes strong HTTP entity tags for JSON:API responses, such that polling clients can send
+ * conditional requests ({@code If-None-Match}) and receive {@code 304 Not Modified} if nothing
+ * changed.
+ *
+ * <p>
+ * Tags are derived either from the version of a {@link QueryResult} (see
+ * {@link QueryResult#getVersion()}) together with the query, which does not require serializing
+ * the result, or from the serialized document itself if the resource opted in with
+ * {@link ContentEntityTag}.
+ * </p>
+ *
+ * <p>
+ * Only successful responses ({@code 200 OK}) to {@code GET} and {@code HEAD} requests are tagged,
+ * other requests are neither tagged nor answered conditionally.
+ * </p>
+ */
+public final class EntityTags {
+
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+
+  // Marks requests whose response may be tagged by content, see markConditional
+  private static final String CONDITIONAL_PROPERTY = EntityTags.class.getName() + ".conditional";
+
+  private EntityTags() {
+    // Utility class
+  }
+
+  /**
+   * Computes the tag of a query result from its version.
+   *
+   * @param result the query result
+   * @return the tag or {@code null} if the result has no version
+   */
+  public static EntityTag ofVersion(QueryResult<?> result) {
+    if (result.getVersion() == null) {
+      return null;
+    }
+    // The query is part of the tag, since each page of the same version has a different content
+    final String key = result.getVersion() + '\n' + result.getQuery();
+    return new EntityTag(digest(key.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * Computes the tag of a batch from the versions of its results.
+   *
+   * @param batch the results of a batch of queries
+   * @return the tag or {@code null} if any result has no version
+   */
+  public static EntityTag ofVersion(Batch batch) {
+    final StringBuilder key = new StringBuilder();
+    for (final Map.Entry<String, QueryResult<?>> result : batch.getResults().entrySet()) {
+      if (result.getValue().getVersion() == null) {
+        return null;
+      }
+      key.append(result.getKey()).append('\n').append(result.getValue().getVersion()).append('\n')
+          .append(result.getValue().getQuery()).append('\n');
+    }
+    return new EntityTag(digest(key.toString().getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * Computes the tag of a serialized document.
+   *
+   * @param content the serialized document
+   * @return the tag
+   */
+  public static EntityTag ofContent(byte[] content) {
+    return new EntityTag(digest(content));
+  }
+
+  /**
+   * Checks whether responses of a resource method are tagged by content, see
+   * {@link ContentEntityTag}.
+   *
+   * @param annotations the annotations of the resource method, might be {@code null}
+   * @return {@code true} iff the method is annotated with {@link ContentEntityTag}
+   */
+  static boolean byContent(Annotation[] annotations) {
+    if (annotations != null) {
+      for (final Annotation annotation : annotations) {
+        if (annotation instanceof ContentEntityTag) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Checks whether a response may be tagged and the request be answered conditionally, i.e. the
+   * request is a {@code GET} or {@code HEAD} request and the response is {@code 200 OK}.
+   *
+   * @param requestContext the request
+   * @param responseContext the response to the request
+   * @return {@code true} iff the response may be tagged
+   */
+  private static boolean isConditional(ContainerRequestContext requestContext,
+      ContainerResponseContext responseContext) {
+    final String method = requestContext.getMethod();
+    return (HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method))
+        && responseContext.getStatus() == Status.OK.getStatusCode();
+  }
+
+  /**
+   * Marks a request whose response may be tagged (see {@link #isConditional}), such that a
+   * {@link javax.ws.rs.ext.MessageBodyWriter}, which does not know the status of the response, can
+   * tag the response by its content. Must be called by a
+   * {@link javax.ws.rs.container.ContainerResponseFilter}.
+   *
+   * @param requestContext the request
+   * @param responseContext the response to the request
+   * @return {@code true} iff the response may be tagged
+   */
+  public static boolean markConditional(ContainerRequestContext requestContext,
+      ContainerResponseContext responseContext) {
+    if (!isConditional(requestContext, responseContext)) {
+      return false;
+    }
+    requestContext.setProperty(CONDITIONAL_PROPERTY, Boolean.TRUE);
+    return true;
+  }
+
+  /**
+   * Checks whether a request was marked by {@link #markConditional}.
+   *
+   * @param requestContext the request
+   * @return {@code true} iff the response to the request may be tagged by content
+   */
+  public static boolean isMarkedConditional(ContainerRequestContext requestContext) {
+    return Boolean.TRUE.equals(requestContext.getProperty(CONDITIONAL_PROPERTY));
+  }
+
+  /**
+   * Tags a response and answers a conditional request whose preconditions do not hold, e.g.
+   * {@code If-None-Match} with a matching tag, with the respective status ({@code 304 Not
+   * Modified}) and without entity. Must be called before the entity is written, i.e. in a
+   * {@link javax.ws.rs.container.ContainerResponseFilter}.
+   *
+   * @param entityTag the tag of the response or {@code null} if it has none
+   * @param requestContext the request
+   * @param responseContext the response to the request
+   */
+  static void evaluatePreconditions(EntityTag entityTag, ContainerRequestContext requestContext,
+      ContainerResponseContext responseContext) {
+    if (entityTag == null) {
+      return;
+    }
+    responseContext.getHeaders().putSingle(HttpHeaders.ETAG, entityTag);
+    final ResponseBuilder unmodified = requestContext.getRequest().evaluatePreconditions(entityTag);
+    if (unmodified != null) {
+      responseContext.setStatus(unmodified.build().getStatus());
+      responseContext.setEntity(null);
+    }
+  }
+
+  private static String digest(byte[] bytes) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest(bytes));
+    } catch (final NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
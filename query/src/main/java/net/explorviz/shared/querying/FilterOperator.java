@@ -0,0 +1,89 @@
+package net.explorviz.shared.querying;
+
+import java.util.Locale;
+
+/**
+ * Operators of filters, given as optional suffix of a filter parameter, i.e.
+ * {@code filter[attribute][operator]=value}. Filters without an operator test for equality. Range
+ * operators compare the values of the attribute in their natural order, e.g. numerically.
+ */
+public enum FilterOperator {
+
+  /**
+   * The attribute equals the value, {@code filter[attribute]=value} or
+   * {@code filter[attribute][eq]=value}.
+   */
+  EQUALS("eq"),
+
+  /**
+   * The attribute contains the value as substring (case-sensitive), e.g.
+   * {@code filter[os-execution-command][contains]=kieker}. Only applicable to text attributes.
+   */
+  CONTAINS("contains"),
+
+  /**
+   * The attribute is greater than the value, e.g. {@code filter[pid][gt]=1000}.
+   */
+  GREATER_THAN("gt"),
+
+  /**
+   * The attribute is greater than or equal to the value, e.g.
+   * {@code filter[last-discovery-time][gte]=1546300800000}.
+   */
+  GREATER_THAN_OR_EQUAL("gte"),
+
+  /**
+   * The attribute is less than the value.
+   */
+  LESS_THAN("lt"),
+
+  /**
+   * The attribute is less than or equal to the value.
+   */
+  LESS_THAN_OR_EQUAL("lte");
+
+  private final String name;
+
+  FilterOperator(String name) {
+    this.name = name;
+  }
+
+  /**
+   * The name of the operator as used in filter parameters.
+   *
+   * @return the name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Checks whether the operator compares the attribute with a bound, i.e. whether the filter
+   * selects a range of values.
+   *
+   * @return {@code True} iff the operator is one of {@code gt}, {@code gte}, {@code lt} and
+   *         {@code lte}
+   */
+  public boolean isRange() {
+    return this == GREATER_THAN || this == GREATER_THAN_OR_EQUAL || this == LESS_THAN
+        || this == LESS_THAN_OR_EQUAL;
+  }
+
+  /**
+   * Looks up an operator by its name.
+   *
+   * @param name the name of the operator, case-insensitive
+   * @return the operator
+   * @throws IllegalArgumentException if there is no such operator
+   */
+  public static FilterOperator of(String name) {
+    final String normalized = name.toLowerCase(Locale.ENGLISH);
+    for (final FilterOperator operator : values()) {
+      if (operator.name.equals(normalized)) {
+        return operator;
+      }
+    }
+    throw new IllegalArgumentException(String.format("Unknown filter operator '%s'", name));
+  }
+
+}
@@ -0,0 +1,229 @@
+package net.explorviz.shared.querying;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Compiles the filters of a {@link Query} (i.e. {@code filter[attribute]=value} and
+ * {@code filter[attribute][operator]=value}, see {@link FilterOperator}) into a reusable
+ * {@link Predicate}, such that in-memory {@link Queryable}s do not need to implement filtering
+ * themselves. For example:
+ *
+ * <pre>
+ * {@code Predicate<Procezz> predicate = Filters.compile(query, Procezz.class);}
+ * {@code List<Procezz> result = procezzes.stream().filter(predicate).collect(toList());}
+ * </pre>
+ *
+ * <p>
+ * Attributes are resolved once via {@link ResourceAttributes} and filter values are converted to
+ * the type of the attribute at compile time. Thus evaluating the predicate only requires field
+ * accesses and comparisons.
+ * </p>
+ */
+public final class Filters {
+
+  private Filters() {
+    // Utility class
+  }
+
+  /**
+   * Compiles the filters of the query into a predicate. A resource satisfies the predicate iff it
+   * satisfies all filters, e.g. it has the given value for every attribute filtered by equality.
+   *
+   * @param <T> the type of the resources
+   * @param query the query whose filters to compile
+   * @param resourceClass the class of the resources
+   * @return predicate that accepts all resources matching the filters of the query
+   * @throws QueryException if the query contains unknown attributes or values that can not be
+   *         converted to the type of the corresponding attribute
+   */
+  public static <T> Predicate<T> compile(Query<T> query, Class<? extends T> resourceClass)
+      throws QueryException {
+    final List<Predicate<T>> predicates = new ArrayList<>();
+    for (final Map.Entry<FilterOperator, Map<String, List<String>>> filters : query
+        .getFiltersByOperator().entrySet()) {
+      addPredicates(filters.getKey(), filters.getValue(), resourceClass, predicates);
+    }
+    return conjunction(predicates);
+  }
+
+  /**
+   * Compiles the given filters into a predicate. A resource satisfies the predicate iff it
+   * satisfies all filters, i.e. it has the given value for every filtered attribute.
+   *
+   * @param <T> the type of the resources
+   * @param filters map of attribute names to values, see {@link Query#getFilters()}
+   * @param resourceClass the class of the resources
+   * @return predicate that accepts all resources matching the filters
+   * @throws QueryException if the filters contain unknown attributes or values that can not be
+   *         converted to the type of the corresponding attribute
+   */
+  public static <T> Predicate<T> compile(Map<String, List<String>> filters,
+      Class<? extends T> resourceClass) throws QueryException {
+    return compile(FilterOperator.EQUALS, filters, resourceClass);
+  }
+
+  /**
+   * Compiles the given filters using the given operator into a predicate. A resource satisfies
+   * the predicate iff it satisfies all filters.
+   *
+   * @param <T> the type of the resources
+   * @param operator the operator of the filters
+   * @param filters map of attribute names to values, see {@link Query#getFilters(FilterOperator)}
+   * @param resourceClass the class of the resources
+   * @return predicate that accepts all resources matching the filters
+   * @throws QueryException if the filters contain unknown attributes, values that can not be
+   *         converted to the type of the corresponding attribute or attributes the operator is not
+   *         applicable to
+   */
+  public static <T> Predicate<T> compile(FilterOperator operator,
+      Map<String, List<String>> filters, Class<? extends T> resourceClass) throws QueryException {
+    final List<Predicate<T>> predicates = new ArrayList<>();
+    addPredicates(operator, filters, resourceClass, predicates);
+    return conjunction(predicates);
+  }
+
+  private static <T> void addPredicates(FilterOperator operator,
+      Map<String, List<String>> filters, Class<? extends T> resourceClass,
+      List<Predicate<T>> predicates) throws QueryException {
+    final ResourceAttributes attributes = ResourceAttributes.of(resourceClass);
+
+    for (final Map.Entry<String, List<String>> filter : filters.entrySet()) {
+      final AttributeAccessor accessor = attributes.require(filter.getKey());
+      for (final String value : filter.getValue()) {
+        predicates.add(predicate(operator, accessor, value));
+      }
+    }
+  }
+
+  private static <T> Predicate<T> predicate(FilterOperator operator, AttributeAccessor accessor,
+      String value) throws QueryException {
+    switch (operator) {
+      case CONTAINS:
+        if (accessor.getType() != String.class) {
+          throw new InvalidQueryException(String.format(
+              "Operator '%s' is not applicable to attribute '%s' of type %s", operator.getName(),
+              accessor.getName(), accessor.getType()));
+        }
+        return resource -> {
+          final Object actual = accessor.get(resource);
+          return actual != null && ((String) actual).contains(value);
+        };
+      case GREATER_THAN:
+      case GREATER_THAN_OR_EQUAL:
+      case LESS_THAN:
+      case LESS_THAN_OR_EQUAL:
+        final Comparable<Object> bound = comparable(accessor, value);
+        final boolean below =
+            operator == FilterOperator.LESS_THAN || operator == FilterOperator.LESS_THAN_OR_EQUAL;
+        final boolean inclusive = operator == FilterOperator.GREATER_THAN_OR_EQUAL
+            || operator == FilterOperator.LESS_THAN_OR_EQUAL;
+        return resource -> {
+          final Object actual = accessor.get(resource);
+          if (actual == null) {
+            return false;
+          }
+          final int c = bound.compareTo(actual);
+          return c == 0 ? inclusive : below == c > 0;
+        };
+      case EQUALS:
+      default:
+        final Object expected = convert(accessor, value);
+        return resource -> Objects.equals(expected, accessor.get(resource));
+    }
+  }
+
+  private static <T> Predicate<T> conjunction(List<Predicate<T>> predicates) {
+    if (predicates.isEmpty()) {
+      return resource -> true;
+    }
+
+    // Avoid the overhead of a loop for the common case of a single filter
+    if (predicates.size() == 1) {
+      return predicates.get(0);
+    }
+
+    // Generic arrays can not be created, the array holds the given predicates only
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    final Predicate<T>[] conjunction = predicates.toArray(new Predicate[0]);
+    return resource -> {
+      for (final Predicate<T> predicate : conjunction) {
+        if (!predicate.test(resource)) {
+          return false;
+        }
+      }
+      return true;
+    };
+  }
+
+  /**
+   * Converts a raw filter value to the type of the given attribute, such that it can be compared
+   * to the attribute values via {@code equals}.
+   *
+   * @param accessor the attribute the value is compared to
+   * @param value the raw filter value
+   * @return the converted value
+   * @throws QueryException if the value can not be converted
+   */
+  static Object convert(AttributeAccessor accessor, String value) throws QueryException {
+    final Class<?> type = accessor.getType();
+    try {
+      if (type == String.class) {
+        return value;
+      } else if (type == long.class || type == Long.class) {
+        return Long.valueOf(value);
+      } else if (type == int.class || type == Integer.class) {
+        return Integer.valueOf(value);
+      } else if (type == double.class || type == Double.class) {
+        return Double.valueOf(value);
+      } else if (type == boolean.class || type == Boolean.class) {
+        return parseBoolean(value);
+      } else if (type.isEnum()) {
+        return toEnum(type, value);
+      }
+    } catch (final IllegalArgumentException e) {
+      throw new InvalidQueryException(
+          String.format("Invalid value '%s' for attribute '%s'", value, accessor.getName()), e);
+    }
+
+    throw new InvalidQueryException(
+        String.format("Can't filter by attribute '%s' of type %s", accessor.getName(), type));
+  }
+
+  /**
+   * Converts a raw filter value to the type of the given attribute for range comparisons.
+   *
+   * @param accessor the attribute the value is compared to
+   * @param value the raw filter value
+   * @return the converted value
+   * @throws QueryException if the value can not be converted
+   */
+  @SuppressWarnings("unchecked")
+  static Comparable<Object> comparable(AttributeAccessor accessor, String value)
+      throws QueryException {
+    final Object converted = convert(accessor, value);
+    if (!(converted instanceof Comparable)) {
+      throw new InvalidQueryException(String.format(
+          "Attribute '%s' of type %s has no order", accessor.getName(), accessor.getType()));
+    }
+    return (Comparable<Object>) converted;
+  }
+
+  private static Boolean parseBoolean(String value) {
+    if ("true".equalsIgnoreCase(value)) {
+      return Boolean.TRUE;
+    } else if ("false".equalsIgnoreCase(value)) {
+      return Boolean.FALSE;
+    }
+    throw new IllegalArgumentException("Not a boolean: " + value);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Object toEnum(Class<?> type, String value) {
+    return Enum.valueOf((Class<? extends Enum>) type, value);
+  }
+
+}
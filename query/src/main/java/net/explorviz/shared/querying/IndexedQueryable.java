@@ -0,0 +1,887 @@
+package net.explorviz.shared.querying;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * In-memory {@link Queryable} that maintains secondary hash indexes on chosen attributes. Equality
+ * filters on indexed attributes are answered by intersecting the corresponding index entries,
+ * starting with the smallest one. Thus the cost of a query depends on the amount of matching
+ * resources rather than the size of the whole collection. Filters on other attributes are
+ * evaluated on the remaining candidates only. The whole collection is scanned only if no filter
+ * refers to an indexed attribute. Substring filters ({@code filter[attribute][contains]=value}) are
+ * answered by trigram indexes on the attributes passed to {@link #indexSubstrings(String...)}, see
+ * {@link TrigramIndex}. Range filters (e.g. {@code filter[pid][gte]=value}) are answered by sorted
+ * indexes on the attributes passed to {@link #indexRanges(String...)}, see {@link SortedIndex}.
+ *
+ * <p>
+ * Sorted queries are served with a bounded heap that holds the resources up to the requested page
+ * only, see {@link TopK}. Thus the first pages of a sorted collection are obtained in O(n log k)
+ * rather than O(n log n).
+ * </p>
+ *
+ * <p>
+ * For example, a service holding procezzes can be set up with
+ * </p>
+ *
+ * <pre>
+ * {@code new IndexedQueryable<>(Procezz.class, "name", "programming-language", "agent");}
+ * </pre>
+ *
+ * <p>
+ * Attributes are named as in the JSON:API documents, see {@link ResourceAttributes}. Resources
+ * that are modified in place after being added must be passed to {@link #reindex(Object)}.
+ * Query results carry a version that changes with every modification, such that responses can be
+ * revalidated cheaply, see {@link QueryResult#getVersion()}. Aggregates (see {@link Aggregations})
+ * are computed while filtering, counts over all resources are read from the indexes if possible.
+ * This class is thread-safe.
+ * </p>
+ *
+ * <p>
+ * Cursor-based pagination (see {@link Query#doCursorPaginate()}) continues behind the last
+ * resource of the previous page. Unsorted pages seek directly to that resource, thus deep pages
+ * cost the same as the first one. Sorted pages are selected from all matches with a heap of the
+ * size of a page, regardless of their depth. Their cursors are rejected once the last resource of
+ * the previous page was removed.
+ * </p>
+ *
+ * <p>
+ * Delta queries (see {@link Query#doDelta()}) are answered from an index ordered by the time a
+ * resource was added or last passed to {@link #reindex(Object)}. Removals are remembered for a
+ * limited time as tombstones, see {@link #setTombstoneRetention(long, TimeUnit)}. Modifications are
+ * also published to listeners, see {@link ObservableQueryable}.
+ * </p>
+ *
+ * @param <T> the type of the resources
+ */
+public class IndexedQueryable<T> implements ObservableQueryable<T> {
+
+  private static final long DEFAULT_TOMBSTONE_RETENTION = TimeUnit.HOURS.toMillis(1);
+
+  private final Class<T> resourceClass;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // All entries by their sequence number, i.e. in insertion order. Resources are identified by
+  // identity rather than equals()
+  private final NavigableMap<Long, Entry<T>> entries = new TreeMap<>();
+  private final Map<T, Entry<T>> entryOf = new IdentityHashMap<>();
+  private long sequence;
+
+  // Reported as version of query results, the random prefix distinguishes restarts
+  private final String instanceId = UUID.randomUUID().toString();
+  private long modifications;
+
+  // Attribute name -> (attribute value -> entries)
+  private final Map<String, Map<Object, Set<Entry<T>>>> indexes = new LinkedHashMap<>();
+  private final AttributeAccessor[] indexedAttributes;
+
+  // Attribute name -> trigram index of its values
+  private final Map<String, TrigramIndex<Entry<T>>> substringIndexes = new LinkedHashMap<>();
+  private AttributeAccessor[] substringAttributes = new AttributeAccessor[0];
+
+  // Attribute name -> sorted index of its values
+  private final Map<String, SortedIndex<Entry<T>>> rangeIndexes = new LinkedHashMap<>();
+  private AttributeAccessor[] rangeAttributes = new AttributeAccessor[0];
+
+  // Time-ordered index for delta queries: modification time -> entry, removal time -> id.
+  // Timestamps are strictly increasing, thus no two modifications share the same timestamp.
+  private final NavigableMap<Long, Entry<T>> byModification = new TreeMap<>();
+  private final NavigableMap<Long, String> tombstones = new TreeMap<>();
+  private final AttributeAccessor idAccessor;
+  private final LongSupplier clock;
+  private long lastTimestamp;
+  // Latest timestamp reported by a delta, later modifications must be strictly newer. Deltas are
+  // computed under the read lock, thus concurrently.
+  private final AtomicLong reportedTimestamp = new AtomicLong(-1);
+  // Deltas since earlier timestamps are incomplete since their tombstones were discarded
+  private long horizon = -1;
+  private long tombstoneRetention = DEFAULT_TOMBSTONE_RETENTION;
+
+  private final List<Listener<? super T>> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Creates a new, empty queryable.
+   *
+   * @param resourceClass the class of the resources
+   * @param indexedAttributes the names of the attributes to index
+   * @throws IllegalArgumentException if an attribute does not exist
+   */
+  public IndexedQueryable(Class<T> resourceClass, String... indexedAttributes) {
+    this(System::currentTimeMillis, resourceClass, indexedAttributes);
+  }
+
+  /**
+   * Creates a new, empty queryable with a custom clock, used in tests.
+   */
+  IndexedQueryable(LongSupplier clock, Class<T> resourceClass, String... indexedAttributes) {
+    this.clock = clock;
+    this.resourceClass = resourceClass;
+    this.indexedAttributes = new AttributeAccessor[indexedAttributes.length];
+
+    final ResourceAttributes attributes = ResourceAttributes.of(resourceClass);
+    this.idAccessor = attributes.get("id");
+    for (int i = 0; i < indexedAttributes.length; i++) {
+      final AttributeAccessor accessor = attributes.get(indexedAttributes[i]);
+      if (accessor == null) {
+        throw new IllegalArgumentException("Unknown attribute: " + indexedAttributes[i]);
+      }
+      this.indexedAttributes[i] = accessor;
+      this.indexes.put(accessor.getName(), new HashMap<>());
+    }
+  }
+
+  /**
+   * Adds a resource. Adding a resource that is already contained has no effect.
+   *
+   * @param resource the resource to add
+   */
+  public void add(T resource) {
+    lock.writeLock().lock();
+    try {
+      if (insert(resource)) {
+        publish(Collections.singletonList(resource), Collections.emptyList());
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Adds all given resources.
+   *
+   * @param newResources the resources to add
+   */
+  public void addAll(Collection<? extends T> newResources) {
+    lock.writeLock().lock();
+    try {
+      final List<T> inserted = new ArrayList<>();
+      for (final T resource : newResources) {
+        if (insert(resource)) {
+          inserted.add(resource);
+        }
+      }
+      if (!inserted.isEmpty()) {
+        publish(inserted, Collections.emptyList());
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a resource.
+   *
+   * @param resource the resource to remove
+   * @return {@code True} iff the resource was contained
+   */
+  public boolean remove(T resource) {
+    lock.writeLock().lock();
+    try {
+      final Entry<T> entry = entryOf.remove(resource);
+      if (entry == null) {
+        return false;
+      }
+      entries.remove(entry.sequence);
+      unindex(entry);
+      byModification.remove(entry.modifiedAt);
+      modifications++;
+      if (idAccessor != null) {
+        final String id = String.valueOf(idAccessor.get(resource));
+        tombstones.put(nextTimestamp(), id);
+        discardTombstones();
+        publish(Collections.emptyList(), Collections.singletonList(id));
+      }
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Updates the indexes, the version and the modification time of a resource whose attributes
+   * were modified after it was added.
+   *
+   * @param resource the modified resource
+   */
+  public void reindex(T resource) {
+    lock.writeLock().lock();
+    try {
+      final Entry<T> entry = entryOf.get(resource);
+      if (entry != null) {
+        unindex(entry);
+        index(entry);
+        byModification.remove(entry.modifiedAt);
+        entry.modifiedAt = nextTimestamp();
+        byModification.put(entry.modifiedAt, entry);
+        modifications++;
+        publish(Collections.singletonList(resource), Collections.emptyList());
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes all resources.
+   */
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      final List<String> removed = new ArrayList<>();
+      if (idAccessor != null && !listeners.isEmpty()) {
+        entries.values()
+            .forEach(e -> removed.add(String.valueOf(idAccessor.get(e.resource))));
+      }
+      entries.clear();
+      entryOf.clear();
+      indexes.values().forEach(Map::clear);
+      substringIndexes.replaceAll((attribute, index) -> new TrigramIndex<>());
+      rangeIndexes.replaceAll((attribute, index) -> new SortedIndex<>());
+      // Removals are not recorded individually, thus older deltas are incomplete
+      byModification.clear();
+      tombstones.clear();
+      horizon = nextTimestamp();
+      modifications++;
+      if (!removed.isEmpty()) {
+        publish(Collections.emptyList(), removed);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Maintains trigram indexes on the given text attributes, such that substring filters on them
+   * ({@code filter[attribute][contains]=value}) do not scan all resources. Resources that are
+   * already contained are indexed immediately.
+   *
+   * @param attributes the names of the attributes to index
+   * @throws IllegalArgumentException if an attribute does not exist or is not of type
+   *         {@link String}
+   */
+  public void indexSubstrings(String... attributes) {
+    final List<AttributeAccessor> accessors = new ArrayList<>();
+    for (final String attribute : attributes) {
+      final AttributeAccessor accessor = ResourceAttributes.of(resourceClass).get(attribute);
+      if (accessor == null || accessor.getType() != String.class) {
+        throw new IllegalArgumentException("Unknown text attribute: " + attribute);
+      }
+      accessors.add(accessor);
+    }
+
+    lock.writeLock().lock();
+    try {
+      for (final AttributeAccessor accessor : accessors) {
+        if (substringIndexes.containsKey(accessor.getName())) {
+          continue;
+        }
+        final TrigramIndex<Entry<T>> index = new TrigramIndex<>();
+        for (final Entry<T> entry : entries.values()) {
+          index.put(entry, (String) accessor.get(entry.resource));
+        }
+        substringIndexes.put(accessor.getName(), index);
+      }
+      substringAttributes = new AttributeAccessor[substringIndexes.size()];
+      int i = 0;
+      for (final String attribute : substringIndexes.keySet()) {
+        substringAttributes[i++] = ResourceAttributes.of(resourceClass).get(attribute);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Maintains sorted indexes on the given attributes, such that range filters on them (e.g.
+   * {@code filter[last-discovery-time][gte]=value}) cost O(log n + k) for k matching resources
+   * instead of scanning all resources. Resources that are already contained are indexed
+   * immediately.
+   *
+   * @param attributes the names of the attributes to index
+   * @throws IllegalArgumentException if an attribute does not exist or its values have no natural
+   *         order
+   */
+  public void indexRanges(String... attributes) {
+    final List<AttributeAccessor> accessors = new ArrayList<>();
+    for (final String attribute : attributes) {
+      final AttributeAccessor accessor = ResourceAttributes.of(resourceClass).get(attribute);
+      if (accessor == null || !accessor.getType().isPrimitive()
+          && !Comparable.class.isAssignableFrom(accessor.getType())) {
+        throw new IllegalArgumentException("Unknown comparable attribute: " + attribute);
+      }
+      accessors.add(accessor);
+    }
+
+    lock.writeLock().lock();
+    try {
+      for (final AttributeAccessor accessor : accessors) {
+        if (rangeIndexes.containsKey(accessor.getName())) {
+          continue;
+        }
+        final SortedIndex<Entry<T>> index = new SortedIndex<>();
+        for (final Entry<T> entry : entries.values()) {
+          index.put(entry, accessor.get(entry.resource));
+        }
+        rangeIndexes.put(accessor.getName(), index);
+      }
+      rangeAttributes = new AttributeAccessor[rangeIndexes.size()];
+      int i = 0;
+      for (final String attribute : rangeIndexes.keySet()) {
+        rangeAttributes[i++] = ResourceAttributes.of(resourceClass).get(attribute);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Sets how long removals are remembered for delta queries. Delta queries with an older
+   * timestamp are rejected, clients must query all resources then. Defaults to one hour.
+   *
+   * @param retention the duration to remember removals
+   * @param unit the unit of {@code retention}
+   */
+  public void setTombstoneRetention(long retention, TimeUnit unit) {
+    lock.writeLock().lock();
+    try {
+      tombstoneRetention = unit.toMillis(retention);
+      discardTombstones();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void addListener(Listener<? super T> listener) {
+    listeners.add(listener);
+  }
+
+  @Override
+  public void removeListener(Listener<? super T> listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Amount of resources.
+   *
+   * @return the amount of contained resources
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return entries.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public QueryResult<T> query(Query<T> query) throws QueryException {
+    if (query.doDelta() && query.doCursorPaginate()) {
+      throw new InvalidQueryException("Delta queries can not be paginated by cursor");
+    }
+
+    lock.readLock().lock();
+    try {
+      // Split filters into the ones answered by indexes and the ones evaluated per candidate. The
+      // index maps are modified by indexSubstrings and indexRanges, thus under the read lock
+      final Map<String, List<String>> indexedFilters = new HashMap<>();
+      final Map<String, List<String>> substringFilters = new HashMap<>();
+      final Map<String, Map<FilterOperator, List<String>>> rangeFilters = new HashMap<>();
+      final Map<FilterOperator, Map<String, List<String>>> residualFilters =
+          new EnumMap<>(FilterOperator.class);
+      for (final Map.Entry<FilterOperator, Map<String, List<String>>> filters : query
+          .getFiltersByOperator().entrySet()) {
+        for (final Map.Entry<String, List<String>> filter : filters.getValue().entrySet()) {
+          final AttributeAccessor accessor =
+              ResourceAttributes.of(resourceClass).require(filter.getKey());
+          if (filters.getKey() == FilterOperator.EQUALS
+              && indexes.containsKey(accessor.getName())) {
+            indexedFilters.put(accessor.getName(), filter.getValue());
+          } else if (filters.getKey() == FilterOperator.CONTAINS
+              && substringIndexes.containsKey(accessor.getName())) {
+            substringFilters.put(accessor.getName(), filter.getValue());
+          } else if (filters.getKey().isRange() && rangeIndexes.containsKey(accessor.getName())) {
+            rangeFilters
+                .computeIfAbsent(accessor.getName(), a -> new EnumMap<>(FilterOperator.class))
+                .put(filters.getKey(), filter.getValue());
+          } else {
+            residualFilters.computeIfAbsent(filters.getKey(), o -> new HashMap<>())
+                .put(filter.getKey(), filter.getValue());
+          }
+        }
+      }
+      final Predicate<T> residual =
+          Filters.compile(query.withFilters(residualFilters), resourceClass);
+      final Comparator<T> order = query.doSort() ? Sorts.compile(query, resourceClass) : null;
+      final Aggregations.Counter<T> counter =
+          query.doAggregate() ? Aggregations.counter(query, resourceClass) : null;
+      if (query.doDelta() && idAccessor == null) {
+        throw new QueryException("Delta queries require resources with an id");
+      }
+      final Predicate<T> matcher = query.doDelta() ? Filters.compile(query, resourceClass) : null;
+
+      final QueryResult<T> result;
+      if (query.doDelta()) {
+        result = delta(query, matcher, order, counter);
+      } else if (query.doCursorPaginate()) {
+        final long after = cursorSequence(query);
+        // Only unsorted pages without aggregates can skip the entries before the cursor
+        final boolean seek = order == null && counter == null;
+        result = selectAfter(query, after,
+            candidates(indexedFilters, substringFilters, rangeFilters, seek ? after : -1),
+            residual, order, counter);
+      } else if (counter != null && !query.doPaginate()) {
+        result = aggregate(query, candidates(indexedFilters, substringFilters, rangeFilters, -1),
+            residual, counter);
+      } else {
+        result = select(query, candidates(indexedFilters, substringFilters, rangeFilters, -1),
+            residual, order, counter);
+      }
+      return result.setVersion(instanceId + '-' + modifications);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Determines the candidates for the given filters on indexed attributes by index intersection.
+   * Must be called while holding the read lock.
+   *
+   * @param indexedFilters the equality filters on indexed attributes
+   * @param substringFilters the substring filters on attributes with a trigram index
+   * @param rangeFilters the range filters on attributes with a sorted index, by attribute
+   * @param after the sequence number of the entry after which the candidates start, -1 to start
+   *        with the first entry
+   * @return the entries matching all given filters in insertion order
+   * @throws QueryException if a filter value can not be converted
+   */
+  private Collection<Entry<T>> candidates(Map<String, List<String>> indexedFilters,
+      Map<String, List<String>> substringFilters,
+      Map<String, Map<FilterOperator, List<String>>> rangeFilters, long after)
+      throws QueryException {
+    if (indexedFilters.isEmpty() && substringFilters.isEmpty() && rangeFilters.isEmpty()) {
+      return entries.tailMap(after, false).values();
+    }
+
+    // Look up the index buckets of all filter values
+    final List<Set<Entry<T>>> buckets = new ArrayList<>();
+    for (final Map.Entry<String, List<String>> filter : indexedFilters.entrySet()) {
+      final AttributeAccessor accessor = ResourceAttributes.of(resourceClass).get(filter.getKey());
+      final Map<Object, Set<Entry<T>>> index = indexes.get(filter.getKey());
+      for (final String value : filter.getValue()) {
+        final Set<Entry<T>> bucket = index.get(Filters.convert(accessor, value));
+        if (bucket == null) {
+          return Collections.emptyList();
+        }
+        buckets.add(bucket);
+      }
+    }
+    for (final Map.Entry<String, List<String>> filter : substringFilters.entrySet()) {
+      final TrigramIndex<Entry<T>> index = substringIndexes.get(filter.getKey());
+      for (final String fragment : filter.getValue()) {
+        final Set<Entry<T>> matches = index.search(fragment);
+        if (matches.isEmpty()) {
+          return Collections.emptyList();
+        }
+        buckets.add(matches);
+      }
+    }
+    for (final Map.Entry<String, Map<FilterOperator, List<String>>> filter : rangeFilters
+        .entrySet()) {
+      final AttributeAccessor accessor = ResourceAttributes.of(resourceClass).get(filter.getKey());
+      final Map<FilterOperator, List<Object>> bounds = new EnumMap<>(FilterOperator.class);
+      for (final Map.Entry<FilterOperator, List<String>> range : filter.getValue().entrySet()) {
+        final List<Object> converted = new ArrayList<>();
+        for (final String value : range.getValue()) {
+          converted.add(Filters.comparable(accessor, value));
+        }
+        bounds.put(range.getKey(), converted);
+      }
+      final Set<Entry<T>> matches = rangeIndexes.get(filter.getKey()).search(bounds);
+      if (matches.isEmpty()) {
+        return Collections.emptyList();
+      }
+      buckets.add(matches);
+    }
+
+    // Intersect, starting with the smallest bucket
+    Set<Entry<T>> smallest = buckets.get(0);
+    for (final Set<Entry<T>> bucket : buckets) {
+      if (bucket.size() < smallest.size()) {
+        smallest = bucket;
+      }
+    }
+
+    final List<Entry<T>> intersection = new ArrayList<>();
+    for (final Entry<T> entry : smallest) {
+      if (entry.sequence <= after) {
+        continue;
+      }
+      boolean inAll = true;
+      for (final Set<Entry<T>> bucket : buckets) {
+        if (bucket != smallest && !bucket.contains(entry)) {
+          inAll = false;
+          break;
+        }
+      }
+      if (inAll) {
+        intersection.add(entry);
+      }
+    }
+
+    // Buckets are not necessarily in insertion order after reindexing
+    intersection.sort(Entry.BY_SEQUENCE);
+    return intersection;
+  }
+
+  /**
+   * Selects the requested page from the candidates that satisfy the residual filters. If the
+   * query is sorted and paginated, only the first {@code (pageNumber + 1) * pageSize} matches are
+   * kept in a bounded heap instead of sorting all matches. Matches are passed to the counter, if
+   * any, in the same pass.
+   */
+  private QueryResult<T> select(Query<T> query, Collection<Entry<T>> candidates,
+      Predicate<T> residual, Comparator<T> order, Aggregations.Counter<T> counter) {
+
+    final QueryResult<T> result;
+    if (order != null && query.doPaginate()) {
+      final long from = (long) query.getPageNumber() * query.getPageSize();
+      // Pages beyond the candidates are empty, the matches are only counted then
+      final int k = from >= candidates.size() ? 0
+          : (int) Math.min(candidates.size(), from + query.getPageSize());
+      final TopK<T> top = new TopK<>(order, k);
+      for (final Entry<T> entry : candidates) {
+        if (residual.test(entry.resource)) {
+          top.offer(entry.resource);
+          if (counter != null) {
+            counter.accept(entry.resource);
+          }
+        }
+      }
+
+      final List<T> first = top.toSortedList();
+      final List<T> page =
+          new ArrayList<>(first.subList((int) Math.min(from, first.size()), first.size()));
+      result = new QueryResult<>(query, page, top.getOffered());
+    } else {
+      final List<T> matches = collect(candidates, residual);
+      if (order != null) {
+        matches.sort(order);
+      }
+      if (counter != null) {
+        matches.forEach(counter::accept);
+      }
+      result = paginate(query, matches);
+    }
+
+    return counter == null ? result : result.setAggregations(counter.toAggregations());
+  }
+
+  /**
+   * Selects the page behind the cursor of a cursor-paginated query, the cursor holds the sequence
+   * number of the last entry of the previous page. Unsorted pages are in insertion order, thus the
+   * scan stops as soon as the page is full, unless aggregates are requested. Sorted pages continue
+   * behind the last entry in the requested order, ties are broken by insertion order. Matches are
+   * passed to the counter, if any, in the same pass.
+   *
+   * @param after the sequence number of the last entry of the previous page, -1 for the first
+   *        page
+   * @param candidates the candidates, for unsorted pages without aggregates the ones behind the
+   *        last entry only
+   * @throws QueryException if a sorted page follows an entry that was removed
+   */
+  private QueryResult<T> selectAfter(Query<T> query, long after, Collection<Entry<T>> candidates,
+      Predicate<T> residual, Comparator<T> order, Aggregations.Counter<T> counter)
+      throws QueryException {
+
+    final Comparator<? super Entry<T>> entryOrder;
+    final Predicate<Entry<T>> behind;
+    if (order == null) {
+      entryOrder = Entry.BY_SEQUENCE;
+      behind = entry -> entry.sequence > after;
+    } else {
+      entryOrder = Comparator.comparing((Entry<T> entry) -> entry.resource, order)
+          .thenComparing(Entry.BY_SEQUENCE);
+      final Entry<T> last = after < 0 ? null : entries.get(after);
+      if (after >= 0 && last == null) {
+        throw new InvalidQueryException(
+            "The resource of the cursor was removed, start again with the first page");
+      }
+      behind = entry -> last == null || entryOrder.compare(entry, last) > 0;
+    }
+
+    final boolean seek = order == null && counter == null;
+    final TopK<Entry<T>> top = new TopK<>(entryOrder, query.getPageSize());
+    long matches = 0;
+    for (final Entry<T> entry : candidates) {
+      if (residual.test(entry.resource)) {
+        matches++;
+        if (counter != null) {
+          counter.accept(entry.resource);
+        }
+        if (behind.test(entry)) {
+          top.offer(entry);
+          // A single match beyond the page suffices to know that there is a next page
+          if (seek && top.getOffered() > query.getPageSize()) {
+            break;
+          }
+        }
+      }
+    }
+
+    final List<Entry<T>> selected = top.toSortedList();
+    final List<T> page = new ArrayList<>(selected.size());
+    selected.forEach(entry -> page.add(entry.resource));
+    final String nextCursor = top.getOffered() > selected.size()
+        ? PageCursor.encode(Long.toString(selected.get(selected.size() - 1).sequence))
+        : null;
+    // Unless the scan stopped early, all matches were counted anyway
+    final Total total = seek ? Total.unknown() : Total.exact(matches);
+
+    final QueryResult<T> result = QueryResult.withCursor(query, page, total, nextCursor);
+    return counter == null ? result : result.setAggregations(counter.toAggregations());
+  }
+
+  /**
+   * Reads the sequence number of the last entry of the previous page from the cursor of a
+   * cursor-paginated query.
+   *
+   * @return the sequence number or -1 if the first page is requested
+   * @throws QueryException if the cursor was not created by this class
+   */
+  private static long cursorSequence(Query<?> query) throws QueryException {
+    try {
+      final String key = PageCursor.decode(query.getCursor());
+      return key.isEmpty() ? -1 : Long.parseLong(key);
+    } catch (final IllegalArgumentException e) {
+      throw new InvalidQueryException("Invalid cursor: " + query.getCursor(), e);
+    }
+  }
+
+  /**
+   * Computes the aggregates of an unpaginated query, the result contains no resources. If all
+   * resources match, the counts of indexed attributes are taken from the indexes.
+   */
+  private QueryResult<T> aggregate(Query<T> query, Collection<Entry<T>> candidates,
+      Predicate<T> residual, Aggregations.Counter<T> counter) {
+
+    if (!query.doFilter()) {
+      indexes.forEach(counter::countIndex);
+      if (!counter.needsResources()) {
+        return new QueryResult<>(query, Collections.<T>emptyList(), entries.size())
+            .setAggregations(counter.toAggregations());
+      }
+    }
+
+    long matches = 0;
+    for (final Entry<T> entry : candidates) {
+      if (residual.test(entry.resource)) {
+        counter.accept(entry.resource);
+        matches++;
+      }
+    }
+    return new QueryResult<>(query, Collections.<T>emptyList(), matches)
+        .setAggregations(counter.toAggregations());
+  }
+
+  /**
+   * Answers a delta query from the time-ordered index. Changed resources that do not match the
+   * filters anymore are reported as removed, since clients might still hold them.
+   */
+  private QueryResult<T> delta(Query<T> query, Predicate<T> matcher, Comparator<T> order,
+      Aggregations.Counter<T> counter) throws QueryException {
+    if (query.getSince() < horizon) {
+      throw new InvalidQueryException(String.format(
+          "Changes since %d are not available anymore, query all resources instead",
+          query.getSince()));
+    }
+
+    final Set<String> removed =
+        new LinkedHashSet<>(tombstones.tailMap(query.getSince(), false).values());
+    final List<Entry<T>> changed = new ArrayList<>();
+    for (final Entry<T> entry : byModification.tailMap(query.getSince(), false).values()) {
+      final String id = String.valueOf(idAccessor.get(entry.resource));
+      if (matcher.test(entry.resource)) {
+        // Removed and added again
+        removed.remove(id);
+        changed.add(entry);
+      } else {
+        removed.add(id);
+      }
+    }
+
+    // The delta contains all changes up to now, even if the last of them is long ago. Thus quiet
+    // queryables don't hold back the timestamps of merged deltas, see Delta#merge(Collection).
+    final long asOf = Math.max(clock.getAsLong(), lastTimestamp);
+    reportedTimestamp.accumulateAndGet(asOf, Math::max);
+    return select(query, changed, resource -> true, order, counter)
+        .setDelta(new Delta(asOf, removed));
+  }
+
+  private List<T> collect(Collection<Entry<T>> candidates, Predicate<T> residual) {
+    final List<T> matches = new ArrayList<>();
+    for (final Entry<T> entry : candidates) {
+      if (residual.test(entry.resource)) {
+        matches.add(entry.resource);
+      }
+    }
+    return matches;
+  }
+
+  private QueryResult<T> paginate(Query<T> query, Collection<T> matches) {
+    if (!query.doPaginate()) {
+      return new QueryResult<>(query, matches, matches.size());
+    }
+
+    final List<T> page = new ArrayList<>();
+    final long from = (long) query.getPageNumber() * query.getPageSize();
+    long i = 0;
+    for (final T resource : matches) {
+      if (i >= from + query.getPageSize()) {
+        break;
+      } else if (i >= from) {
+        page.add(resource);
+      }
+      i++;
+    }
+    return new QueryResult<>(query, page, matches.size());
+  }
+
+  /**
+   * Adds the resource if not already contained. Must be called while holding the write lock.
+   *
+   * @return {@code True} iff the resource was added
+   */
+  private boolean insert(T resource) {
+    if (entryOf.containsKey(resource)) {
+      return false;
+    }
+    final Entry<T> entry = new Entry<>(resource, sequence++, indexedAttributes.length);
+    entryOf.put(resource, entry);
+    entries.put(entry.sequence, entry);
+    index(entry);
+    entry.modifiedAt = nextTimestamp();
+    byModification.put(entry.modifiedAt, entry);
+    modifications++;
+    return true;
+  }
+
+  /**
+   * Notifies the listeners about the latest modification. Called while holding the write lock,
+   * such that listeners observe the modifications in order.
+   */
+  private void publish(List<T> changed, List<String> removed) {
+    for (final Listener<? super T> listener : listeners) {
+      listener.modified(lastTimestamp, Collections.unmodifiableList(changed),
+          Collections.unmodifiableList(removed));
+    }
+  }
+
+  /**
+   * Returns a new modification timestamp, which is the current time unless the clock did not
+   * advance since the last modification or the last reported delta. Must be called while holding
+   * the write lock.
+   */
+  private long nextTimestamp() {
+    lastTimestamp = Math.max(clock.getAsLong(),
+        Math.max(lastTimestamp, reportedTimestamp.get()) + 1);
+    return lastTimestamp;
+  }
+
+  /**
+   * Discards tombstones that are older than the retention. Must be called while holding the write
+   * lock.
+   */
+  private void discardTombstones() {
+    final NavigableMap<Long, String> expired =
+        tombstones.headMap(lastTimestamp - tombstoneRetention, true);
+    if (!expired.isEmpty()) {
+      horizon = Math.max(horizon, expired.lastKey());
+      expired.clear();
+    }
+  }
+
+  /**
+   * Adds the entry to all indexes. Must be called while holding the write lock.
+   */
+  private void index(Entry<T> entry) {
+    for (int i = 0; i < indexedAttributes.length; i++) {
+      entry.values[i] = indexedAttributes[i].get(entry.resource);
+      indexes.get(indexedAttributes[i].getName())
+          .computeIfAbsent(entry.values[i], v -> new LinkedHashSet<>())
+          .add(entry);
+    }
+    for (final AttributeAccessor accessor : substringAttributes) {
+      substringIndexes.get(accessor.getName()).put(entry, (String) accessor.get(entry.resource));
+    }
+    for (final AttributeAccessor accessor : rangeAttributes) {
+      rangeIndexes.get(accessor.getName()).put(entry, accessor.get(entry.resource));
+    }
+  }
+
+  /**
+   * Removes the entry from all indexes. Must be called while holding the write lock.
+   */
+  private void unindex(Entry<T> entry) {
+    for (int i = 0; i < indexedAttributes.length; i++) {
+      final Map<Object, Set<Entry<T>>> index = indexes.get(indexedAttributes[i].getName());
+      final Set<Entry<T>> bucket = index.get(entry.values[i]);
+      if (bucket != null) {
+        bucket.remove(entry);
+        if (bucket.isEmpty()) {
+          index.remove(entry.values[i]);
+        }
+      }
+    }
+    for (final TrigramIndex<Entry<T>> index : substringIndexes.values()) {
+      index.remove(entry);
+    }
+    for (final SortedIndex<Entry<T>> index : rangeIndexes.values()) {
+      index.remove(entry);
+    }
+  }
+
+  /**
+   * A contained resource along with its position and its indexed values. Entries use identity
+   * semantics, thus resources with mutable {@code equals()} can be indexed safely.
+   */
+  private static final class Entry<T> {
+
+    private static final Comparator<Entry<?>> BY_SEQUENCE =
+        Comparator.comparingLong(e -> e.sequence);
+
+    private final T resource;
+    private final long sequence;
+    private final Object[] values;
+    private long modifiedAt;
+
+    private Entry(T resource, long sequence, int indexCount) {
+      this.resource = resource;
+      this.sequence = sequence;
+      this.values = new Object[indexCount];
+    }
+  }
+
+}
@@ -0,0 +1,20 @@
+package net.explorviz.shared.querying;
+
+/**
+ * Thrown if a {@link Query} can not be performed because it is invalid, e.g. it refers to unknown
+ * attributes or contains filter values that can not be converted. In contrast to other
+ * {@link QueryException}s, the failure is caused by the client rather than the backing store, see
+ * {@link AsyncQueries}.
+ */
+@SuppressWarnings("serial")
+public class InvalidQueryException extends QueryException {
+
+  public InvalidQueryException(String message) {
+    super(message);
+  }
+
+  public InvalidQueryException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+}
@@ -0,0 +1,48 @@
+package net.explorviz.shared.querying;
+
+import java.util.Collection;
+
+/**
+ * {@link Queryable} that publishes modifications of its resources to registered listeners. Used by
+ * {@link QuerySubscriptions} to push changes to clients instead of letting them poll.
+ *
+ * @param <T> the type of the resulting objects
+ */
+public interface ObservableQueryable<T> extends Queryable<T> {
+
+  /**
+   * Registers a listener that is notified about all subsequent modifications.
+   *
+   * @param listener the listener to add
+   */
+  void addListener(Listener<? super T> listener);
+
+  /**
+   * Unregisters a listener.
+   *
+   * @param listener the listener to remove
+   */
+  void removeListener(Listener<? super T> listener);
+
+  /**
+   * Receives the modifications of an {@link ObservableQueryable}. Listeners are notified in the
+   * order of the modifications, possibly while the queryable holds locks. Thus listeners must not
+   * block and should hand expensive work over to another thread.
+   *
+   * @param <T> the type of the modified objects
+   */
+  @FunctionalInterface
+  interface Listener<T> {
+
+    /**
+     * Called after objects were modified.
+     *
+     * @param timestamp the timestamp of the modification in milliseconds since the epoch, as used
+     *        by delta queries (see {@link Query#getSince()})
+     * @param changed the objects that were added or changed
+     * @param removed the ids of the objects that were removed
+     */
+    void modified(long timestamp, Collection<? extends T> changed, Collection<String> removed);
+  }
+
+}
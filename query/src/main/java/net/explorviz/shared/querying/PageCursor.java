@@ -0,0 +1,46 @@
+package net.explorviz.shared.querying;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Helper to create and read the opaque cursors used for cursor-based (keyset) pagination, i.e. the
+ * values of the {@code page[after]} query parameter. A cursor wraps the sort key of the last
+ * resource of a page, such that a {@link Queryable} can seek directly to the first resource of the
+ * next page instead of skipping all preceding resources.
+ *
+ * <p>
+ * The key is encoded in URL-safe Base64 and thus opaque to clients. An empty cursor denotes the
+ * beginning of the collection.
+ * </p>
+ */
+public final class PageCursor {
+
+  private PageCursor() {
+    // Utility class
+  }
+
+  /**
+   * Encodes the key of the last resource of a page into an opaque cursor.
+   *
+   * @param key the key to encode, e.g. the id of the last resource on the page
+   * @return the opaque cursor to pass as {@code page[after]}
+   */
+  public static String encode(final String key) {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(key.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decodes an opaque cursor into the key of the last resource of the previous page.
+   *
+   * @param cursor the cursor as given by {@code page[after]}
+   * @return the key encoded in the cursor, or an empty string if the cursor is empty
+   * @throws IllegalArgumentException if the given string is not a valid cursor
+   */
+  public static String decode(final String cursor) {
+    return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+  }
+
+}
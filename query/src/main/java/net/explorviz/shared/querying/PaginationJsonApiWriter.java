@@ -1,43 +1,117 @@
 package net.explorviz.shared.querying;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.github.jasminb.jsonapi.JSONAPIDocument;
-import com.github.jasminb.jsonapi.Link;
 import com.github.jasminb.jsonapi.ResourceConverter;
 import com.github.jasminb.jsonapi.exceptions.DocumentSerializationException;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.List;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
+/**
+ * Serializes a {@link QueryResult} as JSON:API document and adds pagination links if the
+ * corresponding query was paginated. For paginated queries, the total amount of matching objects is
+ * exposed as {@code meta.total} if known. An estimated total is flagged with
+ * {@code meta.total-estimated}, the {@code last} link is then approximated as well. If the total is
+ * unknown, the {@code last} link is omitted. A total that is computed on demand (see
+ * {@link Total#lazy(java.util.function.LongSupplier)}) is always computed for page-number
+ * paginated queries, since the {@code last} link is derived from it. Requested aggregates (see
+ * {@link Aggregations}) are exposed as {@code meta.aggregations}. For delta queries, the ids of
+ * removed objects and the timestamp for the next poll are exposed as {@code meta.delta} (see
+ * {@link Delta}).
+ *
+ * <p>
+ * The document is streamed to the client (unless tagged by content, see below): each resource
+ * is serialized on its own and directly written to the output stream, thus the memory needed to
+ * write a response does not grow with the size of the page. Only included resources are buffered
+ * (and deduplicated) until the {@code data} array is complete. If a resource can not be
+ * serialized, writing fails as a whole rather than leaving a truncated document that looks
+ * complete.
+ * </p>
+ *
+ * <p>
+ * If the {@link Queryable} supplied a version (see {@link QueryResult#getVersion()}), responses
+ * carry a strong {@code ETag} derived from it, and conditional requests with a matching
+ * {@code If-None-Match} header are answered with {@code 304 Not Modified} without serializing the
+ * results at all. This happens before the writer is invoked, since this class is a
+ * {@link ContainerResponseFilter} as well (registering the class registers both). Results without
+ * version are only tagged if the resource method is annotated with {@link ContentEntityTag}: the
+ * document is then serialized into a buffer first and the tag is derived from its content, i.e.
+ * the response is no longer streamed but the bandwidth for unchanged documents is still saved.
+ * Only successful responses to {@code GET} and {@code HEAD} requests are tagged.
+ * </p>
+ *
+ * <p>
+ * Sparse fieldsets ({@code fields[type]=...}) are respected if the resource converter is set up
+ * accordingly, see {@link SparseFieldsets}.
+ * </p>
+ *
+ * @param <T> the type of the serialized resources
+ */
 @Provider
 @Produces("application/vnd.api+json")
-public class PaginationJsonApiWriter<T> implements MessageBodyWriter<QueryResult<T>> {
+public class PaginationJsonApiWriter<T>
+    implements MessageBodyWriter<QueryResult<T>>, ContainerResponseFilter {
   // Names of the parameters are defined by JSON:API
   private static final String PAGENUM = "page[number]";
   private static final String PAGELEN = "page[size]";
+  private static final String PAGEAFTER = "page[after]";
+  private static final String PAGE_PREFIX = "page[";
   private static final String NEXT_LINK = "next";
   private static final String PREV_LINK = "prev";
   private static final String FIRST_LINK = "first";
   private static final String LAST_LINK = "last";
 
-  private static final Logger LOGGER = LoggerFactory.getLogger(PaginationJsonApiWriter.class);
+  // Top-level members of a JSON:API document
+  private static final String DATA = "data";
+  private static final String INCLUDED = "included";
+  private static final String LINKS = "links";
+  private static final String META = "meta";
+  private static final String META_TOTAL = "total";
+  private static final String META_TOTAL_ESTIMATED = "total-estimated";
+  private static final String META_AGGREGATIONS = "aggregations";
+  private static final String META_DELTA = "delta";
+  private static final String META_DELTA_TIMESTAMP = "timestamp";
+  private static final String META_DELTA_REMOVED = "removed";
+  private static final String TYPE = "type";
+  private static final String ID = "id";
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
 
   @Context
   private HttpServletRequest httpRequest;
 
+  // Request scoped, thus provided on demand
+  @Context
+  private javax.inject.Provider<ContainerRequestContext> containerRequest;
+
   private final ResourceConverter converter;
 
   @Inject
@@ -45,6 +119,16 @@ public class PaginationJsonApiWriter<T> implements MessageBodyWriter<QueryResult
     this.converter = converter;
   }
 
+  /**
+   * Creates a writer for documents that are embedded into the response to the given request. The
+   * writer does not evaluate conditional requests.
+   */
+  PaginationJsonApiWriter(final ResourceConverter converter,
+      final HttpServletRequest httpRequest) {
+    this.converter = converter;
+    this.httpRequest = httpRequest;
+  }
+
   @Override
   public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations,
       MediaType mediaType) {
@@ -52,74 +136,320 @@ public class PaginationJsonApiWriter<T> implements MessageBodyWriter<QueryResult
     return true;
   }
 
+  /**
+   * Tags successful responses to {@code GET} and {@code HEAD} requests with a result that has a
+   * version and answers conditional requests before the result is written, i.e. without
+   * serializing it at all. These responses are marked as well, such that the writer can tag
+   * results without version by their content (see {@link EntityTags#markConditional}).
+   */
+  @Override
+  public void filter(ContainerRequestContext requestContext,
+      ContainerResponseContext responseContext) {
+    if (EntityTags.markConditional(requestContext, responseContext)
+        && responseContext.getEntity() instanceof QueryResult) {
+      EntityTags.evaluatePreconditions(
+          EntityTags.ofVersion((QueryResult<?>) responseContext.getEntity()), requestContext,
+          responseContext);
+    }
+  }
+
   @Override
   public void writeTo(QueryResult<T> results, Class<?> type, Type genericType,
       Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
       OutputStream entityStream) throws IOException, WebApplicationException {
 
-    JSONAPIDocument<List<T>> document =
-        new JSONAPIDocument<List<T>>(new ArrayList<T>(results.getData()));
+    byte[] content = null;
+    if (EntityTags.byContent(annotations) && containerRequest != null
+        && EntityTags.isMarkedConditional(containerRequest.get())
+        && EntityTags.ofVersion(results) == null) {
+      // Without a version, the document must be serialized to compute a tag from its content. A
+      // matching request can only be answered by an exception now, whose 304 response is passed
+      // on unchanged by the exception mappers
+      final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      writeDocument(results, type, buffer);
+      content = buffer.toByteArray();
+      final EntityTag entityTag = EntityTags.ofContent(content);
+      httpHeaders.putSingle(HttpHeaders.ETAG, entityTag);
+      final ResponseBuilder notModified =
+          containerRequest.get().getRequest().evaluatePreconditions(entityTag);
+      if (notModified != null) {
+        throw new WebApplicationException(notModified.tag(entityTag).build());
+      }
+    }
+
+    // Not closed if serialization fails, such that the response is aborted rather than completed
+    if (content == null) {
+      writeDocument(results, type, entityStream);
+    } else {
+      entityStream.write(content);
+    }
+    entityStream.flush();
+    entityStream.close();
 
-    if (results.getQuery().doPaginate()) {
-      addLinks(results, document);
+  }
+
+  /**
+   * Writes the JSON:API document of the results. Links are only written when serializing the
+   * response to a HTTP request, since they are derived from the request URL. Also used to
+   * serialize the events of {@link QuerySubscriptions}.
+   */
+  void writeDocument(QueryResult<T> results, Class<?> type, OutputStream out)
+      throws IOException {
+
+    final JsonGenerator generator = MAPPER.getFactory().createGenerator(out);
+    try {
+      writeDocument(results, type, generator, "");
+    } finally {
+      generator.flush();
     }
+  }
+
+  /**
+   * Writes the JSON:API document of the results with the given generator, such that several
+   * documents can be embedded into one response (see {@link BatchJsonApiWriter}).
+   *
+   * @param parameterPrefix prefix of the pagination parameters of the query in the request URL,
+   *        used to create the links
+   */
+  void writeDocument(QueryResult<T> results, Class<?> type, JsonGenerator generator,
+      String parameterPrefix) throws IOException {
 
+    final Map<String, Set<String>> fieldsets = results.getQuery().getProjection().getFieldsets();
 
     try {
-      entityStream.write(this.converter.writeDocumentCollection(document));
+      generator.writeStartObject();
+      final SparseFieldsets.Scope scope = SparseFieldsets.apply(fieldsets);
+      try {
+        writeData(results, generator);
+      } finally {
+        scope.close();
+      }
+
+      // Links are derived from the request URL, thus events of subscriptions have none
+      if (httpRequest != null) {
+        if (results.getQuery().doPaginate()) {
+          writeLinks(createLinks(results, parameterPrefix), generator);
+        } else if (results.getQuery().doCursorPaginate()) {
+          writeLinks(createCursorLinks(results, parameterPrefix), generator);
+        }
+      }
+
+      writeMeta(results, generator);
+
+      generator.writeEndObject();
     } catch (final DocumentSerializationException e) {
-      if (LOGGER.isErrorEnabled()) {
-        LOGGER.error("Error when serializing object of type" + type + ": ", e);
+      // Fail the whole document, a partial document must not look like a complete one
+      throw new IOException("Error when serializing object of type " + type, e);
+    }
+  }
+
+  /**
+   * Writes the {@code data} array and, if any, the {@code included} array. Resources are
+   * serialized one by one such that only a single resource is held in memory at any time. The
+   * serialized resource is copied token by token into the generator, only included resources are
+   * buffered as tokens.
+   */
+  private void writeData(QueryResult<T> results, JsonGenerator generator)
+      throws IOException, DocumentSerializationException {
+
+    // Identifiers (type and id) of primary resources, which must not be included again
+    final Set<String> primaryKeys = new HashSet<>();
+    final Map<String, TokenBuffer> included = new LinkedHashMap<>();
+
+    generator.writeArrayFieldStart(DATA);
+    for (final T resource : results.getData()) {
+      final byte[] document = this.converter.writeDocument(new JSONAPIDocument<>(resource));
+
+      try (JsonParser parser = MAPPER.getFactory().createParser(document)) {
+        parser.nextToken();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          final String member = parser.getCurrentName();
+          parser.nextToken();
+          if (DATA.equals(member)) {
+            primaryKeys.add(copyResource(parser, generator));
+          } else if (INCLUDED.equals(member) && parser.currentToken() == JsonToken.START_ARRAY) {
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+              final TokenBuffer buffer = new TokenBuffer(parser);
+              included.putIfAbsent(copyResource(parser, buffer), buffer);
+            }
+          } else {
+            parser.skipChildren();
+          }
+        }
       }
-    } finally {
-      entityStream.flush();
-      entityStream.close();
     }
+    generator.writeEndArray();
 
+    included.keySet().removeAll(primaryKeys);
+    if (!included.isEmpty()) {
+      generator.writeArrayFieldStart(INCLUDED);
+      for (final TokenBuffer resource : included.values()) {
+        resource.serialize(generator);
+      }
+      generator.writeEndArray();
+    }
   }
 
-  private void addLinks(QueryResult<T> results, JSONAPIDocument<List<T>> document) {
+  /**
+   * Copies the resource object the parser points at and returns its identifier (type and id).
+   */
+  private static String copyResource(JsonParser parser, JsonGenerator generator)
+      throws IOException {
+    String type = "";
+    String id = "";
+    String member = null;
+    int depth = 0;
+    do {
+      final JsonToken token = parser.currentToken();
+      if (token.isStructStart()) {
+        depth++;
+      } else if (token.isStructEnd()) {
+        depth--;
+      } else if (depth == 1 && token == JsonToken.FIELD_NAME) {
+        member = parser.getCurrentName();
+      } else if (depth == 1 && token.isScalarValue()) {
+        if (TYPE.equals(member)) {
+          type = parser.getText();
+        } else if (ID.equals(member)) {
+          id = parser.getText();
+        }
+      }
+      generator.copyCurrentEvent(parser);
+    } while (depth > 0 && parser.nextToken() != null);
+    return type + ':' + id;
+  }
+
+  private void writeLinks(Map<String, String> links, JsonGenerator generator) throws IOException {
+    generator.writeObjectFieldStart(LINKS);
+    for (final Map.Entry<String, String> link : links.entrySet()) {
+      generator.writeStringField(link.getKey(), link.getValue());
+    }
+    generator.writeEndObject();
+  }
+
+  private void writeMeta(QueryResult<T> results, JsonGenerator generator) throws IOException {
+    final Total total = results.getTotal();
+    // Do not compute lazy totals that were not needed for the links
+    final boolean writeTotal = total.isResolved()
+        && (results.getQuery().doPaginate() || results.getQuery().doCursorPaginate());
+    if (!writeTotal && results.getAggregations() == null && results.getDelta() == null) {
+      return;
+    }
+
+    generator.writeObjectFieldStart(META);
+    if (writeTotal) {
+      generator.writeNumberField(META_TOTAL, total.getValue());
+      if (total.isEstimated()) {
+        generator.writeBooleanField(META_TOTAL_ESTIMATED, true);
+      }
+    }
+    if (results.getAggregations() != null) {
+      generator.writeObjectFieldStart(META_AGGREGATIONS);
+      generator.writeObjectFieldStart(Aggregations.COUNT);
+      for (final Map.Entry<String, Map<String, Long>> attribute : results.getAggregations()
+          .getCounts().entrySet()) {
+        generator.writeObjectFieldStart(attribute.getKey());
+        for (final Map.Entry<String, Long> bucket : attribute.getValue().entrySet()) {
+          generator.writeNumberField(bucket.getKey(), bucket.getValue());
+        }
+        generator.writeEndObject();
+      }
+      generator.writeEndObject();
+      generator.writeEndObject();
+    }
+    if (results.getDelta() != null) {
+      generator.writeObjectFieldStart(META_DELTA);
+      generator.writeNumberField(META_DELTA_TIMESTAMP, results.getDelta().getTimestamp());
+      generator.writeArrayFieldStart(META_DELTA_REMOVED);
+      for (final String id : results.getDelta().getRemoved()) {
+        generator.writeString(id);
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+    generator.writeEndObject();
+  }
+
+  private Map<String, String> createLinks(QueryResult<T> results, String prefix)
+      throws IOException {
+    final Map<String, String> links = new LinkedHashMap<>();
+    final int pageSize = results.getQuery().getPageSize();
+
     // Next Link
     if (results.getNextPage() != null) {
-      StringBuffer nextUrlBuffer = httpRequest.getRequestURL();
-      nextUrlBuffer.append("?").append(PAGENUM).append("=").append(results.getNextPage());
-      nextUrlBuffer.append("&")
-          .append(PAGELEN)
-          .append("=")
-          .append(results.getQuery().getPageSize());
-
-      String nextLink = nextUrlBuffer.toString();
-      document.addLink(NEXT_LINK, new Link(nextLink));
+      links.put(NEXT_LINK, pageLink(prefix, results.getNextPage(), pageSize));
     }
 
     // Prev Link
     if (results.getPreviousPage() != null) {
-      StringBuffer prevUrlBuffer = httpRequest.getRequestURL();
-      prevUrlBuffer.append("?").append(PAGENUM).append("=").append(results.getPreviousPage());
-      prevUrlBuffer.append("&")
-          .append(PAGELEN)
-          .append("=")
-          .append(results.getQuery().getPageSize());
-
-      String prevLink = prevUrlBuffer.toString();
-      document.addLink(PREV_LINK, new Link(prevLink));
+      links.put(PREV_LINK, pageLink(prefix, results.getPreviousPage(), pageSize));
     }
 
     // First Link
-    StringBuffer firstUrlBuffer = httpRequest.getRequestURL();
-    firstUrlBuffer.append("?").append(PAGENUM).append("=").append(0);
-    firstUrlBuffer.append("&").append(PAGELEN).append("=").append(results.getQuery().getPageSize());
+    links.put(FIRST_LINK, pageLink(prefix, 0, pageSize));
 
-    String firstLink = firstUrlBuffer.toString();
-    document.addLink(FIRST_LINK, new Link(firstLink));
+    // Last Link, only if the total is (at least approximately) known
+    if (results.getLastPage() != null) {
+      links.put(LAST_LINK, pageLink(prefix, results.getLastPage(), pageSize));
+    }
 
-    // Last Link
-    StringBuffer lastUrlBuffer = httpRequest.getRequestURL();
-    lastUrlBuffer.append("?").append(PAGENUM).append("=").append(results.getLastPage());
-    lastUrlBuffer.append("&").append(PAGELEN).append("=").append(results.getQuery().getPageSize());
-    String lastLink = lastUrlBuffer.toString();
-    document.addLink(LAST_LINK, new Link(lastLink));
+    return links;
   }
 
+  private Map<String, String> createCursorLinks(QueryResult<T> results, String prefix)
+      throws IOException {
+    final Map<String, String> links = new LinkedHashMap<>();
+    final int pageSize = results.getQuery().getPageSize();
+
+    // Next Link
+    if (results.getNextCursor() != null) {
+      links.put(NEXT_LINK, cursorLink(prefix, results.getNextCursor(), pageSize));
+    }
+
+    // First Link, the empty cursor points to the beginning
+    links.put(FIRST_LINK, cursorLink(prefix, "", pageSize));
+
+    return links;
+  }
+
+  private String cursorLink(String prefix, String cursor, int pageSize) throws IOException {
+    StringBuilder urlBuffer = baseUrl(prefix);
+    // Cursors are URL-safe, no need to encode them
+    urlBuffer.append(prefix).append(PAGEAFTER).append("=").append(cursor);
+    urlBuffer.append("&").append(prefix).append(PAGELEN).append("=").append(pageSize);
+    return urlBuffer.toString();
+  }
+
+  private String pageLink(String prefix, int pageNumber, int pageSize) throws IOException {
+    StringBuilder urlBuffer = baseUrl(prefix);
+    urlBuffer.append(prefix).append(PAGENUM).append("=").append(pageNumber);
+    urlBuffer.append("&").append(prefix).append(PAGELEN).append("=").append(pageSize);
+    return urlBuffer.toString();
+  }
+
+  /**
+   * Creates the request URL including all query parameters except the pagination parameters of
+   * the query, such that links keep the filters and the sort order of the request.
+   *
+   * @param prefix prefix of the pagination parameters of the query, empty unless the query is
+   *        part of a batch
+   * @return the URL, ending with {@code ?} or {@code &}
+   */
+  private StringBuilder baseUrl(String prefix) throws IOException {
+    final StringBuilder urlBuffer = new StringBuilder(httpRequest.getRequestURL()).append('?');
+    final String queryString = httpRequest.getQueryString();
+    if (queryString == null) {
+      return urlBuffer;
+    }
+
+    final String pagePrefix = prefix + PAGE_PREFIX;
+    for (final String param : queryString.split("&")) {
+      final String name = URLDecoder.decode(param.split("=", 2)[0], StandardCharsets.UTF_8.name());
+      if (!param.isEmpty() && !name.startsWith(pagePrefix)) {
+        urlBuffer.append(param).append('&');
+      }
+    }
+    return urlBuffer;
+  }
 
 }
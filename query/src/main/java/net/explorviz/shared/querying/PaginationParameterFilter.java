@@ -3,9 +3,13 @@ package net.explorviz.shared.querying;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import javax.inject.Inject;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.MultivaluedMap;
+import net.explorviz.shared.config.annotations.Config;
+import org.jvnet.hk2.annotations.Optional;
 
 /**
  * Filters request that contain invalid paginations parameters. The type of pagination in use is
@@ -13,12 +17,26 @@ import javax.ws.rs.container.ContainerRequestFilter;
  * (i.e. the amount of objects to return). The query parameters are {@code page[number]} and
  * {@code page[size]} respectively.
  * <p/>
+ * Alternatively, cursor-based pagination can be used by passing an opaque cursor (see
+ * {@link PageCursor}) as {@code page[after]} together with {@code page[size]}. An empty cursor
+ * requests the first page. Cursor-based and page-based pagination cannot be combined.
+ * <p/>
  * If a request contains query parameters matching the reserved keywords for pagination, they are
  * subject to this filter. This means the query parameters for pagination cannot be reused for other
  * purposes if this filter is active.
  * <p/>
  * If the pagination parameters are given but do not contain valid data, the request is aborted and
- * a 400 will be sent back to the client.
+ * a 400 will be sent back to the client. Otherwise the parsed {@link Query} is stored in the
+ * request, such that it is not parsed again, see
+ * {@link Query#fromRequest(ContainerRequestContext)}. Requests without pagination parameters are
+ * not parsed by this filter, since it applies to all requests, including those of resources that
+ * do not query at all. Their query is parsed on first use by
+ * {@link Query#fromRequest(ContainerRequestContext)}, which rejects invalid parameters as well.
+ * <p/>
+ * The maximum page size is read from the optional property {@code query.maxPageSize} and defaults
+ * to 100. The timestamp of delta queries ({@code since}) of a paginated request must be a
+ * non-negative integer. Filters with unknown operators (see {@link FilterOperator}) are rejected
+ * as well.
  * 
  *
  */
@@ -27,47 +45,130 @@ public class PaginationParameterFilter implements ContainerRequestFilter {
   // Names of the parameters are defined by JSON:API
   private static final String PAGENUM = "page[number]";
   private static final String PAGESIZE = "page[size]";
+  private static final String PAGEAFTER = "page[after]";
+  private static final String SINCE = "since";
 
-  private static final int MAX_PAGE_SIZE = 100;
+  private static final int DEFAULT_MAX_PAGE_SIZE = 100;
 
+  private final int maxPageSize;
+
+  /**
+   * Creates a new filter with the default maximum page size of 100.
+   */
+  public PaginationParameterFilter() {
+    this(DEFAULT_MAX_PAGE_SIZE);
+  }
+
+  /**
+   * Creates a new filter.
+   * 
+   * @param maxPageSize the maximum page size clients can request, or {@code null} for the default
+   *        of 100
+   */
+  @Inject
+  public PaginationParameterFilter(
+      @Optional @Config("query.maxPageSize") final Integer maxPageSize) {
+    this.maxPageSize = maxPageSize == null ? DEFAULT_MAX_PAGE_SIZE : maxPageSize;
+  }
 
   @Override
   public void filter(ContainerRequestContext requestContext) throws IOException {
-    Map<String, List<String>> queryParams = requestContext.getUriInfo().getQueryParameters(true);
+    MultivaluedMap<String, String> queryParams =
+        requestContext.getUriInfo().getQueryParameters(true);
 
     // If none set, skip
-    if (queryParams.get(PAGENUM) == null && queryParams.get(PAGESIZE) == null) {
+    if (queryParams.get(PAGENUM) == null && queryParams.get(PAGESIZE) == null
+        && queryParams.get(PAGEAFTER) == null) {
       return;
     }
 
+    // Parse the parameters only once, the query is reused by the resources
+    requestContext.setProperty(Query.REQUEST_PROPERTY, validate(queryParams));
+  }
 
+  /**
+   * Parses and validates the query parameters of a single query. Also used for the queries of a
+   * batch, see {@link BatchQueries}.
+   *
+   * @param queryParams the (decoded) query parameters
+   * @return the parsed query
+   * @throws BadRequestException if the parameters are invalid
+   */
+  Query<?> validate(MultivaluedMap<String, String> queryParams) {
+    // If none set, no validation of the pagination needed
+    if (queryParams.get(PAGENUM) == null && queryParams.get(PAGESIZE) == null
+        && queryParams.get(PAGEAFTER) == null) {
+      return parse(queryParams);
+    }
 
-    // Both or none have to be present
-    if ((queryParams.get(PAGENUM) != null && queryParams.get(PAGESIZE) == null)
+    if (queryParams.get(PAGEAFTER) != null) {
+      validateCursorParameters(queryParams);
+    } else if ((queryParams.get(PAGENUM) != null && queryParams.get(PAGESIZE) == null)
         || (queryParams.get(PAGENUM) == null && queryParams.get(PAGESIZE) != null)) {
+      // Both or none have to be present
       throw new BadRequestException(
           String.format("Both %s and %s have to be specified", PAGESIZE, PAGENUM));
     }
 
-    // Both have to be positive integers
-    int num;
-    int len;
+    final Query<?> query = parse(queryParams);
+
+    if (query.getCursor() != null) {
+      validateCursorPage(query);
+    } else if (query.getPageSize() <= 0 || query.getPageNumber() < 0
+        || query.getPageSize() > maxPageSize) {
+      // Both have to be positive integers
+      throw new BadRequestException(String.format(
+          "%s must greater than zero but smaller then %d,  %s must greater than or equal to zero",
+          PAGESIZE,
+          maxPageSize,
+          PAGENUM));
+    }
+
+    return query;
+  }
+
+  private Query<?> parse(MultivaluedMap<String, String> queryParams) {
+    final Query<?> query;
     try {
-      num = Integer.parseInt(queryParams.get(PAGENUM).get(0));
-      len = Integer.parseInt(queryParams.get(PAGESIZE).get(0));
-      if (len <= 0 || num < 0 || len > MAX_PAGE_SIZE) {
-        throw new BadRequestException(String.format(
-            "%s must greater than zero but smaller then %d,  %s must greater than or equal to zero",
-            PAGESIZE,
-            MAX_PAGE_SIZE,
-            PAGENUM));
-      }
+      query = Query.fromParameterMap(queryParams);
     } catch (NumberFormatException e) {
-      throw new BadRequestException(String.format("%s and %s must be integers", PAGESIZE, PAGENUM));
+      throw new BadRequestException(
+          String.format("%s, %s and %s must be integers", PAGESIZE, PAGENUM, SINCE));
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException(e.getMessage());
     }
 
+    if (queryParams.get(SINCE) != null && !query.doDelta()) {
+      throw new BadRequestException(String.format("%s must not be negative", SINCE));
+    }
+    return query;
+  }
 
+  private void validateCursorParameters(Map<String, List<String>> queryParams) {
 
+    // Cursor-based pagination must not be mixed with page-based pagination
+    if (queryParams.get(PAGENUM) != null) {
+      throw new BadRequestException(
+          String.format("%s and %s must not be specified together", PAGEAFTER, PAGENUM));
+    }
+
+    if (queryParams.get(PAGESIZE) == null) {
+      throw new BadRequestException(
+          String.format("Both %s and %s have to be specified", PAGESIZE, PAGEAFTER));
+    }
+  }
+
+  private void validateCursorPage(Query<?> query) {
+    if (query.getPageSize() <= 0 || query.getPageSize() > maxPageSize) {
+      throw new BadRequestException(String.format(
+          "%s must greater than zero but smaller then %d", PAGESIZE, maxPageSize));
+    }
+
+    try {
+      PageCursor.decode(query.getCursor());
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException(String.format("%s is not a valid cursor", PAGEAFTER));
+    }
   }
 
 }
@@ -0,0 +1,164 @@
+package net.explorviz.shared.querying;
+
+import com.github.jasminb.jsonapi.annotations.Type;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * The parts of the resources a client requested, as given by the JSON:API parameters
+ * {@code fields[type]=attribute1,attribute2} (sparse fieldsets) and
+ * {@code include=relationship1,relationship2} (inclusion of related resources).
+ *
+ * <p>
+ * A {@link Queryable} can use the projection of a {@link Query} to load only the requested
+ * attributes from its backing store, e.g. to skip large text columns that are not serialized
+ * anyway. Attributes that are not requested may be left unset in the returned resources.
+ * </p>
+ */
+public final class Projection {
+
+  private static final String INCLUDE = "include";
+
+  private static final Projection ALL = new Projection(Collections.emptyMap(), null);
+
+  private final Map<String, Set<String>> fieldsets;
+  private final Set<String> includes;
+
+  private Projection(Map<String, Set<String>> fieldsets, Set<String> includes) {
+    this.fieldsets = Collections.unmodifiableMap(fieldsets);
+    this.includes = includes == null ? null : Collections.unmodifiableSet(includes);
+  }
+
+  /**
+   * Projection that requests all attributes and leaves inclusion of related resources to the
+   * server.
+   *
+   * @return the projection
+   */
+  public static Projection all() {
+    return ALL;
+  }
+
+  /**
+   * Extracts the projection from the raw query parameters of a HTTP request.
+   *
+   * @param parameters the raw HTTP query parameters
+   * @return the projection
+   */
+  public static Projection fromParameterMap(MultivaluedMap<String, String> parameters) {
+    final Map<String, Set<String>> fieldsets = SparseFieldsets.fromParameterMap(parameters);
+
+    Set<String> includes = null;
+    if (parameters.containsKey(INCLUDE)) {
+      includes = new LinkedHashSet<>();
+      for (final String value : parameters.get(INCLUDE)) {
+        for (final String include : value.split(",")) {
+          if (!include.trim().isEmpty()) {
+            includes.add(include.trim());
+          }
+        }
+      }
+    }
+
+    if (fieldsets.isEmpty() && includes == null) {
+      return ALL;
+    }
+    return new Projection(fieldsets, includes);
+  }
+
+  /**
+   * The requested sparse fieldsets, see {@link SparseFieldsets}.
+   *
+   * @return map of resource types to the requested attributes, types without an entry are
+   *         requested completely
+   */
+  public Map<String, Set<String>> getFieldsets() {
+    return fieldsets;
+  }
+
+  /**
+   * The requested attributes of the given resource type.
+   *
+   * @param type the JSON:API resource type, e.g. {@code procezz}
+   * @return the requested attributes or {@code null} if all attributes are requested
+   */
+  public Set<String> getFields(String type) {
+    return fieldsets.get(type);
+  }
+
+  /**
+   * The requested attributes of the given resource class.
+   *
+   * @param resourceClass a class annotated with {@link Type}
+   * @return the requested attributes or {@code null} if all attributes are requested
+   */
+  public Set<String> getFields(Class<?> resourceClass) {
+    final Type type = resourceClass.getAnnotation(Type.class);
+    return type == null ? null : getFields(type.value());
+  }
+
+  /**
+   * Checks whether an attribute of the given resource type was requested.
+   *
+   * @param type the JSON:API resource type, e.g. {@code procezz}
+   * @param attribute the name of the attribute, e.g. {@code aop-content}
+   * @return {@code True} iff no fieldset restricts the type or the attribute is in its fieldset
+   */
+  public boolean isRequested(String type, String attribute) {
+    final Set<String> fields = fieldsets.get(type);
+    return fields == null || fields.contains(attribute);
+  }
+
+  /**
+   * The relationships whose related resources should be included. Entries can be paths of
+   * relationships, e.g. {@code agent.procezzes}.
+   *
+   * @return the relationships to include or {@code null} if the client did not specify any, in
+   *         which case the server decides
+   */
+  public Set<String> getIncludes() {
+    return includes;
+  }
+
+  /**
+   * Checks whether the projection restricts the requested data in any way.
+   *
+   * @return {@code True} iff sparse fieldsets or includes were given
+   */
+  public boolean isRestricted() {
+    return !fieldsets.isEmpty() || includes != null;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof Projection)) {
+      return false;
+    }
+    final Projection other = (Projection) obj;
+    return fieldsets.equals(other.fieldsets) && Objects.equals(includes, other.includes);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * fieldsets.hashCode() + Objects.hashCode(includes);
+  }
+
+  @Override
+  public String toString() {
+    // Sorted, such that equal projections have equal representations
+    final Map<String, Set<String>> sortedFieldsets = new TreeMap<>();
+    fieldsets.forEach((type, fields) -> sortedFieldsets.put(type, new TreeSet<>(fields)));
+    return "Projection [fields=" + sortedFieldsets + ", include="
+        + (includes == null ? null : new TreeSet<>(includes)) + "]";
+  }
+
+}
@@ -1,8 +1,15 @@
 package net.explorviz.shared.querying;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.UriInfo;
@@ -12,8 +19,14 @@ import javax.ws.rs.core.UriInfo;
  * to query. Such a a query defines
  * 
  * <ul>
- * <li>if and how the resulting data should be paginated
- * <li>if and by which attributes the resulting data should be filtered
+ * <li>if and how the resulting data should be paginated, either page-based
+ * ({@code page[number]}) or cursor-based ({@code page[after]})
+ * <li>if and by which attributes the resulting data should be filtered, by equality or by other
+ * operators (see {@link FilterOperator})
+ * <li>if and by which attributes the resulting data should be sorted
+ * <li>which attributes and related resources of the resulting data are needed at all
+ * <li>if and which aggregates (e.g. counts per attribute value) should be computed
+ * <li>if only the changes since a given point in time are of interest
  * </ul>
  * 
  * <p>
@@ -27,11 +40,30 @@ public class Query<T> {
 
   private static final String PAGENUM = "page[number]";
   private static final String PAGESIZE = "page[size]";
+  private static final String PAGEAFTER = "page[after]";
   private static final String FILTER_PREFIX = "filter[";
+  private static final String SORT = "sort";
+  private static final String AGGREGATE_PREFIX = "aggregate[";
+  private static final String SINCE = "since";
+
+  /**
+   * Name of the request property that holds the parsed query of a request, see
+   * {@link #fromRequest(ContainerRequestContext)}.
+   */
+  public static final String REQUEST_PROPERTY = Query.class.getName();
 
   private final int pageSize;
   private final int pageNumber;
-  private final Map<String, List<String>> filterAttributes;
+  private final String cursor;
+  private final Map<FilterOperator, Map<String, List<String>>> filters;
+  private final List<SortField> sortFields;
+  private final Projection projection;
+  private final Map<String, List<String>> aggregations;
+  private final long since;
+
+  // Derived once, since queries are compared whenever they are used as cache keys
+  private final Map<String, List<String>> normalizedFilters;
+  private int hash;
 
 
   /**
@@ -39,14 +71,27 @@ public class Query<T> {
    * factory method {@link Query#fromParameterMap(MultivaluedMap)}
    * 
    * @param pageSize size of the page or -1 if no pagination is wanted
-   * @param pageNumber index of the page or -1 if not pagination is wanted
-   * @param filterAttributes map that specifies the filters
+   * @param pageNumber index of the page or -1 if not page-based pagination is wanted
+   * @param cursor opaque cursor or {@code null} if no cursor-based pagination is wanted
+   * @param filters map of operators to the filters using the operator
+   * @param sortFields the attributes to sort by, in order of precedence
+   * @param projection the requested attributes and related resources
+   * @param aggregations map of aggregate functions to the attributes to aggregate
+   * @param since timestamp after which changes are requested or -1 if all objects are requested
    */
-  private Query(int pageSize, int pageNumber, Map<String, List<String>> filterAttributes) {
+  private Query(int pageSize, int pageNumber, String cursor,
+      Map<FilterOperator, Map<String, List<String>>> filters, List<SortField> sortFields,
+      Projection projection, Map<String, List<String>> aggregations, long since) {
     super();
     this.pageSize = pageSize;
     this.pageNumber = pageNumber;
-    this.filterAttributes = filterAttributes;
+    this.cursor = cursor;
+    this.filters = filters;
+    this.sortFields = sortFields;
+    this.projection = projection;
+    this.aggregations = aggregations;
+    this.since = since;
+    this.normalizedFilters = normalizeFilters(filters);
   }
 
   /**
@@ -67,24 +112,103 @@ public class Query<T> {
     return pageNumber;
   }
 
+  /**
+   * Opaque cursor pointing behind the last resource of the previous page, if cursor-based
+   * pagination is wanted. Use {@link PageCursor#decode(String)} to obtain the key the cursor was
+   * created from. An empty cursor denotes the first page.
+   *
+   * @return the cursor or {@code null}, if no cursor-based pagination is intended.
+   */
+  public String getCursor() {
+    return cursor;
+  }
+
   /**
    * Map that specifies how results should be filtered. Each entry of the map consists of the name
    * of the attribute to filter by and the value to filter for. If no filtering should be performed,
    * this map is empty.
    * <p/>
    * If more than one value is specified for a key, resulting objects should satisfy both (i.e.
-   * conjunction, not disjunction)
+   * conjunction, not disjunction). Filters with other operators than
+   * {@link FilterOperator#EQUALS} are not part of this map, see
+   * {@link #getFilters(FilterOperator)}.
    * 
    * @return a map specifying if and how to filter.
    */
   public Map<String, List<String>> getFilters() {
-    return filterAttributes;
+    return getFilters(FilterOperator.EQUALS);
+  }
+
+  /**
+   * Map that specifies the filters using the given operator, e.g. the substrings given by
+   * {@code filter[attribute][contains]=value}.
+   * 
+   * @param operator the operator
+   * @return map of attribute names to the values to compare with, empty if there are no such
+   *         filters
+   */
+  public Map<String, List<String>> getFilters(FilterOperator operator) {
+    final Map<String, List<String>> filtersOfOperator = filters.get(operator);
+    return filtersOfOperator == null ? Collections.emptyMap() : filtersOfOperator;
+  }
+
+  /**
+   * All filters of this query, grouped by their operator. All filters must be satisfied.
+   * 
+   * @return map of operators to the filters using them, see {@link #getFilters(FilterOperator)}
+   */
+  public Map<FilterOperator, Map<String, List<String>>> getFiltersByOperator() {
+    return Collections.unmodifiableMap(filters);
+  }
+
+
+  /**
+   * The attributes to sort the results by, in order of precedence. If no sorting is wanted, this
+   * list is empty. Use {@link Sorts#compile(Query, Class)} to obtain a corresponding comparator.
+   * <p/>
+   * If the results are sorted and paginated, pagination must be applied to the sorted results.
+   * 
+   * @return the attributes to sort by
+   */
+  public List<SortField> getSort() {
+    return sortFields;
   }
 
+  /**
+   * The attributes and related resources the client requested. Implementations of
+   * {@link Queryable} may use it to load only the needed data from their backing store.
+   * 
+   * @return the projection, never {@code null}
+   */
+  public Projection getProjection() {
+    return projection;
+  }
 
+  /**
+   * Map that specifies which aggregates to compute over all objects matching the filters,
+   * regardless of pagination. Each entry consists of the name of the function (see
+   * {@link Aggregations#COUNT}) and the names of the attributes to aggregate. Use
+   * {@link Aggregations#counter(Query, Class)} to compute them.
+   * 
+   * @return a map specifying the aggregates, empty if no aggregation is wanted
+   */
+  public Map<String, List<String>> getAggregations() {
+    return aggregations;
+  }
+
+  /**
+   * Timestamp (in milliseconds since the epoch) of a delta query. Only objects that changed after
+   * this point in time are requested, along with the objects that were removed since then. Clients
+   * obtain the timestamp to pass from the previous result, see {@link Delta#getTimestamp()}.
+   * 
+   * @return the timestamp or -1, if all objects are requested
+   */
+  public long getSince() {
+    return since;
+  }
 
   /**
-   * Checks whether the result should be paginated.
+   * Checks whether the result should be paginated page-based, i.e., by page number and page size.
    * 
    * @return {@code True} iff the result must be paginated. Returns false if either
    *         {@link #getPageNumber()} returns a number smaller than 0 or {@link #getPageSize()}
@@ -94,15 +218,153 @@ public class Query<T> {
     return getPageSize() > 0 && getPageNumber() >= 0;
   }
 
+  /**
+   * Checks whether the result should be paginated cursor-based, i.e., the result should contain
+   * at most {@link #getPageSize()} objects following the position denoted by {@link #getCursor()}.
+   *
+   * @return {@code True} iff a cursor is given and {@link #getPageSize()} returns a number greater
+   *         than 0.
+   */
+  public boolean doCursorPaginate() {
+    return getPageSize() > 0 && getCursor() != null;
+  }
+
   /**
    * Checks whether the query should be filtered.
    * 
    * @return {@code True} iff the attributes to filter by are empty.
    */
   public boolean doFilter() {
-    return !getFilters().isEmpty();
+    return !filters.isEmpty();
+  }
+
+  /**
+   * Checks whether the result should be sorted.
+   * 
+   * @return {@code True} iff at least one attribute to sort by is given.
+   */
+  public boolean doSort() {
+    return !getSort().isEmpty();
+  }
+
+
+  /**
+   * Creates a copy of this query that requests another page, e.g. to obtain the rows needed for a
+   * page of merged results from a single source. The copy is not cursor paginated.
+   * 
+   * @param newPageNumber index of the page or -1 if no pagination is wanted
+   * @param newPageSize size of the page or -1 if no pagination is wanted
+   * @return the new query
+   */
+  Query<T> withPage(int newPageNumber, int newPageSize) {
+    return new Query<>(newPageSize, newPageNumber, null, filters, sortFields, projection,
+        aggregations, since);
+  }
+
+  /**
+   * Creates a copy of this query with other filters, e.g. the filters a {@link Queryable} can not
+   * answer with its indexes.
+   * 
+   * @param newFilters map of operators to the filters using the operator
+   * @return the new query
+   */
+  Query<T> withFilters(Map<FilterOperator, Map<String, List<String>>> newFilters) {
+    final Map<FilterOperator, Map<String, List<String>>> copy =
+        new EnumMap<>(FilterOperator.class);
+    newFilters.forEach((operator, filtersOfOperator) -> {
+      if (!filtersOfOperator.isEmpty()) {
+        copy.put(operator, filtersOfOperator);
+      }
+    });
+    return new Query<>(pageSize, pageNumber, cursor, copy, sortFields, projection, aggregations,
+        since);
+  }
+
+  /**
+   * Two queries are equal iff they request the same results. Thus the page parameters are only
+   * compared if the query is paginated in the respective mode, and neither the order of filter
+   * values nor the order of parameters matters. This allows to use queries as cache keys.
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof Query)) {
+      return false;
+    }
+    final Query<?> other = (Query<?>) obj;
+    return normalizedPageSize() == other.normalizedPageSize() && since == other.since
+        && normalizedPageNumber() == other.normalizedPageNumber()
+        && Objects.equals(normalizedCursor(), other.normalizedCursor())
+        && sortFields.equals(other.sortFields) && projection.equals(other.projection)
+        && aggregations.equals(other.aggregations)
+        && normalizedFilters.equals(other.normalizedFilters);
+  }
+
+  @Override
+  public int hashCode() {
+    // Racy but safe, like String#hashCode(): every thread computes the same value
+    int h = hash;
+    if (h == 0) {
+      h = Objects.hash(normalizedPageSize(), normalizedPageNumber(), normalizedCursor(),
+          sortFields, projection, aggregations, since, normalizedFilters);
+      hash = h;
+    }
+    return h;
+  }
+
+  @Override
+  public String toString() {
+    return "Query [page=" + normalizedPageNumber() + ", size=" + normalizedPageSize() + ", after="
+        + normalizedCursor() + ", filters=" + normalizedFilters + ", sort=" + sortFields + ", "
+        + projection + ", aggregate=" + aggregations + ", since=" + since + "]";
+  }
+
+  private int normalizedPageSize() {
+    return doPaginate() || doCursorPaginate() ? pageSize : -1;
+  }
+
+  private int normalizedPageNumber() {
+    return doPaginate() ? pageNumber : -1;
+  }
+
+  private String normalizedCursor() {
+    return doCursorPaginate() ? cursor : null;
+  }
+
+  private static Map<String, List<String>> normalizeFilters(
+      Map<FilterOperator, Map<String, List<String>>> filters) {
+    final Map<String, List<String>> normalized = new TreeMap<>();
+    filters.forEach((operator, filtersOfOperator) -> {
+      for (final Map.Entry<String, List<String>> filter : filtersOfOperator.entrySet()) {
+        final List<String> values = new ArrayList<>(filter.getValue());
+        Collections.sort(values);
+        normalized.put(operator == FilterOperator.EQUALS ? filter.getKey()
+            : filter.getKey() + '[' + operator.getName() + ']', values);
+      }
+    });
+    return normalized;
   }
 
+  /**
+   * Checks whether aggregates should be computed. If so and the query is not paginated, the result
+   * contains only the aggregates but no objects.
+   * 
+   * @return {@code True} iff at least one aggregate is requested.
+   */
+  public boolean doAggregate() {
+    return !getAggregations().isEmpty();
+  }
+
+  /**
+   * Checks whether only the changes since {@link #getSince()} are requested.
+   * 
+   * @return {@code True} iff a timestamp is given
+   */
+  public boolean doDelta() {
+    return getSince() >= 0;
+  }
 
   /**
    * Returns a Query based on the raw query parameters of a HTTP request. The parameters can be
@@ -112,27 +374,109 @@ public class Query<T> {
    * @param <T> type of the entity this query is for
    * @param paramters the raw HTTP query parameters
    * @return a query object corresponding to the given parameters
+   * @throws IllegalArgumentException if a parameter is malformed, e.g. a filter has an unknown
+   *         operator. Malformed numbers cause a {@link NumberFormatException}.
    */
   public static <T> Query<T> fromParameterMap(MultivaluedMap<String, String> paramters) {
 
 
-    Map<String, List<String>> attributes = new HashMap<>();
+    Map<FilterOperator, Map<String, List<String>>> filters = new EnumMap<>(FilterOperator.class);
+    Map<String, List<String>> aggregations = new TreeMap<>();
 
-    // Extract filters. Filter parameters have the form "filter[attribute]=value"
-    paramters.entrySet().stream().filter(e -> e.getKey().startsWith(FILTER_PREFIX)).forEach(e -> {
-      String name = e.getKey().substring(e.getKey().indexOf('[') + 1, e.getKey().indexOf(']'));
-      attributes.put(name.toLowerCase(), e.getValue());
-    });
+    // Extract filters and aggregates. Filter parameters have the form "filter[attribute]=value"
+    // or "filter[attribute][operator]=value", aggregate parameters the form
+    // "aggregate[function]=attribute1,attribute2"
+    for (Map.Entry<String, List<String>> e : paramters.entrySet()) {
+      final String key = e.getKey();
+      final int end = key.indexOf(']');
+      if (key.startsWith(FILTER_PREFIX) && end > FILTER_PREFIX.length()) {
+        String name = key.substring(FILTER_PREFIX.length(), end);
+        filters.computeIfAbsent(parseOperator(key, end), o -> new HashMap<>())
+            .computeIfAbsent(name.toLowerCase(Locale.ENGLISH), n -> new ArrayList<>())
+            .addAll(e.getValue());
+      } else if (key.startsWith(AGGREGATE_PREFIX) && end > AGGREGATE_PREFIX.length()) {
+        String function = key.substring(AGGREGATE_PREFIX.length(), end);
+        aggregations.put(function.toLowerCase(Locale.ENGLISH), splitAttributes(e.getValue()));
+      }
+    }
 
     int pageNumber =
-        paramters.containsKey(PAGESIZE) ? Integer.parseInt(paramters.get(PAGENUM).get(0)) : -1;
+        paramters.containsKey(PAGENUM) ? Integer.parseInt(paramters.get(PAGENUM).get(0)) : -1;
     int pageSize =
         paramters.containsKey(PAGESIZE) ? Integer.parseInt(paramters.get(PAGESIZE).get(0)) : -1;
+    String cursor = paramters.containsKey(PAGEAFTER) ? paramters.get(PAGEAFTER).get(0) : null;
+    long since = paramters.containsKey(SINCE) ? Long.parseLong(paramters.getFirst(SINCE)) : -1;
+
+    // Extract sort fields. The sort parameter has the form "sort=-attribute1,attribute2"
+    List<SortField> sortFields = new ArrayList<>();
+    if (paramters.containsKey(SORT)) {
+      for (String field : paramters.getFirst(SORT).split(",")) {
+        if (!field.trim().isEmpty()) {
+          sortFields.add(SortField.parse(field));
+        }
+      }
+    }
 
-    return new Query<T>(pageSize, pageNumber, attributes);
+    return new Query<T>(pageSize, pageNumber, cursor, filters, sortFields,
+        Projection.fromParameterMap(paramters), aggregations, since);
 
   }
 
+  /**
+   * Parses the operator following the attribute of a filter parameter.
+   * 
+   * @param key the filter parameter
+   * @param end index of the bracket closing the attribute
+   */
+  private static FilterOperator parseOperator(String key, int end) {
+    if (end == key.length() - 1) {
+      return FilterOperator.EQUALS;
+    }
+    if (key.charAt(end + 1) != '[' || !key.endsWith("]") || end + 2 >= key.length() - 1) {
+      throw new IllegalArgumentException(String.format("Malformed filter parameter '%s'", key));
+    }
+    return FilterOperator.of(key.substring(end + 2, key.length() - 1));
+  }
+
+  private static List<String> splitAttributes(List<String> values) {
+    final List<String> attributes = new ArrayList<>();
+    for (final String value : values) {
+      for (final String attribute : value.split(",")) {
+        final String name = attribute.trim().toLowerCase(Locale.ENGLISH);
+        if (!name.isEmpty() && !attributes.contains(name)) {
+          attributes.add(name);
+        }
+      }
+    }
+    Collections.sort(attributes);
+    return attributes;
+  }
+
+  /**
+   * Returns the Query of a HTTP request. The query is parsed only once per request, by the
+   * {@link PaginationParameterFilter} if the request is paginated and on first use otherwise, and
+   * stored as property {@link #REQUEST_PROPERTY} of the request afterwards.
+   * 
+   * @param <T> type of the entity this query is for
+   * @param requestContext the context of the request
+   * @return the query corresponding to the query parameters of the request
+   * @throws BadRequestException if a parameter is malformed, see
+   *         {@link #fromParameterMap(MultivaluedMap)}
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> Query<T> fromRequest(ContainerRequestContext requestContext) {
+    Query<T> query = (Query<T>) requestContext.getProperty(REQUEST_PROPERTY);
+    if (query == null) {
+      try {
+        query = fromParameterMap(requestContext.getUriInfo().getQueryParameters(true));
+      } catch (final IllegalArgumentException e) {
+        throw new BadRequestException(e.getMessage(), e);
+      }
+      requestContext.setProperty(REQUEST_PROPERTY, query);
+    }
+    return query;
+  }
+
 }
 
 
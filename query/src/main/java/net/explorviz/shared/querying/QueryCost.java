@@ -0,0 +1,98 @@
+package net.explorviz.shared.querying;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rough estimate of the effort a {@link Queryable} spends on a {@link Query}, used to limit the
+ * load a single user can cause, see {@link AdmissionControl}. The estimate is given in abstract
+ * units, where serializing a single resource costs one unit. It is the sum of
+ *
+ * <ul>
+ * <li>the amount of returned resources, i.e. the page size. Unpaginated queries are assumed to
+ * return {@value #UNPAGINATED_FACTOR} times the maximum page size.
+ * <li>the effort to find the matches: {@value #SCAN} units for a query without filters or with
+ * substring filters only, which has to look at every resource, {@value #RANGE_SCAN} units if it
+ * only has range filters and {@value #LOOKUP} units if it filters by equality, which is usually
+ * selective. Delta queries only look at the changes and cost {@value #LOOKUP} units as well.
+ * <li>{@value #SORT} units if the matches have to be sorted
+ * <li>{@value #SCAN} units if all matches have to be visited to compute aggregates
+ * </ul>
+ *
+ * <p>
+ * The estimate deliberately ignores the actual size of the data, which is unknown before the query
+ * was executed. It ranks queries relative to each other rather than predicting response times.
+ * </p>
+ */
+public final class QueryCost {
+
+  /**
+   * Cost of visiting every resource.
+   */
+  public static final int SCAN = 1000;
+
+  /**
+   * Cost of a range lookup, which usually selects a considerable part of the resources.
+   */
+  public static final int RANGE_SCAN = 300;
+
+  /**
+   * Cost of an equality lookup.
+   */
+  public static final int LOOKUP = 50;
+
+  /**
+   * Cost of sorting the matches.
+   */
+  public static final int SORT = 200;
+
+  /**
+   * Ratio of the assumed size of an unpaginated result to the maximum page size.
+   */
+  public static final int UNPAGINATED_FACTOR = 10;
+
+  private QueryCost() {
+    // Utility class
+  }
+
+  /**
+   * Estimates the cost of a query.
+   *
+   * @param query the query
+   * @param maxPageSize the maximum page size, see {@link PaginationParameterFilter}
+   * @return the estimated cost in units, at least one
+   */
+  public static long estimate(Query<?> query, int maxPageSize) {
+    long cost = query.doPaginate() || query.doCursorPaginate() ? query.getPageSize()
+        : (long) UNPAGINATED_FACTOR * maxPageSize;
+
+    if (query.doDelta() || !query.getFilters().isEmpty()) {
+      cost += LOOKUP;
+    } else if (hasRangeFiltersOnly(query)) {
+      cost += RANGE_SCAN;
+    } else {
+      cost += SCAN;
+    }
+
+    if (query.doSort()) {
+      cost += SORT;
+    }
+    if (query.doAggregate()) {
+      cost += SCAN;
+    }
+    return Math.max(1, cost);
+  }
+
+  private static boolean hasRangeFiltersOnly(Query<?> query) {
+    boolean range = false;
+    for (final Map.Entry<FilterOperator, Map<String, List<String>>> filters : query
+        .getFiltersByOperator().entrySet()) {
+      if (!filters.getKey().isRange()) {
+        return false;
+      }
+      range = true;
+    }
+    return range;
+  }
+
+}
@@ -1,7 +1,9 @@
 package net.explorviz.shared.querying;
 
 /**
- * Thrown if a {@link Query} could not be performed successfully.
+ * Thrown if a {@link Query} could not be performed successfully, e.g. because the backing store
+ * failed. Queries that are invalid themselves are rejected with the subclass
+ * {@link InvalidQueryException}.
  *
  */
 @SuppressWarnings("serial")
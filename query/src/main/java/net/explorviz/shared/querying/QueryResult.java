@@ -12,18 +12,77 @@ public final class QueryResult<T> {
 
   private Query<T> query;
   private Collection<T> resultData;
-  private long total;
+  private Total total;
+  private String nextCursor;
+  private String version;
+  private Aggregations aggregations;
+  private Delta delta;
 
   /**
    * Creates a new QueryResult.
    * 
    * @param query the performed query
    * @param result the actual results
+   * @param total the exact amount of objects matching the query, regardless of pagination
    */
   public QueryResult(Query<T> query, Collection<T> result, long total) {
+    this(query, result, Total.exact(total));
+  }
+
+  /**
+   * Creates a new QueryResult whose total might be estimated, unknown or computed on demand. A
+   * total computed on demand is computed for responses to page-number paginated queries, since
+   * their {@code last} link and {@code meta.total} are derived from it (see
+   * {@link PaginationJsonApiWriter}). It is only saved for queries that are not paginated by page
+   * number.
+   * 
+   * @param query the performed query
+   * @param result the actual results
+   * @param total the amount of objects matching the query, regardless of pagination
+   */
+  public QueryResult(Query<T> query, Collection<T> result, Total total) {
+    this(query, result, total, null);
+  }
+
+  /**
+   * Creates a new QueryResult for a cursor-based paginated query (see
+   * {@link Query#doCursorPaginate()}). No total is required, since it is not needed to navigate
+   * the pages.
+   * 
+   * @param <T> the type of the objects returned
+   * @param query the performed query
+   * @param result the actual results
+   * @param nextCursor the cursor pointing behind the last object of the result (see
+   *        {@link PageCursor#encode(String)}) or {@code null} if there are no further objects
+   * @return the result
+   */
+  public static <T> QueryResult<T> withCursor(Query<T> query, Collection<T> result,
+      String nextCursor) {
+    return new QueryResult<>(query, result, Total.unknown(), nextCursor);
+  }
+
+  /**
+   * Creates a new QueryResult for a cursor-based paginated query (see
+   * {@link Query#doCursorPaginate()}) with additional information about the total.
+   * 
+   * @param <T> the type of the objects returned
+   * @param query the performed query
+   * @param result the actual results
+   * @param total the amount of objects matching the query, regardless of pagination
+   * @param nextCursor the cursor pointing behind the last object of the result (see
+   *        {@link PageCursor#encode(String)}) or {@code null} if there are no further objects
+   * @return the result
+   */
+  public static <T> QueryResult<T> withCursor(Query<T> query, Collection<T> result, Total total,
+      String nextCursor) {
+    return new QueryResult<>(query, result, total, nextCursor);
+  }
+
+  private QueryResult(Query<T> query, Collection<T> result, Total total, String nextCursor) {
     this.query = query;
     this.resultData = result;
     this.total = total;
+    this.nextCursor = nextCursor;
   }
 
 
@@ -45,6 +104,80 @@ public final class QueryResult<T> {
     return resultData;
   }
 
+  /**
+   * Total amount of objects that match the query, regardless of pagination.
+   * 
+   * @return the total, which might be estimated, unknown or computed on demand
+   */
+  public Total getTotal() {
+    return total;
+  }
+
+  /**
+   * Identifies the state of the backing store the results were obtained from, e.g. a revision
+   * number or a modification counter. If given, the HTTP entity tag of the response is derived from
+   * the version and the query, so that conditional requests are answered without serializing the
+   * results (see {@link PaginationJsonApiWriter}).
+   * 
+   * @return the version or {@code null} if the queryable does not track versions
+   */
+  public String getVersion() {
+    return version;
+  }
+
+  /**
+   * Sets the version of the backing store the results were obtained from. The version must change
+   * whenever any data that could be part of the result changes.
+   * 
+   * @param version the version, see {@link #getVersion()}
+   * @return this result
+   */
+  public QueryResult<T> setVersion(String version) {
+    this.version = version;
+    return this;
+  }
+
+  /**
+   * Aggregates over all objects matching the query, if requested (see
+   * {@link Query#doAggregate()}).
+   * 
+   * @return the aggregates or {@code null} if none were computed
+   */
+  public Aggregations getAggregations() {
+    return aggregations;
+  }
+
+  /**
+   * Sets the aggregates requested by the query.
+   * 
+   * @param aggregations the aggregates, see {@link Aggregations#counter(Query, Class)}
+   * @return this result
+   */
+  public QueryResult<T> setAggregations(Aggregations aggregations) {
+    this.aggregations = aggregations;
+    return this;
+  }
+
+  /**
+   * Removed objects and the next timestamp of a delta query (see {@link Query#doDelta()}).
+   * 
+   * @return the delta or {@code null} if the query was not a delta query
+   */
+  public Delta getDelta() {
+    return delta;
+  }
+
+  /**
+   * Sets the removed objects and the next timestamp of a delta query.
+   * 
+   * @param delta the delta
+   * @return this result
+   */
+  public QueryResult<T> setDelta(Delta delta) {
+    this.delta = delta;
+    return this;
+  }
+
   /**
    * Amount of entry returned.
    * 
@@ -59,14 +192,37 @@ public final class QueryResult<T> {
 
 
   /**
-   * Index of the next page, if pagination was used in the corresponding query.
+   * Index of the next page, if pagination was used in the corresponding query. The next page is
+   * derived from the same total as {@link #getLastPage()}, thus a total that is computed on demand
+   * is computed here. If the total is estimated or unknown, a next page is assumed to exist iff
+   * the current page is full.
    * 
    * @return index of the next page or {@code null} if no pagination was done or there is no next
    *         page.
    */
   public Integer getNextPage() {
-    if (query.doPaginate() && resultData.size() > 0 && query.getPageNumber() != getLastPage()) {
-      return query.getPageNumber() + 1;
+    if (!query.doPaginate() || resultData.isEmpty()) {
+      return null;
+    }
+
+    final boolean hasNext;
+    if (total.isAvailable() && !total.isEstimated()) {
+      hasNext = query.getPageNumber() < getLastPage();
+    } else {
+      hasNext = resultData.size() >= query.getPageSize();
+    }
+    return hasNext ? query.getPageNumber() + 1 : null;
+  }
+
+  /**
+   * Cursor of the next page, if cursor-based pagination was used in the corresponding query.
+   * 
+   * @return the cursor to pass as {@code page[after]} to obtain the next page or {@code null} if
+   *         no cursor-based pagination was done or there is no next page.
+   */
+  public String getNextCursor() {
+    if (query.doCursorPaginate()) {
+      return nextCursor;
     } else {
       return null;
     }
@@ -88,13 +244,15 @@ public final class QueryResult<T> {
 
   /**
    * If pagination was used on the query, this will return the index of the last page w.r.t. the
-   * given page size.
+   * given page size. Computes the total if it is computed on demand. If the total is only
+   * estimated, so is the last page.
    * 
-   * @return index of the last page
+   * @return index of the last page or {@code null} if no pagination was done or the total is
+   *         unknown
    */
   public Integer getLastPage() {
-    if (query.doPaginate()) {
-      return (int) Math.ceil((double) total / query.getPageSize()) - 1;
+    if (query.doPaginate() && total.isAvailable()) {
+      return (int) Math.ceil((double) total.getValue() / query.getPageSize()) - 1;
     } else {
       return null;
     }
@@ -0,0 +1,342 @@
+package net.explorviz.shared.querying;
+
+import com.github.jasminb.jsonapi.ResourceConverter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Live queries over Server-Sent Events. A client subscribes with a {@link Query} and first
+ * receives its result as event {@code result}. Afterwards, whenever the
+ * {@link ObservableQueryable} publishes modifications, the client receives an event
+ * {@code update} holding the added or changed resources that match the filters of the query. The
+ * ids of removed resources and of changed resources that do not match anymore are listed in
+ * {@code meta.delta.removed}, as in the results of delta queries (see {@link Delta}). Thus clients
+ * no longer need to poll.
+ *
+ * <p>
+ * Both events carry a JSON:API document as written by {@link PaginationJsonApiWriter}, without
+ * links. Updates are not paginated or sorted. The id of an update is its timestamp, which a client
+ * can pass as {@code since} to catch up with a delta query after reconnecting. A resource exposes a
+ * subscription by
+ * </p>
+ *
+ * <pre>
+ * {@code @GET}
+ * {@code @Path("live")}
+ * {@code @Produces(MediaType.SERVER_SENT_EVENTS)}
+ * {@code public void subscribe(@Context SseEventSink sink, @Context Sse sse, Query<T> query)}
+ * {@code     throws QueryException {}
+ * {@code   subscriptions.subscribe(query, sink, sse);}
+ * {@code }}
+ * </pre>
+ *
+ * <p>
+ * Events are serialized by the given executor. Modifications published while the previous ones
+ * are still being dispatched are combined into a single update, thus bursts of modifications do
+ * not produce bursts of events. Subscriptions end when the client disconnects. This class is
+ * thread-safe.
+ * </p>
+ *
+ * @param <T> the type of the resources
+ */
+public class QuerySubscriptions<T> implements AutoCloseable {
+
+  /**
+   * Name of the event holding the initial result of a subscription.
+   */
+  public static final String EVENT_RESULT = "result";
+
+  /**
+   * Name of the events holding modifications.
+   */
+  public static final String EVENT_UPDATE = "update";
+
+  private static final MediaType JSON_API = MediaType.valueOf("application/vnd.api+json");
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(QuerySubscriptions.class);
+
+  private final ObservableQueryable<T> queryable;
+  private final Class<T> resourceClass;
+  private final AttributeAccessor idAccessor;
+  private final PaginationJsonApiWriter<T> writer;
+  private final Executor executor;
+  private final ObservableQueryable.Listener<T> listener = this::modified;
+
+  private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+  // Modifications that were not dispatched yet, drained by at most one task at a time
+  private final Queue<Modification<T>> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean draining = new AtomicBoolean();
+
+  /**
+   * Creates a new registry of subscriptions and starts listening to the given queryable.
+   *
+   * @param queryable the queryable to subscribe to
+   * @param resourceClass the class of the resources
+   * @param converter the converter used to serialize the resources
+   * @param executor dispatches the modifications to the subscribers
+   * @throws IllegalArgumentException if the resources have no id
+   */
+  public QuerySubscriptions(ObservableQueryable<T> queryable, Class<T> resourceClass,
+      ResourceConverter converter, Executor executor) {
+    this.idAccessor = ResourceAttributes.of(resourceClass).get("id");
+    if (idAccessor == null) {
+      throw new IllegalArgumentException("Subscriptions require resources with an id");
+    }
+    this.queryable = queryable;
+    this.resourceClass = resourceClass;
+    this.writer = new PaginationJsonApiWriter<>(converter);
+    this.executor = executor;
+    queryable.addListener(listener);
+  }
+
+  /**
+   * Subscribes a client to the given query. Sends the result of the query and all following
+   * updates to the client until it disconnects.
+   *
+   * @param query the query
+   * @param sink the event stream to the client
+   * @param sse used to create events
+   * @throws QueryException if the query could not be executed, nothing was sent to the client then
+   */
+  public void subscribe(Query<T> query, SseEventSink sink, Sse sse) throws QueryException {
+    final Subscription subscription =
+        new Subscription(query.withPage(-1, -1), Filters.compile(query, resourceClass), sink, sse);
+
+    // Register before querying, such that no modification is missed. Updates that are already
+    // reflected in the result are sent again, which is harmless.
+    subscriptions.add(subscription);
+    final QueryResult<T> result;
+    try {
+      result = queryable.query(query);
+    } catch (final QueryException e) {
+      subscriptions.remove(subscription);
+      throw e;
+    }
+
+    final Long id = result.getDelta() == null ? null : result.getDelta().getTimestamp();
+    final OutboundSseEvent event = event(subscription, EVENT_RESULT, id, result);
+    if (event != null) {
+      subscription.start(event);
+    }
+  }
+
+  /**
+   * Amount of active subscriptions.
+   *
+   * @return the amount of subscriptions
+   */
+  public int getSubscriptionCount() {
+    return subscriptions.size();
+  }
+
+  /**
+   * Stops listening to the queryable and ends all subscriptions.
+   */
+  @Override
+  public void close() {
+    queryable.removeListener(listener);
+    for (final Subscription subscription : subscriptions) {
+      cancel(subscription);
+    }
+  }
+
+  private void modified(long timestamp, Collection<? extends T> changed,
+      Collection<String> removed) {
+    pending.add(new Modification<>(timestamp, changed, removed));
+    schedule();
+  }
+
+  private void schedule() {
+    if (draining.compareAndSet(false, true)) {
+      executor.execute(this::drain);
+    }
+  }
+
+  /**
+   * Dispatches all pending modifications as a single update.
+   */
+  private void drain() {
+    try {
+      final List<Modification<T>> batch = new ArrayList<>();
+      Modification<T> modification;
+      while ((modification = pending.poll()) != null) {
+        batch.add(modification);
+      }
+      if (!batch.isEmpty()) {
+        dispatch(batch);
+      }
+    } finally {
+      draining.set(false);
+    }
+
+    // Modifications might have been published after the queue was drained
+    if (!pending.isEmpty()) {
+      schedule();
+    }
+  }
+
+  private void dispatch(List<Modification<T>> batch) {
+    // Combine the modifications, later ones override earlier ones of the same resource
+    final Map<String, T> changed = new LinkedHashMap<>();
+    final Set<String> removed = new LinkedHashSet<>();
+    for (final Modification<T> modification : batch) {
+      for (final T resource : modification.changed) {
+        final String id = String.valueOf(idAccessor.get(resource));
+        removed.remove(id);
+        changed.remove(id);
+        changed.put(id, resource);
+      }
+      for (final String id : modification.removed) {
+        changed.remove(id);
+        removed.add(id);
+      }
+    }
+    final long timestamp = batch.get(batch.size() - 1).timestamp;
+
+    for (final Subscription subscription : subscriptions) {
+      if (subscription.sink.isClosed()) {
+        subscriptions.remove(subscription);
+        continue;
+      }
+
+      final List<T> matches = new ArrayList<>();
+      final Set<String> gone = new LinkedHashSet<>(removed);
+      for (final Map.Entry<String, T> resource : changed.entrySet()) {
+        if (subscription.filter.test(resource.getValue())) {
+          matches.add(resource.getValue());
+        } else {
+          gone.add(resource.getKey());
+        }
+      }
+      if (matches.isEmpty() && gone.isEmpty()) {
+        continue;
+      }
+
+      final QueryResult<T> update = new QueryResult<>(subscription.query, matches, matches.size())
+          .setDelta(new Delta(timestamp, gone));
+      final OutboundSseEvent event = event(subscription, EVENT_UPDATE, timestamp, update);
+      if (event != null) {
+        subscription.send(event);
+      }
+    }
+  }
+
+  /**
+   * Serializes the result as event, cancels the subscription if that fails.
+   *
+   * @return the event or {@code null} if the result could not be serialized
+   */
+  private OutboundSseEvent event(Subscription subscription, String name, Long id,
+      QueryResult<T> result) {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try {
+      writer.writeDocument(result, resourceClass, buffer);
+    } catch (final IOException e) {
+      if (LOGGER.isErrorEnabled()) {
+        LOGGER.error("Could not serialize event of subscription: ", e);
+      }
+      cancel(subscription);
+      return null;
+    }
+
+    final OutboundSseEvent.Builder builder = subscription.sse.newEventBuilder()
+        .name(name)
+        .mediaType(JSON_API)
+        .data(String.class, new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+    if (id != null) {
+      builder.id(String.valueOf(id));
+    }
+    return builder.build();
+  }
+
+  private void cancel(Subscription subscription) {
+    subscriptions.remove(subscription);
+    try {
+      subscription.sink.close();
+    } catch (final RuntimeException e) {
+      LOGGER.debug("Could not close event sink", e);
+    }
+  }
+
+  /**
+   * A subscribed client. Events are buffered until the initial result was sent.
+   */
+  private final class Subscription {
+
+    private final Query<T> query;
+    private final Predicate<T> filter;
+    private final SseEventSink sink;
+    private final Sse sse;
+    private List<OutboundSseEvent> buffered = new ArrayList<>();
+
+    private Subscription(Query<T> query, Predicate<T> filter, SseEventSink sink, Sse sse) {
+      this.query = query;
+      this.filter = filter;
+      this.sink = sink;
+      this.sse = sse;
+    }
+
+    private synchronized void start(OutboundSseEvent result) {
+      final List<OutboundSseEvent> updates = buffered;
+      buffered = null;
+      write(result);
+      updates.forEach(this::write);
+    }
+
+    private synchronized void send(OutboundSseEvent event) {
+      if (buffered == null) {
+        write(event);
+      } else {
+        buffered.add(event);
+      }
+    }
+
+    private void write(OutboundSseEvent event) {
+      sink.send(event).whenComplete((r, e) -> {
+        if (e != null) {
+          // The client disconnected
+          cancel(this);
+        }
+      });
+    }
+  }
+
+  /**
+   * Modification published by the queryable.
+   */
+  private static final class Modification<T> {
+
+    private final long timestamp;
+    private final Collection<? extends T> changed;
+    private final Collection<String> removed;
+
+    private Modification(long timestamp, Collection<? extends T> changed,
+        Collection<String> removed) {
+      this.timestamp = timestamp;
+      this.changed = changed;
+      this.removed = removed;
+    }
+  }
+
+}
@@ -0,0 +1,159 @@
+package net.explorviz.shared.querying;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.jasminb.jsonapi.annotations.Id;
+import com.github.jasminb.jsonapi.annotations.Relationship;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The filterable attributes of a resource class, i.e. a class annotated with
+ * {@link com.github.jasminb.jsonapi.annotations.Type}. Attributes are named as in the JSON:API
+ * documents:
+ *
+ * <ul>
+ * <li>fields annotated with {@link JsonProperty} by the given name, e.g.
+ * {@code programming-language}
+ * <li>the field annotated with {@link Id} as {@code id}
+ * <li>to-one relationships by the name given in {@link Relationship}, e.g. {@code agent}
+ * <li>all other fields by their name, e.g. {@code pid}
+ * </ul>
+ *
+ * <p>
+ * Static, transient and {@link JsonIgnore}d fields as well as to-many relationships are not
+ * included. The attributes of a class are resolved only once and cached afterwards.
+ * </p>
+ */
+public final class ResourceAttributes {
+
+  private static final String ID = "id";
+
+  private static final Map<Class<?>, ResourceAttributes> CACHE = new ConcurrentHashMap<>();
+
+  private final Class<?> resourceClass;
+  private final Map<String, AttributeAccessor> accessors;
+
+  private ResourceAttributes(Class<?> resourceClass, Map<String, AttributeAccessor> accessors) {
+    this.resourceClass = resourceClass;
+    this.accessors = Collections.unmodifiableMap(accessors);
+  }
+
+  /**
+   * Returns the attributes of the given resource class.
+   *
+   * @param resourceClass the class of the resource
+   * @return the attributes of the resource class
+   */
+  public static ResourceAttributes of(Class<?> resourceClass) {
+    return CACHE.computeIfAbsent(resourceClass, ResourceAttributes::resolve);
+  }
+
+  /**
+   * Returns the accessor for the attribute with the given name.
+   *
+   * @param name the name of the attribute, case-insensitive
+   * @return the accessor or {@code null} if the resource has no such attribute
+   */
+  public AttributeAccessor get(String name) {
+    return accessors.get(name.toLowerCase(Locale.ENGLISH));
+  }
+
+  /**
+   * Returns the accessor for the attribute with the given name.
+   *
+   * @param name the name of the attribute, case-insensitive
+   * @return the accessor
+   * @throws QueryException if the resource has no such attribute
+   */
+  public AttributeAccessor require(String name) throws QueryException {
+    final AttributeAccessor accessor = get(name);
+    if (accessor == null) {
+      throw new InvalidQueryException(
+          String.format("Unknown attribute '%s' for %s", name, resourceClass.getSimpleName()));
+    }
+    return accessor;
+  }
+
+  /**
+   * All attributes of the resource.
+   *
+   * @return the accessors of all attributes
+   */
+  public Collection<AttributeAccessor> all() {
+    return accessors.values();
+  }
+
+  private static ResourceAttributes resolve(Class<?> resourceClass) {
+    final Map<String, AttributeAccessor> accessors = new HashMap<>();
+
+    try {
+      // Walk up the hierarchy, fields of subclasses take precedence
+      for (Class<?> c = resourceClass; c != null && c != Object.class; c = c.getSuperclass()) {
+        for (final Field field : c.getDeclaredFields()) {
+          final AttributeAccessor accessor = createAccessor(field);
+          if (accessor != null) {
+            accessors.putIfAbsent(accessor.getName(), accessor);
+          }
+        }
+      }
+    } catch (final IllegalAccessException e) {
+      throw new IllegalStateException(
+          "Could not access attributes of " + resourceClass.getSimpleName(), e);
+    }
+
+    return new ResourceAttributes(resourceClass, accessors);
+  }
+
+  private static AttributeAccessor createAccessor(Field field) throws IllegalAccessException {
+    final int modifiers = field.getModifiers();
+    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()
+        || field.isAnnotationPresent(JsonIgnore.class)) {
+      return null;
+    }
+
+    final Relationship relationship = field.getAnnotation(Relationship.class);
+    if (relationship != null) {
+      if (Collection.class.isAssignableFrom(field.getType())) {
+        // To-many relationships can't be compared to a single value
+        return null;
+      }
+      final Field idField = findIdField(field.getType());
+      if (idField == null) {
+        return null;
+      }
+      final AttributeAccessor relatedId = AttributeAccessor.forField(ID, idField);
+      return AttributeAccessor.forRelationship(relationship.value().toLowerCase(Locale.ENGLISH),
+          field, relatedId);
+    }
+
+    final String name;
+    if (field.isAnnotationPresent(Id.class)) {
+      name = ID;
+    } else if (field.isAnnotationPresent(JsonProperty.class)
+        && !field.getAnnotation(JsonProperty.class).value().isEmpty()) {
+      name = field.getAnnotation(JsonProperty.class).value();
+    } else {
+      name = field.getName();
+    }
+    return AttributeAccessor.forField(name.toLowerCase(Locale.ENGLISH), field);
+  }
+
+  private static Field findIdField(Class<?> resourceClass) {
+    for (Class<?> c = resourceClass; c != null && c != Object.class; c = c.getSuperclass()) {
+      for (final Field field : c.getDeclaredFields()) {
+        if (field.isAnnotationPresent(Id.class)) {
+          return field;
+        }
+      }
+    }
+    return null;
+  }
+
+}
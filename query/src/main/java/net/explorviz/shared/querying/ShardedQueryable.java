@@ -0,0 +1,263 @@
+package net.explorviz.shared.querying;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link Queryable} whose resources are partitioned across several underlying queryables (shards),
+ * e.g. different stores or nodes. A query is sent to all shards in parallel and their partial
+ * results are combined into a single {@link QueryResult}:
+ *
+ * <ul>
+ * <li>The sorted partial results are combined by a k-way merge. Unsorted results are interleaved
+ * in a deterministic order.
+ * <li>The totals of the shards are summed up, see {@link Total#sum(java.util.Collection)}.
+ * <li>If all shards report versions, the version of the result is composed of them.
+ * <li>Aggregates of the shards are summed up, see {@link Aggregations#sum(java.util.Collection)}.
+ * <li>Deltas of the shards are merged, see {@link Delta#merge(java.util.Collection)}.
+ * </ul>
+ *
+ * <p>
+ * For a paginated query, each shard is asked for the first {@code (pageNumber + 1) * pageSize}
+ * resources only, since any of these might belong to the requested page, but no others. Thus deep
+ * pages get increasingly expensive. Cursor-based pagination is not supported. Shards must apply
+ * filters and sorting themselves. Queries can also be performed without blocking the calling
+ * thread, see {@link AsyncQueryable}.
+ * </p>
+ *
+ * @param <T> the type of the resources
+ */
+public class ShardedQueryable<T> implements Queryable<T>, AsyncQueryable<T> {
+
+  private static final String VERSION_SEPARATOR = ",";
+
+  private final Class<T> resourceClass;
+  private final Executor executor;
+  private final List<Queryable<T>> shards;
+
+  /**
+   * Creates a new sharded queryable.
+   *
+   * @param resourceClass the class of the resources, used to merge sorted results
+   * @param executor executes the queries of the shards. Blocking queries use the calling thread
+   *        for one of the shards.
+   * @param shards the underlying queryables
+   * @throws IllegalArgumentException if no shards are given
+   */
+  public ShardedQueryable(Class<T> resourceClass, Executor executor,
+      List<? extends Queryable<T>> shards) {
+    if (shards.isEmpty()) {
+      throw new IllegalArgumentException("At least one shard is required");
+    }
+    this.resourceClass = resourceClass;
+    this.executor = executor;
+    this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+  }
+
+  @Override
+  public QueryResult<T> query(Query<T> query) throws QueryException {
+    final Comparator<T> order = order(query);
+    return combine(query, order, queryShards(shardQuery(query)));
+  }
+
+  /**
+   * Starts the query on all shards using the executor, such that no thread waits for the shards.
+   */
+  @Override
+  public CompletionStage<QueryResult<T>> queryAsync(Query<T> query) {
+    final Comparator<T> order;
+    final Query<T> shardQuery;
+    try {
+      order = order(query);
+      shardQuery = shardQuery(query);
+    } catch (final QueryException e) {
+      final CompletableFuture<QueryResult<T>> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+
+    final List<CompletableFuture<QueryResult<T>>> pending = new ArrayList<>(shards.size());
+    for (final Queryable<T> shard : shards) {
+      pending.add(startQuery(shard, shardQuery));
+    }
+    return CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+      final List<QueryResult<T>> partials = new ArrayList<>(pending.size());
+      pending.forEach(f -> partials.add(f.join()));
+      return combine(query, order, partials);
+    });
+  }
+
+  private Comparator<T> order(Query<T> query) throws QueryException {
+    if (query.doCursorPaginate()) {
+      throw new InvalidQueryException("Cursor-based pagination is not supported");
+    }
+    return query.doSort() ? Sorts.compile(query, resourceClass) : null;
+  }
+
+  /**
+   * The query to send to each shard. For paginated queries, this is the first page containing all
+   * resources up to the end of the requested page.
+   */
+  private Query<T> shardQuery(Query<T> query) throws QueryException {
+    if (!query.doPaginate()) {
+      return query;
+    }
+    final long end = ((long) query.getPageNumber() + 1) * query.getPageSize();
+    if (end > Integer.MAX_VALUE) {
+      throw new InvalidQueryException(
+          "Page " + query.getPageNumber() + " is out of range");
+    }
+    return query.withPage(0, (int) end);
+  }
+
+  /**
+   * Merges the partial results of the shards into the result of the query.
+   */
+  private QueryResult<T> combine(Query<T> query, Comparator<T> order,
+      List<QueryResult<T>> partials) {
+    final List<T> merged;
+    if (query.doPaginate()) {
+      final long from = (long) query.getPageNumber() * query.getPageSize();
+      merged = merge(partials, order, from, query.getPageSize());
+    } else {
+      merged = merge(partials, order, 0, Integer.MAX_VALUE);
+    }
+
+    final List<Total> totals = new ArrayList<>(partials.size());
+    final List<String> versions = new ArrayList<>(partials.size());
+    final List<Aggregations> aggregations = new ArrayList<>(partials.size());
+    final List<Delta> deltas = new ArrayList<>(partials.size());
+    for (final QueryResult<T> partial : partials) {
+      if (partial.getDelta() != null) {
+        deltas.add(partial.getDelta());
+      }
+      totals.add(partial.getTotal());
+      versions.add(partial.getVersion());
+      if (partial.getAggregations() != null) {
+        aggregations.add(partial.getAggregations());
+      }
+    }
+
+    final QueryResult<T> result = new QueryResult<>(query, merged, Total.sum(totals));
+    if (!versions.contains(null)) {
+      result.setVersion(String.join(VERSION_SEPARATOR, versions));
+    }
+    if (query.doAggregate()) {
+      result.setAggregations(Aggregations.sum(aggregations));
+    }
+    if (query.doDelta()) {
+      result.setDelta(Delta.merge(deltas));
+    }
+    return result;
+  }
+
+  private CompletableFuture<QueryResult<T>> startQuery(Queryable<T> shard, Query<T> shardQuery) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return shard.query(shardQuery);
+      } catch (final QueryException e) {
+        throw new CompletionException(e);
+      }
+    }, executor);
+  }
+
+  /**
+   * Sends the query to all shards in parallel and waits for their results.
+   *
+   * @return the results, in the order of the shards
+   * @throws QueryException if any shard failed
+   */
+  private List<QueryResult<T>> queryShards(Query<T> shardQuery) throws QueryException {
+    final List<CompletableFuture<QueryResult<T>>> pending = new ArrayList<>(shards.size() - 1);
+    for (final Queryable<T> shard : shards.subList(0, shards.size() - 1)) {
+      pending.add(startQuery(shard, shardQuery));
+    }
+
+    // Use the calling thread instead of letting it idle
+    final QueryResult<T> last = shards.get(shards.size() - 1).query(shardQuery);
+
+    final List<QueryResult<T>> results = new ArrayList<>(shards.size());
+    for (final CompletableFuture<QueryResult<T>> future : pending) {
+      try {
+        results.add(future.join());
+      } catch (final CompletionException e) {
+        pending.forEach(f -> f.cancel(false));
+        if (e.getCause() instanceof QueryException) {
+          throw (QueryException) e.getCause();
+        }
+        throw new QueryException("Shard could not execute query", e.getCause());
+      }
+    }
+    results.add(last);
+    return results;
+  }
+
+  /**
+   * Merges the partial results, skips the first {@code from} resources and returns the following
+   * {@code limit} ones. Sorted results are merged by the given order, unsorted ones by their
+   * position within the partial results. Ties are broken by the index of the shard.
+   */
+  private List<T> merge(List<QueryResult<T>> partials, Comparator<T> order, long from, int limit) {
+    final Comparator<Head<T>> byShard = Comparator.comparingInt(h -> h.shard);
+    final Comparator<Head<T>> heads = order == null
+        ? Comparator.<Head<T>>comparingLong(h -> h.position).thenComparing(byShard)
+        : Comparator.<Head<T>, T>comparing(h -> h.resource, order).thenComparing(byShard);
+
+    final PriorityQueue<Head<T>> queue = new PriorityQueue<>(partials.size(), heads);
+    for (int i = 0; i < partials.size(); i++) {
+      final Head<T> head = new Head<>(i, partials.get(i).getData().iterator());
+      if (head.advance()) {
+        queue.add(head);
+      }
+    }
+
+    final List<T> page = new ArrayList<>(Math.min(limit, 64));
+    long skipped = 0;
+    while (!queue.isEmpty() && page.size() < limit) {
+      final Head<T> head = queue.poll();
+      if (skipped < from) {
+        skipped++;
+      } else {
+        page.add(head.resource);
+      }
+      if (head.advance()) {
+        queue.add(head);
+      }
+    }
+    return page;
+  }
+
+  /**
+   * The current resource of a partial result during the merge.
+   */
+  private static final class Head<T> {
+
+    private final int shard;
+    private final Iterator<T> remaining;
+    private T resource;
+    private long position = -1;
+
+    private Head(int shard, Iterator<T> remaining) {
+      this.shard = shard;
+      this.remaining = remaining;
+    }
+
+    private boolean advance() {
+      if (!remaining.hasNext()) {
+        return false;
+      }
+      resource = remaining.next();
+      position++;
+      return true;
+    }
+  }
+
+}
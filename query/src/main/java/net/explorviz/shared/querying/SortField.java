@@ -0,0 +1,82 @@
+package net.explorviz.shared.querying;
+
+import java.util.Locale;
+
+/**
+ * A single attribute to sort by, as given by the JSON:API {@code sort} query parameter. For
+ * example, {@code sort=-last-discovery-time,name} results in two sort fields: a descending one for
+ * {@code last-discovery-time} and an ascending one for {@code name}.
+ */
+public final class SortField {
+
+  private static final char DESCENDING_PREFIX = '-';
+
+  private final String attribute;
+  private final boolean descending;
+
+  /**
+   * Creates a new sort field.
+   *
+   * @param attribute the name of the attribute to sort by
+   * @param descending whether to sort in descending order
+   */
+  public SortField(String attribute, boolean descending) {
+    this.attribute = attribute;
+    this.descending = descending;
+  }
+
+  /**
+   * Parses a single sort field, i.e. an attribute name optionally prefixed by {@code -}.
+   *
+   * @param field the raw sort field
+   * @return the parsed sort field
+   */
+  public static SortField parse(String field) {
+    final String trimmed = field.trim();
+    if (!trimmed.isEmpty() && trimmed.charAt(0) == DESCENDING_PREFIX) {
+      return new SortField(trimmed.substring(1).toLowerCase(Locale.ENGLISH), true);
+    }
+    return new SortField(trimmed.toLowerCase(Locale.ENGLISH), false);
+  }
+
+  /**
+   * The name of the attribute to sort by.
+   *
+   * @return name of the attribute
+   */
+  public String getAttribute() {
+    return attribute;
+  }
+
+  /**
+   * Whether to sort in descending order.
+   *
+   * @return {@code True} iff the order is descending, {@code False} if ascending
+   */
+  public boolean isDescending() {
+    return descending;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof SortField)) {
+      return false;
+    }
+    final SortField other = (SortField) obj;
+    return descending == other.descending && attribute.equals(other.attribute);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * attribute.hashCode() + (descending ? 1 : 0);
+  }
+
+  @Override
+  public String toString() {
+    return descending ? DESCENDING_PREFIX + attribute : attribute;
+  }
+
+}
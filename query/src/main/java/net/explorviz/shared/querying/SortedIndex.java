@@ -0,0 +1,159 @@
+package net.explorviz.shared.querying;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Secondary index that keeps elements ordered by a key, used to answer range filters such as
+ * {@code filter[last-discovery-time][gte]=...} or {@code filter[pid][gt]=X&filter[pid][lt]=Y}
+ * without scanning all elements. The keys are held in a balanced search tree, thus a range lookup
+ * costs O(log n + k) for k matching elements, and updates cost O(log n).
+ *
+ * <p>
+ * Keys are compared by their natural order and must not be modified while they are indexed.
+ * {@code null} keys are not indexed, they never fall into a range. Elements are compared by
+ * {@code equals}. This class is not thread-safe.
+ * </p>
+ *
+ * <p>
+ * {@link IndexedQueryable} maintains sorted indexes for the attributes given to
+ * {@link IndexedQueryable#indexRanges(String...)}. Other {@link Queryable}s can use this class
+ * directly.
+ * </p>
+ *
+ * @param <E> the type of the indexed elements
+ */
+public final class SortedIndex<E> {
+
+  // Key -> elements with this key, in the order they were indexed
+  private final NavigableMap<Object, Set<E>> tree = new TreeMap<>();
+  private final Map<E, Object> keys = new HashMap<>();
+
+  /**
+   * Indexes an element by the given key. Replaces the previous key of the element, if any.
+   *
+   * @param element the element
+   * @param key the key, must be {@link Comparable} to the other keys of the index
+   */
+  public void put(E element, Object key) {
+    remove(element);
+    if (key == null) {
+      return;
+    }
+    keys.put(element, key);
+    tree.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(element);
+  }
+
+  /**
+   * Removes an element from the index.
+   *
+   * @param element the element
+   */
+  public void remove(E element) {
+    final Object key = keys.remove(element);
+    if (key == null) {
+      return;
+    }
+    final Set<E> elements = tree.get(key);
+    elements.remove(element);
+    if (elements.isEmpty()) {
+      tree.remove(key);
+    }
+  }
+
+  /**
+   * Finds all elements whose key lies in the given range.
+   *
+   * @param from the lower bound or {@code null} if the range is not bounded below
+   * @param fromInclusive whether elements whose key equals {@code from} are part of the range
+   * @param to the upper bound or {@code null} if the range is not bounded above
+   * @param toInclusive whether elements whose key equals {@code to} are part of the range
+   * @return the matching elements in the order of their keys
+   */
+  public Set<E> range(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+    NavigableMap<Object, Set<E>> range = tree;
+    if (from != null && to != null) {
+      final int c = compare(from, to);
+      if (c > 0 || c == 0 && !(fromInclusive && toInclusive)) {
+        return Collections.emptySet();
+      }
+      range = tree.subMap(from, fromInclusive, to, toInclusive);
+    } else if (from != null) {
+      range = tree.tailMap(from, fromInclusive);
+    } else if (to != null) {
+      range = tree.headMap(to, toInclusive);
+    }
+
+    final Set<E> matches = new LinkedHashSet<>();
+    for (final Collection<E> elements : range.values()) {
+      matches.addAll(elements);
+    }
+    return matches;
+  }
+
+  /**
+   * Finds all elements whose key satisfies all given range filters. The filters are combined into
+   * the narrowest range first, e.g. {@code gte 10} and {@code lt 20} are answered by a single
+   * lookup.
+   *
+   * @param bounds map of range operators to the bounds compared with by the operator
+   * @return the matching elements in the order of their keys
+   * @throws IllegalArgumentException if an operator is not a range operator (see
+   *         {@link FilterOperator#isRange()})
+   */
+  public Set<E> search(Map<FilterOperator, ? extends Collection<?>> bounds) {
+    Object from = null;
+    Object to = null;
+    boolean fromInclusive = true;
+    boolean toInclusive = true;
+
+    for (final Map.Entry<FilterOperator, ? extends Collection<?>> filter : bounds.entrySet()) {
+      final FilterOperator operator = filter.getKey();
+      if (!operator.isRange()) {
+        throw new IllegalArgumentException("Not a range operator: " + operator.getName());
+      }
+      final boolean lower = operator == FilterOperator.GREATER_THAN
+          || operator == FilterOperator.GREATER_THAN_OR_EQUAL;
+      final boolean inclusive = operator == FilterOperator.GREATER_THAN_OR_EQUAL
+          || operator == FilterOperator.LESS_THAN_OR_EQUAL;
+
+      for (final Object bound : filter.getValue()) {
+        if (lower) {
+          final int c = from == null ? 1 : compare(bound, from);
+          if (c > 0 || c == 0 && !inclusive) {
+            from = bound;
+            fromInclusive = inclusive;
+          }
+        } else {
+          final int c = to == null ? -1 : compare(bound, to);
+          if (c < 0 || c == 0 && !inclusive) {
+            to = bound;
+            toInclusive = inclusive;
+          }
+        }
+      }
+    }
+    return range(from, fromInclusive, to, toInclusive);
+  }
+
+  /**
+   * Amount of indexed elements.
+   *
+   * @return the amount of elements with a key
+   */
+  public int size() {
+    return keys.size();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static int compare(Object a, Object b) {
+    return ((Comparable<Object>) a).compareTo(b);
+  }
+
+}
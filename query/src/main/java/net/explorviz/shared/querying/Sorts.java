@@ -0,0 +1,74 @@
+package net.explorviz.shared.querying;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compiles the sort fields of a {@link Query} (i.e. {@code sort=-attribute,...}) into a
+ * {@link Comparator} and selects the first objects of a sorted collection without sorting the
+ * collection as a whole.
+ */
+public final class Sorts {
+
+  private static final Comparator<Object> NATURAL_ORDER = Sorts::compareValues;
+
+  private Sorts() {
+    // Utility class
+  }
+
+  /**
+   * Compiles the sort fields of the query into a comparator. Attributes are compared by their
+   * natural order, {@code null} values are sorted last.
+   *
+   * @param <T> the type of the resources
+   * @param query the query whose sort fields to compile
+   * @param resourceClass the class of the resources
+   * @return comparator that orders resources as requested by the query
+   * @throws QueryException if the query contains unknown or non-comparable attributes
+   */
+  public static <T> Comparator<T> compile(Query<T> query, Class<? extends T> resourceClass)
+      throws QueryException {
+    final ResourceAttributes attributes = ResourceAttributes.of(resourceClass);
+
+    Comparator<T> comparator = (a, b) -> 0;
+    for (final SortField field : query.getSort()) {
+      final AttributeAccessor accessor = attributes.require(field.getAttribute());
+      if (!accessor.getType().isPrimitive()
+          && !Comparable.class.isAssignableFrom(accessor.getType())) {
+        throw new InvalidQueryException(
+            String.format("Can't sort by attribute '%s'", accessor.getName()));
+      }
+
+      // Only the order of the values is reversed, nulls are last in either direction
+      final Comparator<Object> byValue = Comparator.nullsLast(
+          field.isDescending() ? NATURAL_ORDER.reversed() : NATURAL_ORDER);
+      comparator =
+          comparator.thenComparing((a, b) -> byValue.compare(accessor.get(a), accessor.get(b)));
+    }
+    return comparator;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static int compareValues(Object a, Object b) {
+    return ((Comparable) a).compareTo(b);
+  }
+
+  /**
+   * Returns the first {@code k} objects w.r.t. the given order without sorting all objects, see
+   * {@link TopK}.
+   *
+   * @param <T> the type of the objects
+   * @param objects the objects to select from
+   * @param comparator the order
+   * @param k the maximum amount of objects to return
+   * @return the first {@code k} objects in sorted order
+   */
+  public static <T> List<T> top(Iterable<T> objects, Comparator<? super T> comparator, int k) {
+    final TopK<T> selector = new TopK<>(comparator, k);
+    for (final T object : objects) {
+      selector.offer(object);
+    }
+    return selector.toSortedList();
+  }
+
+}
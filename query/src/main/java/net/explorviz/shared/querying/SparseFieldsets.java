@@ -0,0 +1,174 @@
+package net.explorviz.shared.querying;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.github.jasminb.jsonapi.annotations.Type;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * Support for JSON:API sparse fieldsets, i.e. the {@code fields[type]=attribute1,attribute2} query
+ * parameter. If a fieldset is given for a resource type, only the listed attributes of resources
+ * of this type are serialized. All other attributes are skipped by Jackson and thus are never
+ * serialized at all, which is relevant for large attributes such as the {@code aop-content} of a
+ * procezz. Relationships are not affected by fieldsets.
+ *
+ * <p>
+ * To use sparse fieldsets, the {@link ObjectMapper} of the
+ * {@link com.github.jasminb.jsonapi.ResourceConverter} must be prepared with
+ * {@link #configure(ObjectMapper)}. Writers then activate the requested fieldsets for the current
+ * thread while serializing:
+ * </p>
+ *
+ * <pre>
+ * {@code final SparseFieldsets.Scope scope = SparseFieldsets.apply(fieldsets);}
+ * {@code try {}
+ * {@code   bytes = converter.writeDocument(document);}
+ * {@code } finally {}
+ * {@code   scope.close();}
+ * {@code }}
+ * </pre>
+ */
+public final class SparseFieldsets {
+
+  private static final String FIELDS_PREFIX = "fields[";
+  private static final String FILTER_ID = "jsonapi-sparse-fieldsets";
+
+  private static final ThreadLocal<Map<String, Set<String>>> ACTIVE = new ThreadLocal<>();
+
+  private static final ClassValue<String> RESOURCE_TYPES = new ClassValue<String>() {
+    @Override
+    protected String computeValue(Class<?> type) {
+      final Type annotation = type.getAnnotation(Type.class);
+      return annotation == null ? null : annotation.value();
+    }
+  };
+
+  private SparseFieldsets() {
+    // Utility class
+  }
+
+  /**
+   * Extracts the sparse fieldsets from the raw query parameters of a HTTP request.
+   *
+   * @param parameters the raw HTTP query parameters
+   * @return map of resource types to the set of attributes to serialize, empty if no fieldsets
+   *         are requested
+   */
+  public static Map<String, Set<String>> fromParameterMap(
+      MultivaluedMap<String, String> parameters) {
+    Map<String, Set<String>> fieldsets = null;
+
+    for (final Map.Entry<String, List<String>> e : parameters.entrySet()) {
+      if (!e.getKey().startsWith(FIELDS_PREFIX) || !e.getKey().endsWith("]")) {
+        continue;
+      }
+      if (fieldsets == null) {
+        fieldsets = new HashMap<>();
+      }
+
+      final String type = e.getKey().substring(FIELDS_PREFIX.length(), e.getKey().length() - 1);
+      final Set<String> fields = fieldsets.computeIfAbsent(type, t -> new HashSet<>());
+      for (final String value : e.getValue()) {
+        for (final String field : value.split(",")) {
+          if (!field.trim().isEmpty()) {
+            fields.add(field.trim());
+          }
+        }
+      }
+    }
+
+    return fieldsets == null ? Collections.emptyMap() : fieldsets;
+  }
+
+  /**
+   * Prepares an object mapper such that it respects the fieldsets activated by
+   * {@link #apply(Map)}. Does not change the serialization if no fieldsets are active.
+   *
+   * @param mapper the mapper to configure, typically the one of the resource converter
+   * @return the given mapper
+   */
+  public static ObjectMapper configure(ObjectMapper mapper) {
+    mapper.setAnnotationIntrospector(new JacksonAnnotationIntrospector() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      public Object findFilterId(Annotated a) {
+        final Object id = super.findFilterId(a);
+        if (id == null && a instanceof AnnotatedClass
+            && RESOURCE_TYPES.get(((AnnotatedClass) a).getRawType()) != null) {
+          return FILTER_ID;
+        }
+        return id;
+      }
+    });
+    mapper.setFilterProvider(new SimpleFilterProvider().addFilter(FILTER_ID, new FieldsetFilter()));
+    return mapper;
+  }
+
+  /**
+   * Activates the given fieldsets for serializations on the current thread until the returned
+   * scope is closed.
+   *
+   * @param fieldsets map of resource types to the attributes to serialize, see
+   *        {@link #fromParameterMap(MultivaluedMap)}
+   * @return scope to close after serialization
+   */
+  public static Scope apply(Map<String, Set<String>> fieldsets) {
+    final Map<String, Set<String>> previous = ACTIVE.get();
+    if (fieldsets.isEmpty()) {
+      ACTIVE.remove();
+    } else {
+      ACTIVE.set(fieldsets);
+    }
+    return () -> {
+      if (previous == null) {
+        ACTIVE.remove();
+      } else {
+        ACTIVE.set(previous);
+      }
+    };
+  }
+
+  /**
+   * Scope of activated fieldsets, see {@link SparseFieldsets#apply(Map)}.
+   */
+  @FunctionalInterface
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  /**
+   * Skips all attributes of a resource that are not part of the active fieldset of its type.
+   */
+  private static final class FieldsetFilter extends SimpleBeanPropertyFilter {
+
+    @Override
+    public void serializeAsField(Object pojo, JsonGenerator jgen, SerializerProvider provider,
+        PropertyWriter writer) throws Exception { // NOPMD
+      final Map<String, Set<String>> fieldsets = ACTIVE.get();
+      if (fieldsets != null) {
+        final Set<String> fields = fieldsets.get(RESOURCE_TYPES.get(pojo.getClass()));
+        if (fields != null && !fields.contains(writer.getName())) {
+          writer.serializeAsOmittedField(pojo, jgen, provider);
+          return;
+        }
+      }
+      writer.serializeAsField(pojo, jgen, provider);
+    }
+  }
+
+}
@@ -0,0 +1,100 @@
+package net.explorviz.shared.querying;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Selects the first {@code k} of the offered objects w.r.t. a given order by means of a bounded
+ * heap. Needs O(n log k) time and O(k) space for n offered objects, instead of O(n log n) time and
+ * O(n) space when sorting all objects. Objects that are equal w.r.t. the order keep the order in
+ * which they were offered.
+ *
+ * <p>
+ * Instances are not thread-safe.
+ * </p>
+ *
+ * @param <T> the type of the objects
+ */
+public final class TopK<T> {
+
+  private final Comparator<Ranked<T>> order;
+  private final PriorityQueue<Ranked<T>> heap;
+  private final int k;
+  private long offered;
+
+  /**
+   * Creates a new selector.
+   *
+   * @param comparator the order
+   * @param k the maximum amount of objects to select
+   */
+  public TopK(Comparator<? super T> comparator, int k) {
+    this.k = k;
+    this.order = Ranked.order(comparator);
+    // Max-heap, the head is the worst of the best k objects seen so far. Not sized to k, since k
+    // is derived from the requested page and might be far larger than the amount of objects
+    this.heap = new PriorityQueue<>(order.reversed());
+  }
+
+  /**
+   * Offers an object for selection.
+   *
+   * @param object the object
+   */
+  public void offer(T object) {
+    final Ranked<T> ranked = new Ranked<>(object, offered++);
+    if (heap.size() < k) {
+      heap.add(ranked);
+    } else if (k > 0 && order.compare(ranked, heap.peek()) < 0) {
+      heap.poll();
+      heap.add(ranked);
+    }
+  }
+
+  /**
+   * Amount of objects offered so far.
+   *
+   * @return the amount of calls to {@link #offer(Object)}
+   */
+  public long getOffered() {
+    return offered;
+  }
+
+  /**
+   * Returns the selected objects.
+   *
+   * @return the first {@code k} of the offered objects in sorted order
+   */
+  public List<T> toSortedList() {
+    final List<Ranked<T>> sorted = new ArrayList<>(heap);
+    sorted.sort(order);
+    final List<T> result = new ArrayList<>(sorted.size());
+    for (final Ranked<T> ranked : sorted) {
+      result.add(ranked.object);
+    }
+    return result;
+  }
+
+  /**
+   * Object along with its position in the order of offering, used to break ties.
+   */
+  private static final class Ranked<T> {
+    private final T object;
+    private final long rank;
+
+    private Ranked(T object, long rank) {
+      this.object = object;
+      this.rank = rank;
+    }
+
+    private static <T> Comparator<Ranked<T>> order(Comparator<? super T> comparator) {
+      return (a, b) -> {
+        final int c = comparator.compare(a.object, b.object);
+        return c != 0 ? c : Long.compare(a.rank, b.rank);
+      };
+    }
+  }
+
+}
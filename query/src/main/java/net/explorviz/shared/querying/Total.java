@@ -0,0 +1,149 @@
+package net.explorviz.shared.querying;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Total amount of objects that match a {@link Query}, regardless of pagination. Counting all
+ * matching objects is often the most expensive part of a query, thus a {@link Queryable} does not
+ * have to provide an exact total. The total can be
+ *
+ * <ul>
+ * <li>exact, see {@link #exact(long)}
+ * <li>estimated, e.g. from statistics of the underlying store, see {@link #estimated(long)}
+ * <li>unknown, see {@link #unknown()}
+ * <li>computed on demand, i.e. only if it is actually needed, see {@link #lazy(LongSupplier)}
+ * </ul>
+ *
+ * <p>
+ * Note that responses to page-number paginated queries always need the total for their
+ * {@code last} link (see {@link PaginationJsonApiWriter}). A total computed on demand thus only
+ * saves the count for queries that are not paginated, or paginated by cursor.
+ * </p>
+ */
+public final class Total {
+
+  private static final Total UNKNOWN = new Total(-1, false, null);
+
+  private long value;
+  private final boolean estimated;
+  private LongSupplier supplier;
+
+  private Total(long value, boolean estimated, LongSupplier supplier) {
+    this.value = value;
+    this.estimated = estimated;
+    this.supplier = supplier;
+  }
+
+  /**
+   * Creates an exact total.
+   *
+   * @param total the exact amount of matching objects
+   * @return the total
+   */
+  public static Total exact(long total) {
+    return new Total(total, false, null);
+  }
+
+  /**
+   * Creates an estimated total.
+   *
+   * @param estimate the approximate amount of matching objects
+   * @return the total
+   */
+  public static Total estimated(long estimate) {
+    return new Total(estimate, true, null);
+  }
+
+  /**
+   * Creates a total for cases where the amount of matching objects is not known.
+   *
+   * @return the total
+   */
+  public static Total unknown() {
+    return UNKNOWN;
+  }
+
+  /**
+   * Creates an exact total that is computed on the first call of {@link #getValue()}. The result
+   * is memorized, the supplier is called at most once.
+   *
+   * @param counter supplies the exact amount of matching objects
+   * @return the total
+   */
+  public static Total lazy(LongSupplier counter) {
+    return new Total(-1, false, counter);
+  }
+
+  /**
+   * Creates the total of several disjoint sets of objects, e.g. the partitions of a
+   * {@link ShardedQueryable}. The sum is unknown if any total is unknown, estimated if any total is
+   * estimated, and computed on demand if any total is computed on demand and not yet known.
+   *
+   * @param totals the totals to sum up
+   * @return the sum of the totals
+   */
+  public static Total sum(Collection<Total> totals) {
+    boolean anyEstimated = false;
+    boolean allResolved = true;
+    for (final Total total : totals) {
+      if (!total.isAvailable()) {
+        return UNKNOWN;
+      }
+      anyEstimated |= total.isEstimated();
+      allResolved &= total.isResolved();
+    }
+
+    if (!allResolved && !anyEstimated) {
+      final List<Total> copy = new ArrayList<>(totals);
+      return lazy(() -> copy.stream().mapToLong(Total::getValue).sum());
+    }
+
+    final long sum = totals.stream().mapToLong(Total::getValue).sum();
+    return anyEstimated ? estimated(sum) : exact(sum);
+  }
+
+  /**
+   * Checks whether a value can be obtained, either because it is already known or because it can
+   * be computed on demand.
+   *
+   * @return {@code True} iff the total is not unknown
+   */
+  public synchronized boolean isAvailable() {
+    return isResolved() || supplier != null;
+  }
+
+  /**
+   * Checks whether the value is known without the need to compute it.
+   *
+   * @return {@code True} iff the total is exact or estimated or a lazy total was already computed
+   */
+  public synchronized boolean isResolved() {
+    return value >= 0;
+  }
+
+  /**
+   * Checks whether the value is only an approximation.
+   *
+   * @return {@code True} iff the total is estimated
+   */
+  public boolean isEstimated() {
+    return estimated;
+  }
+
+  /**
+   * Returns the value of this total. Computes the value if it is lazy and was not computed so far.
+   *
+   * @return the total or -1 if the total is unknown
+   */
+  public synchronized long getValue() {
+    if (value < 0 && supplier != null) {
+      value = supplier.getAsLong();
+      supplier = null;
+    }
+    return value;
+  }
+
+}
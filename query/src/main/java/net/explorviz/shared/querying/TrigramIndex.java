@@ -0,0 +1,162 @@
+package net.explorviz.shared.querying;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index of the trigrams (substrings of three characters) of text values, used to answer
+ * substring searches such as {@code filter[os-execution-command][contains]=kieker} without
+ * scanning all values. A value can only contain a fragment if it contains all trigrams of the
+ * fragment. Thus a search intersects the posting sets of these trigrams, starting with the
+ * smallest one, and verifies the few remaining candidates.
+ *
+ * <p>
+ * The index is maintained incrementally, see {@link #put(Object, String)} and
+ * {@link #remove(Object)}. Fragments shorter than three characters have no trigrams and are
+ * answered by scanning all values. Matching is case-sensitive, as in {@link String#contains}.
+ * Elements are compared by {@code equals}, which must not change while they are indexed. This
+ * class is not thread-safe.
+ * </p>
+ *
+ * <p>
+ * {@link IndexedQueryable} maintains trigram indexes for the attributes given to
+ * {@link IndexedQueryable#indexSubstrings(String...)}. Other {@link Queryable}s can use this class
+ * directly, e.g. indexing procezzes by their {@code os-execution-command}.
+ * </p>
+ *
+ * @param <E> the type of the indexed elements
+ */
+public final class TrigramIndex<E> {
+
+  private static final int GRAM_LENGTH = 3;
+
+  private final Map<E, String> values = new HashMap<>();
+
+  // Trigram (three chars packed into a long) -> elements whose value contains it
+  private final Map<Long, Set<E>> postings = new HashMap<>();
+
+  /**
+   * Indexes the value of an element. Replaces the previous value of the element, if any.
+   *
+   * @param element the element
+   * @param value the text value of the element, {@code null} values never match
+   */
+  public void put(E element, String value) {
+    remove(element);
+    if (value == null) {
+      return;
+    }
+    values.put(element, value);
+    for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+      postings.computeIfAbsent(trigram(value, i), t -> new HashSet<>()).add(element);
+    }
+  }
+
+  /**
+   * Removes an element from the index.
+   *
+   * @param element the element
+   */
+  public void remove(E element) {
+    final String value = values.remove(element);
+    if (value == null) {
+      return;
+    }
+    for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+      final Long trigram = trigram(value, i);
+      final Set<E> posting = postings.get(trigram);
+      // Null if the trigram occurs several times in the value
+      if (posting != null) {
+        posting.remove(element);
+        if (posting.isEmpty()) {
+          postings.remove(trigram);
+        }
+      }
+    }
+  }
+
+  /**
+   * Finds all elements whose value contains the given fragment.
+   *
+   * @param fragment the substring to search for
+   * @return the matching elements in no particular order
+   */
+  public Set<E> search(String fragment) {
+    if (fragment.length() < GRAM_LENGTH) {
+      return scan(fragment);
+    }
+
+    // Look up the posting sets of all distinct trigrams and start with the smallest one
+    final Set<Long> trigrams = new HashSet<>();
+    for (int i = 0; i + GRAM_LENGTH <= fragment.length(); i++) {
+      trigrams.add(trigram(fragment, i));
+    }
+    Set<E> smallest = null;
+    final Set<E>[] others = newSetArray(trigrams.size() - 1);
+    int count = 0;
+    for (final Long trigram : trigrams) {
+      final Set<E> posting = postings.get(trigram);
+      if (posting == null) {
+        return Collections.emptySet();
+      }
+      if (smallest == null) {
+        smallest = posting;
+      } else if (posting.size() < smallest.size()) {
+        others[count++] = smallest;
+        smallest = posting;
+      } else {
+        others[count++] = posting;
+      }
+    }
+
+    final Set<E> matches = new HashSet<>();
+    for (final E element : smallest) {
+      boolean inAll = true;
+      for (final Set<E> posting : others) {
+        if (!posting.contains(element)) {
+          inAll = false;
+          break;
+        }
+      }
+      // All trigrams occur, but not necessarily in the order of the fragment
+      if (inAll && values.get(element).contains(fragment)) {
+        matches.add(element);
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * Amount of indexed elements.
+   *
+   * @return the amount of elements with a value
+   */
+  public int size() {
+    return values.size();
+  }
+
+  private Set<E> scan(String fragment) {
+    final Set<E> matches = new HashSet<>();
+    values.forEach((element, value) -> {
+      if (value.contains(fragment)) {
+        matches.add(element);
+      }
+    });
+    return matches;
+  }
+
+  private static Long trigram(String value, int start) {
+    return ((long) value.charAt(start) << 32) | ((long) value.charAt(start + 1) << 16)
+        | value.charAt(start + 2);
+  }
+
+  // Generic arrays can not be created, the array holds sets of elements only
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static <E> Set<E>[] newSetArray(int size) {
+    return new Set[size];
+  }
+
+}
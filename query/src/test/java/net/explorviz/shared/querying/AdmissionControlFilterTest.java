@@ -0,0 +1,167 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.github.jasminb.jsonapi.ResourceConverter;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link AdmissionControlFilter}.
+ */
+public class AdmissionControlFilterTest {
+
+  private AdmissionControlFilter filter;
+
+  @BeforeEach
+  public void setUp() {
+    this.filter = new AdmissionControlFilter(1, null, null);
+  }
+
+  private static ContainerRequest request(String method) {
+    return request(method, "");
+  }
+
+  private static ContainerRequest request(String method, String query) {
+    return new ContainerRequest(URI.create("http://localhost/"),
+        URI.create("http://localhost/resources" + query), method, null,
+        new MapPropertiesDelegate());
+  }
+
+  /**
+   * Test if requests over budget are rejected without waiting.
+   */
+  @Test
+  public void testRejected() throws IOException {
+    this.filter.filter(request("GET"));
+
+    final ClientErrorException e =
+        assertThrows(ClientErrorException.class, () -> this.filter.filter(request("GET")));
+    assertEquals(429, e.getResponse().getStatus());
+
+    // Other methods are not charged
+    this.filter.filter(request("POST"));
+  }
+
+  /**
+   * Test if the budget is returned only after the entity was written.
+   */
+  @Test
+  public void testReleasedAfterWriting() throws IOException {
+    final ContainerRequest request = request("GET");
+    this.filter.filter(request);
+    this.filter.filter(request, new ContainerResponse(request, Response.ok("entity").build()));
+    assertThrows(ClientErrorException.class, () -> this.filter.filter(request("GET")),
+        "Released before the entity was written");
+
+    this.filter.aroundWriteTo(writerContext(request));
+    assertNull(request.getProperty(AdmissionControl.Permit.class.getName()));
+    this.filter.filter(request("GET"));
+  }
+
+  /**
+   * Test if the budget of responses without entity is returned by the response filter.
+   */
+  @Test
+  public void testReleasedWithoutEntity() throws IOException {
+    final ContainerRequest request = request("GET");
+    this.filter.filter(request);
+    this.filter.filter(request, new ContainerResponse(request, Response.noContent().build()));
+
+    this.filter.filter(request("GET"));
+  }
+
+  /**
+   * Test if the budget of a {@code 304 Not Modified} response is returned, whose entity is dropped
+   * by the entity tag filter of the writer.
+   */
+  @Test
+  public void testReleasedWhenNotModified() throws InterruptedException, ExecutionException {
+    final ApplicationHandler handler = new ApplicationHandler(new ResourceConfig()
+        .register(VersionedResource.class)
+        .register(this.filter)
+        .register(new PaginationJsonApiWriter<>(new ResourceConverter(TestResource.class))));
+
+    final ContainerResponse response = handler.apply(request("GET")).get();
+    assertEquals(200, response.getStatus());
+
+    final ContainerRequest conditional = request("GET");
+    conditional.header(HttpHeaders.IF_NONE_MATCH, response.getEntityTag().toString());
+    assertEquals(304, handler.apply(conditional).get().getStatus());
+
+    assertEquals(200, handler.apply(request("GET")).get().getStatus(), "Budget not returned");
+  }
+
+  /**
+   * Test if a batch is charged the summed up cost of its queries.
+   */
+  @Test
+  public void testBatchCost() throws IOException {
+    this.filter = new AdmissionControlFilter(2, 150, 100);
+    final ContainerRequest batch =
+        request("GET", "?batch=a,b&a.page%5Bnumber%5D=0&a.page%5Bsize%5D=10&a.filter%5Bname%5D=x"
+            + "&b.page%5Bnumber%5D=0&b.page%5Bsize%5D=10&b.filter%5Bname%5D=y");
+    this.filter.filter(batch);
+
+    // Each query costs 60 units, thus the batch leaves 30 units
+    final String single = "?page%5Bnumber%5D=0&page%5Bsize%5D=10&filter%5Bname%5D=x";
+    assertThrows(ClientErrorException.class, () -> this.filter.filter(request("GET", single)));
+
+    this.filter.filter(batch, new ContainerResponse(batch, Response.noContent().build()));
+    this.filter.filter(request("GET", single));
+  }
+
+  /**
+   * Resource whose results carry a version, such that they are tagged before they are written.
+   */
+  @Path("resources")
+  public static class VersionedResource {
+
+    @GET
+    @AdmissionControlled
+    @Produces("application/vnd.api+json")
+    public QueryResult<TestResource> get() {
+      return new QueryResult<>(Query.fromParameterMap(new MultivaluedHashMap<>()),
+          Arrays.<TestResource>asList(), 0).setVersion("1");
+    }
+  }
+
+  private static WriterInterceptorContext writerContext(ContainerRequest request) {
+    return (WriterInterceptorContext) Proxy.newProxyInstance(
+        AdmissionControlFilterTest.class.getClassLoader(),
+        new Class<?>[] {WriterInterceptorContext.class}, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "proceed":
+              return null;
+            case "getProperty":
+              return request.getProperty((String) args[0]);
+            case "removeProperty":
+              request.removeProperty((String) args[0]);
+              return null;
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+}
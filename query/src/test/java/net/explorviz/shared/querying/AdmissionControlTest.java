@@ -0,0 +1,112 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link AdmissionControl} and {@link QueryCost}.
+ */
+public class AdmissionControlTest {
+
+  private AdmissionControl admissionControl;
+
+  @BeforeEach
+  public void setUp() {
+    this.admissionControl = new AdmissionControl(2, 100);
+  }
+
+  private AdmissionControl.Permit acquire(String user, long cost) throws InterruptedException {
+    return this.admissionControl.acquire(user, cost, 0, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Test if the concurrency and cost limits are enforced per user.
+   */
+  @Test
+  public void testLimits() throws InterruptedException {
+    final AdmissionControl.Permit first = acquire("alice", 60);
+    assertNotNull(first);
+    assertNull(acquire("alice", 60), "Cost limit exceeded");
+    assertNotNull(acquire("bob", 60), "Users share a budget");
+
+    final AdmissionControl.Permit second = acquire("alice", 10);
+    assertNotNull(second);
+    assertNull(acquire("alice", 1), "Concurrency limit exceeded");
+    assertEquals(2, this.admissionControl.getRunning("alice"));
+
+    first.release();
+    first.release();
+    assertEquals(1, this.admissionControl.getRunning("alice"));
+    assertNotNull(acquire("alice", 90));
+  }
+
+  /**
+   * Test if an expensive query is admitted if the user has nothing else running.
+   */
+  @Test
+  public void testExpensiveQuery() throws InterruptedException {
+    final AdmissionControl.Permit permit = acquire("alice", 1000);
+    assertNotNull(permit);
+    assertNull(acquire("alice", 1));
+
+    permit.release();
+    assertEquals(0, this.admissionControl.getRunning("alice"));
+  }
+
+  /**
+   * Test if a query waits for the budget of its user.
+   */
+  @Test
+  public void testWait() throws InterruptedException, ExecutionException, TimeoutException {
+    final AdmissionControl.Permit permit = acquire("alice", 100);
+
+    final CompletableFuture<AdmissionControl.Permit> waiting = CompletableFuture.supplyAsync(() -> {
+      try {
+        return this.admissionControl.acquire("alice", 50, 10, TimeUnit.SECONDS);
+      } catch (final InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    permit.release();
+
+    assertNotNull(waiting.get(10, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Test if selective, paginated queries are estimated cheaper than full scans.
+   */
+  @Test
+  public void testQueryCost() {
+    final MultivaluedMap<String, String> params = new MultivaluedHashMap<>();
+    final long unpaginated = QueryCost.estimate(Query.fromParameterMap(params), 100);
+
+    params.add("page[number]", "0");
+    params.add("page[size]", "10");
+    final long paginated = QueryCost.estimate(Query.fromParameterMap(params), 100);
+
+    params.add("filter[pid][gte]", "10");
+    final long range = QueryCost.estimate(Query.fromParameterMap(params), 100);
+
+    params.add("filter[name]", "app");
+    final long lookup = QueryCost.estimate(Query.fromParameterMap(params), 100);
+
+    params.add("aggregate[count]", "name");
+    final long aggregated = QueryCost.estimate(Query.fromParameterMap(params), 100);
+
+    assertTrue(unpaginated > paginated && paginated > range && range > lookup,
+        "Wrong order of costs");
+    assertTrue(aggregated > lookup, "Aggregates are free");
+  }
+
+}
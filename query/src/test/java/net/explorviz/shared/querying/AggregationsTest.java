@@ -0,0 +1,99 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link Aggregations} computed by {@link IndexedQueryable}.
+ */
+public class AggregationsTest {
+
+  private IndexedQueryable<TestResource> queryable;
+  private MultivaluedMap<String, String> params;
+
+  @BeforeEach
+  public void setUp() {
+    this.queryable = new IndexedQueryable<>(TestResource.class, "programming-language");
+    this.params = new MultivaluedHashMap<>();
+
+    for (int i = 0; i < 10; i++) {
+      final String language = i % 3 == 0 ? "Java" : "Python";
+      this.queryable.add(new TestResource(String.valueOf(i), "app" + i, language, i, i < 4));
+    }
+  }
+
+  private QueryResult<TestResource> query() throws QueryException {
+    return this.queryable.query(Query.fromParameterMap(this.params));
+  }
+
+  private static Map<String, Long> buckets(Object... bucketsAndCounts) {
+    final Map<String, Long> buckets = new HashMap<>();
+    for (int i = 0; i < bucketsAndCounts.length; i += 2) {
+      buckets.put((String) bucketsAndCounts[i], ((Integer) bucketsAndCounts[i + 1]).longValue());
+    }
+    return buckets;
+  }
+
+  /**
+   * Test if indexed and non-indexed attributes are counted over all resources, without returning
+   * any resources.
+   */
+  @Test
+  public void testCount() throws QueryException {
+    this.params.add("aggregate[count]", "programming-language,monitored-flag");
+
+    final QueryResult<TestResource> result = query();
+
+    assertTrue(result.getData().isEmpty(), "Resources returned");
+    assertEquals(buckets("Java", 4, "Python", 6),
+        result.getAggregations().getCounts().get("programming-language"), "Wrong counts");
+    assertEquals(buckets("true", 4, "false", 6),
+        result.getAggregations().getCounts().get("monitored-flag"), "Wrong counts");
+  }
+
+  /**
+   * Test if only resources matching the filters are counted.
+   */
+  @Test
+  public void testFilteredCount() throws QueryException {
+    this.params.add("aggregate[count]", "programming-language");
+    this.params.add("filter[monitored-flag]", "true");
+
+    assertEquals(buckets("Java", 2, "Python", 2),
+        query().getAggregations().getCounts().get("programming-language"), "Wrong counts");
+  }
+
+  /**
+   * Test if paginated queries return both a page and the counts over all pages.
+   */
+  @Test
+  public void testPaginatedCount() throws QueryException {
+    this.params.add("aggregate[count]", "programming-language");
+    this.params.add("page[number]", "0");
+    this.params.add("page[size]", "3");
+
+    final QueryResult<TestResource> result = query();
+    assertEquals(3, result.getN(), "Wrong page size");
+    assertEquals(buckets("Java", 4, "Python", 6),
+        result.getAggregations().getCounts().get("programming-language"), "Wrong counts");
+  }
+
+  /**
+   * Test if unsupported functions are rejected.
+   */
+  @Test
+  public void testUnsupportedFunction() {
+    this.params.add("aggregate[sum]", "pid");
+
+    assertThrows(InvalidQueryException.class, this::query);
+  }
+
+}
@@ -0,0 +1,124 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.MultivaluedHashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link AsyncQueries} and {@link AsyncQueryable#of(Queryable, Executor)}.
+ */
+public class AsyncQueriesTest {
+
+  private Query<TestResource> query;
+  private AtomicInteger executed;
+  private Executor executor;
+
+  @BeforeEach
+  public void setUp() {
+    this.query = Query.fromParameterMap(new MultivaluedHashMap<>());
+    this.executed = new AtomicInteger();
+    this.executor = command -> {
+      this.executed.incrementAndGet();
+      command.run();
+    };
+  }
+
+  /**
+   * Test if blocking queries are executed by the executor and their results are passed on.
+   */
+  @Test
+  public void testResult() {
+    final QueryResult<TestResource> result =
+        new QueryResult<>(this.query, Collections.<TestResource>emptyList(), 0);
+    final AsyncQueryable<TestResource> queryable = AsyncQueryable.of(q -> result, this.executor);
+
+    assertSame(result, resume(queryable.queryAsync(this.query)));
+    assertEquals(1, this.executed.get(), "Query not executed by the executor");
+  }
+
+  /**
+   * Test if invalid queries result in {@code 400 Bad Request}.
+   */
+  @Test
+  public void testInvalidQuery() {
+    final InvalidQueryException failure = new InvalidQueryException("Unknown attribute");
+    final AsyncQueryable<TestResource> queryable = AsyncQueryable.of(q -> {
+      throw failure;
+    }, this.executor);
+
+    final Object resumed = resume(queryable.queryAsync(this.query));
+    assertTrue(resumed instanceof BadRequestException, "Not a bad request: " + resumed);
+    assertSame(failure, ((BadRequestException) resumed).getCause());
+  }
+
+  /**
+   * Test if failures of the backing store are passed to the exception mappers rather than blamed
+   * on the client.
+   */
+  @Test
+  public void testFailure() {
+    final QueryException failure = new QueryException("Backend unavailable");
+    final AsyncQueryable<TestResource> queryable = AsyncQueryable.of(q -> {
+      throw failure;
+    }, this.executor);
+    assertSame(failure, resume(queryable.queryAsync(this.query)));
+
+    final IllegalStateException runtimeFailure = new IllegalStateException("Bug");
+    final CompletableFuture<QueryResult<TestResource>> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new CompletionException(runtimeFailure));
+    assertSame(runtimeFailure, resume(failed));
+  }
+
+  /**
+   * Test if a failing shard of a {@link ShardedQueryable} is not reported as bad request.
+   */
+  @Test
+  public void testFailingShard() {
+    final Queryable<TestResource> failing = q -> {
+      throw new IllegalStateException("Shard unavailable");
+    };
+    final ShardedQueryable<TestResource> sharded = new ShardedQueryable<>(TestResource.class,
+        this.executor, Arrays.asList(failing, new IndexedQueryable<>(TestResource.class)));
+
+    final Object resumed =
+        resume(AsyncQueryable.of(sharded, this.executor).queryAsync(this.query));
+    assertTrue(resumed instanceof QueryException, "Failure not passed on: " + resumed);
+    assertFalse(resumed instanceof InvalidQueryException, "Failure blamed on the query");
+  }
+
+  /**
+   * Resumes a response with the given stage and returns the object the response was resumed with.
+   */
+  private static Object resume(final CompletionStage<?> stage) {
+    final AtomicReference<Object> resumed = new AtomicReference<>();
+    final AsyncResponse response = (AsyncResponse) Proxy.newProxyInstance(
+        AsyncQueriesTest.class.getClassLoader(), new Class<?>[] {AsyncResponse.class},
+        (proxy, method, args) -> {
+          if ("resume".equals(method.getName())) {
+            resumed.set(args[0]);
+            return true;
+          }
+          throw new UnsupportedOperationException(method.getName());
+        });
+
+    AsyncQueries.resume(response, stage);
+    return resumed.get();
+  }
+
+}
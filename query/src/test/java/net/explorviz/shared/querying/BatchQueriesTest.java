@@ -0,0 +1,122 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jasminb.jsonapi.ResourceConverter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link BatchQueries} and {@link BatchJsonApiWriter}.
+ */
+public class BatchQueriesTest {
+
+  private ExecutorService executor;
+  private BatchQueries batchQueries;
+  private MultivaluedMap<String, String> params;
+
+  @BeforeEach
+  public void setUp() {
+    this.executor = Executors.newFixedThreadPool(2);
+    this.batchQueries = new BatchQueries(this.executor, 10);
+    this.params = new MultivaluedHashMap<>();
+
+    final IndexedQueryable<TestResource> apps =
+        new IndexedQueryable<>(TestResource.class, "programming-language");
+    for (int i = 0; i < 5; i++) {
+      apps.add(new TestResource(String.valueOf(i), "app" + i, i % 2 == 0 ? "Java" : "Python", i,
+          true));
+    }
+    this.batchQueries.register("apps", apps);
+    this.batchQueries.<TestResource>registerAsync("failing", query -> {
+      final CompletableFuture<QueryResult<TestResource>> result = new CompletableFuture<>();
+      result.completeExceptionally(new QueryException("Backend unavailable"));
+      return result;
+    });
+  }
+
+  @AfterEach
+  public void tearDown() {
+    this.executor.shutdownNow();
+  }
+
+  /**
+   * Test if the queries of a batch are executed with their own parameters.
+   */
+  @Test
+  public void testExecute() throws QueryException {
+    this.params.add("batch", "apps");
+    this.params.add("apps.filter[programming-language]", "Java");
+    final Map<String, Query<?>> queries = this.batchQueries.parse(this.params);
+    final Batch batch = this.batchQueries.execute(queries);
+
+    assertEquals(Arrays.asList("apps"), new ArrayList<>(batch.getResults().keySet()));
+    assertEquals(3, batch.get("apps").getN());
+  }
+
+  /**
+   * Test if invalid batches are rejected.
+   */
+  @Test
+  public void testInvalidBatch() {
+    assertThrows(BadRequestException.class, () -> this.batchQueries.parse(this.params));
+
+    this.params.add("batch", "apps,unknown");
+    assertThrows(BadRequestException.class, () -> this.batchQueries.parse(this.params));
+
+    this.params.putSingle("batch", "apps");
+    this.params.add("apps.page[number]", "0");
+    this.params.add("apps.page[size]", "11");
+    assertThrows(BadRequestException.class, () -> this.batchQueries.parse(this.params));
+  }
+
+  /**
+   * Test if a failing query fails the whole batch.
+   */
+  @Test
+  public void testFailingQuery() {
+    this.params.add("batch", "apps,failing");
+    final Map<String, Query<?>> queries = this.batchQueries.parse(this.params);
+
+    assertThrows(QueryException.class, () -> this.batchQueries.execute(queries));
+  }
+
+  /**
+   * Test if each result is written as JSON:API document named after its query.
+   */
+  @Test
+  public void testWriter() throws QueryException, IOException {
+    this.params.add("batch", "apps");
+    this.params.add("batch", "java");
+    this.batchQueries.register("java", new IndexedQueryable<>(TestResource.class));
+    this.params.add("apps.page[number]", "0");
+    this.params.add("apps.page[size]", "2");
+    final Batch batch = this.batchQueries.execute(this.batchQueries.parse(this.params));
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new BatchJsonApiWriter(new ResourceConverter(TestResource.class)).writeTo(batch, Batch.class,
+        Batch.class, null, null, new MultivaluedHashMap<>(), out);
+    final JsonNode document = new ObjectMapper().readTree(out.toByteArray());
+
+    assertEquals(2, document.size());
+    assertEquals(2, document.path("apps").path("data").size());
+    assertEquals(5, document.path("apps").path("meta").path("total").asInt());
+    assertEquals(0, document.path("java").path("data").size());
+  }
+
+}
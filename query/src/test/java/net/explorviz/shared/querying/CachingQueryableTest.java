@@ -0,0 +1,107 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link CachingQueryable}.
+ */
+public class CachingQueryableTest {
+
+  private static final long TTL = 1000;
+
+  private AtomicInteger calls;
+  private AtomicLong time;
+  private CachingQueryable<Integer> queryable;
+
+  @BeforeEach
+  public void setUp() {
+    this.calls = new AtomicInteger();
+    this.time = new AtomicLong();
+    final Queryable<Integer> delegate = query -> {
+      this.calls.incrementAndGet();
+      return new QueryResult<>(query, Collections.singletonList(this.calls.get()), 1);
+    };
+    this.queryable = new CachingQueryable<>(delegate, 2, TTL, this.time::get);
+  }
+
+  private static Query<Integer> query(String... params) {
+    final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+    for (int i = 0; i < params.length; i += 2) {
+      map.add(params[i], params[i + 1]);
+    }
+    return Query.fromParameterMap(map);
+  }
+
+  /**
+   * Test if equal queries are answered from the cache regardless of the parameter order.
+   */
+  @Test
+  public void testHit() throws QueryException {
+    final QueryResult<Integer> first = this.queryable.query(
+        query("page[size]", "5", "page[number]", "0", "filter[a]", "1", "filter[a]", "2"));
+    final QueryResult<Integer> second = this.queryable.query(
+        query("filter[a]", "2", "filter[a]", "1", "page[number]", "0", "page[size]", "5"));
+
+    assertSame(first, second, "Result was not cached");
+    assertEquals(1, this.calls.get(), "Wrong amount of delegate calls");
+    assertEquals(1, this.queryable.getHitCount(), "Wrong hit count");
+    assertEquals(1, this.queryable.getMissCount(), "Wrong miss count");
+  }
+
+  /**
+   * Test if results expire after the time to live.
+   */
+  @Test
+  public void testExpiry() throws QueryException {
+    this.queryable.query(query("page[size]", "5", "page[number]", "0"));
+    this.time.addAndGet(TTL);
+    this.queryable.query(query("page[size]", "5", "page[number]", "0"));
+
+    assertEquals(2, this.calls.get(), "Expired result was used");
+    assertEquals(1, this.queryable.getEvictionCount(), "Wrong eviction count");
+  }
+
+  /**
+   * Test if the least recently used result is evicted if the cache is full.
+   */
+  @Test
+  public void testSizeLimit() throws QueryException {
+    this.queryable.query(query("page[size]", "5", "page[number]", "0"));
+    this.queryable.query(query("page[size]", "5", "page[number]", "1"));
+    this.queryable.query(query("page[size]", "5", "page[number]", "0"));
+    this.queryable.query(query("page[size]", "5", "page[number]", "2"));
+
+    assertEquals(2, this.queryable.size(), "Size limit exceeded");
+    this.queryable.query(query("page[size]", "5", "page[number]", "0"));
+    assertEquals(3, this.calls.get(), "Recently used result was evicted");
+    this.queryable.query(query("page[size]", "5", "page[number]", "1"));
+    assertEquals(4, this.calls.get(), "Least recently used result was not evicted");
+  }
+
+  /**
+   * Test if invalidated results are queried again.
+   */
+  @Test
+  public void testInvalidate() throws QueryException {
+    this.queryable.query(query("filter[a]", "1"));
+    this.queryable.query(query("filter[a]", "2"));
+    this.queryable.invalidateIf(q -> q.getFilters().get("a").contains("1"));
+
+    this.queryable.query(query("filter[a]", "1"));
+    this.queryable.query(query("filter[a]", "2"));
+    assertEquals(3, this.calls.get(), "Wrong amount of delegate calls");
+
+    this.queryable.invalidateAll();
+    assertEquals(0, this.queryable.size(), "Cache not empty");
+  }
+
+}
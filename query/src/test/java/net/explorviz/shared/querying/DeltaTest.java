@@ -0,0 +1,132 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for delta queries answered by {@link IndexedQueryable}.
+ */
+public class DeltaTest {
+
+  private AtomicLong time;
+  private IndexedQueryable<TestResource> queryable;
+  private TestResource java;
+  private TestResource python;
+
+  @BeforeEach
+  public void setUp() {
+    this.time = new AtomicLong(1000);
+    this.queryable =
+        new IndexedQueryable<>(this.time::get, TestResource.class, "programming-language");
+    this.java = new TestResource("1", "app1", "Java", 1, true);
+    this.python = new TestResource("2", "app2", "Python", 2, true);
+    this.queryable.add(this.java);
+    this.queryable.add(this.python);
+  }
+
+  private QueryResult<TestResource> since(long timestamp, String... filter)
+      throws QueryException {
+    final MultivaluedMap<String, String> params = new MultivaluedHashMap<>();
+    params.add("since", String.valueOf(timestamp));
+    for (int i = 0; i < filter.length; i += 2) {
+      params.add(filter[i], filter[i + 1]);
+    }
+    return this.queryable.query(Query.fromParameterMap(params));
+  }
+
+  /**
+   * Test if only resources changed after the timestamp are returned, along with the next
+   * timestamp.
+   */
+  @Test
+  public void testChanges() throws QueryException {
+    final long first = since(0).getDelta().getTimestamp();
+    assertEquals(2, since(0).getN(), "Wrong amount of changes");
+    assertEquals(0, since(first).getN(), "Changes without modification");
+
+    this.time.set(5000);
+    this.queryable.reindex(this.java);
+
+    final QueryResult<TestResource> result = since(first);
+    assertEquals(Collections.singletonList(this.java), new ArrayList<>(result.getData()),
+        "Wrong changes");
+    assertEquals(5000, result.getDelta().getTimestamp(), "Wrong next timestamp");
+  }
+
+  /**
+   * Test if removed resources and resources that do not match the filters anymore are reported as
+   * removed.
+   */
+  @Test
+  public void testTombstones() throws QueryException {
+    final long first = since(0).getDelta().getTimestamp();
+
+    this.queryable.remove(this.python);
+    this.java.setProgrammingLanguage("Kotlin");
+    this.queryable.reindex(this.java);
+
+    final QueryResult<TestResource> result =
+        since(first, "filter[programming-language]", "Java");
+    assertEquals(0, result.getN(), "Wrong changes");
+    assertEquals(Arrays.asList("2", "1"), result.getDelta().getRemoved(), "Wrong removals");
+  }
+
+  /**
+   * Test if modifications following a delta get a newer timestamp, even if the clock did not
+   * advance.
+   */
+  @Test
+  public void testModificationAfterDelta() throws QueryException {
+    this.time.set(2000);
+    final long asOf = since(0).getDelta().getTimestamp();
+    assertEquals(2000, asOf, "Wrong next timestamp");
+
+    this.queryable.reindex(this.java);
+    assertEquals(Collections.singletonList(this.java), new ArrayList<>(since(asOf).getData()),
+        "Missed change");
+  }
+
+  /**
+   * Test if shards without changes do not hold back the timestamp of merged deltas.
+   */
+  @Test
+  public void testQuietShard() throws QueryException {
+    final IndexedQueryable<TestResource> empty =
+        new IndexedQueryable<>(this.time::get, TestResource.class);
+    final ShardedQueryable<TestResource> sharded = new ShardedQueryable<>(TestResource.class,
+        Runnable::run, Arrays.asList(this.queryable, empty));
+
+    this.time.set(5000);
+    final MultivaluedMap<String, String> params = new MultivaluedHashMap<>();
+    params.add("since", "0");
+    final QueryResult<TestResource> result = sharded.query(Query.fromParameterMap(params));
+    assertEquals(2, result.getN(), "Wrong amount of changes");
+    assertEquals(5000, result.getDelta().getTimestamp(), "Wrong next timestamp");
+  }
+
+  /**
+   * Test if deltas older than the tombstone retention are rejected.
+   */
+  @Test
+  public void testRetention() throws QueryException {
+    this.queryable.setTombstoneRetention(1, TimeUnit.SECONDS);
+    this.queryable.remove(this.python);
+    this.time.set(10_000);
+    this.queryable.remove(this.java);
+
+    assertThrows(InvalidQueryException.class, () -> since(0));
+    assertEquals(Collections.singletonList("1"), since(9000).getDelta().getRemoved(),
+        "Wrong removals");
+  }
+
+}
@@ -0,0 +1,58 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Collections;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link EntityTags}.
+ */
+public class EntityTagsTest {
+
+  private static Query<TestResource> page(int number) {
+    final MultivaluedMap<String, String> params = new MultivaluedHashMap<>();
+    params.add("page[size]", "5");
+    params.add("page[number]", String.valueOf(number));
+    return Query.fromParameterMap(params);
+  }
+
+  private static QueryResult<TestResource> result(Query<TestResource> query, String version) {
+    return new QueryResult<>(query, Collections.emptyList(), 0).setVersion(version);
+  }
+
+  /**
+   * Test if tags depend on both the version and the query.
+   */
+  @Test
+  public void testVersionTags() {
+    assertEquals(EntityTags.ofVersion(result(page(0), "1")),
+        EntityTags.ofVersion(result(page(0), "1")), "Equal results have different tags");
+    assertNotEquals(EntityTags.ofVersion(result(page(0), "1")),
+        EntityTags.ofVersion(result(page(1), "1")), "Different pages have equal tags");
+    assertNotEquals(EntityTags.ofVersion(result(page(0), "1")),
+        EntityTags.ofVersion(result(page(0), "2")), "Different versions have equal tags");
+    assertNull(EntityTags.ofVersion(result(page(0), null)), "Tag without version");
+  }
+
+  /**
+   * Test if the version of an indexed queryable changes with modifications only.
+   */
+  @Test
+  public void testIndexedQueryableVersion() throws QueryException {
+    final IndexedQueryable<TestResource> queryable = new IndexedQueryable<>(TestResource.class);
+    final TestResource resource = new TestResource("1", "app", "Java", 1, true);
+    queryable.add(resource);
+
+    final String version = queryable.query(page(0)).getVersion();
+    assertEquals(version, queryable.query(page(0)).getVersion(), "Version changed");
+
+    queryable.remove(resource);
+    assertNotEquals(version, queryable.query(page(0)).getVersion(), "Version did not change");
+  }
+
+}
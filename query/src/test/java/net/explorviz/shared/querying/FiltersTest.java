@@ -0,0 +1,128 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.function.Predicate;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link Filters} and {@link ResourceAttributes}.
+ */
+public class FiltersTest {
+
+  private MultivaluedMap<String, String> params;
+  private TestResource java;
+  private TestResource python;
+
+  @BeforeEach
+  public void setUp() {
+    this.params = new MultivaluedHashMap<>();
+    this.java = new TestResource("1", "kiekerSampleApp", "Java", 42, true);
+    this.python = new TestResource("2", "flask", "Python", 43, false);
+    this.python.setParent(this.java);
+  }
+
+  /**
+   * Test if attributes are resolved by their JSON:API names.
+   */
+  @Test
+  public void testAttributeNames() {
+    final ResourceAttributes attributes = ResourceAttributes.of(TestResource.class);
+
+    assertEquals("Java", attributes.get("programming-language").get(this.java));
+    assertEquals(42L, attributes.get("pid").get(this.java));
+    assertEquals("1", attributes.get("id").get(this.java));
+    assertEquals("1", attributes.get("parent").get(this.python), "Relationship is not the id");
+    assertEquals(null, attributes.get("secret"), "Ignored attribute is accessible");
+  }
+
+  /**
+   * Test if filters of different types are applied.
+   */
+  @Test
+  public void testFilter() throws QueryException {
+    this.params.add("filter[programming-language]", "Java");
+    this.params.add("filter[monitored-flag]", "true");
+    this.params.add("filter[pid]", "42");
+
+    final Predicate<TestResource> predicate =
+        Filters.compile(Query.fromParameterMap(this.params), TestResource.class);
+
+    assertTrue(predicate.test(this.java), "Matching resource rejected");
+    assertFalse(predicate.test(this.python), "Non-matching resource accepted");
+  }
+
+  /**
+   * Test if filtering by a relationship compares the id of the related resource.
+   */
+  @Test
+  public void testRelationshipFilter() throws QueryException {
+    this.params.add("filter[parent]", "1");
+
+    final Predicate<TestResource> predicate =
+        Filters.compile(Query.fromParameterMap(this.params), TestResource.class);
+
+    assertTrue(predicate.test(this.python), "Matching resource rejected");
+    assertFalse(predicate.test(this.java), "Resource without parent accepted");
+  }
+
+  /**
+   * Test if invalid filters are rejected.
+   */
+  @Test
+  public void testInvalidFilters() {
+    this.params.add("filter[unknown]", "1");
+    assertThrows(InvalidQueryException.class,
+        () -> Filters.compile(Query.fromParameterMap(this.params), TestResource.class));
+
+    this.params.clear();
+    this.params.add("filter[pid]", "abc");
+    assertThrows(InvalidQueryException.class,
+        () -> Filters.compile(Query.fromParameterMap(this.params), TestResource.class));
+  }
+
+  /**
+   * Test if substring filters are applied to text attributes only.
+   */
+  @Test
+  public void testContainsFilter() throws QueryException {
+    this.params.add("filter[name][contains]", "Sample");
+
+    final Predicate<TestResource> predicate =
+        Filters.compile(Query.fromParameterMap(this.params), TestResource.class);
+
+    assertTrue(predicate.test(this.java), "Matching resource rejected");
+    assertFalse(predicate.test(this.python), "Non-matching resource accepted");
+
+    this.params.clear();
+    this.params.add("filter[pid][contains]", "4");
+    assertThrows(InvalidQueryException.class,
+        () -> Filters.compile(Query.fromParameterMap(this.params), TestResource.class));
+  }
+
+  /**
+   * Test if range filters compare numerically and respect inclusiveness.
+   */
+  @Test
+  public void testRangeFilters() throws QueryException {
+    this.params.add("filter[pid][gte]", "42");
+    this.params.add("filter[pid][lt]", "43");
+
+    final Predicate<TestResource> predicate =
+        Filters.compile(Query.fromParameterMap(this.params), TestResource.class);
+
+    assertTrue(predicate.test(this.java), "Resource at the lower bound rejected");
+    assertFalse(predicate.test(this.python), "Resource at the exclusive upper bound accepted");
+
+    this.params.clear();
+    this.params.add("filter[pid][gt]", "9");
+    assertTrue(Filters.compile(Query.fromParameterMap(this.params), TestResource.class)
+        .test(this.java), "Values are not compared numerically");
+  }
+}
@@ -0,0 +1,253 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link IndexedQueryable}.
+ */
+public class IndexedQueryableTest {
+
+  private IndexedQueryable<TestResource> queryable;
+  private MultivaluedMap<String, String> params;
+  private List<TestResource> resources;
+
+  @BeforeEach
+  public void setUp() {
+    this.queryable =
+        new IndexedQueryable<>(TestResource.class, "programming-language", "monitored-flag");
+    this.params = new MultivaluedHashMap<>();
+    this.resources = new ArrayList<>();
+
+    for (int i = 0; i < 10; i++) {
+      final String language = i % 2 == 0 ? "Java" : "Python";
+      this.resources.add(new TestResource(String.valueOf(i), "app" + i, language, i, i < 5));
+    }
+    this.queryable.addAll(this.resources);
+  }
+
+  private List<TestResource> query() throws QueryException {
+    return new ArrayList<>(
+        this.queryable.query(Query.fromParameterMap(this.params)).getData());
+  }
+
+  /**
+   * Test if filters on indexed attributes are answered in insertion order.
+   */
+  @Test
+  public void testIndexedFilters() throws QueryException {
+    this.params.add("filter[programming-language]", "Java");
+    this.params.add("filter[monitored-flag]", "true");
+
+    assertEquals(
+        Arrays.asList(this.resources.get(0), this.resources.get(2), this.resources.get(4)),
+        query());
+  }
+
+  /**
+   * Test if filters on indexed and non-indexed attributes are combined.
+   */
+  @Test
+  public void testResidualFilters() throws QueryException {
+    this.params.add("filter[programming-language]", "Python");
+    this.params.add("filter[name]", "app7");
+
+    assertEquals(Arrays.asList(this.resources.get(7)), query());
+  }
+
+  /**
+   * Test if removed resources are removed from the indexes.
+   */
+  @Test
+  public void testRemove() throws QueryException {
+    this.params.add("filter[programming-language]", "Java");
+    this.queryable.remove(this.resources.get(0));
+    this.queryable.remove(this.resources.get(2));
+    this.queryable.remove(this.resources.get(4));
+    this.queryable.remove(this.resources.get(6));
+
+    assertEquals(Arrays.asList(this.resources.get(8)), query());
+  }
+
+  /**
+   * Test if results are paginated and the total counts all matches.
+   */
+  @Test
+  public void testPagination() throws QueryException {
+    this.params.add("filter[programming-language]", "Python");
+    this.params.add("page[number]", "1");
+    this.params.add("page[size]", "2");
+
+    final QueryResult<TestResource> result =
+        this.queryable.query(Query.fromParameterMap(this.params));
+
+    assertEquals(Arrays.asList(this.resources.get(5), this.resources.get(7)),
+        new ArrayList<>(result.getData()));
+    assertEquals(5, result.getTotal().getValue(), "Wrong total");
+  }
+
+  /**
+   * Test if sorted queries are paginated w.r.t. the sort order.
+   */
+  @Test
+  public void testSortedPagination() throws QueryException {
+    this.params.add("filter[monitored-flag]", "false");
+    this.params.add("sort", "-pid");
+    this.params.add("page[number]", "1");
+    this.params.add("page[size]", "2");
+
+    final QueryResult<TestResource> result =
+        this.queryable.query(Query.fromParameterMap(this.params));
+
+    assertEquals(Arrays.asList(this.resources.get(7), this.resources.get(6)),
+        new ArrayList<>(result.getData()));
+    assertEquals(5, result.getTotal().getValue(), "Wrong total");
+  }
+
+  /**
+   * Test if a sorted page far beyond the matches is empty and still counts all matches.
+   */
+  @Test
+  public void testSortedPageBeyondMatches() throws QueryException {
+    this.params.add("filter[monitored-flag]", "false");
+    this.params.add("sort", "-pid");
+    this.params.add("page[number]", "1000000000");
+    this.params.add("page[size]", "100");
+
+    final QueryResult<TestResource> result =
+        this.queryable.query(Query.fromParameterMap(this.params));
+
+    assertEquals(0, result.getN());
+    assertEquals(5, result.getTotal().getValue(), "Wrong total");
+  }
+
+  /**
+   * Test if substring filters are answered by the trigram index, combined with other filters.
+   */
+  @Test
+  public void testSubstringIndex() throws QueryException {
+    this.queryable.indexSubstrings("name");
+    this.params.add("filter[name][contains]", "pp3");
+    assertEquals(Arrays.asList(this.resources.get(3)), query());
+
+    final TestResource added = new TestResource("13", "app13", "Python", 13, false);
+    this.queryable.add(added);
+    this.params.putSingle("filter[name][contains]", "app1");
+    this.params.add("filter[programming-language]", "Python");
+    assertEquals(Arrays.asList(this.resources.get(1), added), query());
+
+    this.queryable.remove(this.resources.get(1));
+    assertEquals(Arrays.asList(added), query());
+  }
+
+  /**
+   * Test if range filters are answered by the sorted index, combined with other filters.
+   */
+  @Test
+  public void testRangeIndex() throws QueryException {
+    this.queryable.indexRanges("pid");
+    this.params.add("filter[pid][gt]", "2");
+    this.params.add("filter[pid][lte]", "6");
+    this.params.add("filter[pid][lt]", "8");
+    this.params.add("filter[programming-language]", "Java");
+    assertEquals(Arrays.asList(this.resources.get(4), this.resources.get(6)), query());
+
+    final TestResource updated = this.resources.get(0);
+    updated.setPid(5);
+    this.queryable.reindex(updated);
+    assertEquals(Arrays.asList(updated, this.resources.get(4), this.resources.get(6)), query());
+
+    this.params.putSingle("filter[pid][gt]", "6");
+    assertEquals(Arrays.asList(), query());
+  }
+
+  /**
+   * Test if all matches are visited page by page with cursors, unsorted in insertion order.
+   */
+  @Test
+  public void testCursorPagination() throws QueryException {
+    this.params.add("page[size]", "2");
+    assertEquals(this.resources, walk(""));
+
+    this.params.add("filter[programming-language]", "Python");
+    assertEquals(Arrays.asList(this.resources.get(1), this.resources.get(3),
+        this.resources.get(5), this.resources.get(7), this.resources.get(9)), walk(""));
+  }
+
+  /**
+   * Test if sorted pages continue behind the last resource w.r.t. the sort order, also if it ties
+   * with others.
+   */
+  @Test
+  public void testSortedCursorPagination() throws QueryException {
+    this.params.add("sort", "programming-language,-pid");
+    this.params.add("page[size]", "3");
+
+    final List<TestResource> expected = new ArrayList<>();
+    for (final int i : new int[] {8, 6, 4, 2, 0, 9, 7, 5, 3, 1}) {
+      expected.add(this.resources.get(i));
+    }
+    assertEquals(expected, walk(""));
+
+    this.params.putSingle("sort", "monitored-flag");
+    final List<TestResource> byFlag = new ArrayList<>(this.resources.subList(5, 10));
+    byFlag.addAll(this.resources.subList(0, 5));
+    assertEquals(byFlag, walk(""));
+
+    this.params.add("aggregate[count]", "programming-language");
+    final QueryResult<TestResource> result = query("");
+    assertEquals(10, result.getTotal().getValue(), "Wrong total");
+    assertEquals(Long.valueOf(5),
+        result.getAggregations().getCounts().get("programming-language").get("Java"));
+  }
+
+  /**
+   * Test if unsorted cursors survive the removal of the last resource of their page, while sorted
+   * ones are rejected.
+   */
+  @Test
+  public void testCursorOfRemovedResource() throws QueryException {
+    this.params.add("page[size]", "2");
+    final String cursor = query("").getNextCursor();
+    this.queryable.remove(this.resources.get(1));
+    assertEquals(Arrays.asList(this.resources.get(2), this.resources.get(3)),
+        new ArrayList<>(query(cursor).getData()));
+
+    this.params.add("sort", "pid");
+    final String sortedCursor = query("").getNextCursor();
+    this.queryable.remove(this.resources.get(2));
+    assertThrows(InvalidQueryException.class, () -> query(sortedCursor));
+    assertThrows(InvalidQueryException.class, () -> query("invalid"));
+  }
+
+  private QueryResult<TestResource> query(final String cursor) throws QueryException {
+    this.params.putSingle("page[after]", cursor);
+    return this.queryable.query(Query.fromParameterMap(this.params));
+  }
+
+  /**
+   * Follows the next cursors starting with the given one and returns the resources of all pages.
+   */
+  private List<TestResource> walk(final String cursor) throws QueryException {
+    final int pageSize = Integer.parseInt(this.params.getFirst("page[size]"));
+    final List<TestResource> visited = new ArrayList<>();
+    String next = cursor;
+    while (next != null) {
+      final QueryResult<TestResource> page = query(next);
+      assertTrue(page.getN() <= pageSize, "Page too large");
+      visited.addAll(page.getData());
+      next = page.getNextCursor();
+    }
+    return visited;
+  }
+
+}
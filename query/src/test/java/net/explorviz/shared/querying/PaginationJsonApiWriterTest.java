@@ -0,0 +1,222 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jasminb.jsonapi.ResourceConverter;
+import com.github.jasminb.jsonapi.SerializationFeature;
+import com.github.jasminb.jsonapi.annotations.Id;
+import com.github.jasminb.jsonapi.annotations.Type;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.util.Arrays;
+import javax.inject.Provider;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the documents written by {@link PaginationJsonApiWriter}.
+ */
+public class PaginationJsonApiWriterTest {
+
+  /**
+   * Test if resources are written as data and their relationships are included only once.
+   */
+  @Test
+  public void testIncluded() throws IOException {
+    final TestResource parent = new TestResource("0", "parent", "Java", 0, true);
+    final TestResource child1 = new TestResource("1", "child1", "Java", 1, true);
+    final TestResource child2 = new TestResource("2", "child2", "Java", 2, true);
+    child1.setParent(parent);
+    child2.setParent(parent);
+    final QueryResult<TestResource> result = new QueryResult<>(
+        Query.fromParameterMap(new MultivaluedHashMap<>()), Arrays.asList(child1, child2), 2);
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new PaginationJsonApiWriter<TestResource>(includingConverter())
+        .writeDocument(result, TestResource.class, out);
+    final JsonNode document = new ObjectMapper().readTree(out.toByteArray());
+
+    assertEquals(2, document.path("data").size());
+    assertEquals("1", document.path("data").path(0).path("id").asText());
+    assertEquals("child1", document.path("data").path(0).path("attributes").path("name").asText());
+    assertEquals("0", document.path("data").path(1).path("relationships").path("parent")
+        .path("data").path("id").asText());
+    assertEquals(1, document.path("included").size());
+    assertEquals("parent",
+        document.path("included").path(0).path("attributes").path("name").asText());
+  }
+
+  /**
+   * Test if included resources that are also primary resources are not included again.
+   */
+  @Test
+  public void testPrimaryNotIncluded() throws IOException {
+    final TestResource parent = new TestResource("0", "parent", "Java", 0, true);
+    final TestResource child = new TestResource("1", "child", "Java", 1, true);
+    child.setParent(parent);
+    final QueryResult<TestResource> result = new QueryResult<>(
+        Query.fromParameterMap(new MultivaluedHashMap<>()), Arrays.asList(child, parent), 2);
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new PaginationJsonApiWriter<TestResource>(includingConverter())
+        .writeDocument(result, TestResource.class, out);
+    final JsonNode document = new ObjectMapper().readTree(out.toByteArray());
+
+    assertEquals(2, document.path("data").size());
+    assertTrue(document.path("included").isMissingNode());
+  }
+
+  /**
+   * Test if the document fails as a whole if a resource can not be serialized.
+   */
+  @Test
+  public void testSerializationFailure() {
+    final QueryResult<Unserializable> result =
+        new QueryResult<>(Query.fromParameterMap(new MultivaluedHashMap<>()),
+            Arrays.asList(new Unserializable()), 1);
+
+    assertThrows(IOException.class,
+        () -> new PaginationJsonApiWriter<Unserializable>(
+            new ResourceConverter(Unserializable.class)).writeDocument(result,
+                Unserializable.class, new ByteArrayOutputStream()));
+  }
+
+  /**
+   * Test if conditional requests for versioned results are answered before the result is written.
+   */
+  @Test
+  public void testNotModified() {
+    final QueryResult<TestResource> result = new QueryResult<>(
+        Query.fromParameterMap(new MultivaluedHashMap<>()), Arrays.<TestResource>asList(), 0)
+        .setVersion("1");
+    final EntityTag entityTag = EntityTags.ofVersion(result);
+    final PaginationJsonApiWriter<TestResource> writer =
+        new PaginationJsonApiWriter<>(new ResourceConverter(TestResource.class));
+
+    final ContainerRequest request = request("GET");
+    ContainerResponse response = new ContainerResponse(request, Response.ok(result).build());
+    writer.filter(request, response);
+    assertEquals(200, response.getStatus());
+    assertEquals(entityTag, response.getEntityTag());
+
+    request.header(HttpHeaders.IF_NONE_MATCH, entityTag.toString());
+    response = new ContainerResponse(request, Response.ok(result).build());
+    writer.filter(request, response);
+    assertEquals(304, response.getStatus());
+    assertEquals(entityTag, response.getEntityTag());
+    assertFalse(response.hasEntity());
+  }
+
+  /**
+   * Test if only successful responses to {@code GET} and {@code HEAD} requests are tagged.
+   */
+  @Test
+  public void testNotConditional() {
+    final QueryResult<TestResource> result = new QueryResult<>(
+        Query.fromParameterMap(new MultivaluedHashMap<>()), Arrays.<TestResource>asList(), 0)
+        .setVersion("1");
+    final EntityTag entityTag = EntityTags.ofVersion(result);
+    final PaginationJsonApiWriter<TestResource> writer =
+        new PaginationJsonApiWriter<>(new ResourceConverter(TestResource.class));
+
+    final ContainerRequest request = request("POST");
+    request.header(HttpHeaders.IF_NONE_MATCH, entityTag.toString());
+    ContainerResponse response = new ContainerResponse(request, Response.ok(result).build());
+    writer.filter(request, response);
+    assertEquals(200, response.getStatus());
+    assertNull(response.getEntityTag(), "Response to POST tagged");
+
+    final ContainerRequest head = request("HEAD");
+    head.header(HttpHeaders.IF_NONE_MATCH, entityTag.toString());
+    response = new ContainerResponse(head, Response.status(201).entity(result).build());
+    writer.filter(head, response);
+    assertEquals(201, response.getStatus());
+    assertNull(response.getEntityTag(), "Response with status 201 tagged");
+  }
+
+  /**
+   * Test if unversioned results are only tagged by content if the resource opted in.
+   */
+  @Test
+  public void testContentEntityTag() throws IOException, ReflectiveOperationException {
+    final QueryResult<TestResource> result = new QueryResult<>(
+        Query.fromParameterMap(new MultivaluedHashMap<>()), Arrays.<TestResource>asList(), 0);
+    final PaginationJsonApiWriter<TestResource> writer =
+        new PaginationJsonApiWriter<>(new ResourceConverter(TestResource.class));
+
+    final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+    writer.writeTo(result, QueryResult.class, QueryResult.class, new Annotation[0], null, headers,
+        new ByteArrayOutputStream());
+    assertNull(headers.getFirst(HttpHeaders.ETAG), "Streamed response tagged");
+
+    final Annotation[] annotations = getClass().getDeclaredMethod("tagged").getAnnotations();
+    writer.writeTo(result, QueryResult.class, QueryResult.class, annotations, null, headers,
+        new ByteArrayOutputStream());
+    assertNull(headers.getFirst(HttpHeaders.ETAG), "Response to unmarked request tagged");
+
+    final ContainerRequest request = request("GET");
+    final Field containerRequest =
+        PaginationJsonApiWriter.class.getDeclaredField("containerRequest");
+    containerRequest.setAccessible(true);
+    containerRequest.set(writer, (Provider<ContainerRequestContext>) () -> request);
+    writer.filter(request, new ContainerResponse(request, Response.ok(result).build()));
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writer.writeTo(result, QueryResult.class, QueryResult.class, annotations, null, headers, out);
+    assertEquals(EntityTags.ofContent(out.toByteArray()), headers.getFirst(HttpHeaders.ETAG));
+  }
+
+  @ContentEntityTag
+  private void tagged() {
+    // Only carries the annotation
+  }
+
+  private static ContainerRequest request(final String method) {
+    return new ContainerRequest(URI.create("http://localhost/"),
+        URI.create("http://localhost/resources"), method, null, new MapPropertiesDelegate());
+  }
+
+  private static ResourceConverter includingConverter() {
+    final ResourceConverter converter = new ResourceConverter(TestResource.class);
+    converter.enableSerializationOption(SerializationFeature.INCLUDE_RELATIONSHIP_ATTRIBUTES);
+    return converter;
+  }
+
+  /**
+   * Resource with an attribute that Jackson can not serialize.
+   */
+  @Type("unserializable")
+  public static class Unserializable {
+
+    @Id
+    private final String id = "0";
+
+    private final Object value = new Object();
+
+    public String getId() {
+      return this.id;
+    }
+
+    public Object getValue() {
+      return this.value;
+    }
+  }
+
+}
@@ -0,0 +1,118 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.UriInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link PaginationParameterFilter}.
+ */
+public class PaginationParameterFilterTest {
+
+  private MultivaluedMap<String, String> params;
+  private Map<String, Object> properties;
+  private ContainerRequestContext requestContext;
+
+  @BeforeEach
+  public void setUp() {
+    this.params = new MultivaluedHashMap<>();
+    this.properties = new HashMap<>();
+
+    final UriInfo uriInfo = (UriInfo) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {UriInfo.class}, (proxy, method, args) -> this.params);
+    this.requestContext = (ContainerRequestContext) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[] {ContainerRequestContext.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getUriInfo":
+              return uriInfo;
+            case "getProperty":
+              return this.properties.get(args[0]);
+            case "setProperty":
+              return this.properties.put((String) args[0], args[1]);
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  /**
+   * Test if the parsed query is stored in the request and reused.
+   */
+  @Test
+  public void testStoresQuery() throws IOException {
+    this.params.add("page[number]", "2");
+    this.params.add("page[size]", "10");
+
+    new PaginationParameterFilter().filter(this.requestContext);
+    final Query<Object> query = Query.fromRequest(this.requestContext);
+
+    assertEquals(2, query.getPageNumber(), "Wrong page number");
+    assertEquals(10, query.getPageSize(), "Wrong page size");
+    assertSame(query, Query.fromRequest(this.requestContext), "Query was parsed again");
+  }
+
+  /**
+   * Test if the configured maximum page size is enforced.
+   */
+  @Test
+  public void testMaxPageSize() throws IOException {
+    this.params.add("page[number]", "0");
+    this.params.add("page[size]", "20");
+
+    new PaginationParameterFilter(20).filter(this.requestContext);
+    assertThrows(BadRequestException.class,
+        () -> new PaginationParameterFilter(10).filter(this.requestContext));
+  }
+
+  /**
+   * Test if invalid parameters are rejected.
+   */
+  @Test
+  public void testInvalidParameters() {
+    this.params.add("page[number]", "x");
+    this.params.add("page[size]", "10");
+
+    assertThrows(BadRequestException.class,
+        () -> new PaginationParameterFilter().filter(this.requestContext));
+  }
+
+  /**
+   * Test if filters with unknown operators are rejected.
+   */
+  @Test
+  public void testUnknownOperator() {
+    this.params.add("filter[name][like]", "x");
+    this.params.add("page[number]", "0");
+    this.params.add("page[size]", "10");
+
+    assertThrows(BadRequestException.class,
+        () -> new PaginationParameterFilter().filter(this.requestContext));
+  }
+
+  /**
+   * Test if requests without pagination parameters are not parsed by the filter, but rejected on
+   * first use of their query if malformed.
+   */
+  @Test
+  public void testUnpaginated() throws IOException {
+    this.params.add("filter[name][like]", "x");
+
+    new PaginationParameterFilter().filter(this.requestContext);
+    assertNull(this.properties.get(Query.REQUEST_PROPERTY), "Unpaginated request was parsed");
+    assertThrows(BadRequestException.class, () -> Query.fromRequest(this.requestContext));
+  }
+}
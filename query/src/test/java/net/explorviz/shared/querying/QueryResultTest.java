@@ -0,0 +1,109 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the pagination metadata of {@link QueryResult}.
+ */
+public class QueryResultTest {
+
+  private Query<Integer> query;
+  private List<Integer> page;
+
+  @BeforeEach
+  public void setUp() {
+    final MultivaluedMap<String, String> params = new MultivaluedHashMap<>();
+    params.add("page[number]", "1");
+    params.add("page[size]", "3");
+    this.query = Query.fromParameterMap(params);
+    this.page = Arrays.asList(4, 5, 6);
+  }
+
+  /**
+   * Test if the pages are derived from an exact total.
+   */
+  @Test
+  public void testExactTotal() {
+    final QueryResult<Integer> result = new QueryResult<>(this.query, this.page, 10);
+
+    assertEquals(Integer.valueOf(3), result.getLastPage(), "Wrong last page");
+    assertEquals(Integer.valueOf(2), result.getNextPage(), "Wrong next page");
+    assertEquals(Integer.valueOf(0), result.getPreviousPage(), "Wrong previous page");
+  }
+
+  /**
+   * Test if there is no last page but still a next page if the total is unknown.
+   */
+  @Test
+  public void testUnknownTotal() {
+    final QueryResult<Integer> result = new QueryResult<>(this.query, this.page, Total.unknown());
+
+    assertNull(result.getLastPage(), "Last page given for unknown total");
+    assertEquals(Integer.valueOf(2), result.getNextPage(), "Wrong next page");
+  }
+
+  /**
+   * Test if a lazy total is computed only once and only if needed.
+   */
+  @Test
+  public void testLazyTotal() {
+    final AtomicInteger calls = new AtomicInteger();
+    final Total total = Total.lazy(() -> {
+      calls.incrementAndGet();
+      return 6;
+    });
+    final QueryResult<Integer> result =
+        new QueryResult<>(Query.fromParameterMap(new MultivaluedHashMap<>()), this.page, total);
+
+    assertNull(result.getNextPage(), "Next page given without pagination");
+    assertNull(result.getLastPage(), "Last page given without pagination");
+    assertFalse(total.isResolved(), "Total computed without need");
+
+    final QueryResult<Integer> paginated = new QueryResult<>(this.query, this.page, total);
+    assertEquals(Integer.valueOf(1), paginated.getLastPage(), "Wrong last page");
+    assertEquals(Integer.valueOf(1), paginated.getLastPage(), "Wrong last page");
+    assertTrue(total.isResolved(), "Total not computed");
+    assertEquals(1, calls.get(), "Total computed more than once");
+  }
+
+  /**
+   * Test if the next page of a full last page agrees with a lazy total, regardless of whether the
+   * last page was requested before.
+   */
+  @Test
+  public void testLazyTotalNextPage() {
+    final QueryResult<Integer> result =
+        new QueryResult<>(this.query, this.page, Total.lazy(() -> 6));
+
+    assertNull(result.getNextPage(), "Next page given for last page");
+    assertEquals(Integer.valueOf(1), result.getLastPage(), "Wrong last page");
+  }
+
+  /**
+   * Test if cursor-based results carry their cursor and an unknown total.
+   */
+  @Test
+  public void testCursor() {
+    final MultivaluedMap<String, String> params = new MultivaluedHashMap<>();
+    params.add("page[after]", "");
+    params.add("page[size]", "3");
+    final QueryResult<Integer> result =
+        QueryResult.withCursor(Query.fromParameterMap(params), this.page, "next");
+
+    assertEquals("next", result.getNextCursor(), "Wrong next cursor");
+    assertFalse(result.getTotal().isAvailable(), "Total given without need");
+    assertNull(result.getNextPage(), "Next page given for cursor-based pagination");
+  }
+
+}
@@ -0,0 +1,168 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jasminb.jsonapi.ResourceConverter;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link QuerySubscriptions}.
+ */
+public class QuerySubscriptionsTest {
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private IndexedQueryable<TestResource> queryable;
+  private QuerySubscriptions<TestResource> subscriptions;
+  private MultivaluedMap<String, String> params;
+
+  private List<OutboundSseEvent> events;
+  private boolean closed;
+  private SseEventSink sink;
+  private Sse sse;
+
+  @BeforeEach
+  public void setUp() {
+    this.queryable = new IndexedQueryable<>(TestResource.class, "programming-language");
+    this.queryable.add(new TestResource("1", "app1", "Java", 1, true));
+    this.queryable.add(new TestResource("2", "app2", "Python", 2, true));
+
+    final ResourceConverter converter = new ResourceConverter(TestResource.class);
+    // Dispatch on the modifying thread
+    this.subscriptions =
+        new QuerySubscriptions<>(this.queryable, TestResource.class, converter, Runnable::run);
+    this.params = new MultivaluedHashMap<>();
+
+    this.events = new ArrayList<>();
+    this.sink = (SseEventSink) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {SseEventSink.class}, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "send":
+              this.events.add((OutboundSseEvent) args[0]);
+              return CompletableFuture.completedFuture(null);
+            case "isClosed":
+              return this.closed;
+            case "close":
+              this.closed = true;
+              return null;
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+    this.sse = (Sse) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {Sse.class}, (proxy, method, args) -> newEventBuilder());
+  }
+
+  /**
+   * Builder of events that exposes the name, id and data passed to it.
+   */
+  private Object newEventBuilder() {
+    final Map<String, Object> values = new HashMap<>();
+    return Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {OutboundSseEvent.Builder.class}, (builder, method, args) -> {
+          if ("build".equals(method.getName())) {
+            return Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {OutboundSseEvent.class},
+                (event, getter, none) -> values.get(getter.getName()));
+          }
+          final String getter = "data".equals(method.getName()) ? "getData"
+              : "get" + Character.toUpperCase(method.getName().charAt(0))
+                  + method.getName().substring(1);
+          values.put(getter, args[args.length - 1]);
+          return builder;
+        });
+  }
+
+  private JsonNode data(int event) throws IOException {
+    return this.mapper.readTree((String) this.events.get(event).getData());
+  }
+
+  /**
+   * Test if the initial result is sent, followed by updates of matching resources.
+   */
+  @Test
+  public void testUpdates() throws QueryException, IOException {
+    this.params.add("filter[programming-language]", "Java");
+    this.subscriptions.subscribe(Query.fromParameterMap(this.params), this.sink, this.sse);
+
+    assertEquals(1, this.events.size());
+    assertEquals(QuerySubscriptions.EVENT_RESULT, this.events.get(0).getName());
+    assertNull(this.events.get(0).getId());
+    assertEquals("1", data(0).path("data").path(0).path("id").asText());
+
+    final TestResource added = new TestResource("3", "app3", "Java", 3, false);
+    this.queryable.add(added);
+    assertEquals(2, this.events.size());
+    assertEquals(QuerySubscriptions.EVENT_UPDATE, this.events.get(1).getName());
+    assertEquals("3", data(1).path("data").path(0).path("id").asText());
+    assertEquals(0, data(1).path("meta").path("delta").path("removed").size());
+
+    // Resources that do not match anymore are removed
+    added.setProgrammingLanguage("Python");
+    this.queryable.reindex(added);
+    assertEquals(3, this.events.size());
+    assertEquals(0, data(2).path("data").size());
+    assertEquals("3", data(2).path("meta").path("delta").path("removed").path(0).asText());
+    assertEquals(data(2).path("meta").path("delta").path("timestamp").asText(),
+        this.events.get(2).getId());
+  }
+
+  /**
+   * Test if removed resources are announced by id.
+   */
+  @Test
+  public void testRemoval() throws QueryException, IOException {
+    final TestResource resource = new TestResource("3", "app3", "Java", 3, false);
+    this.queryable.add(resource);
+    this.subscriptions.subscribe(Query.fromParameterMap(this.params), this.sink, this.sse);
+
+    this.queryable.remove(resource);
+    assertEquals(2, this.events.size());
+    assertEquals("3", data(1).path("meta").path("delta").path("removed").path(0).asText());
+  }
+
+  /**
+   * Test if subscriptions of disconnected clients are dropped.
+   */
+  @Test
+  public void testDisconnect() throws QueryException {
+    this.subscriptions.subscribe(Query.fromParameterMap(this.params), this.sink, this.sse);
+    assertEquals(1, this.subscriptions.getSubscriptionCount());
+
+    this.closed = true;
+    this.queryable.add(new TestResource("3", "app3", "Java", 3, false));
+    assertEquals(0, this.subscriptions.getSubscriptionCount());
+    assertEquals(1, this.events.size());
+  }
+
+  /**
+   * Test if closing ends all subscriptions.
+   */
+  @Test
+  public void testClose() throws QueryException {
+    this.subscriptions.subscribe(Query.fromParameterMap(this.params), this.sink, this.sse);
+    this.subscriptions.close();
+
+    assertTrue(this.closed);
+    this.queryable.add(new TestResource("3", "app3", "Java", 3, false));
+    assertEquals(1, this.events.size());
+  }
+
+}
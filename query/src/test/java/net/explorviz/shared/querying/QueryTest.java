@@ -0,0 +1,161 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Locale;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link Query#fromParameterMap(MultivaluedMap)}.
+ */
+public class QueryTest {
+
+  private MultivaluedMap<String, String> params;
+
+  @BeforeEach
+  public void setUp() {
+    this.params = new MultivaluedHashMap<>();
+  }
+
+  /**
+   * Test if page number and size are parsed for page-based pagination.
+   */
+  @Test
+  public void testPageBasedPagination() {
+    this.params.add("page[number]", "2");
+    this.params.add("page[size]", "10");
+
+    final Query<Object> query = Query.fromParameterMap(this.params);
+
+    assertTrue(query.doPaginate(), "Query is not paginated");
+    assertFalse(query.doCursorPaginate(), "Query is cursor paginated");
+    assertEquals(2, query.getPageNumber(), "Wrong page number");
+    assertEquals(10, query.getPageSize(), "Wrong page size");
+  }
+
+  /**
+   * Test if the cursor is parsed for cursor-based pagination.
+   */
+  @Test
+  public void testCursorBasedPagination() {
+    final String cursor = PageCursor.encode("42");
+    this.params.add("page[after]", cursor);
+    this.params.add("page[size]", "10");
+
+    final Query<Object> query = Query.fromParameterMap(this.params);
+
+    assertTrue(query.doCursorPaginate(), "Query is not cursor paginated");
+    assertFalse(query.doPaginate(), "Query is page paginated");
+    assertEquals(cursor, query.getCursor(), "Wrong cursor");
+    assertEquals("42", PageCursor.decode(query.getCursor()), "Wrong decoded cursor");
+  }
+
+  /**
+   * Test if a query without parameters is neither paginated nor filtered.
+   */
+  @Test
+  public void testNoParameters() {
+    final Query<Object> query = Query.fromParameterMap(this.params);
+
+    assertFalse(query.doPaginate(), "Query is paginated");
+    assertFalse(query.doCursorPaginate(), "Query is cursor paginated");
+    assertFalse(query.doFilter(), "Query is filtered");
+    assertNull(query.getCursor(), "Cursor is set");
+  }
+
+  /**
+   * Test if the sort parameter is parsed into sort fields.
+   */
+  @Test
+  public void testSort() {
+    this.params.add("sort", "-last-discovery-time,name");
+
+    final Query<Object> query = Query.fromParameterMap(this.params);
+
+    assertTrue(query.doSort(), "Query is not sorted");
+    assertEquals(2, query.getSort().size(), "Wrong amount of sort fields");
+    assertEquals("last-discovery-time", query.getSort().get(0).getAttribute());
+    assertTrue(query.getSort().get(0).isDescending(), "First field is not descending");
+    assertEquals("name", query.getSort().get(1).getAttribute());
+    assertFalse(query.getSort().get(1).isDescending(), "Second field is descending");
+  }
+
+  /**
+   * Test if sort fields are lower-cased independent of the default locale.
+   */
+  @Test
+  public void testSortLocale() {
+    final Locale defaultLocale = Locale.getDefault();
+    Locale.setDefault(new Locale("tr", "TR"));
+    try {
+      this.params.add("sort", "-PID,NAME");
+
+      final Query<Object> query = Query.fromParameterMap(this.params);
+
+      assertEquals("pid", query.getSort().get(0).getAttribute());
+      assertEquals("name", query.getSort().get(1).getAttribute());
+    } finally {
+      Locale.setDefault(defaultLocale);
+    }
+  }
+
+  /**
+   * Test if sparse fieldsets and includes are parsed into the projection.
+   */
+  @Test
+  public void testProjection() {
+    this.params.add("fields[procezz]", "name,pid");
+    this.params.add("include", "agent, agent.procezzes");
+
+    final Projection projection = Query.fromParameterMap(this.params).getProjection();
+
+    assertTrue(projection.isRestricted(), "Projection is not restricted");
+    assertEquals(2, projection.getFields("procezz").size(), "Wrong amount of fields");
+    assertTrue(projection.isRequested("procezz", "pid"), "Requested field is not requested");
+    assertFalse(projection.isRequested("procezz", "aop-content"), "Field is requested");
+    assertTrue(projection.isRequested("agent", "ip"), "Unrestricted type is restricted");
+    assertTrue(projection.getIncludes().contains("agent.procezzes"), "Include is missing");
+  }
+
+  /**
+   * Test if a query without projection parameters requests everything.
+   */
+  @Test
+  public void testNoProjection() {
+    final Projection projection = Query.fromParameterMap(this.params).getProjection();
+
+    assertFalse(projection.isRestricted(), "Projection is restricted");
+    assertNull(projection.getIncludes(), "Includes are set");
+    assertNull(projection.getFields("procezz"), "Fieldset is set");
+  }
+
+  /**
+   * Test if queries requesting the same results are equal regardless of the parameter order.
+   */
+  @Test
+  public void testEquals() {
+    this.params.add("filter[name]", "a");
+    this.params.add("filter[name]", "b");
+    this.params.add("page[after]", "abc");
+    final Query<Object> query = Query.fromParameterMap(this.params);
+
+    final MultivaluedMap<String, String> other = new MultivaluedHashMap<>();
+    other.add("filter[Name]", "b");
+    other.add("filter[Name]", "a");
+    final Query<Object> otherQuery = Query.fromParameterMap(other);
+
+    assertEquals(query, otherQuery, "Cursor without page size was not ignored");
+    assertEquals(query.hashCode(), otherQuery.hashCode(), "Hash codes differ");
+
+    other.add("sort", "name");
+    assertNotEquals(query, Query.fromParameterMap(other), "Sort was ignored");
+  }
+
+}
@@ -0,0 +1,139 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ShardedQueryable}.
+ */
+public class ShardedQueryableTest {
+
+  private static final int SHARDS = 3;
+
+  private ExecutorService executor;
+  private List<IndexedQueryable<TestResource>> shards;
+  private IndexedQueryable<TestResource> unsharded;
+  private ShardedQueryable<TestResource> queryable;
+  private MultivaluedMap<String, String> params;
+
+  @BeforeEach
+  public void setUp() {
+    this.executor = Executors.newFixedThreadPool(SHARDS);
+    this.shards = new ArrayList<>();
+    for (int i = 0; i < SHARDS; i++) {
+      this.shards.add(new IndexedQueryable<>(TestResource.class));
+    }
+    this.unsharded = new IndexedQueryable<>(TestResource.class);
+
+    for (int i = 0; i < 20; i++) {
+      final String language = i % 2 == 0 ? "Java" : "Python";
+      final TestResource resource =
+          new TestResource(String.valueOf(i), "app" + i, language, (i * 7) % 20, true);
+      this.shards.get(i % SHARDS).add(resource);
+      this.unsharded.add(resource);
+    }
+
+    this.queryable = new ShardedQueryable<>(TestResource.class, this.executor, this.shards);
+    this.params = new MultivaluedHashMap<>();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    this.executor.shutdownNow();
+  }
+
+  /**
+   * Test if sorted pages equal the pages of the same data in a single queryable.
+   */
+  @Test
+  public void testSortedPages() throws QueryException {
+    this.params.add("sort", "-pid");
+    this.params.add("filter[programming-language]", "Java");
+    this.params.add("page[size]", "3");
+
+    for (int page = 0; page < 4; page++) {
+      this.params.putSingle("page[number]", String.valueOf(page));
+      final Query<TestResource> query = Query.fromParameterMap(this.params);
+
+      final QueryResult<TestResource> expected = this.unsharded.query(query);
+      final QueryResult<TestResource> actual = this.queryable.query(query);
+      assertEquals(new ArrayList<>(expected.getData()), new ArrayList<>(actual.getData()),
+          "Wrong page " + page);
+      assertEquals(10, actual.getTotal().getValue(), "Wrong total");
+    }
+  }
+
+  /**
+   * Test if shards are asked only for the rows up to the end of the requested page.
+   */
+  @Test
+  public void testShardQueries() throws QueryException {
+    final List<Integer> requestedSizes = new ArrayList<>();
+    final Queryable<TestResource> recording = query -> {
+      synchronized (requestedSizes) {
+        requestedSizes.add(query.getPageSize());
+      }
+      return this.shards.get(0).query(query);
+    };
+    this.queryable = new ShardedQueryable<>(TestResource.class, this.executor,
+        Arrays.asList(recording, recording));
+
+    this.params.add("page[number]", "2");
+    this.params.add("page[size]", "2");
+    final QueryResult<TestResource> result =
+        this.queryable.query(Query.fromParameterMap(this.params));
+
+    assertEquals(Arrays.asList(6, 6), requestedSizes, "Wrong amount of requested rows");
+    assertEquals(2, result.getN(), "Wrong page size");
+    assertEquals(14, result.getTotal().getValue(), "Wrong total");
+  }
+
+  /**
+   * Test if failures of shards are propagated.
+   */
+  @Test
+  public void testFailingShard() {
+    final Queryable<TestResource> failing = query -> {
+      throw new QueryException("Shard unavailable");
+    };
+    this.queryable = new ShardedQueryable<>(TestResource.class, this.executor,
+        Arrays.asList(failing, this.shards.get(0)));
+
+    assertThrows(QueryException.class,
+        () -> this.queryable.query(Query.fromParameterMap(this.params)));
+  }
+
+  /**
+   * Test if asynchronous queries yield the same results as blocking ones.
+   */
+  @Test
+  public void testAsync() throws Exception {
+    this.params.add("sort", "name");
+    this.params.add("page[number]", "1");
+    this.params.add("page[size]", "4");
+    final Query<TestResource> query = Query.fromParameterMap(this.params);
+
+    final QueryResult<TestResource> expected = this.unsharded.query(query);
+    final QueryResult<TestResource> actual =
+        this.queryable.queryAsync(query).toCompletableFuture().get();
+    assertEquals(new ArrayList<>(expected.getData()), new ArrayList<>(actual.getData()),
+        "Wrong page");
+
+    final QueryResult<TestResource> adapted = AsyncQueryable.of(this.unsharded, this.executor)
+        .queryAsync(query).toCompletableFuture().get();
+    assertEquals(new ArrayList<>(expected.getData()), new ArrayList<>(adapted.getData()),
+        "Wrong page of adapted queryable");
+  }
+
+}
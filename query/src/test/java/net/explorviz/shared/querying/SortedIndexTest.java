@@ -0,0 +1,81 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link SortedIndex}.
+ */
+public class SortedIndexTest {
+
+  private SortedIndex<String> index;
+  private Map<FilterOperator, List<Long>> bounds;
+
+  @BeforeEach
+  public void setUp() {
+    this.index = new SortedIndex<>();
+    this.index.put("c", 30L);
+    this.index.put("a", 10L);
+    this.index.put("b", 20L);
+    this.index.put("b2", 20L);
+    this.index.put("none", null);
+    this.bounds = new EnumMap<>(FilterOperator.class);
+  }
+
+  private List<String> search() {
+    return new ArrayList<>(this.index.search(this.bounds));
+  }
+
+  /**
+   * Test if ranges are answered in the order of the keys.
+   */
+  @Test
+  public void testRange() {
+    assertEquals(Arrays.asList("b", "b2", "c"), new ArrayList<>(this.index.range(20L, true,
+        null, false)));
+    assertEquals(Arrays.asList("a"), new ArrayList<>(this.index.range(null, false, 20L, false)));
+    assertEquals(Arrays.asList("a", "b", "b2", "c"),
+        new ArrayList<>(this.index.range(null, false, null, false)));
+  }
+
+  /**
+   * Test if several bounds are combined into the narrowest range.
+   */
+  @Test
+  public void testSearch() {
+    this.bounds.put(FilterOperator.GREATER_THAN_OR_EQUAL, Arrays.asList(5L, 10L));
+    this.bounds.put(FilterOperator.GREATER_THAN, Collections.singletonList(10L));
+    this.bounds.put(FilterOperator.LESS_THAN_OR_EQUAL, Collections.singletonList(20L));
+    assertEquals(Arrays.asList("b", "b2"), search());
+
+    this.bounds.put(FilterOperator.LESS_THAN, Collections.singletonList(20L));
+    assertEquals(Collections.emptyList(), search());
+
+    this.bounds.clear();
+    this.bounds.put(FilterOperator.CONTAINS, Collections.singletonList(20L));
+    assertThrows(IllegalArgumentException.class, this::search);
+  }
+
+  /**
+   * Test if the index is maintained on updates and removals.
+   */
+  @Test
+  public void testUpdate() {
+    this.index.put("a", 40L);
+    this.index.remove("b");
+    this.bounds.put(FilterOperator.GREATER_THAN, Collections.singletonList(15L));
+
+    assertEquals(Arrays.asList("b2", "c", "a"), search());
+    assertEquals(3, this.index.size());
+  }
+
+}
@@ -0,0 +1,101 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link Sorts} and {@link TopK}.
+ */
+public class SortsTest {
+
+  /**
+   * Test if the top-k selection yields the same objects as a full sort.
+   */
+  @Test
+  public void testTopEqualsFullSort() {
+    final Random random = new Random(42);
+    final List<Integer> numbers = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      numbers.add(random.nextInt(100));
+    }
+
+    final List<Integer> sorted = new ArrayList<>(numbers);
+    Collections.sort(sorted);
+
+    assertEquals(sorted.subList(0, 25), Sorts.top(numbers, Comparator.naturalOrder(), 25));
+    assertEquals(sorted, Sorts.top(numbers, Comparator.naturalOrder(), 2000));
+  }
+
+  /**
+   * Test if equal objects keep their encounter order.
+   */
+  @Test
+  public void testStability() {
+    final List<String> words = Arrays.asList("bb", "a", "cc", "d", "ee");
+
+    assertEquals(Arrays.asList("a", "d", "bb"),
+        Sorts.top(words, Comparator.comparingInt(String::length), 3));
+  }
+
+  /**
+   * Test if the sort parameter is compiled into a comparator on multiple attributes.
+   */
+  @Test
+  public void testCompile() throws QueryException {
+    final MultivaluedMap<String, String> params = new MultivaluedHashMap<>();
+    params.add("sort", "programming-language,-pid");
+
+    final TestResource java1 = new TestResource("1", "a", "Java", 1, true);
+    final TestResource java2 = new TestResource("2", "b", "Java", 2, true);
+    final TestResource python = new TestResource("3", "c", "Python", 3, true);
+
+    final List<TestResource> resources = new ArrayList<>(Arrays.asList(python, java1, java2));
+    resources.sort(Sorts.compile(Query.fromParameterMap(params), TestResource.class));
+
+    assertEquals(Arrays.asList(java2, java1, python), resources);
+  }
+
+  /**
+   * Test if null values are sorted last in ascending and descending order.
+   */
+  @Test
+  public void testNullsLast() throws QueryException {
+    final MultivaluedMap<String, String> params = new MultivaluedHashMap<>();
+    params.add("sort", "-programming-language");
+
+    final TestResource java = new TestResource("1", "a", "Java", 1, true);
+    final TestResource none = new TestResource("2", "b", null, 2, true);
+    final TestResource python = new TestResource("3", "c", "Python", 3, true);
+
+    final List<TestResource> resources = new ArrayList<>(Arrays.asList(none, java, python));
+    resources.sort(Sorts.compile(Query.fromParameterMap(params), TestResource.class));
+    assertEquals(Arrays.asList(python, java, none), resources);
+
+    params.putSingle("sort", "programming-language");
+    resources.sort(Sorts.compile(Query.fromParameterMap(params), TestResource.class));
+    assertEquals(Arrays.asList(java, python, none), resources);
+  }
+
+  /**
+   * Test if unknown sort attributes are rejected.
+   */
+  @Test
+  public void testUnknownAttribute() {
+    final MultivaluedMap<String, String> params = new MultivaluedHashMap<>();
+    params.add("sort", "-unknown");
+
+    assertThrows(InvalidQueryException.class,
+        () -> Sorts.compile(Query.fromParameterMap(params), TestResource.class));
+  }
+
+}
@@ -0,0 +1,84 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jasminb.jsonapi.JSONAPIDocument;
+import com.github.jasminb.jsonapi.ResourceConverter;
+import com.github.jasminb.jsonapi.exceptions.DocumentSerializationException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link SparseFieldsets}.
+ */
+public class SparseFieldsetsTest {
+
+  private ResourceConverter converter;
+  private ObjectMapper mapper;
+  private TestResource resource;
+
+  @BeforeEach
+  public void setUp() {
+    this.converter = new ResourceConverter(SparseFieldsets.configure(new ObjectMapper()),
+        TestResource.class);
+    this.mapper = new ObjectMapper();
+    this.resource = new TestResource("1", "kiekerSampleApp", "Java", 42, true);
+  }
+
+  private JsonNode serialize() throws DocumentSerializationException, IOException {
+    return this.mapper
+        .readTree(this.converter.writeDocument(new JSONAPIDocument<>(this.resource)))
+        .get("data")
+        .get("attributes");
+  }
+
+  /**
+   * Test if the fields parameters are parsed per resource type.
+   */
+  @Test
+  public void testFromParameterMap() {
+    final MultivaluedMap<String, String> params = new MultivaluedHashMap<>();
+    params.add("fields[procezz]", "name,pid");
+    params.add("fields[agent]", "ip");
+    params.add("filter[name]", "test");
+
+    final Map<String, Set<String>> fieldsets = SparseFieldsets.fromParameterMap(params);
+
+    assertEquals(2, fieldsets.size(), "Wrong amount of fieldsets");
+    assertEquals(new HashSet<>(Arrays.asList("name", "pid")), fieldsets.get("procezz"));
+    assertEquals(new HashSet<>(Arrays.asList("ip")), fieldsets.get("agent"));
+  }
+
+  /**
+   * Test if only requested attributes are serialized while a fieldset is active.
+   */
+  @Test
+  public void testSerialization() throws DocumentSerializationException, IOException {
+    final MultivaluedMap<String, String> params = new MultivaluedHashMap<>();
+    params.add("fields[test-resource]", "name");
+
+    final SparseFieldsets.Scope scope =
+        SparseFieldsets.apply(SparseFieldsets.fromParameterMap(params));
+    try {
+      final JsonNode attributes = serialize();
+      assertTrue(attributes.has("name"), "Requested attribute missing");
+      assertFalse(attributes.has("programming-language"), "Unrequested attribute serialized");
+    } finally {
+      scope.close();
+    }
+
+    assertTrue(serialize().has("programming-language"), "Fieldset still active");
+  }
+
+}
@@ -0,0 +1,93 @@
+package net.explorviz.shared.querying;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.jasminb.jsonapi.annotations.Id;
+import com.github.jasminb.jsonapi.annotations.Relationship;
+import com.github.jasminb.jsonapi.annotations.Type;
+
+/**
+ * Resource used to test querying, modeled after the procezz resource of the discovery.
+ */
+@Type("test-resource")
+public class TestResource {
+
+  @Id
+  private String id;
+
+  @JsonProperty("name")
+  private String name;
+
+  @JsonProperty("programming-language")
+  private String programmingLanguage;
+
+  private long pid;
+
+  @JsonProperty("monitored-flag")
+  private boolean monitored;
+
+  @JsonIgnore
+  private String secret;
+
+  @Relationship("parent")
+  private TestResource parent;
+
+  public TestResource() {
+    // For JSON deserialization
+  }
+
+  public TestResource(final String id, final String name, final String programmingLanguage,
+      final long pid, final boolean monitored) {
+    this.id = id;
+    this.name = name;
+    this.programmingLanguage = programmingLanguage;
+    this.pid = pid;
+    this.monitored = monitored;
+  }
+
+  public String getId() {
+    return this.id;
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  public String getProgrammingLanguage() {
+    return this.programmingLanguage;
+  }
+
+  public long getPid() {
+    return this.pid;
+  }
+
+  public boolean isMonitored() {
+    return this.monitored;
+  }
+
+  public String getSecret() {
+    return this.secret;
+  }
+
+  public TestResource getParent() {
+    return this.parent;
+  }
+
+  public void setParent(final TestResource parent) {
+    this.parent = parent;
+  }
+
+  public void setProgrammingLanguage(final String programmingLanguage) {
+    this.programmingLanguage = programmingLanguage;
+  }
+
+  public void setPid(final long pid) {
+    this.pid = pid;
+  }
+
+  @Override
+  public String toString() {
+    return this.id;
+  }
+
+}
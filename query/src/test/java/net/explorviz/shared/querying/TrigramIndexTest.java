@@ -0,0 +1,72 @@
+package net.explorviz.shared.querying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link TrigramIndex}.
+ */
+public class TrigramIndexTest {
+
+  private TrigramIndex<Integer> index;
+
+  @BeforeEach
+  public void setUp() {
+    this.index = new TrigramIndex<>();
+    this.index.put(1, "java -jar kieker-sample.jar");
+    this.index.put(2, "python3 -m flask run");
+    this.index.put(3, "java -cp lib/* net.example.Main");
+    this.index.put(4, null);
+  }
+
+  /**
+   * Test if fragments are found anywhere in the values.
+   */
+  @Test
+  public void testSearch() {
+    assertEquals(new HashSet<>(Arrays.asList(1, 3)), this.index.search("java -"));
+    assertEquals(Collections.singleton(1), this.index.search("kieker"));
+    assertEquals(Collections.emptySet(), this.index.search("ruby"));
+    assertEquals(Collections.emptySet(), this.index.search("Java"), "Search is case-insensitive");
+  }
+
+  /**
+   * Test if values containing all trigrams of a fragment in another order are not matched.
+   */
+  @Test
+  public void testTrigramsInOtherOrder() {
+    this.index.put(5, "abcd bcde");
+
+    assertEquals(Collections.singleton(5), this.index.search("bcd"));
+    assertEquals(Collections.emptySet(), this.index.search("abcde"));
+  }
+
+  /**
+   * Test if short fragments are answered by scanning.
+   */
+  @Test
+  public void testShortFragments() {
+    assertEquals(new HashSet<>(Arrays.asList(1, 3)), this.index.search("ja"));
+    assertEquals(3, this.index.search("").size());
+  }
+
+  /**
+   * Test if the index is maintained on updates and removals.
+   */
+  @Test
+  public void testUpdate() {
+    this.index.put(2, "java -jar other.jar");
+    this.index.remove(1);
+
+    assertEquals(new HashSet<>(Arrays.asList(2, 3)), this.index.search("java"));
+    assertEquals(Collections.emptySet(), this.index.search("kieker"));
+    assertEquals(Collections.emptySet(), this.index.search("flask"));
+    assertEquals(2, this.index.size());
+  }
+
+}
@@ -0,0 +1,107 @@
+package net.explorviz.shared.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Probabilistic set of strings that answers membership queries without false negatives: if
+ * {@link #mightContain(String)} returns {@code false}, the string was never added. Positive
+ * answers are wrong with the false positive probability the filter was sized for, as long as no
+ * more than the expected amount of strings were added.
+ *
+ * <p>
+ * The bit positions of a string are derived from a single 64-bit FNV-1a hash by double hashing,
+ * thus a query costs a pass over the string and a few memory accesses. Strings can be added while
+ * other threads query the filter. This class is thread-safe.
+ * </p>
+ */
+public final class BloomFilter {
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private static final int MIN_BITS = 64;
+  private static final int MAX_HASHES = 16;
+
+  private final AtomicLongArray bits;
+  private final long bitCount;
+  private final int hashCount;
+
+  /**
+   * Creates an empty filter.
+   *
+   * @param expectedInsertions - The amount of strings the filter is sized for.
+   * @param falsePositiveProbability - The desired probability of false positives, between 0 and 1
+   *        (exclusive).
+   * @throws IllegalArgumentException if a parameter is out of range
+   */
+  public BloomFilter(final int expectedInsertions, final double falsePositiveProbability) {
+    if (expectedInsertions < 0 || falsePositiveProbability <= 0
+        || falsePositiveProbability >= 1) {
+      throw new IllegalArgumentException("Invalid size or false positive probability");
+    }
+    final int n = Math.max(1, expectedInsertions);
+    final double ln2 = Math.log(2);
+    final long optimalBits =
+        (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (ln2 * ln2));
+    final int words =
+        (int) Math.min(Integer.MAX_VALUE, (Math.max(MIN_BITS, optimalBits) + 63) / 64);
+
+    this.bits = new AtomicLongArray(words);
+    this.bitCount = words * 64L;
+    this.hashCount =
+        (int) Math.max(1, Math.min(MAX_HASHES, Math.round((double) this.bitCount / n * ln2)));
+  }
+
+  /**
+   * Adds a string to the filter.
+   *
+   * @param value - The string to add.
+   */
+  public void put(final String value) {
+    final long hash = hash(value);
+    final long h1 = hash;
+    final long h2 = Long.rotateLeft(hash, 32) | 1;
+    for (int i = 0; i < this.hashCount; i++) {
+      final long bit = Math.floorMod(h1 + i * h2, this.bitCount);
+      final int word = (int) (bit >>> 6);
+      final long mask = 1L << bit;
+      long current;
+      do {
+        current = this.bits.get(word);
+      } while ((current & mask) == 0 && !this.bits.compareAndSet(word, current, current | mask));
+    }
+  }
+
+  /**
+   * Checks whether a string might have been added to the filter.
+   *
+   * @param value - The string to check.
+   * @return {@code false} if the string was definitely not added, {@code true} if it probably was
+   */
+  public boolean mightContain(final String value) {
+    final long hash = hash(value);
+    final long h1 = hash;
+    final long h2 = Long.rotateLeft(hash, 32) | 1;
+    for (int i = 0; i < this.hashCount; i++) {
+      final long bit = Math.floorMod(h1 + i * h2, this.bitCount);
+      if ((this.bits.get((int) (bit >>> 6)) & 1L << bit) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long hash(final String value) {
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= FNV_PRIME;
+    }
+    // Final avalanche, FNV alone mixes the last characters poorly into the high bits
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+}
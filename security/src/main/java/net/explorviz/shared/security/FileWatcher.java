@@ -0,0 +1,105 @@
+package net.explorviz.shared.security;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Objects;
+
+/**
+ * Watches a single file in a daemon thread and calls back whenever the file was created or
+ * modified, e.g. to hot-reload keys (see {@link JwksKeyStore}) or revoked tokens (see
+ * {@link RevocationRegistry}). If the file is a link, it is also considered changed when it
+ * resolves to another file after a change in its directory, e.g. mounted secrets of Kubernetes,
+ * which replace a link to the directory of the current version. Modifications of the resolved file
+ * in another directory are not detected. The callback runs in the watching thread and must handle
+ * its own failures.
+ */
+final class FileWatcher implements AutoCloseable {
+
+  private final Path file;
+  private final Runnable onChange;
+  private final WatchService watchService;
+
+  // The file with all links resolved, only accessed by the watching thread after construction
+  private Path target;
+
+  private FileWatcher(final Path file, final Runnable onChange) throws IOException {
+    this.file = file.toAbsolutePath();
+    this.onChange = onChange;
+    this.watchService = this.file.getFileSystem().newWatchService();
+    this.target = this.target();
+    // Files are often replaced rather than modified, e.g. by editors
+    this.file.getParent().register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY);
+  }
+
+  /**
+   * Starts to watch a file.
+   *
+   * @param file - The file to watch.
+   * @param threadName - The name of the watching thread.
+   * @param onChange - Called whenever the file changed.
+   * @return the watcher, which must be closed to stop watching
+   * @throws IOException if the directory of the file can not be watched
+   */
+  static FileWatcher start(final Path file, final String threadName, final Runnable onChange)
+      throws IOException {
+    final FileWatcher watcher = new FileWatcher(file, onChange);
+    final Thread thread = new Thread(watcher::watchLoop, threadName);
+    thread.setDaemon(true);
+    thread.start();
+    return watcher;
+  }
+
+  /**
+   * Stops watching the file.
+   */
+  @Override
+  public void close() throws IOException {
+    this.watchService.close();
+  }
+
+  /**
+   * Resolves all links of the file, or returns {@code null} if the file does not exist.
+   */
+  private Path target() {
+    try {
+      return this.file.toRealPath();
+    } catch (final IOException e) {
+      return null;
+    }
+  }
+
+  private void watchLoop() {
+    try {
+      while (true) {
+        final WatchKey watchKey = this.watchService.take();
+        boolean changed = false;
+        for (final WatchEvent<?> event : watchKey.pollEvents()) {
+          changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+              || this.file.getFileName().equals(event.context());
+        }
+        watchKey.reset();
+
+        final Path currentTarget = this.target();
+        if (!Objects.equals(this.target, currentTarget)) {
+          this.target = currentTarget;
+          changed = true;
+        }
+
+        if (changed) {
+          this.onChange.run();
+        }
+      }
+    } catch (final ClosedWatchServiceException e) {
+      // Closed, stop watching
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
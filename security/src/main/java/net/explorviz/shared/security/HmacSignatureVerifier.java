@@ -0,0 +1,81 @@
+package net.explorviz.shared.security;
+
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Verifies HMAC signatures of JSON web tokens ({@code HS256}, {@code HS384} and {@code HS512})
+ * with a shared secret. Each thread reuses its own {@link Mac} per algorithm, which is initialized
+ * with the key only once, since {@link Mac} instances are not thread-safe.
+ *
+ * <p>
+ * As for the signing key of the JJWT library, the secret is given Base64-encoded. Keys shorter
+ * than the output of the hash function are rejected for the respective algorithm (see RFC 7518,
+ * section 3.2). Instances are thread-safe.
+ * </p>
+ */
+public final class HmacSignatureVerifier {
+
+  private final Map<String, ThreadLocal<Mac>> macs = new HashMap<>();
+
+  /**
+   * Creates a new verifier.
+   *
+   * @param base64EncodedSecret - The Base64-encoded shared secret.
+   * @throws IllegalArgumentException if the secret is not Base64-encoded
+   */
+  public HmacSignatureVerifier(final String base64EncodedSecret) {
+    final byte[] secret = Base64.getDecoder().decode(base64EncodedSecret);
+    this.register("HS256", "HmacSHA256", 256, secret);
+    this.register("HS384", "HmacSHA384", 384, secret);
+    this.register("HS512", "HmacSHA512", 512, secret);
+  }
+
+  private void register(final String algorithm, final String macAlgorithm, final int minimumBits,
+      final byte[] secret) {
+    if (secret.length * 8 < minimumBits) {
+      return;
+    }
+    final SecretKeySpec key = new SecretKeySpec(secret, macAlgorithm);
+    this.macs.put(algorithm, ThreadLocal.withInitial(() -> {
+      try {
+        final Mac mac = Mac.getInstance(macAlgorithm);
+        mac.init(key);
+        return mac;
+      } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+        // Every Java platform is required to support HmacSHA256, the others are ubiquitous
+        throw new IllegalStateException(e);
+      }
+    }));
+  }
+
+  /**
+   * Verifies the signature of a token.
+   *
+   * @param algorithm - The value of the {@code alg} header parameter.
+   * @param token - The token in ASCII, i.e. header, payload and signature.
+   * @param signingInputLength - The length of the signed part of the token, i.e. header and
+   *        payload including the separating dot.
+   * @param signature - The decoded signature.
+   * @return {@code true} iff the algorithm is supported and the signature is valid
+   */
+  public boolean verify(final String algorithm, final byte[] token, final int signingInputLength,
+      final byte[] signature) {
+    final ThreadLocal<Mac> mac = algorithm == null ? null : this.macs.get(algorithm);
+    if (mac == null) {
+      return false;
+    }
+
+    final Mac threadMac = mac.get();
+    threadMac.update(token, 0, signingInputLength);
+    // Constant-time comparison, does not leak the position of the first mismatch
+    return MessageDigest.isEqual(threadMac.doFinal(), signature);
+  }
+
+}
@@ -0,0 +1,211 @@
+package net.explorviz.shared.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Public keys for the verification of JSON web tokens, loaded from a local JSON Web Key Set file
+ * (RFC 7517) and indexed by their key identifier ({@code kid}). Supported are RSA keys of at least
+ * 2048 bits and EC keys on the curve P-256, i.e. the keys for {@code RS256} and {@code ES256}.
+ * Keys without identifier, of other types or not meant for signatures are skipped.
+ *
+ * <p>
+ * The keys are parsed once per load and shared by all threads. If {@link #watch()} was called, the
+ * file is watched and reloaded whenever it changes, such that keys can be rotated without
+ * restarting the service. An invalid file, e.g. one that is still being written, is logged and the
+ * previous keys are kept. This class is thread-safe.
+ * </p>
+ */
+public class JwksKeyStore implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(JwksKeyStore.class);
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private static final int MIN_RSA_KEY_BITS = 2048;
+  private static final String P256 = "P-256";
+
+  private final Path file;
+  private final Runnable onReload;
+
+  // Replaced as a whole on reload
+  private volatile Map<String, Key> keys;
+
+  private FileWatcher watcher;
+
+  /**
+   * Loads the keys of a JWKS file.
+   *
+   * @param file - The path of the JWKS file.
+   * @param onReload - Called after the keys were reloaded, e.g. to drop cached tokens.
+   * @throws IOException if the file can not be read or is not a valid JWKS
+   */
+  public JwksKeyStore(final Path file, final Runnable onReload) throws IOException {
+    this.file = file.toAbsolutePath();
+    this.onReload = onReload;
+    this.keys = load(this.file);
+  }
+
+  /**
+   * Looks up the key for a token.
+   *
+   * @param keyId - The key identifier of the token.
+   * @param algorithm - The signature algorithm of the token.
+   * @return the key or {@code null} if there is no key with the given identifier or the key is
+   *         restricted to another algorithm
+   */
+  public PublicKey getKey(final String keyId, final String algorithm) {
+    final Key key = keyId == null ? null : this.keys.get(keyId);
+    if (key == null || key.algorithm != null && !key.algorithm.equals(algorithm)) {
+      return null;
+    }
+    return key.publicKey;
+  }
+
+  /**
+   * Amount of loaded keys.
+   *
+   * @return the amount of keys
+   */
+  public int size() {
+    return this.keys.size();
+  }
+
+  /**
+   * Loads the keys from the file again.
+   *
+   * @throws IOException if the file can not be read or is not a valid JWKS, the previous keys are
+   *         kept in this case
+   */
+  public void reload() throws IOException {
+    this.keys = load(this.file);
+    LOGGER.info("Reloaded {} keys from {}", this.keys.size(), this.file);
+    this.onReload.run();
+  }
+
+  /**
+   * Starts to watch the file for changes, which are reloaded in a background thread.
+   *
+   * @throws IOException if the directory of the file can not be watched
+   */
+  public synchronized void watch() throws IOException {
+    if (this.watcher == null) {
+      this.watcher = FileWatcher.start(this.file, "jwks-watcher", this::tryReload);
+    }
+  }
+
+  /**
+   * Stops watching the file.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (this.watcher != null) {
+      this.watcher.close();
+      this.watcher = null;
+    }
+  }
+
+  private void tryReload() {
+    try {
+      this.reload();
+    } catch (IOException | RuntimeException e) {
+      // Also happens while the file is being written, the next event reloads it again
+      LOGGER.warn("Could not reload keys from {}, keeping previous keys: {}", this.file,
+          e.getMessage());
+    }
+  }
+
+  private static Map<String, Key> load(final Path file) throws IOException {
+    final JsonNode jwks = MAPPER.readTree(Files.readAllBytes(file));
+    if (jwks == null || !jwks.path("keys").isArray()) {
+      throw new IOException("Not a JSON Web Key Set: " + file);
+    }
+
+    final Map<String, Key> keys = new HashMap<>();
+    for (final JsonNode jwk : jwks.path("keys")) {
+      final String keyId = jwk.path("kid").textValue();
+      final String use = jwk.path("use").textValue();
+      if (keyId == null || use != null && !"sig".equals(use)) {
+        continue;
+      }
+
+      try {
+        final PublicKey publicKey = parse(jwk);
+        if (publicKey == null) {
+          LOGGER.warn("Skipping key {} of unsupported type", keyId);
+        } else {
+          keys.put(keyId, new Key(publicKey, jwk.path("alg").textValue()));
+        }
+      } catch (GeneralSecurityException | IllegalArgumentException e) {
+        throw new IOException("Invalid key " + keyId + " in " + file, e);
+      }
+    }
+    return Collections.unmodifiableMap(keys);
+  }
+
+  private static PublicKey parse(final JsonNode jwk) throws GeneralSecurityException {
+    switch (jwk.path("kty").asText()) {
+      case "RSA":
+        final RSAPublicKey rsaKey = (RSAPublicKey) KeyFactory.getInstance("RSA").generatePublic(
+            new RSAPublicKeySpec(integer(jwk, "n"), integer(jwk, "e")));
+        if (rsaKey.getModulus().bitLength() < MIN_RSA_KEY_BITS) {
+          throw new IllegalArgumentException("RSA keys must have at least 2048 bits");
+        }
+        return rsaKey;
+      case "EC":
+        if (!P256.equals(jwk.path("crv").asText())) {
+          return null;
+        }
+        final AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+        parameters.init(new ECGenParameterSpec("secp256r1"));
+        final ECPoint point = new ECPoint(integer(jwk, "x"), integer(jwk, "y"));
+        return KeyFactory.getInstance("EC").generatePublic(
+            new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class)));
+      default:
+        return null;
+    }
+  }
+
+  private static BigInteger integer(final JsonNode jwk, final String member) {
+    final String value = jwk.path(member).textValue();
+    if (value == null) {
+      throw new IllegalArgumentException("Missing member " + member);
+    }
+    return new BigInteger(1, Base64.getUrlDecoder().decode(value));
+  }
+
+  /**
+   * A key along with the algorithm it is restricted to, if any.
+   */
+  private static final class Key {
+
+    private final PublicKey publicKey;
+    private final String algorithm;
+
+    private Key(final PublicKey publicKey, final String algorithm) {
+      this.publicKey = publicKey;
+      this.algorithm = algorithm;
+    }
+  }
+
+}
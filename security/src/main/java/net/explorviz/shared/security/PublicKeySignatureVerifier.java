@@ -0,0 +1,149 @@
+package net.explorviz.shared.security;
+
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+
+/**
+ * Verifies asymmetric signatures of JSON web tokens ({@code RS256} and {@code ES256}) with the
+ * public keys of a {@link JwksKeyStore}, selected by the {@code kid} header parameter.
+ *
+ * <p>
+ * Each thread reuses its own {@link Signature} per algorithm, since {@link Signature} instances
+ * are not thread-safe. A signature object stays initialized with the key it verified last, thus
+ * consecutive tokens signed with the same key only pay for the verification itself. Instances are
+ * thread-safe.
+ * </p>
+ */
+public final class PublicKeySignatureVerifier {
+
+  private static final String RS256 = "RS256";
+  private static final String ES256 = "ES256";
+
+  // Length of the concatenated coordinates R and S of a P-256 signature, see RFC 7518, 3.4
+  private static final int ES256_SIGNATURE_LENGTH = 64;
+
+  private final JwksKeyStore keyStore;
+
+  private final ThreadLocal<ThreadSignature> rs256 =
+      ThreadLocal.withInitial(() -> new ThreadSignature("SHA256withRSA"));
+  private final ThreadLocal<ThreadSignature> es256 =
+      ThreadLocal.withInitial(() -> new ThreadSignature("SHA256withECDSA"));
+
+  /**
+   * Creates a new verifier.
+   *
+   * @param keyStore - The verification keys.
+   */
+  public PublicKeySignatureVerifier(final JwksKeyStore keyStore) {
+    this.keyStore = keyStore;
+  }
+
+  /**
+   * Checks whether an algorithm is verified by this class rather than by
+   * {@link HmacSignatureVerifier}.
+   *
+   * @param algorithm - The value of the {@code alg} header parameter.
+   * @return {@code true} iff the algorithm is asymmetric and supported
+   */
+  public static boolean supports(final String algorithm) {
+    return RS256.equals(algorithm) || ES256.equals(algorithm);
+  }
+
+  /**
+   * Verifies the signature of a token.
+   *
+   * @param header - The header of the token.
+   * @param token - The token in ASCII, i.e. header, payload and signature.
+   * @param signingInputLength - The length of the signed part of the token, i.e. header and
+   *        payload including the separating dot.
+   * @param signature - The decoded signature.
+   * @return {@code true} iff the algorithm is supported, a matching key is known and the signature
+   *         is valid
+   */
+  public boolean verify(final TokenHeader header, final byte[] token,
+      final int signingInputLength, final byte[] signature) {
+    final PublicKey key = this.keyStore.getKey(header.getKeyId(), header.getAlgorithm());
+
+    if (RS256.equals(header.getAlgorithm()) && key instanceof RSAPublicKey) {
+      return this.rs256.get().verify(key, token, signingInputLength, signature);
+    } else if (ES256.equals(header.getAlgorithm()) && key instanceof ECPublicKey
+        && signature.length == ES256_SIGNATURE_LENGTH) {
+      return this.es256.get().verify(key, token, signingInputLength, toDer(signature));
+    }
+    return false;
+  }
+
+  /**
+   * Converts the concatenated coordinates of an ECDSA signature into the DER encoding expected by
+   * {@link Signature}.
+   */
+  private static byte[] toDer(final byte[] concatenated) {
+    final int half = concatenated.length / 2;
+    final byte[] r = derInteger(concatenated, 0, half);
+    final byte[] s = derInteger(concatenated, half, half);
+
+    // The sequence of two 33 byte integers at most is shorter than 128 bytes
+    final byte[] der = new byte[2 + r.length + s.length];
+    der[0] = 0x30;
+    der[1] = (byte) (r.length + s.length);
+    System.arraycopy(r, 0, der, 2, r.length);
+    System.arraycopy(s, 0, der, 2 + r.length, s.length);
+    return der;
+  }
+
+  private static byte[] derInteger(final byte[] bytes, final int offset, final int length) {
+    int start = offset;
+    final int end = offset + length;
+    while (start < end - 1 && bytes[start] == 0) {
+      start++;
+    }
+    // Integers are signed, a leading one bit requires an additional zero byte
+    final int padding = (bytes[start] & 0x80) == 0 ? 0 : 1;
+
+    final byte[] integer = new byte[2 + padding + end - start];
+    integer[0] = 0x02;
+    integer[1] = (byte) (padding + end - start);
+    System.arraycopy(bytes, start, integer, 2 + padding, end - start);
+    return integer;
+  }
+
+  /**
+   * A signature object of a thread along with the key it is initialized with.
+   */
+  private static final class ThreadSignature {
+
+    private final Signature signature;
+    private PublicKey key;
+
+    private ThreadSignature(final String algorithm) {
+      try {
+        this.signature = Signature.getInstance(algorithm);
+      } catch (final NoSuchAlgorithmException e) {
+        // Every Java platform is required to support SHA256withRSA, ECDSA is ubiquitous
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private boolean verify(final PublicKey publicKey, final byte[] data, final int length,
+        final byte[] signatureBytes) {
+      try {
+        if (publicKey != this.key) {
+          this.signature.initVerify(publicKey);
+          this.key = publicKey;
+        }
+        this.signature.update(data, 0, length);
+        // Resets the signature object to the state after the initialization
+        return this.signature.verify(signatureBytes);
+      } catch (final GeneralSecurityException e) {
+        // The state is undefined after a failure, initialize again next time
+        this.key = null;
+        return false;
+      }
+    }
+  }
+
+}
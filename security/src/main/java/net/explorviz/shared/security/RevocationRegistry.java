@@ -0,0 +1,232 @@
+package net.explorviz.shared.security;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import net.explorviz.shared.config.annotations.Config;
+import org.jvnet.hk2.annotations.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Identifiers ({@code jti}) of tokens that were revoked before they expired, consulted by the
+ * {@link net.explorviz.shared.security.filters.AuthenticationFilter} for every authenticated
+ * request. Since almost no token is revoked, a {@link BloomFilter} answers the common negative
+ * case without touching the exact set of revoked identifiers, which is only checked if the filter
+ * reports a possible match. Both live in memory, thus a check costs a hash of the identifier and a
+ * few memory accesses.
+ *
+ * <p>
+ * The revoked identifiers are loaded from a {@link RevocationSource}. If the service binds no
+ * source, they are read from the file given by the optional property {@code jwt.revocationFile},
+ * one identifier per line (lines starting with {@code #} are ignored). The file is watched and
+ * reloaded whenever it changes. Tokens can also be revoked at runtime with
+ * {@link #revoke(String)}, these revocations are kept until the next reload.
+ * </p>
+ *
+ * <p>
+ * The registry must be bound in order to be consulted, e.g.
+ * {@code bind(RevocationRegistry.class).to(RevocationRegistry.class).in(Singleton.class)}. This
+ * class is thread-safe.
+ * </p>
+ */
+public class RevocationRegistry implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RevocationRegistry.class);
+
+  private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+  private static final int MIN_CAPACITY = 1024;
+  private static final String COMMENT = "#";
+
+  private final RevocationSource source;
+  private FileWatcher watcher;
+
+  // Replaced as a whole on reload or if the capacity of the filter is exceeded
+  private volatile Snapshot snapshot = new Snapshot(Collections.emptyList());
+
+  /**
+   * Creates an empty registry, which is only fed by {@link #revoke(String)}.
+   */
+  public RevocationRegistry() {
+    this.source = null;
+  }
+
+  /**
+   * Creates a registry fed by the given source.
+   *
+   * @param source - The source of the revoked identifiers.
+   * @throws IOException if the source could not be loaded
+   */
+  public RevocationRegistry(final RevocationSource source) throws IOException {
+    this.source = source;
+    this.reload();
+  }
+
+  /**
+   * Creates a registry fed by the bound source, by the configured file or by neither.
+   *
+   * @param source - The source of the revoked identifiers, if bound.
+   * @param file - The path of a file with one revoked identifier per line, only used if no source
+   *        is bound.
+   * @throws UncheckedIOException if the source could not be loaded
+   */
+  @Inject
+  public RevocationRegistry(@Optional final RevocationSource source,
+      @Optional @Config("jwt.revocationFile") final String file) {
+    final Path path = source == null && file != null && !file.isEmpty() ? Paths.get(file) : null;
+    try {
+      if (source != null) {
+        this.source = source;
+      } else if (path != null) {
+        this.source = fileSource(path);
+      } else {
+        this.source = null;
+      }
+      // Load before watching, such that no watcher is left running if loading fails
+      this.reload();
+      if (path != null) {
+        this.watcher = FileWatcher.start(path, "revocation-watcher", this::tryReload);
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Could not load revoked tokens", e);
+    }
+  }
+
+  /**
+   * Creates a source that reads one identifier per line from a file. Empty lines and lines
+   * starting with {@code #} are ignored.
+   *
+   * @param file - The file to read.
+   * @return the source
+   */
+  public static RevocationSource fileSource(final Path file) {
+    return () -> {
+      final List<String> ids = new ArrayList<>();
+      for (final String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+        final String id = line.trim();
+        if (!id.isEmpty() && !id.startsWith(COMMENT)) {
+          ids.add(id);
+        }
+      }
+      return ids;
+    };
+  }
+
+  /**
+   * Checks whether a token was revoked.
+   *
+   * @param tokenId - The identifier ({@code jti}) of the token, might be {@code null}.
+   * @return {@code true} iff the token has an identifier and it was revoked
+   */
+  public boolean isRevoked(final String tokenId) {
+    if (tokenId == null) {
+      return false;
+    }
+    final Snapshot current = this.snapshot;
+    return current.filter.mightContain(tokenId) && current.ids.contains(tokenId);
+  }
+
+  /**
+   * Checks whether the Bloom filter reports a possible match, used in tests to find false
+   * positives.
+   */
+  boolean mightBeRevoked(final String tokenId) {
+    return this.snapshot.filter.mightContain(tokenId);
+  }
+
+  /**
+   * Revokes a token until the next reload. The source should include the token as well, if the
+   * revocation has to survive reloads.
+   *
+   * @param tokenId - The identifier ({@code jti}) of the token.
+   */
+  public synchronized void revoke(final String tokenId) {
+    final Snapshot current = this.snapshot;
+    if (current.ids.size() >= current.capacity) {
+      final List<String> ids = new ArrayList<>(current.ids);
+      ids.add(tokenId);
+      this.snapshot = new Snapshot(ids);
+    } else {
+      // The exact set first, such that a hit of the filter is always confirmed
+      current.ids.add(tokenId);
+      current.filter.put(tokenId);
+    }
+  }
+
+  /**
+   * Loads the revoked identifiers from the source again. Revocations made with
+   * {@link #revoke(String)} are dropped.
+   *
+   * @throws IOException if the source could not be loaded, the previous identifiers are kept in
+   *         this case
+   */
+  public void reload() throws IOException {
+    final Collection<String> ids =
+        this.source == null ? Collections.<String>emptyList() : this.source.load();
+    synchronized (this) {
+      this.snapshot = new Snapshot(ids);
+    }
+  }
+
+  /**
+   * Amount of revoked identifiers.
+   *
+   * @return the amount of revoked tokens
+   */
+  public int size() {
+    return this.snapshot.ids.size();
+  }
+
+  /**
+   * Stops watching the file, if any.
+   */
+  @Override
+  @PreDestroy
+  public synchronized void close() throws IOException {
+    if (this.watcher != null) {
+      this.watcher.close();
+      this.watcher = null;
+    }
+  }
+
+  private void tryReload() {
+    try {
+      this.reload();
+      LOGGER.info("Reloaded {} revoked tokens", this.size());
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Could not reload revoked tokens, keeping previous ones: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * The revoked identifiers along with a filter sized for them.
+   */
+  private static final class Snapshot {
+
+    private final int capacity;
+    private final BloomFilter filter;
+    private final Set<String> ids = ConcurrentHashMap.newKeySet();
+
+    private Snapshot(final Collection<String> revoked) {
+      // Leave room for revocations at runtime
+      this.capacity = Math.max(MIN_CAPACITY, revoked.size() * 2);
+      this.filter = new BloomFilter(this.capacity, FALSE_POSITIVE_PROBABILITY);
+      for (final String id : revoked) {
+        this.ids.add(id);
+        this.filter.put(id);
+      }
+    }
+  }
+
+}
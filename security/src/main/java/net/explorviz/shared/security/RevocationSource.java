@@ -0,0 +1,22 @@
+package net.explorviz.shared.security;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Supplies the identifiers ({@code jti}) of revoked tokens to a {@link RevocationRegistry}, e.g.
+ * from the database of the user service. Services can bind their own implementation, otherwise the
+ * registry reads a local file.
+ */
+@FunctionalInterface
+public interface RevocationSource {
+
+  /**
+   * Loads the identifiers of all tokens that are currently revoked.
+   *
+   * @return the identifiers of the revoked tokens
+   * @throws IOException if the identifiers could not be loaded
+   */
+  Collection<String> load() throws IOException;
+
+}
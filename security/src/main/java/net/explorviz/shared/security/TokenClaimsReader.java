@@ -0,0 +1,247 @@
+package net.explorviz.shared.security;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import javax.ws.rs.ForbiddenException;
+
+/**
+ * Reads the header and the claims of a JSON web token with a streaming JSON parser. The claims are
+ * read directly into {@link TokenDetails}, without an intermediate map of claims, and validated on
+ * the fly: the audience must match (or, if given as an array, contain) the expected one, and the
+ * token must neither be expired ({@code exp}) nor used before it is valid ({@code nbf}), up to the
+ * allowed clock skew.
+ *
+ * <p>
+ * Instances are immutable and thread-safe. Invalid tokens are rejected with a
+ * {@link ForbiddenException}.
+ * </p>
+ */
+public final class TokenClaimsReader {
+
+  private static final String INVALID_TOKEN_MSG = "Invalid token";
+
+  // Registered header parameters and claims of RFC 7515 and RFC 7519
+  private static final String ALGORITHM = "alg";
+  private static final String KEY_ID = "kid";
+  private static final String COMPRESSION = "zip";
+  private static final String CRITICAL = "crit";
+  private static final String ID = "jti";
+  private static final String SUBJECT = "sub";
+  private static final String AUDIENCE = "aud";
+  private static final String ISSUED_AT = "iat";
+  private static final String EXPIRATION = "exp";
+  private static final String NOT_BEFORE = "nbf";
+
+  // Claims issued by the ExplorViz user service
+  private static final String USER_ID = "userid";
+  private static final String ROLES = "roles";
+  private static final String REFRESH_COUNT = "refreshCount";
+  private static final String REFRESH_LIMIT = "refreshLimit";
+
+  private static final JsonFactory FACTORY = new JsonFactory();
+
+  private final String audience;
+  private final long clockSkewMillis;
+
+  /**
+   * Creates a new reader.
+   *
+   * @param audience - The expected value of the {@code aud} claim.
+   * @param clockSkewInSeconds - The tolerated difference between the clocks of the issuer and this
+   *        service.
+   */
+  public TokenClaimsReader(final String audience, final int clockSkewInSeconds) {
+    this.audience = audience;
+    this.clockSkewMillis = clockSkewInSeconds * 1000L;
+  }
+
+  /**
+   * Reads the signature algorithm and the key identifier from the decoded header of a token.
+   * Compressed tokens and critical extensions are not supported.
+   *
+   * @param header - The decoded JSON header.
+   * @return the header, whose parameters are {@code null} if absent
+   * @throws IOException if the header is not valid JSON
+   */
+  public TokenHeader readHeader(final byte[] header) throws IOException {
+    String algorithm = null;
+    String keyId = null;
+    try (JsonParser parser = FACTORY.createParser(header)) {
+      startObject(parser);
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String name = parser.getCurrentName();
+        parser.nextToken();
+        switch (name) {
+          case ALGORITHM:
+            algorithm = readString(parser);
+            break;
+          case KEY_ID:
+            keyId = readString(parser);
+            break;
+          case COMPRESSION:
+          case CRITICAL:
+            throw new ForbiddenException(INVALID_TOKEN_MSG);
+          default:
+            parser.skipChildren();
+        }
+      }
+    }
+    return new TokenHeader(algorithm, keyId);
+  }
+
+  /**
+   * Reads and validates the decoded claims of a token whose signature was verified.
+   *
+   * @param payload - The decoded JSON payload.
+   * @param now - The current time in milliseconds since the epoch.
+   * @return the details of the token
+   * @throws IOException if the payload is not valid JSON
+   */
+  public TokenDetails read(final byte[] payload, final long now) throws IOException {
+    final TokenDetails.Builder builder = new TokenDetails.Builder();
+    List<String> roles = new ArrayList<>();
+    boolean audienceMatches = false;
+    Long issuedAt = null;
+    Long expiration = null;
+    Long notBefore = null;
+    Integer refreshCount = null;
+    Integer refreshLimit = null;
+
+    try (JsonParser parser = FACTORY.createParser(payload)) {
+      startObject(parser);
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String name = parser.getCurrentName();
+        parser.nextToken();
+        switch (name) {
+          case ID:
+            builder.withId(readString(parser));
+            break;
+          case SUBJECT:
+            builder.withUsername(readString(parser));
+            break;
+          case USER_ID:
+            builder.withUserId(readString(parser));
+            break;
+          case AUDIENCE:
+            audienceMatches = this.readAudience(parser);
+            break;
+          case ISSUED_AT:
+            issuedAt = readNumericDate(parser);
+            break;
+          case EXPIRATION:
+            expiration = readNumericDate(parser);
+            break;
+          case NOT_BEFORE:
+            notBefore = readNumericDate(parser);
+            break;
+          case ROLES:
+            roles = readRoles(parser);
+            break;
+          case REFRESH_COUNT:
+            refreshCount = readInt(parser);
+            break;
+          case REFRESH_LIMIT:
+            refreshLimit = readInt(parser);
+            break;
+          default:
+            parser.skipChildren();
+        }
+      }
+    }
+
+    if (expiration != null && now - this.clockSkewMillis > expiration) {
+      throw new ForbiddenException("Expired token");
+    }
+    if (notBefore != null && now + this.clockSkewMillis < notBefore) {
+      throw new ForbiddenException(INVALID_TOKEN_MSG);
+    }
+    if (!audienceMatches) {
+      throw new ForbiddenException("Invalid value for claim \"" + AUDIENCE + "\"");
+    }
+    if (issuedAt == null || expiration == null || refreshCount == null || refreshLimit == null) {
+      throw new ForbiddenException(INVALID_TOKEN_MSG);
+    }
+
+    return builder.withAuthorities(roles).withIssuedDate(toDate(issuedAt))
+        .withExpirationDate(toDate(expiration)).withRefreshCount(refreshCount)
+        .withRefreshLimit(refreshLimit).build();
+  }
+
+  private static void startObject(final JsonParser parser) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new ForbiddenException(INVALID_TOKEN_MSG);
+    }
+  }
+
+  private static String readString(final JsonParser parser) throws IOException {
+    if (parser.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    } else if (parser.currentToken() != JsonToken.VALUE_STRING) {
+      throw new ForbiddenException(INVALID_TOKEN_MSG);
+    }
+    return parser.getText();
+  }
+
+  /**
+   * Reads the audience, which is either a single string or an array of strings (RFC 7519, 4.1.3).
+   *
+   * @return {@code true} iff the audience is or contains the expected one
+   */
+  private boolean readAudience(final JsonParser parser) throws IOException {
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      return this.audience.equals(readString(parser));
+    }
+    boolean matches = false;
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      matches |= this.audience.equals(readString(parser));
+    }
+    return matches;
+  }
+
+  private static int readInt(final JsonParser parser) throws IOException {
+    if (parser.currentToken() != JsonToken.VALUE_NUMBER_INT) {
+      throw new ForbiddenException(INVALID_TOKEN_MSG);
+    }
+    return parser.getIntValue();
+  }
+
+  /**
+   * Reads a date given in seconds since the epoch and returns it in milliseconds.
+   */
+  private static long readNumericDate(final JsonParser parser) throws IOException {
+    if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+      return parser.getLongValue() * 1000L;
+    } else if (parser.currentToken() == JsonToken.VALUE_NUMBER_FLOAT) {
+      return (long) (parser.getDoubleValue() * 1000L);
+    }
+    throw new ForbiddenException(INVALID_TOKEN_MSG);
+  }
+
+  private static List<String> readRoles(final JsonParser parser) throws IOException {
+    final List<String> roles = new ArrayList<>();
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return roles;
+    }
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      if (parser.currentToken().isScalarValue()) {
+        roles.add(parser.getText());
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return roles;
+  }
+
+  private static ZonedDateTime toDate(final long epochMillis) {
+    return ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+  }
+
+}
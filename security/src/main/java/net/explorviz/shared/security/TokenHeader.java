@@ -0,0 +1,31 @@
+package net.explorviz.shared.security;
+
+/**
+ * The header parameters of a JSON web token that are needed to verify its signature, see
+ * {@link TokenClaimsReader#readHeader(byte[])}.
+ */
+public final class TokenHeader {
+
+  private final String algorithm;
+  private final String keyId;
+
+  /**
+   * Creates a new header.
+   *
+   * @param algorithm - The signature algorithm ({@code alg}).
+   * @param keyId - The identifier of the verification key ({@code kid}), if any.
+   */
+  public TokenHeader(final String algorithm, final String keyId) {
+    this.algorithm = algorithm;
+    this.keyId = keyId;
+  }
+
+  public String getAlgorithm() {
+    return this.algorithm;
+  }
+
+  public String getKeyId() {
+    return this.keyId;
+  }
+
+}
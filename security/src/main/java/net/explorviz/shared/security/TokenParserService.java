@@ -1,157 +1,195 @@
 package net.explorviz.shared.security;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.ExpiredJwtException;
-import io.jsonwebtoken.InvalidClaimException;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.MalformedJwtException;
-import io.jsonwebtoken.UnsupportedJwtException;
-import io.jsonwebtoken.io.Deserializer;
-import io.jsonwebtoken.io.JacksonDeserializer;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Base64;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
 import javax.ws.rs.ForbiddenException;
 import net.explorviz.shared.config.annotations.Config;
+import org.jvnet.hk2.annotations.Optional;
 
 /**
  * This injectable service is used to extract and parse the details of a JSON web token. If used,
  * i.e., injected, do not forget to add the injectable properties to the explorviz.properties file.
+ *
+ * <p>
+ * The signature verifier and the claims reader are built once from the injected properties and
+ * shared by all requests, since both are thread-safe. Signatures are verified with
+ * {@link HmacSignatureVerifier}, the claims are read by {@link TokenClaimsReader} directly into
+ * {@link TokenDetails}.
+ * </p>
+ *
+ * <p>
+ * Tokens signed with {@code RS256} or {@code ES256} are verified with the public key named by their
+ * {@code kid} header parameter, if the optional property {@code jwt.jwksFile} points to a JSON Web
+ * Key Set file (see {@link JwksKeyStore}). The file is watched, thus keys can be rotated without
+ * redeploying the services. Cached tokens are dropped whenever the keys are reloaded.
+ * </p>
+ *
+ * <p>
+ * Verified tokens are kept in a {@link VerifiedTokenCache} until they expire, such that a token
+ * sent with many requests is verified only once. The cache is bound to the service instance, thus
+ * the service should be bound as a singleton.
+ * </p>
  */
 public class TokenParserService {
 
   private static final String INVALID_TOKEN_MSG = "Invalid token";
 
+  private static final int TOKEN_CACHE_SIZE = 10_000;
+
+  private static final byte SEPARATOR = '.';
+
   // Credit: cassiomolin - https://github.com/cassiomolin/jersey-jwt
 
-  @Config("jwt.secret")
-  private String secret;
+  private final HmacSignatureVerifier signatureVerifier;
+  private final TokenClaimsReader claimsReader;
 
-  @Config("jwt.audience")
-  private String audience;
+  private final VerifiedTokenCache tokenCache = new VerifiedTokenCache(TOKEN_CACHE_SIZE);
 
-  @Config("jwt.clockSkewInSeconds")
-  private int clockSkewInSeconds;
+  // Only present if a JWKS file is configured
+  private final JwksKeyStore keyStore;
+  private final PublicKeySignatureVerifier publicKeyVerifier;
 
   /**
-   * Parses a stringified JSON web token and extracts its details into a Java model.
+   * Creates a new service that only accepts tokens signed with the shared secret.
    *
-   * @param token - Stringified JWT.
-   * @return TokenDetails that contain all JWT details
+   * @param secret - The Base64-encoded secret the tokens are signed with.
+   * @param audience - The expected audience of the tokens.
+   * @param clockSkewInSeconds - The tolerated difference between the clocks of the issuer and this
+   *        service.
    */
-  public TokenDetails parseToken(final String token) {
-
-    final ObjectMapper mapper = new ObjectMapper();
-    final SimpleModule module = new SimpleModule();
-    module.addDeserializer(List.class, new RoleJwtDeserializer());
-    mapper.registerModule(module);
-
-    final Deserializer<Map<String, ?>> deserializer = new JacksonDeserializer<>(mapper);
-
-    try {
-
-      final Claims claims = Jwts.parser().deserializeJsonWith(deserializer)
-          .setSigningKey(this.secret).requireAudience(this.audience)
-          .setAllowedClockSkewSeconds(this.clockSkewInSeconds).parseClaimsJws(token).getBody();
-
-      return new TokenDetails.Builder().withId(this.extractTokenIdFromClaims(claims))
-          .withUsername(this.extractUsernameFromClaims(claims))
-          .withAuthorities(this.extractAuthoritiesFromClaims(claims))
-          .withIssuedDate(this.extractIssuedDateFromClaims(claims))
-          .withExpirationDate(this.extractExpirationDateFromClaims(claims))
-          .withRefreshCount(this.extractRefreshCountFromClaims(claims))
-          .withUserId(this.extractUserId(claims))
-          .withRefreshLimit(this.extractRefreshLimitFromClaims(claims)).build();
-
-    } catch (UnsupportedJwtException | MalformedJwtException | IllegalArgumentException e) {
-      throw new ForbiddenException(INVALID_TOKEN_MSG, e);
-    } catch (final ExpiredJwtException e) {
-      throw new ForbiddenException("Expired token", e);
-    } catch (final InvalidClaimException e) {
-      throw new ForbiddenException("Invalid value for claim \"" + e.getClaimName() + "\"", e);
-    } catch (final Exception e) { // NOPMD
-      throw new ForbiddenException(INVALID_TOKEN_MSG, e);
-    }
+  public TokenParserService(final String secret, final String audience,
+      final int clockSkewInSeconds) {
+    this(secret, audience, clockSkewInSeconds, null);
   }
 
   /**
-   * Extract the token identifier from the token claims.
+   * Creates a new service.
    *
-   * @param claims - The JWT claims set
-   * @return Identifier of the JWT token
+   * @param secret - The Base64-encoded secret the tokens are signed with.
+   * @param audience - The expected audience of the tokens.
+   * @param clockSkewInSeconds - The tolerated difference between the clocks of the issuer and this
+   *        service.
+   * @param jwksFile - The path of the JWKS file with the public keys, or {@code null} to only
+   *        accept tokens signed with the shared secret.
+   * @throws UncheckedIOException if the JWKS file can not be loaded
    */
-  private String extractTokenIdFromClaims(@NotNull final Claims claims) {
-    return (String) claims.get(Claims.ID);
+  @Inject
+  public TokenParserService(@Config("jwt.secret") final String secret,
+      @Config("jwt.audience") final String audience,
+      @Config("jwt.clockSkewInSeconds") final int clockSkewInSeconds,
+      @Optional @Config("jwt.jwksFile") final String jwksFile) {
+    this.signatureVerifier = new HmacSignatureVerifier(secret);
+    this.claimsReader = new TokenClaimsReader(audience, clockSkewInSeconds);
+
+    if (jwksFile == null || jwksFile.isEmpty()) {
+      this.keyStore = null;
+      this.publicKeyVerifier = null;
+    } else {
+      try {
+        this.keyStore = new JwksKeyStore(Paths.get(jwksFile), this.tokenCache::invalidateAll);
+        this.keyStore.watch();
+      } catch (final IOException e) {
+        throw new UncheckedIOException("Could not load JWKS file " + jwksFile, e);
+      }
+      this.publicKeyVerifier = new PublicKeySignatureVerifier(this.keyStore);
+    }
   }
 
   /**
-   * Extract the username from the token claims.
+   * Stops watching the JWKS file, if any.
    *
-   * @param claims - The JWT claims set
-   * @return Username from the JWT token
+   * @throws IOException if the file watcher could not be closed
    */
-  private String extractUsernameFromClaims(@NotNull final Claims claims) {
-    return claims.getSubject();
-  }
-
-
-  private String extractUserId(@NotNull final Claims claims) {
-    return claims.get("userid", String.class);
+  @PreDestroy
+  public void close() throws IOException {
+    if (this.keyStore != null) {
+      this.keyStore.close();
+    }
   }
 
   /**
-   * Extract the user authorities from the token claims.
+   * Parses a stringified JSON web token and extracts its details into a Java model. Tokens that
+   * were verified before are taken from the cache, without verifying their signature again.
    *
-   * @param claims - The JWT claims set
-   * @return User authorities from the JWT token
+   * @param token - Stringified JWT.
+   * @return TokenDetails that contain all JWT details
    */
-  @SuppressWarnings("unchecked")
-  private List<String> extractAuthoritiesFromClaims(@NotNull final Claims claims) {
-    return (List<String>) claims.getOrDefault("roles", new ArrayList<String>());
+  public TokenDetails parseToken(final String token) {
+    final TokenDetails cached = this.tokenCache.get(token);
+    if (cached != null) {
+      return cached;
+    }
+
+    final TokenDetails details = this.verifyToken(token);
+    this.tokenCache.put(token, details);
+    return details;
   }
 
   /**
-   * Extract the issued date from the token claims.
+   * Cache of verified tokens, e.g. to monitor its hit rate.
    *
-   * @param claims - The JWT claims set
-   * @return Issued date of the JWT token
+   * @return the cache used by {@link #parseToken(String)}
    */
-  private ZonedDateTime extractIssuedDateFromClaims(@NotNull final Claims claims) {
-    return ZonedDateTime.ofInstant(claims.getIssuedAt().toInstant(), ZoneId.systemDefault());
+  public VerifiedTokenCache getTokenCache() {
+    return this.tokenCache;
   }
 
-  /**
-   * Extract the expiration date from the token claims.
-   *
-   * @param claims - The JWT claims set
-   * @return Expiration date of the JWT token
-   */
-  private ZonedDateTime extractExpirationDateFromClaims(@NotNull final Claims claims) {
-    return ZonedDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault());
+  private TokenDetails verifyToken(final String token) {
+    try {
+      // A compact JWS consists of exactly three Base64URL-encoded parts separated by dots
+      final byte[] ascii = token.getBytes(StandardCharsets.US_ASCII);
+      final int headerEnd = indexOfSeparator(ascii, 0);
+      final int payloadEnd = indexOfSeparator(ascii, headerEnd + 1);
+      if (headerEnd < 0 || payloadEnd < 0 || indexOfSeparator(ascii, payloadEnd + 1) >= 0) {
+        throw new ForbiddenException(INVALID_TOKEN_MSG);
+      }
+
+      final TokenHeader header = this.claimsReader.readHeader(decode(ascii, 0, headerEnd));
+      final byte[] signature = decode(ascii, payloadEnd + 1, ascii.length);
+      final boolean valid;
+      if (PublicKeySignatureVerifier.supports(header.getAlgorithm())) {
+        valid = this.publicKeyVerifier != null
+            && this.publicKeyVerifier.verify(header, ascii, payloadEnd, signature);
+      } else {
+        valid = this.signatureVerifier.verify(header.getAlgorithm(), ascii, payloadEnd, signature);
+      }
+      if (!valid) {
+        throw new ForbiddenException(INVALID_TOKEN_MSG);
+      }
+
+      // Claims are only read once the signature is known to be valid
+      return this.claimsReader.read(decode(ascii, headerEnd + 1, payloadEnd),
+          System.currentTimeMillis());
+
+    } catch (IOException | IllegalArgumentException e) {
+      throw new ForbiddenException(INVALID_TOKEN_MSG, e);
+    }
   }
 
-  /**
-   * Extract the refresh count from the token claims.
-   *
-   * @param claims - The JWT claims set
-   * @return Refresh count from the JWT token
-   */
-  private int extractRefreshCountFromClaims(@NotNull final Claims claims) {
-    return (int) claims.get("refreshCount");
+  private static int indexOfSeparator(final byte[] ascii, final int from) {
+    for (int i = from; i < ascii.length; i++) {
+      if (ascii[i] == SEPARATOR) {
+        return i;
+      }
+    }
+    return -1;
   }
 
-  /**
-   * Extract the refresh limit from the token claims.
-   *
-   * @param claims - The JWT claims set
-   * @return Refresh limit from the JWT token
-   */
-  private int extractRefreshLimitFromClaims(@NotNull final Claims claims) {
-    return (int) claims.get("refreshLimit");
+  private static byte[] decode(final byte[] ascii, final int from, final int to) {
+    final ByteBuffer decoded =
+        Base64.getUrlDecoder().decode(ByteBuffer.wrap(ascii, from, to - from));
+    if (decoded.remaining() == decoded.capacity()) {
+      return decoded.array();
+    }
+    final byte[] bytes = new byte[decoded.remaining()];
+    decoded.get(bytes);
+    return bytes;
   }
+
 }
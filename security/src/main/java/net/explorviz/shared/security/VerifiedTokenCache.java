@@ -0,0 +1,180 @@
+package net.explorviz.shared.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache of JSON web tokens whose signature and claims were already verified, used by the
+ * {@link TokenParserService}. Clients send the same token with every request until it expires,
+ * thus repeated requests are authenticated without verifying the signature and parsing the claims
+ * again.
+ *
+ * <p>
+ * Tokens are identified by their SHA-256 digest, such that the cache does not hold the tokens
+ * themselves. Since the digest covers the signature, a token with a tampered signature or payload
+ * never matches a verified one. Each entry is evicted once its token expires, i.e. at the
+ * {@code exp} claim, regardless of how often it is used. The cache holds at most a fixed amount of
+ * tokens and evicts the least recently used one if full. This class is thread-safe.
+ * </p>
+ */
+public class VerifiedTokenCache {
+
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+
+  private final LongSupplier clock;
+
+  // Least recently used entry first
+  private final Map<String, TokenDetails> cache;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * Creates a new cache.
+   *
+   * @param maximumSize the maximum amount of cached tokens
+   * @throws IllegalArgumentException if the size is not positive
+   */
+  public VerifiedTokenCache(final int maximumSize) {
+    this(maximumSize, System::currentTimeMillis);
+  }
+
+  /**
+   * Creates a new cache with a custom time source in milliseconds since the epoch, used in tests.
+   */
+  VerifiedTokenCache(final int maximumSize, final LongSupplier clock) {
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("Size must be positive");
+    }
+    this.clock = clock;
+    this.cache = new LinkedHashMap<String, TokenDetails>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, TokenDetails> eldest) {
+        if (size() > maximumSize) {
+          VerifiedTokenCache.this.evictions.incrementAndGet();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Returns the details of a verified token.
+   *
+   * @param token - Stringified JWT.
+   * @return the details of the token or {@code null} if the token was not verified before or has
+   *         expired in the meantime
+   */
+  public TokenDetails get(final String token) {
+    final String key = digest(token);
+    synchronized (this) {
+      final TokenDetails details = this.cache.get(key);
+      if (details != null) {
+        if (!this.isExpired(details)) {
+          this.hits.incrementAndGet();
+          return details;
+        }
+        this.cache.remove(key);
+        this.evictions.incrementAndGet();
+      }
+    }
+    this.misses.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Adds a token whose signature and claims were verified. Expired tokens are not cached.
+   *
+   * @param token - Stringified JWT.
+   * @param details - The details parsed from the token.
+   */
+  public void put(final String token, final TokenDetails details) {
+    if (details.getExpirationDate() == null || this.isExpired(details)) {
+      return;
+    }
+    final String key = digest(token);
+    synchronized (this) {
+      this.cache.put(key, details);
+    }
+  }
+
+  /**
+   * Removes all cached tokens, e.g. after the signing key changed.
+   */
+  public synchronized void invalidateAll() {
+    this.cache.clear();
+  }
+
+  /**
+   * Amount of cached tokens, including expired ones that were not evicted yet.
+   *
+   * @return the amount of cached tokens
+   */
+  public synchronized int size() {
+    return this.cache.size();
+  }
+
+  /**
+   * Amount of tokens found in the cache.
+   *
+   * @return the amount of cache hits
+   */
+  public long getHitCount() {
+    return this.hits.get();
+  }
+
+  /**
+   * Amount of tokens that had to be verified.
+   *
+   * @return the amount of cache misses
+   */
+  public long getMissCount() {
+    return this.misses.get();
+  }
+
+  /**
+   * Amount of tokens removed due to the size limit or expiration. Invalidations are not counted.
+   *
+   * @return the amount of evictions
+   */
+  public long getEvictionCount() {
+    return this.evictions.get();
+  }
+
+  /**
+   * Ratio of tokens found in the cache.
+   *
+   * @return the hit rate between 0 and 1, or 0 if no tokens were looked up yet
+   */
+  public double getHitRate() {
+    final long h = this.hits.get();
+    final long total = h + this.misses.get();
+    return total == 0 ? 0 : (double) h / total;
+  }
+
+  private boolean isExpired(final TokenDetails details) {
+    return this.clock.getAsLong() >= details.getExpirationDate().toInstant().toEpochMilli();
+  }
+
+  private static String digest(final String token) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+      return Base64.getEncoder()
+          .encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    } catch (final NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
@@ -3,6 +3,7 @@ package net.explorviz.shared.security.filters;
 import java.io.IOException;
 import javax.annotation.Priority;
 import javax.inject.Inject;
+import javax.ws.rs.ForbiddenException;
 import javax.ws.rs.Priorities;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
@@ -10,9 +11,11 @@ import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.SecurityContext;
 import javax.ws.rs.ext.Provider;
 import net.explorviz.shared.security.AuthenticatedUserDetails;
+import net.explorviz.shared.security.RevocationRegistry;
 import net.explorviz.shared.security.TokenBasedSecurityContext;
 import net.explorviz.shared.security.TokenParserService;
 import net.explorviz.shared.security.TokenDetails;
+import org.jvnet.hk2.annotations.Optional;
 
 /**
  * Custom {@link ContainerRequestFilter} that is used for JWT-based authentication. If used in a web
@@ -24,6 +27,11 @@ import net.explorviz.shared.security.TokenDetails;
  * Additionally, it prepares the {@link TokenBasedSecurityContext} for the AuthorizationFilter.
  * Authentication error exceptions are thrown in the {@link AuthorizationFilter}.
  * </p>
+ *
+ * <p>
+ * If a {@link RevocationRegistry} is bound, tokens that were revoked before they expired are
+ * rejected with {@code 403 Forbidden}.
+ * </p>
  */
 @Provider
 @Priority(Priorities.AUTHENTICATION)
@@ -35,6 +43,10 @@ public class AuthenticationFilter implements ContainerRequestFilter {
   @Inject
   private TokenParserService tokenParser;
 
+  @Inject
+  @Optional
+  private RevocationRegistry revocationRegistry;
+
   @Override
   public void filter(final ContainerRequestContext requestContext) throws IOException {
 
@@ -51,6 +63,11 @@ public class AuthenticationFilter implements ContainerRequestFilter {
 
     final TokenDetails tokenDetails = this.tokenParser.parseToken(authenticationToken);
 
+    if (this.revocationRegistry != null
+        && this.revocationRegistry.isRevoked(tokenDetails.getId())) {
+      throw new ForbiddenException("Revoked token");
+    }
+
     final AuthenticatedUserDetails authenticatedUserDetails =
         new AuthenticatedUserDetails(tokenDetails.getUsername(), tokenDetails.getRoles());
 
@@ -0,0 +1,40 @@
+package net.explorviz.shared.security.filters;
+
+import java.lang.reflect.Method;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Registers an {@link AuthorizationFilter} for every resource method that is (or whose resource
+ * class is) annotated with {@link Secure}. The {@link AuthorizationPolicy} of each method is
+ * resolved once, when the application is initialized, such that requests do not reflect on the
+ * resource method anymore.
+ *
+ * <p>
+ * If the {@link AuthorizationFilter} class is registered as well (the deprecated way to enable
+ * authorization), both filters apply to secured requests. Only the first of them authorizes a
+ * request, the other one skips it. Registering only this feature is recommended.
+ * </p>
+ */
+@Provider
+public class AuthorizationFeature implements DynamicFeature {
+
+  @Override
+  public void configure(final ResourceInfo resourceInfo, final FeatureContext context) {
+    final Method method = resourceInfo.getResourceMethod();
+    final Class<?> resourceClass = resourceInfo.getResourceClass();
+    if (method == null || resourceClass == null) {
+      return;
+    }
+
+    if (method.isAnnotationPresent(Secure.class)
+        || resourceClass.isAnnotationPresent(Secure.class)) {
+      final AuthorizationPolicy policy = AuthorizationPolicy.resolve(method, resourceClass);
+      context.register(new AuthorizationFilter(policy), Priorities.AUTHORIZATION);
+    }
+  }
+
+}
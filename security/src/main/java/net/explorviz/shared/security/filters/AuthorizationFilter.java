@@ -2,11 +2,10 @@ package net.explorviz.shared.security.filters;
 
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Priority;
-import javax.annotation.security.DenyAll;
-import javax.annotation.security.PermitAll;
 import javax.annotation.security.RolesAllowed;
-import javax.ws.rs.ForbiddenException;
 import javax.ws.rs.NotAuthorizedException;
 import javax.ws.rs.Priorities;
 import javax.ws.rs.container.ContainerRequestContext;
@@ -26,89 +25,86 @@ import net.explorviz.shared.security.TokenBasedSecurityContext;
  * class method annotations (e.g. {@link RolesAllowed} to determine if the user is authenticated and
  * is authorized to proceed with the resource class.
  * </p>
+ *
+ * <p>
+ * The annotations are not evaluated per request. Instead, the {@link AuthorizationFeature}
+ * resolves them once per resource method at startup and registers a filter that holds the
+ * resulting {@link AuthorizationPolicy}.
+ * </p>
+ *
+ * <p>
+ * Registering this class itself (e.g. {@code register(AuthorizationFilter.class)}) is deprecated
+ * but still supported: the filter then resolves the policy of a resource method on its first
+ * request and caches it. To migrate, register the {@link AuthorizationFeature} instead of this
+ * class. If both are registered, a request is only authorized by the first filter, see
+ * {@link #filter(ContainerRequestContext)}.
+ * </p>
  */
 @Provider
 @Priority(Priorities.AUTHORIZATION)
 @Secure
 public class AuthorizationFilter implements ContainerRequestFilter {
 
-  private static final String NO_PERMISSION_MSG =
-      "You don't have permissions to perform this action.";
-
   private static final String NOT_AUTHENTICATED_MSG =
       "Authentication is required to perform this action.";
 
   // Credit: https://github.com/cassiomolin/jersey-jwt
 
+  // Marks authorized requests, such that they are not authorized twice if this class is registered
+  // along with the AuthorizationFeature. The registration of a class can not be detected by the
+  // feature, it only sees the configuration of the resource method.
+  private static final String AUTHORIZED_PROPERTY = AuthorizationFilter.class.getName();
+
+  private final AuthorizationPolicy policy;
+
+  // Only used if registered by class, then the policy is resolved per resource method. Methods
+  // can be inherited by several resource classes with different annotations.
   @Context
   private ResourceInfo resourceInfo;
+  private final Map<Class<?>, Map<Method, AuthorizationPolicy>> policies =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Creates a filter that resolves the policy of each resource method on its first request.
+   *
+   * @deprecated Register the {@link AuthorizationFeature} instead, which resolves the policies at
+   *             startup.
+   */
+  @Deprecated
+  public AuthorizationFilter() {
+    this(null);
+  }
 
+  AuthorizationFilter(final AuthorizationPolicy policy) {
+    this.policy = policy;
+  }
+
+  /**
+   * Authorizes the request, unless it was authorized by another instance of this filter already.
+   */
   @Override
   public void filter(final ContainerRequestContext requestContext) throws IOException { // NOPMD
+    if (requestContext.getProperty(AUTHORIZED_PROPERTY) != null) {
+      return;
+    }
 
     // This filter implies that a user has to be at least authenticated
     if (!isAuthenticated(requestContext)) {
       throw new NotAuthorizedException(NOT_AUTHENTICATED_MSG);
     }
 
-    final Method method = resourceInfo.getResourceMethod();
-
-
-    if (method.getName().equals("apply")) {
-      // TODO where does the apply message come from?
-      // It is only called, if the request is not issued with curl but the frontend
-      return;
-    }
-
-    // @DenyAll on the method takes precedence over @RolesAllowed and @PermitAll
-    if (method.isAnnotationPresent(DenyAll.class)) {
-      throw new ForbiddenException(NO_PERMISSION_MSG);
-    }
-
-    // @RolesAllowed on the method takes precedence over @PermitAll
-    RolesAllowed rolesAllowed = method.getAnnotation(RolesAllowed.class);
-    if (rolesAllowed != null) {
-      performAuthorization(rolesAllowed.value(), requestContext);
-      return;
-    }
-
-    // @PermitAll on the method takes precedence over @RolesAllowed on the class
-    if (method.isAnnotationPresent(PermitAll.class)) {
-      // Do nothing
-      return;
-    }
-
-    // @DenyAll can't be attached to classes
-
-    // @RolesAllowed on the class takes precedence over @PermitAll on the class
-    rolesAllowed = resourceInfo.getResourceClass().getAnnotation(RolesAllowed.class);
-    if (rolesAllowed != null) {
-      performAuthorization(rolesAllowed.value(), requestContext);
-      return;
-    }
-
-    // @PermitAll on the class, lowest precedence
-    if (resourceInfo.getResourceClass().isAnnotationPresent(PermitAll.class)) {
-      // Do nothing
-      return;
-    }
-
-    // No annotation <=> Deny All
-    throw new NotAuthorizedException(NO_PERMISSION_MSG);
+    this.policy().authorize(requestContext.getSecurityContext());
+    requestContext.setProperty(AUTHORIZED_PROPERTY, Boolean.TRUE);
   }
 
-  private void performAuthorization(final String[] rolesAllowed,
-      final ContainerRequestContext requestContext) {
-
-
-    for (final String role : rolesAllowed) {
-      if (requestContext.getSecurityContext().isUserInRole(role)) {
-        // authorized => everything is good
-        return;
-      }
+  private AuthorizationPolicy policy() {
+    if (this.policy != null) {
+      return this.policy;
     }
-
-    throw new NotAuthorizedException(NO_PERMISSION_MSG);
+    final Method method = this.resourceInfo.getResourceMethod();
+    final Class<?> resourceClass = this.resourceInfo.getResourceClass();
+    return this.policies.computeIfAbsent(resourceClass, c -> new ConcurrentHashMap<>())
+        .computeIfAbsent(method, m -> AuthorizationPolicy.resolve(m, resourceClass));
   }
 
   private boolean isAuthenticated(final ContainerRequestContext requestContext) {
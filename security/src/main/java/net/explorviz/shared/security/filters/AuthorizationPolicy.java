@@ -0,0 +1,140 @@
+package net.explorviz.shared.security.filters;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import javax.annotation.security.DenyAll;
+import javax.annotation.security.PermitAll;
+import javax.annotation.security.RolesAllowed;
+import javax.ws.rs.ForbiddenException;
+import javax.ws.rs.NotAuthorizedException;
+import javax.ws.rs.core.SecurityContext;
+import net.explorviz.shared.security.AuthenticatedUserDetails;
+
+/**
+ * Effective authorization policy of a single resource method, resolved once from its
+ * {@link DenyAll}, {@link RolesAllowed} and {@link PermitAll} annotations and those of its resource
+ * class. Instances are immutable and shared by all requests of the method.
+ */
+final class AuthorizationPolicy {
+
+  private static final String NO_PERMISSION_MSG =
+      "You don't have permissions to perform this action.";
+
+  /** No annotation at all, requests are denied. */
+  static final AuthorizationPolicy DEFAULT_DENY =
+      new AuthorizationPolicy(Effect.DEFAULT_DENY, Collections.emptySet());
+
+  private static final AuthorizationPolicy DENY_ALL =
+      new AuthorizationPolicy(Effect.DENY_ALL, Collections.emptySet());
+
+  private static final AuthorizationPolicy PERMIT_ALL =
+      new AuthorizationPolicy(Effect.PERMIT_ALL, Collections.emptySet());
+
+  private final Effect effect;
+  private final Set<String> rolesAllowed;
+
+  private AuthorizationPolicy(final Effect effect, final Set<String> rolesAllowed) {
+    this.effect = effect;
+    this.rolesAllowed = rolesAllowed;
+  }
+
+  /**
+   * Resolves the policy of a resource method. Annotations of the method take precedence over
+   * annotations of the class. On the same level, {@link DenyAll} takes precedence over
+   * {@link RolesAllowed}, which takes precedence over {@link PermitAll}.
+   *
+   * @param method - The resource method.
+   * @param resourceClass - The resource class of the method.
+   * @return the policy
+   */
+  static AuthorizationPolicy resolve(final Method method, final Class<?> resourceClass) {
+    if (method.getName().equals("apply")) {
+      // TODO where does the apply message come from?
+      // It is only called, if the request is not issued with curl but the frontend
+      return PERMIT_ALL;
+    }
+
+    if (method.isAnnotationPresent(DenyAll.class)) {
+      return DENY_ALL;
+    }
+
+    RolesAllowed rolesAllowed = method.getAnnotation(RolesAllowed.class);
+    if (rolesAllowed != null) {
+      return ofRoles(rolesAllowed);
+    }
+
+    if (method.isAnnotationPresent(PermitAll.class)) {
+      return PERMIT_ALL;
+    }
+
+    // @DenyAll can't be attached to classes
+
+    rolesAllowed = resourceClass.getAnnotation(RolesAllowed.class);
+    if (rolesAllowed != null) {
+      return ofRoles(rolesAllowed);
+    }
+
+    if (resourceClass.isAnnotationPresent(PermitAll.class)) {
+      return PERMIT_ALL;
+    }
+
+    return DEFAULT_DENY;
+  }
+
+  /**
+   * Checks whether the authenticated user of a request may proceed.
+   *
+   * @param securityContext - The security context of the authenticated user.
+   * @throws ForbiddenException if the method is annotated with {@link DenyAll}
+   * @throws NotAuthorizedException if the user has none of the allowed roles
+   */
+  void authorize(final SecurityContext securityContext) {
+    switch (this.effect) {
+      case PERMIT_ALL:
+        return;
+      case DENY_ALL:
+        throw new ForbiddenException(NO_PERMISSION_MSG);
+      case ROLES_ALLOWED:
+        if (this.hasAllowedRole(securityContext)) {
+          return;
+        }
+        throw new NotAuthorizedException(NO_PERMISSION_MSG);
+      default:
+        throw new NotAuthorizedException(NO_PERMISSION_MSG);
+    }
+  }
+
+  private boolean hasAllowedRole(final SecurityContext securityContext) {
+    if (securityContext.getUserPrincipal() instanceof AuthenticatedUserDetails) {
+      // Users have only a few roles, so look them up in the allowed ones
+      final AuthenticatedUserDetails user =
+          (AuthenticatedUserDetails) securityContext.getUserPrincipal();
+      for (final String role : user.getRoles()) {
+        if (this.rolesAllowed.contains(role)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    for (final String role : this.rolesAllowed) {
+      if (securityContext.isUserInRole(role)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static AuthorizationPolicy ofRoles(final RolesAllowed rolesAllowed) {
+    final Set<String> roles = new HashSet<>(Arrays.asList(rolesAllowed.value()));
+    return new AuthorizationPolicy(Effect.ROLES_ALLOWED, Collections.unmodifiableSet(roles));
+  }
+
+  private enum Effect {
+    PERMIT_ALL, DENY_ALL, ROLES_ALLOWED, DEFAULT_DENY
+  }
+
+}
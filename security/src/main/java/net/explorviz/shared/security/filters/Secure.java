@@ -17,8 +17,11 @@ import javax.ws.rs.NameBinding;
  * <p>If a resource class is annotated, the above explained applies to all contained resource
  * methods.
  *
- * <p>You need to make sure that {@link AuthenticationFilter} and {@link AuthorizationFilter} are
- * registered in this order at the application.
+ * <p>You need to make sure that {@link AuthenticationFilter} and {@link AuthorizationFeature} are
+ * registered at the application. The latter registers an {@link AuthorizationFilter} for each
+ * secured resource method, which runs after the AuthenticationFilter. Registering the
+ * AuthorizationFilter class instead still works but is deprecated, since it has to look up the
+ * annotations of a resource method on its first request.
  */
 @Target({ElementType.TYPE, ElementType.METHOD})
 @Retention(RetentionPolicy.RUNTIME)
@@ -0,0 +1,73 @@
+package net.explorviz.shared.security;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link FileWatcher}.
+ */
+public class FileWatcherTest {
+
+  private static final long TIMEOUT_SECONDS = 10;
+
+  @TempDir
+  Path directory;
+
+  /**
+   * Test if replacing the file is detected.
+   */
+  @Test
+  public void testReplaced() throws IOException, InterruptedException {
+    final Path file = this.directory.resolve("keys.json");
+    write(file, "1");
+
+    final Semaphore changes = new Semaphore(0);
+    try (FileWatcher watcher = FileWatcher.start(file, "test-watcher", changes::release)) {
+      final Path replacement = this.directory.resolve("keys.json.tmp");
+      write(replacement, "2");
+      Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING);
+
+      assertTrue(changes.tryAcquire(TIMEOUT_SECONDS, TimeUnit.SECONDS), "Change not detected");
+    }
+  }
+
+  /**
+   * Test if a mounted secret is detected whose directory of the current version is swapped, as
+   * done by Kubernetes: {@code keys.json -> ..data/keys.json} and {@code ..data -> ..v1}.
+   */
+  @Test
+  public void testSwappedLink() throws IOException, InterruptedException {
+    write(this.directory.resolve("..v1").resolve("keys.json"), "1");
+    write(this.directory.resolve("..v2").resolve("keys.json"), "2");
+    final Path data = this.directory.resolve("..data");
+    Files.createSymbolicLink(data, Paths.get("..v1"));
+    final Path file = this.directory.resolve("keys.json");
+    Files.createSymbolicLink(file, Paths.get("..data", "keys.json"));
+
+    final Semaphore changes = new Semaphore(0);
+    try (FileWatcher watcher = FileWatcher.start(file, "test-watcher", changes::release)) {
+      final Path newData = this.directory.resolve("..data_tmp");
+      Files.createSymbolicLink(newData, Paths.get("..v2"));
+      Files.move(newData, data, StandardCopyOption.ATOMIC_MOVE);
+
+      assertTrue(changes.tryAcquire(TIMEOUT_SECONDS, TimeUnit.SECONDS), "Swap not detected");
+    }
+  }
+
+  private static void write(final Path file, final String content) throws IOException {
+    Files.createDirectories(file.getParent());
+    Files.write(file, Collections.singletonList(content), StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,108 @@
+package net.explorviz.shared.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link JwksKeyStore}.
+ */
+public class JwksKeyStoreTest {
+
+  @TempDir
+  Path directory;
+
+  private Path file;
+  private ECPublicKey first;
+  private ECPublicKey second;
+
+  @BeforeEach
+  public void setUp() throws GeneralSecurityException {
+    this.file = this.directory.resolve("jwks.json");
+    final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+    generator.initialize(new ECGenParameterSpec("secp256r1"));
+    this.first = (ECPublicKey) generator.generateKeyPair().getPublic();
+    this.second = (ECPublicKey) generator.generateKeyPair().getPublic();
+  }
+
+  /**
+   * Test if keys are looked up by their identifier and algorithm restriction.
+   */
+  @Test
+  public void testLookup() throws IOException {
+    Tokens.writeJwks(this.file, Arrays.asList(Tokens.jwk("first", this.first, "ES256"),
+        Tokens.jwk("second", this.second, null)));
+    final JwksKeyStore keyStore = new JwksKeyStore(this.file, () -> { });
+
+    assertEquals(2, keyStore.size());
+    assertEquals(this.first, keyStore.getKey("first", "ES256"));
+    assertNull(keyStore.getKey("first", "RS256"), "Algorithm restriction ignored");
+    assertEquals(this.second, keyStore.getKey("second", "ES256"));
+    assertNull(keyStore.getKey("third", "ES256"));
+    assertNull(keyStore.getKey(null, "ES256"));
+  }
+
+  /**
+   * Test if keys without identifier or not meant for signatures are skipped, and weak keys are
+   * rejected.
+   */
+  @Test
+  public void testSkippedKeys() throws IOException, GeneralSecurityException {
+    final Map<String, Object> encryption = Tokens.jwk("encryption", this.first, null);
+    encryption.put("use", "enc");
+    final Map<String, Object> anonymous = Tokens.jwk("anonymous", this.second, null);
+    anonymous.remove("kid");
+    Tokens.writeJwks(this.file, Arrays.asList(encryption, anonymous));
+    assertEquals(0, new JwksKeyStore(this.file, () -> { }).size());
+
+    final KeyPairGenerator rsa = KeyPairGenerator.getInstance("RSA");
+    rsa.initialize(1024);
+    Tokens.writeJwks(this.file, Collections.singletonList(
+        Tokens.jwk("weak", (RSAPublicKey) rsa.generateKeyPair().getPublic(), null)));
+    assertThrows(IOException.class, () -> new JwksKeyStore(this.file, () -> { }));
+  }
+
+  /**
+   * Test if a reload replaces the keys and drops the cached tokens, while an invalid file keeps
+   * both.
+   */
+  @Test
+  public void testReload() throws IOException {
+    Tokens.writeJwks(this.file, Collections.singletonList(Tokens.jwk("first", this.first, null)));
+    final VerifiedTokenCache cache = new VerifiedTokenCache(10);
+    final JwksKeyStore keyStore = new JwksKeyStore(this.file, cache::invalidateAll);
+    cache.put("token",
+        new TokenDetails.Builder().withExpirationDate(ZonedDateTime.now().plusHours(1)).build());
+
+    Files.write(this.file, "{\"keys\":".getBytes(StandardCharsets.UTF_8));
+    assertThrows(IOException.class, keyStore::reload);
+    assertNotNull(keyStore.getKey("first", "ES256"), "Keys dropped on invalid file");
+    assertEquals(1, cache.size(), "Tokens dropped on invalid file");
+
+    Tokens.writeJwks(this.file,
+        Collections.singletonList(Tokens.jwk("second", this.second, null)));
+    keyStore.reload();
+    assertNull(keyStore.getKey("first", "ES256"), "Removed key kept");
+    assertEquals(this.second, keyStore.getKey("second", "ES256"));
+    assertNull(cache.get("token"), "Token verified with a removed key kept");
+  }
+
+}
@@ -0,0 +1,168 @@
+package net.explorviz.shared.security;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import javax.ws.rs.ForbiddenException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the verification of {@code RS256} and {@code ES256} tokens with the keys of a JWKS
+ * file, see {@link PublicKeySignatureVerifier} and {@link TokenParserService}.
+ */
+public class PublicKeySignatureVerifierTest {
+
+  private static KeyPair rsaKeys;
+  private static KeyPair ecKeys;
+
+  @TempDir
+  Path directory;
+
+  private TokenParserService service;
+
+  @BeforeAll
+  public static void generateKeys() throws GeneralSecurityException {
+    final KeyPairGenerator rsa = KeyPairGenerator.getInstance("RSA");
+    rsa.initialize(2048);
+    rsaKeys = rsa.generateKeyPair();
+
+    final KeyPairGenerator ec = KeyPairGenerator.getInstance("EC");
+    ec.initialize(new ECGenParameterSpec("secp256r1"));
+    ecKeys = ec.generateKeyPair();
+  }
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    final Path jwks = this.directory.resolve("jwks.json");
+    Tokens.writeJwks(jwks,
+        Arrays.asList(Tokens.jwk("rsa", (RSAPublicKey) rsaKeys.getPublic(), null),
+            Tokens.jwk("ec", (ECPublicKey) ecKeys.getPublic(), "ES256"),
+            Tokens.jwk("restricted", (RSAPublicKey) rsaKeys.getPublic(), "PS256")));
+    this.service =
+        new TokenParserService(Tokens.SECRET, Tokens.AUDIENCE, 10, jwks.toString());
+  }
+
+  @AfterEach
+  public void tearDown() throws IOException {
+    this.service.close();
+  }
+
+  private String rs256(final String keyId) throws GeneralSecurityException, IOException {
+    return Tokens.sign("SHA256withRSA", rsaKeys.getPrivate(), Tokens.header("RS256", keyId),
+        Tokens.claims());
+  }
+
+  /**
+   * Test if tokens signed with a key of the JWKS are accepted.
+   */
+  @Test
+  public void testValid() throws GeneralSecurityException, IOException {
+    assertNotNull(this.service.parseToken(rs256("rsa")));
+    assertNotNull(this.service.parseToken(Tokens.sign("SHA256withECDSA", ecKeys.getPrivate(),
+        Tokens.header("ES256", "ec"), Tokens.claims())));
+  }
+
+  /**
+   * Test if tokens without or with an unknown key identifier are rejected.
+   */
+  @Test
+  public void testUnknownKey() throws GeneralSecurityException, IOException {
+    final String unknown = rs256("unknown");
+    assertThrows(ForbiddenException.class, () -> this.service.parseToken(unknown));
+
+    final String withoutKeyId = rs256(null);
+    assertThrows(ForbiddenException.class, () -> this.service.parseToken(withoutKeyId));
+  }
+
+  /**
+   * Test if keys restricted to another algorithm are not used.
+   */
+  @Test
+  public void testAlgorithmRestriction() throws GeneralSecurityException, IOException {
+    final String restricted = rs256("restricted");
+    assertThrows(ForbiddenException.class, () -> this.service.parseToken(restricted));
+  }
+
+  /**
+   * Test if public keys can not be used as HMAC secrets, and keys only verify tokens of their
+   * type.
+   */
+  @Test
+  public void testAlgorithmConfusion() throws GeneralSecurityException, IOException {
+    final String hmacWithPublicKey = Tokens.hs256(rsaKeys.getPublic().getEncoded(),
+        Tokens.header("HS256", "rsa"), Tokens.claims());
+    assertThrows(ForbiddenException.class, () -> this.service.parseToken(hmacWithPublicKey));
+
+    final String rsaSignedAsEc = Tokens.sign("SHA256withRSA", rsaKeys.getPrivate(),
+        Tokens.header("ES256", "rsa"), Tokens.claims());
+    assertThrows(ForbiddenException.class, () -> this.service.parseToken(rsaSignedAsEc));
+
+    final String withoutJwks = rs256("rsa");
+    assertThrows(ForbiddenException.class,
+        () -> new TokenParserService(Tokens.SECRET, Tokens.AUDIENCE, 10)
+            .parseToken(withoutJwks));
+  }
+
+  /**
+   * Test if ES256 signatures are accepted whose coordinates have leading zero bytes or the high
+   * bit set, which both change their DER encoding.
+   */
+  @Test
+  public void testEs256Encoding() throws GeneralSecurityException, IOException {
+    final JwksKeyStore keyStore =
+        new JwksKeyStore(this.directory.resolve("jwks.json"), () -> { });
+    final PublicKeySignatureVerifier verifier = new PublicKeySignatureVerifier(keyStore);
+    final TokenHeader header = new TokenHeader("ES256", "ec");
+    final Map<String, Object> claims = Tokens.claims();
+
+    boolean leadingZero = false;
+    boolean highBit = false;
+    for (int i = 0; i < 10_000 && !(leadingZero && highBit); i++) {
+      claims.put("jti", String.valueOf(i));
+      final String token =
+          Tokens.sign("SHA256withECDSA", ecKeys.getPrivate(), Tokens.header("ES256", "ec"),
+              claims);
+      final int signingInputLength = token.lastIndexOf('.');
+      final byte[] signature =
+          Base64.getUrlDecoder().decode(token.substring(signingInputLength + 1));
+
+      final boolean zero = signature[0] == 0 || signature[32] == 0;
+      final boolean high = signature[0] < 0 || signature[32] < 0;
+      if (zero && !leadingZero || high && !highBit) {
+        assertTrue(verifier.verify(header, token.getBytes(StandardCharsets.US_ASCII),
+            signingInputLength, signature), "Valid signature rejected");
+        leadingZero |= zero;
+        highBit |= high;
+      }
+    }
+    assertTrue(leadingZero && highBit, "No signature with both encodings");
+
+    // Signatures must consist of exactly two coordinates of 32 bytes
+    final String token = Tokens.sign("SHA256withECDSA", ecKeys.getPrivate(),
+        Tokens.header("ES256", "ec"), claims);
+    final int signingInputLength = token.lastIndexOf('.');
+    final byte[] signature =
+        Base64.getUrlDecoder().decode(token.substring(signingInputLength + 1));
+    assertFalse(verifier.verify(header, token.getBytes(StandardCharsets.US_ASCII),
+        signingInputLength, Arrays.copyOf(signature, 63)));
+  }
+
+}
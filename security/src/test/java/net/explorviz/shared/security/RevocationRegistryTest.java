@@ -0,0 +1,149 @@
+package net.explorviz.shared.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link RevocationRegistry} and {@link BloomFilter}.
+ */
+public class RevocationRegistryTest {
+
+  @TempDir
+  Path directory;
+
+  /**
+   * Test if revoked identifiers are reported, confirmed by the exact set after a Bloom filter hit.
+   */
+  @Test
+  public void testRevoked() throws IOException {
+    final RevocationRegistry registry =
+        new RevocationRegistry(() -> Arrays.asList("revoked-1", "revoked-2"));
+
+    assertTrue(registry.mightBeRevoked("revoked-1"));
+    assertTrue(registry.isRevoked("revoked-1"));
+    assertTrue(registry.isRevoked("revoked-2"));
+    assertFalse(registry.isRevoked("valid"));
+    assertFalse(registry.isRevoked(null), "Tokens without jti are never revoked");
+  }
+
+  /**
+   * Test if a false positive of the Bloom filter is not reported as revoked.
+   */
+  @Test
+  public void testFalsePositive() throws IOException {
+    final List<String> revoked = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      revoked.add("revoked-" + i);
+    }
+    final RevocationRegistry registry = new RevocationRegistry(() -> revoked);
+
+    String falsePositive = null;
+    for (int i = 0; i < 100_000 && falsePositive == null; i++) {
+      if (registry.mightBeRevoked("valid-" + i)) {
+        falsePositive = "valid-" + i;
+      }
+    }
+    assertNotNull(falsePositive, "No false positive found");
+    assertFalse(registry.isRevoked(falsePositive), "False positive reported as revoked");
+  }
+
+  /**
+   * Test if runtime revocations are kept beyond the capacity of the filter and dropped on reload.
+   */
+  @Test
+  public void testRevoke() throws IOException {
+    final Collection<String> source = new ArrayList<>();
+    source.add("from-source");
+    final RevocationRegistry registry = new RevocationRegistry(() -> new ArrayList<>(source));
+
+    for (int i = 0; i < 3000; i++) {
+      registry.revoke("runtime-" + i);
+    }
+    assertEquals(3001, registry.size());
+    for (int i = 0; i < 3000; i++) {
+      assertTrue(registry.isRevoked("runtime-" + i), "Revocation lost");
+    }
+
+    registry.reload();
+    assertEquals(1, registry.size());
+    assertFalse(registry.isRevoked("runtime-0"));
+    assertTrue(registry.isRevoked("from-source"));
+  }
+
+  /**
+   * Test if the file source skips comments and blank lines.
+   */
+  @Test
+  public void testFileSource() throws IOException {
+    final Path file = this.directory.resolve("revoked.txt");
+    Files.write(file, Arrays.asList("# revoked tokens", "", "  revoked-1  ", "revoked-2"),
+        StandardCharsets.UTF_8);
+
+    final RevocationRegistry registry = new RevocationRegistry(null, file.toString());
+    try {
+      assertEquals(2, registry.size());
+      assertTrue(registry.isRevoked("revoked-1"));
+      assertFalse(registry.isRevoked("# revoked tokens"));
+    } finally {
+      registry.close();
+    }
+  }
+
+  /**
+   * Test if no watcher is started if the file can not be loaded.
+   */
+  @Test
+  public void testMissingFile() {
+    final String file = this.directory.resolve("missing.txt").toString();
+    final Set<Thread> watchers = watcherThreads();
+
+    assertThrows(UncheckedIOException.class, () -> new RevocationRegistry(null, file));
+    assertTrue(watchers.containsAll(watcherThreads()), "Watcher started");
+  }
+
+  private static Set<Thread> watcherThreads() {
+    return Thread.getAllStackTraces().keySet().stream()
+        .filter(thread -> "revocation-watcher".equals(thread.getName()))
+        .collect(Collectors.toSet());
+  }
+
+  /**
+   * Test if the Bloom filter has no false negatives and roughly the configured false positive
+   * probability.
+   */
+  @Test
+  public void testBloomFilter() {
+    final BloomFilter filter = new BloomFilter(1000, 0.01);
+    for (int i = 0; i < 1000; i++) {
+      filter.put("added-" + i);
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(filter.mightContain("added-" + i), "False negative");
+      if (filter.mightContain("other-" + i)) {
+        falsePositives++;
+      }
+    }
+    assertTrue(falsePositives < 50, "Too many false positives: " + falsePositives);
+
+    assertThrows(IllegalArgumentException.class, () -> new BloomFilter(10, 1));
+  }
+
+}
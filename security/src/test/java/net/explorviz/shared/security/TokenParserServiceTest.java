@@ -0,0 +1,160 @@
+package net.explorviz.shared.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Map;
+import javax.ws.rs.ForbiddenException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the verification of HMAC-signed tokens by {@link TokenParserService}.
+ */
+public class TokenParserServiceTest {
+
+  private TokenParserService service;
+  private Map<String, Object> claims;
+  private long now;
+
+  @BeforeEach
+  public void setUp() {
+    this.service = new TokenParserService(Tokens.SECRET, Tokens.AUDIENCE, 10);
+    this.claims = Tokens.claims();
+    this.now = (Long) this.claims.get("iat");
+  }
+
+  private TokenDetails parse() throws GeneralSecurityException, JsonProcessingException {
+    return this.service.parseToken(Tokens.hs256(Tokens.SECRET, this.claims));
+  }
+
+  private void assertRejected() {
+    assertThrows(ForbiddenException.class, this::parse);
+  }
+
+  /**
+   * Test if the claims of a valid token are read and the token is verified only once.
+   */
+  @Test
+  public void testValid() throws GeneralSecurityException, JsonProcessingException {
+    final String token = Tokens.hs256(Tokens.SECRET, this.claims);
+    final TokenDetails details = this.service.parseToken(token);
+
+    assertEquals("token-id", details.getId());
+    assertEquals("admin", details.getUsername());
+    assertEquals("1", details.getUserId());
+    assertEquals(Arrays.asList("admin"), details.getRoles());
+    assertEquals(this.now + 3600, details.getExpirationDate().toEpochSecond());
+    assertEquals(1, details.getRefreshLimit());
+
+    assertSame(details, this.service.parseToken(token));
+    assertEquals(1, this.service.getTokenCache().getHitCount());
+  }
+
+  /**
+   * Test if tokens with a tampered signature or payload are rejected.
+   */
+  @Test
+  public void testTampered() throws GeneralSecurityException, JsonProcessingException {
+    final String token = Tokens.hs256(Tokens.SECRET, this.claims);
+    final int signatureStart = token.lastIndexOf('.') + 1;
+    final char replaced = token.charAt(signatureStart) == 'A' ? 'B' : 'A';
+    final String tamperedSignature =
+        token.substring(0, signatureStart) + replaced + token.substring(signatureStart + 1);
+    assertThrows(ForbiddenException.class, () -> this.service.parseToken(tamperedSignature));
+
+    this.claims.put("roles", Arrays.asList("admin", "superuser"));
+    final String other = Tokens.hs256(Tokens.SECRET, this.claims);
+    final String tamperedPayload = token.substring(0, token.indexOf('.'))
+        + other.substring(other.indexOf('.'), other.lastIndexOf('.'))
+        + token.substring(token.lastIndexOf('.'));
+    assertThrows(ForbiddenException.class, () -> this.service.parseToken(tamperedPayload));
+
+    final String otherSecret =
+        Tokens.hs256(Tokens.SECRET.replace('M', 'N'), Tokens.claims());
+    assertThrows(ForbiddenException.class, () -> this.service.parseToken(otherSecret));
+  }
+
+  /**
+   * Test if unsigned tokens and malformed tokens are rejected.
+   */
+  @Test
+  public void testUnsigned() throws JsonProcessingException {
+    final String unsigned = Tokens.signingInput(Tokens.header("none", null), this.claims) + '.';
+    assertThrows(ForbiddenException.class, () -> this.service.parseToken(unsigned));
+
+    final String withoutAlgorithm =
+        Tokens.signingInput(Tokens.header(null, null), this.claims) + '.';
+    assertThrows(ForbiddenException.class, () -> this.service.parseToken(withoutAlgorithm));
+
+    assertThrows(ForbiddenException.class, () -> this.service.parseToken("a.b"));
+    assertThrows(ForbiddenException.class, () -> this.service.parseToken("a.b.c.d"));
+    assertThrows(ForbiddenException.class, () -> this.service.parseToken("***.***.***"));
+  }
+
+  /**
+   * Test if expired tokens are rejected, unless within the clock skew.
+   */
+  @Test
+  public void testExpiration() throws GeneralSecurityException, JsonProcessingException {
+    this.claims.put("exp", this.now - 5);
+    parse();
+
+    this.claims.put("exp", this.now - 60);
+    assertRejected();
+  }
+
+  /**
+   * Test if tokens used before they are valid are rejected, unless within the clock skew.
+   */
+  @Test
+  public void testNotBefore() throws GeneralSecurityException, JsonProcessingException {
+    this.claims.put("nbf", this.now + 5);
+    parse();
+
+    this.claims.put("nbf", this.now + 60);
+    assertRejected();
+  }
+
+  /**
+   * Test if the audience must match or, if given as an array, contain the expected one.
+   */
+  @Test
+  public void testAudience() throws GeneralSecurityException, JsonProcessingException {
+    this.claims.put("aud", Arrays.asList("other", Tokens.AUDIENCE));
+    parse();
+
+    this.claims.put("aud", Arrays.asList("other", "another"));
+    assertRejected();
+
+    this.claims.put("aud", "other");
+    assertRejected();
+
+    this.claims.put("aud", null);
+    assertRejected();
+
+    this.claims.remove("aud");
+    assertRejected();
+  }
+
+  /**
+   * Test if tokens lacking a required claim are rejected.
+   */
+  @Test
+  public void testMissingClaims() throws GeneralSecurityException, JsonProcessingException {
+    for (final String claim : Arrays.asList("iat", "exp", "refreshCount", "refreshLimit")) {
+      this.claims = Tokens.claims();
+      this.claims.remove(claim);
+      assertThrows(ForbiddenException.class, this::parse, "Accepted without " + claim);
+    }
+
+    this.claims = Tokens.claims();
+    this.claims.put("exp", "tomorrow");
+    assertRejected();
+  }
+
+}
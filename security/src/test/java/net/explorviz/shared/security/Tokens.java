@@ -0,0 +1,196 @@
+package net.explorviz.shared.security;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Builds compact JSON web tokens for tests, including malformed ones.
+ */
+final class Tokens {
+
+  /**
+   * Base64-encoded secret of 256 bits.
+   */
+  static final String SECRET =
+      Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes(
+          StandardCharsets.US_ASCII));
+
+  static final String AUDIENCE = "explorviz";
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private Tokens() {
+    // Utility class
+  }
+
+  /**
+   * Header parameters with the given algorithm and key identifier, if not {@code null}.
+   */
+  static Map<String, Object> header(final String algorithm, final String keyId) {
+    final Map<String, Object> header = new LinkedHashMap<>();
+    header.put("alg", algorithm);
+    if (keyId != null) {
+      header.put("kid", keyId);
+    }
+    return header;
+  }
+
+  /**
+   * All claims required by the {@link TokenClaimsReader}, for a token that is valid for an hour.
+   */
+  static Map<String, Object> claims() {
+    final long now = System.currentTimeMillis() / 1000;
+    final Map<String, Object> claims = new LinkedHashMap<>();
+    claims.put("jti", "token-id");
+    claims.put("sub", "admin");
+    claims.put("userid", "1");
+    claims.put("aud", AUDIENCE);
+    claims.put("iat", now);
+    claims.put("exp", now + 3600);
+    claims.put("roles", Arrays.asList("admin"));
+    claims.put("refreshCount", 0);
+    claims.put("refreshLimit", 1);
+    return claims;
+  }
+
+  /**
+   * The signing input of a token, i.e. its encoded header and payload separated by a dot.
+   */
+  static String signingInput(final Map<String, Object> header, final Map<String, Object> claims)
+      throws JsonProcessingException {
+    return encode(MAPPER.writeValueAsBytes(header)) + '.'
+        + encode(MAPPER.writeValueAsBytes(claims));
+  }
+
+  /**
+   * A token signed with {@code HS256} and the given Base64-encoded secret.
+   */
+  static String hs256(final String secret, final Map<String, Object> claims)
+      throws GeneralSecurityException, JsonProcessingException {
+    return hs256(Base64.getDecoder().decode(secret), header("HS256", null), claims);
+  }
+
+  /**
+   * A token with the given header, signed with {@code HS256} and the given raw key.
+   */
+  static String hs256(final byte[] key, final Map<String, Object> header,
+      final Map<String, Object> claims) throws GeneralSecurityException, JsonProcessingException {
+    final String signingInput = signingInput(header, claims);
+    final Mac mac = Mac.getInstance("HmacSHA256");
+    mac.init(new SecretKeySpec(key, "HmacSHA256"));
+    return signingInput + '.'
+        + encode(mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII)));
+  }
+
+  /**
+   * A token signed with the given JCA signature algorithm and private key. ECDSA signatures are
+   * converted from DER into the concatenated coordinates used by JWS.
+   */
+  static String sign(final String signatureAlgorithm, final PrivateKey key,
+      final Map<String, Object> header, final Map<String, Object> claims)
+      throws GeneralSecurityException, JsonProcessingException {
+    final String signingInput = signingInput(header, claims);
+    final Signature signature = Signature.getInstance(signatureAlgorithm);
+    signature.initSign(key);
+    signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+    final byte[] bytes = signature.sign();
+    return signingInput + '.'
+        + encode("EC".equals(key.getAlgorithm()) ? concatenated(bytes) : bytes);
+  }
+
+  /**
+   * Converts a DER-encoded ECDSA signature of P-256 into its concatenated coordinates.
+   */
+  static byte[] concatenated(final byte[] der) {
+    // SEQUENCE (length < 128) of two INTEGERs
+    final int rLength = der[3];
+    final byte[] result = new byte[64];
+    unsigned(der, 4, rLength, result, 0);
+    unsigned(der, 4 + rLength + 2, der[4 + rLength + 1], result, 32);
+    return result;
+  }
+
+  private static void unsigned(final byte[] der, final int offset, final int length,
+      final byte[] result, final int resultOffset) {
+    int start = offset;
+    int remaining = length;
+    // Drop the sign byte
+    while (remaining > 32) {
+      start++;
+      remaining--;
+    }
+    System.arraycopy(der, start, result, resultOffset + 32 - remaining, remaining);
+  }
+
+  /**
+   * A JWK of an RSA public key, restricted to the algorithm if not {@code null}.
+   */
+  static Map<String, Object> jwk(final String keyId, final RSAPublicKey key,
+      final String algorithm) {
+    final Map<String, Object> jwk = jwk(keyId, "RSA", algorithm);
+    jwk.put("n", encode(key.getModulus()));
+    jwk.put("e", encode(key.getPublicExponent()));
+    return jwk;
+  }
+
+  /**
+   * A JWK of an EC public key on P-256, restricted to the algorithm if not {@code null}.
+   */
+  static Map<String, Object> jwk(final String keyId, final ECPublicKey key,
+      final String algorithm) {
+    final Map<String, Object> jwk = jwk(keyId, "EC", algorithm);
+    jwk.put("crv", "P-256");
+    jwk.put("x", encode(key.getW().getAffineX()));
+    jwk.put("y", encode(key.getW().getAffineY()));
+    return jwk;
+  }
+
+  private static Map<String, Object> jwk(final String keyId, final String type,
+      final String algorithm) {
+    final Map<String, Object> jwk = new LinkedHashMap<>();
+    jwk.put("kid", keyId);
+    jwk.put("kty", type);
+    jwk.put("use", "sig");
+    if (algorithm != null) {
+      jwk.put("alg", algorithm);
+    }
+    return jwk;
+  }
+
+  /**
+   * Writes a JSON Web Key Set with the given keys.
+   */
+  static void writeJwks(final Path file, final List<Map<String, Object>> keys)
+      throws IOException {
+    Files.write(file, MAPPER.writeValueAsBytes(Collections.singletonMap("keys", keys)));
+  }
+
+  private static String encode(final BigInteger value) {
+    final byte[] bytes = value.toByteArray();
+    // Unsigned big-endian, without the sign byte
+    return encode(bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes);
+  }
+
+  static String encode(final byte[] bytes) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+}
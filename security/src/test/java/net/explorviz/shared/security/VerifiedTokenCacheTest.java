@@ -0,0 +1,95 @@
+package net.explorviz.shared.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link VerifiedTokenCache}.
+ */
+public class VerifiedTokenCacheTest {
+
+  private AtomicLong time;
+  private VerifiedTokenCache cache;
+
+  @BeforeEach
+  public void setUp() {
+    this.time = new AtomicLong(1000);
+    this.cache = new VerifiedTokenCache(2, this.time::get);
+  }
+
+  private static TokenDetails expiringAt(final long epochMillis) {
+    return new TokenDetails.Builder()
+        .withExpirationDate(
+            ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()))
+        .build();
+  }
+
+  /**
+   * Test if verified tokens are found until they expire.
+   */
+  @Test
+  public void testExpiry() {
+    final TokenDetails details = expiringAt(5000);
+    this.cache.put("token", details);
+    assertSame(details, this.cache.get("token"));
+
+    this.time.set(5000);
+    assertNull(this.cache.get("token"), "Expired token returned");
+    assertEquals(0, this.cache.size());
+    assertEquals(1, this.cache.getHitCount());
+    assertEquals(1, this.cache.getMissCount());
+    assertEquals(1, this.cache.getEvictionCount());
+  }
+
+  /**
+   * Test if expired tokens and tokens without expiration are not cached at all.
+   */
+  @Test
+  public void testNotCached() {
+    this.cache.put("expired", expiringAt(1000));
+    this.cache.put("unlimited", new TokenDetails.Builder().build());
+    assertEquals(0, this.cache.size());
+  }
+
+  /**
+   * Test if the least recently used token is evicted if the cache is full.
+   */
+  @Test
+  public void testLruEviction() {
+    final TokenDetails first = expiringAt(5000);
+    final TokenDetails second = expiringAt(5000);
+    this.cache.put("first", first);
+    this.cache.put("second", second);
+
+    // Now the second token is the least recently used one
+    assertSame(first, this.cache.get("first"));
+    this.cache.put("third", expiringAt(5000));
+
+    assertEquals(2, this.cache.size());
+    assertNull(this.cache.get("second"), "Least recently used token kept");
+    assertSame(first, this.cache.get("first"), "Recently used token evicted");
+    assertEquals(1, this.cache.getEvictionCount());
+  }
+
+  /**
+   * Test if tokens are only found by their exact value and dropped on invalidation.
+   */
+  @Test
+  public void testInvalidation() {
+    this.cache.put("header.payload.signature", expiringAt(5000));
+    assertNull(this.cache.get("header.payload.signaturf"), "Tampered token matched");
+
+    this.cache.invalidateAll();
+    assertNull(this.cache.get("header.payload.signature"));
+    assertEquals(0, this.cache.getEvictionCount(), "Invalidation counted as eviction");
+  }
+
+}
@@ -0,0 +1,180 @@
+package net.explorviz.shared.security.filters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.annotation.security.RolesAllowed;
+import javax.ws.rs.NotAuthorizedException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.core.SecurityContext;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link AuthorizationFilter} and its registration by {@link AuthorizationFeature}.
+ */
+public class AuthorizationFilterTest {
+
+  /**
+   * Resource with a secured and an unsecured method.
+   */
+  @RolesAllowed("admin")
+  public static class Resource {
+
+    @Secure
+    public void secured() {}
+
+    public void unsecured() {}
+  }
+
+  /**
+   * Test if unauthenticated requests are rejected before the policy is checked.
+   */
+  @Test
+  public void testUnauthenticated() {
+    final AuthorizationFilter filter =
+        new AuthorizationFilter(AuthorizationPolicy.resolve(method("secured"), Resource.class));
+
+    assertThrows(NotAuthorizedException.class,
+        () -> filter.filter(request(unauthenticatedContext())));
+  }
+
+  /**
+   * Test if a filter registered by class resolves the policy of the current resource method and
+   * resource class.
+   */
+  @SuppressWarnings("deprecation")
+  @Test
+  public void testRegisteredByClass() throws IOException, ReflectiveOperationException {
+    final AuthorizationFilter filter = new AuthorizationFilter();
+    final Class<?>[] resourceClass = {AuthorizationPolicyTest.RolesClass.class};
+    final Field resourceInfo = AuthorizationFilter.class.getDeclaredField("resourceInfo");
+    resourceInfo.setAccessible(true);
+    resourceInfo.set(filter, resourceInfo(() -> resourceClass[0],
+        AuthorizationPolicyTest.Methods.class.getMethod("none")));
+
+    filter.filter(request(AuthorizationPolicyTest.context("admin")));
+    assertThrows(NotAuthorizedException.class,
+        () -> filter.filter(request(AuthorizationPolicyTest.context("user"))));
+
+    // The same method inherited by a class with other annotations
+    resourceClass[0] = AuthorizationPolicyTest.PermitAllClass.class;
+    filter.filter(request(AuthorizationPolicyTest.context("user")));
+  }
+
+  /**
+   * Test if the feature registers filters for secured methods only.
+   */
+  @Test
+  public void testFeature() {
+    final AuthorizationFeature feature = new AuthorizationFeature();
+    final List<Object> registered = new ArrayList<>();
+
+    feature.configure(resourceInfo(() -> Resource.class, method("secured")),
+        featureContext(registered));
+    assertEquals(1, registered.size());
+    assertTrue(registered.get(0) instanceof AuthorizationFilter);
+
+    feature.configure(resourceInfo(() -> Resource.class, method("unsecured")),
+        featureContext(registered));
+    assertEquals(1, registered.size(), "Filter registered for unsecured method");
+  }
+
+  /**
+   * Test if a request is authorized only once if the filter class is registered along with the
+   * feature.
+   */
+  @SuppressWarnings("deprecation")
+  @Test
+  public void testAuthorizedOnce() throws IOException {
+    final ContainerRequestContext request = request(AuthorizationPolicyTest.context("admin"));
+    new AuthorizationFilter(AuthorizationPolicy.resolve(method("secured"), Resource.class))
+        .filter(request);
+
+    // Would fail without resource info if the request was authorized again
+    new AuthorizationFilter().filter(request);
+  }
+
+  private static Method method(final String name) {
+    try {
+      return Resource.class.getMethod(name);
+    } catch (final NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static ContainerRequestContext request(final SecurityContext securityContext) {
+    final Map<String, Object> properties = new HashMap<>();
+    return (ContainerRequestContext) Proxy.newProxyInstance(
+        AuthorizationFilterTest.class.getClassLoader(),
+        new Class<?>[] {ContainerRequestContext.class}, (proxy, m, args) -> {
+          switch (m.getName()) {
+            case "getSecurityContext":
+              return securityContext;
+            case "getProperty":
+              return properties.get(args[0]);
+            case "setProperty":
+              properties.put((String) args[0], args[1]);
+              return null;
+            default:
+              throw new UnsupportedOperationException(m.getName());
+          }
+        });
+  }
+
+  private static SecurityContext unauthenticatedContext() {
+    return proxy(SecurityContext.class, "getUserPrincipal", null);
+  }
+
+  private static ResourceInfo resourceInfo(final Supplier<Class<?>> resourceClass,
+      final Method method) {
+    return (ResourceInfo) Proxy.newProxyInstance(AuthorizationFilterTest.class.getClassLoader(),
+        new Class<?>[] {ResourceInfo.class}, (proxy, m, args) -> {
+          switch (m.getName()) {
+            case "getResourceMethod":
+              return method;
+            case "getResourceClass":
+              return resourceClass.get();
+            default:
+              throw new UnsupportedOperationException(m.getName());
+          }
+        });
+  }
+
+  private static FeatureContext featureContext(final List<Object> registered) {
+    return (FeatureContext) Proxy.newProxyInstance(
+        AuthorizationFilterTest.class.getClassLoader(), new Class<?>[] {FeatureContext.class},
+        (proxy, m, args) -> {
+          switch (m.getName()) {
+            case "register":
+              registered.add(args[0]);
+              return proxy;
+            default:
+              throw new UnsupportedOperationException(m.getName());
+          }
+        });
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T proxy(final Class<T> type, final String methodName, final Object result) {
+    return (T) Proxy.newProxyInstance(AuthorizationFilterTest.class.getClassLoader(),
+        new Class<?>[] {type}, (proxy, m, args) -> {
+          if (m.getName().equals(methodName)) {
+            return result;
+          }
+          throw new UnsupportedOperationException(m.getName());
+        });
+  }
+
+}
@@ -0,0 +1,183 @@
+package net.explorviz.shared.security.filters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Method;
+import java.security.Principal;
+import java.util.Arrays;
+import java.util.Collections;
+import javax.annotation.security.DenyAll;
+import javax.annotation.security.PermitAll;
+import javax.annotation.security.RolesAllowed;
+import javax.ws.rs.ForbiddenException;
+import javax.ws.rs.NotAuthorizedException;
+import javax.ws.rs.core.SecurityContext;
+import net.explorviz.shared.security.AuthenticatedUserDetails;
+import net.explorviz.shared.security.TokenBasedSecurityContext;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the precedence of the annotations resolved by {@link AuthorizationPolicy}.
+ */
+public class AuthorizationPolicyTest {
+
+  private static final String ADMIN = "admin";
+
+  /**
+   * Resource methods, the resource classes below differ by their class annotations only.
+   */
+  public static class Methods {
+
+    public void none() {}
+
+    @PermitAll
+    public void permitAll() {}
+
+    @RolesAllowed(ADMIN)
+    public void roles() {}
+
+    @RolesAllowed(ADMIN)
+    @PermitAll
+    public void rolesAndPermitAll() {}
+
+    @DenyAll
+    public void denyAll() {}
+
+    @DenyAll
+    @RolesAllowed(ADMIN)
+    @PermitAll
+    public void denyAllAndOthers() {}
+
+    @DenyAll
+    public void apply() {}
+  }
+
+  public static class Unannotated extends Methods {
+  }
+
+  @RolesAllowed(ADMIN)
+  public static class RolesClass extends Methods {
+  }
+
+  @PermitAll
+  public static class PermitAllClass extends Methods {
+  }
+
+  @RolesAllowed(ADMIN)
+  @PermitAll
+  public static class RolesAndPermitAllClass extends Methods {
+  }
+
+  private static final Class<?>[] CLASSES =
+      {Unannotated.class, RolesClass.class, PermitAllClass.class, RolesAndPermitAllClass.class};
+
+  /**
+   * Expected effect per method (rows) and class (columns, see {@link #CLASSES}): {@code P}ermit
+   * all, {@code R}oles allowed, {@code D}eny all or deny by {@code N}o annotation.
+   */
+  private static final String[][] MATRIX = {
+      {"none", "NRPR"},
+      {"permitAll", "PPPP"},
+      {"roles", "RRRR"},
+      {"rolesAndPermitAll", "RRRR"},
+      {"denyAll", "DDDD"},
+      {"denyAllAndOthers", "DDDD"},
+      // Requests of the frontend, see AuthorizationPolicy#resolve
+      {"apply", "PPPP"}};
+
+  /**
+   * Test the precedence of the method annotations over the class annotations and of the
+   * annotations on the same level, for users with and without the allowed role.
+   */
+  @Test
+  public void testPrecedence() throws NoSuchMethodException {
+    final SecurityContext admin = context(ADMIN);
+    final SecurityContext user = context("user");
+    final SecurityContext plainAdmin = plainContext(ADMIN);
+
+    for (final String[] row : MATRIX) {
+      final Method method = Methods.class.getMethod(row[0]);
+      for (int i = 0; i < CLASSES.length; i++) {
+        final String cell = row[0] + " in " + CLASSES[i].getSimpleName();
+        final AuthorizationPolicy policy = AuthorizationPolicy.resolve(method, CLASSES[i]);
+        switch (row[1].charAt(i)) {
+          case 'P':
+            assertEquals("permitted", outcome(policy, admin), cell);
+            assertEquals("permitted", outcome(policy, user), cell);
+            break;
+          case 'R':
+            assertEquals("permitted", outcome(policy, admin), cell);
+            assertEquals("permitted", outcome(policy, plainAdmin), cell);
+            assertEquals("unauthorized", outcome(policy, user), cell);
+            break;
+          case 'D':
+            assertEquals("forbidden", outcome(policy, admin), cell);
+            assertEquals("forbidden", outcome(policy, user), cell);
+            break;
+          default:
+            assertEquals("unauthorized", outcome(policy, admin), cell);
+            assertEquals("unauthorized", outcome(policy, user), cell);
+        }
+      }
+    }
+  }
+
+  /**
+   * Test if the role check of the authenticated user details considers all of their roles.
+   */
+  @Test
+  public void testMultipleRoles() throws NoSuchMethodException {
+    final AuthorizationPolicy policy =
+        AuthorizationPolicy.resolve(Methods.class.getMethod("roles"), Unannotated.class);
+    assertEquals("permitted", outcome(policy, context("user", ADMIN)));
+    assertThrows(NotAuthorizedException.class,
+        () -> policy.authorize(context("user", "guest")));
+  }
+
+  private static String outcome(final AuthorizationPolicy policy,
+      final SecurityContext securityContext) {
+    try {
+      policy.authorize(securityContext);
+      return "permitted";
+    } catch (final ForbiddenException e) {
+      return "forbidden";
+    } catch (final NotAuthorizedException e) {
+      return "unauthorized";
+    }
+  }
+
+  static SecurityContext context(final String... roles) {
+    return new TokenBasedSecurityContext(
+        new AuthenticatedUserDetails("name", Arrays.asList(roles)), null, false);
+  }
+
+  /**
+   * A security context of another authentication mechanism, whose principal has no roles.
+   */
+  private static SecurityContext plainContext(final String role) {
+    return new SecurityContext() {
+
+      @Override
+      public Principal getUserPrincipal() {
+        return () -> "name";
+      }
+
+      @Override
+      public boolean isUserInRole(final String r) {
+        return Collections.singletonList(role).contains(r);
+      }
+
+      @Override
+      public boolean isSecure() {
+        return false;
+      }
+
+      @Override
+      public String getAuthenticationScheme() {
+        return "Basic";
+      }
+    };
+  }
+
+}